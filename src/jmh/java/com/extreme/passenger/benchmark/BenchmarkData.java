@@ -0,0 +1,81 @@
+package com.extreme.passenger.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.stream.IntStream;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.infrastructure.config.JacksonConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Datos fijos (semilla constante) compartidos por los benchmarks: mismos eventos en cada corrida. */
+final class BenchmarkData {
+
+    static final String TIMEZONE = "America/Bogota";
+    static final int VEHICLES = 64;
+    /** Potencia de 2: el índice del evento se obtiene con una máscara. */
+    static final int EVENTS = 1024;
+
+    static final List<String> VEHICLE_IDS = IntStream.range(0, VEHICLES).mapToObj(i -> "EMBUSA" + (100 + i)).toList();
+
+    /** Acumulados previos de todos los vehículos; las lecturas suben poco sobre ellos (sin picos). */
+    static final Accumulators LAST_ACC = Accumulators.builder()
+            .door1In(440_120).door1Out(4_108).door2In(4_288).door2Out(427_677)
+            .totalIn(444_408).totalOut(431_785)
+            .build();
+
+    private BenchmarkData() { }
+
+    /** ObjectMapper equivalente al de Spring Boot con spring.jackson.time-zone y {@link JacksonConfig}. */
+    static ObjectMapper objectMapper() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json().timeZone(TimeZone.getTimeZone(TIMEZONE));
+        new JacksonConfig().instantTimeZone().customize(builder);
+        return builder.build();
+    }
+
+    /** Payloads con el formato de kafka-event-example.json (aliases doorInN/date/vehicleID). */
+    static byte[][] payloads() {
+        Random random = new Random(42);
+        byte[][] payloads = new byte[EVENTS][];
+        for (int i = 0; i < EVENTS; i++) {
+            String json = "{\"doorIn1\":" + (LAST_ACC.getDoor1In() + random.nextInt(20))
+                    + ",\"doorOut1\":" + (LAST_ACC.getDoor1Out() + random.nextInt(20))
+                    + ",\"doorBlock1\":0"
+                    + ",\"doorIn2\":" + (LAST_ACC.getDoor2In() + random.nextInt(20))
+                    + ",\"doorOut2\":" + (LAST_ACC.getDoor2Out() + random.nextInt(20))
+                    + ",\"doorBlock2\":0,\"doorIn3\":0,\"doorOut3\":0,\"doorBlock3\":0"
+                    + ",\"date\":\"2025-08-22 08:" + two(random.nextInt(60)) + ":" + two(random.nextInt(60)) + "\""
+                    + ",\"vehicleID\":\"" + VEHICLE_IDS.get(i % VEHICLES) + "\"}";
+            payloads[i] = json.getBytes(StandardCharsets.UTF_8);
+        }
+        return payloads;
+    }
+
+    /** Eventos de dominio equivalentes a {@link #payloads()}, con checkin_time reciente. */
+    static PassengerEvent[] events() {
+        Random random = new Random(42);
+        Instant now = Instant.now();
+        PassengerEvent[] events = new PassengerEvent[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = PassengerEvent.builder()
+                    .idVehicle(VEHICLE_IDS.get(i % VEHICLES))
+                    .door1In(LAST_ACC.getDoor1In() + random.nextInt(20))
+                    .door1Out(LAST_ACC.getDoor1Out() + random.nextInt(20))
+                    .door2In(LAST_ACC.getDoor2In() + random.nextInt(20))
+                    .door2Out(LAST_ACC.getDoor2Out() + random.nextInt(20))
+                    .checkinTime(now.minusSeconds(random.nextInt(60)))
+                    .build();
+        }
+        return events;
+    }
+
+    private static String two(int n) {
+        return n < 10 ? "0" + n : Integer.toString(n);
+    }
+}
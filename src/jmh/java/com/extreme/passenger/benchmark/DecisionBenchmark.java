@@ -0,0 +1,82 @@
+package com.extreme.passenger.benchmark;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.extreme.passenger.application.service.AccumulatorEngine;
+import com.extreme.passenger.application.service.PassengerCountCalculator;
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.infrastructure.config.AppProperties;
+
+/**
+ * Decisión net/pico por evento (pasos 1–6 y 9 del procesamiento) sin repositorio: camino unitario sobre el
+ * workspace de {@link AccumulatorEngine} y camino por lotes sobre {@link PassengerCountCalculator}.
+ * Con el profiler gc, gc.alloc.rate.norm de engine es la asignación por evento del motor (solo los Instant de
+ * now y de la fecha efectiva); calculator muestra lo que asignan los builders de Accumulators.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecisionBenchmark {
+
+    private AccumulatorEngine engine;
+    private PassengerCountCalculator calculator;
+    private PassengerEvent[] events;
+    private Instant lastDate;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppProperties props = new AppProperties();
+        props.setExcludedIds(List.of("COOCHOFAL250"));
+        props.setPassengerCountTolerance(200);
+        props.setTimeThresholdMinutes(45);
+        props.setTimezone(BenchmarkData.TIMEZONE);
+        engine = new AccumulatorEngine(props);
+        calculator = new PassengerCountCalculator(engine);
+        events = BenchmarkData.events();
+        lastDate = Instant.now().minusSeconds(600);
+    }
+
+    @Benchmark
+    public Instant engine() {
+        PassengerEvent event = events[next++ & (BenchmarkData.EVENTS - 1)];
+        AccumulatorEngine.Workspace w = engine.workspace();
+        AccumulatorEngine.raw(event, w.raw);
+        AccumulatorEngine.prev(BenchmarkData.LAST_ACC, w.prev);
+        AccumulatorEngine.net(w.raw, w.prev, w.net);
+        Instant now = Instant.now();
+        double minutesDiff = AccumulatorEngine.minutesSince(lastDate, now);
+        if (engine.isSpike(event.getIdVehicle(), lastDate, w.net, minutesDiff)) return null;
+        return AccumulatorEngine.effectiveDate(event.getCheckinTime(), now);
+    }
+
+    @Benchmark
+    public Instant calculator() {
+        PassengerEvent event = events[next++ & (BenchmarkData.EVENTS - 1)];
+        Optional<Instant> lastDateOpt = Optional.of(lastDate);
+        Accumulators raw = calculator.raw(event);
+        Accumulators net = calculator.net(raw, calculator.prev(BenchmarkData.LAST_ACC));
+        Double minutesDiff = calculator.minutesSince(lastDateOpt);
+        if (calculator.isSpike(event.getIdVehicle(), lastDateOpt, net, minutesDiff)) return null;
+        return calculator.effectiveDate(event.getCheckinTime());
+    }
+}
@@ -0,0 +1,66 @@
+package com.extreme.passenger.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.presentation.dto.PassengerEventIn;
+import com.extreme.passenger.presentation.mapper.JacksonPassengerEventDecoder;
+import com.extreme.passenger.presentation.mapper.PassengerEventMapper;
+import com.extreme.passenger.presentation.mapper.StreamingPassengerEventDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Decodificación del payload de Kafka: DTO con Jackson, decoder jackson (DTO + mapper) y decoder streaming. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    private ObjectMapper json;
+    private JacksonPassengerEventDecoder jackson;
+    private StreamingPassengerEventDecoder streaming;
+    private byte[][] payloads;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        json = BenchmarkData.objectMapper();
+        jackson = new JacksonPassengerEventDecoder(json, new PassengerEventMapper());
+        streaming = new StreamingPassengerEventDecoder(json);
+        payloads = BenchmarkData.payloads();
+    }
+
+    private byte[] nextPayload() {
+        return payloads[next++ & (BenchmarkData.EVENTS - 1)];
+    }
+
+    @Benchmark
+    public PassengerEventIn readPassengerEventIn() throws IOException {
+        return json.readValue(nextPayload(), PassengerEventIn.class);
+    }
+
+    @Benchmark
+    public PassengerEvent jacksonDecoder() throws IOException {
+        return jackson.decode(nextPayload());
+    }
+
+    @Benchmark
+    public PassengerEvent streamingDecoder() throws IOException {
+        return streaming.decode(nextPayload());
+    }
+}
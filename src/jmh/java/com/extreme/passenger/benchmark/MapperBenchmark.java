@@ -0,0 +1,50 @@
+package com.extreme.passenger.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.presentation.dto.PassengerEventIn;
+import com.extreme.passenger.presentation.mapper.PassengerEventMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** PassengerEventMapper.toDomain sobre DTOs ya decodificados. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private final PassengerEventMapper mapper = new PassengerEventMapper();
+    private PassengerEventIn[] dtos;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper json = BenchmarkData.objectMapper();
+        byte[][] payloads = BenchmarkData.payloads();
+        dtos = new PassengerEventIn[payloads.length];
+        for (int i = 0; i < payloads.length; i++) {
+            dtos[i] = json.readValue(payloads[i], PassengerEventIn.class);
+        }
+    }
+
+    @Benchmark
+    public PassengerEvent toDomain() {
+        return mapper.toDomain(dtos[next++ & (BenchmarkData.EVENTS - 1)]);
+    }
+}
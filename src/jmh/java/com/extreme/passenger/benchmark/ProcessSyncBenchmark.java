@@ -0,0 +1,144 @@
+package com.extreme.passenger.benchmark;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.extreme.passenger.application.service.ProcessPassengerEventService;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.infrastructure.config.AppProperties;
+import com.extreme.passenger.presentation.dto.PassengerEventOut;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * processSync completo (transacción, registro de vehículos, estado previo, decisión, programación y escrituras)
+ * con los beans reales cableados por Spring desde application.yaml y un repositorio sin BD. caches=on habilita
+ * cache de estado, registro de vehículos y cache de programación. Los logs INFO quedan desactivados
+ * (logback-test.xml) para no medir la salida por consola. El camino completo necesita más calentamiento que el resto.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessSyncBenchmark {
+
+    @Param({"off", "on"})
+    public String caches;
+
+    private AnnotationConfigApplicationContext context;
+    private ProcessPassengerEventService service;
+    private PassengerEvent[] events;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String enabled = String.valueOf("on".equals(caches));
+        context = new AnnotationConfigApplicationContext();
+        for (PropertySource<?> source : new YamlPropertySourceLoader().load("application", new ClassPathResource("application.yaml"))) {
+            context.getEnvironment().getPropertySources().addLast(source);
+        }
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "app.state-cache.enabled", enabled,
+                "app.vehicle-registry.enabled", enabled,
+                "app.program-cache.enabled", enabled)));
+        context.register(Wiring.class);
+        context.refresh();
+        service = context.getBean(ProcessPassengerEventService.class);
+        events = BenchmarkData.events();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PassengerEventOut processSync() {
+        return service.processSync(events[next++ & (BenchmarkData.EVENTS - 1)]);
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(AppProperties.class)
+    @ComponentScan(basePackages = {
+            "com.extreme.passenger.application.service",
+            "com.extreme.passenger.infrastructure.cache",
+            "com.extreme.passenger.infrastructure.hotspot",
+            "com.extreme.passenger.infrastructure.journal",
+            "com.extreme.passenger.infrastructure.occupancy",
+            "com.extreme.passenger.infrastructure.rollup"})
+    @ComponentScan(basePackages = "com.extreme.passenger.infrastructure.async", useDefaultFilters = false,
+            includeFilters = @ComponentScan.Filter(type = FilterType.REGEX, pattern = ".*\\.(AsyncProps|ConnectionPermits)"))
+    static class Wiring {
+
+        @Bean
+        StubPassengerEventRepository repository() {
+            return new StubPassengerEventRepository(BenchmarkData.VEHICLE_IDS, BenchmarkData.LAST_ACC);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new NoOpTransactionManager();
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+    }
+
+    /** Demarcación y sincronizaciones reales (publicación de estado tras el commit) sin conexión. */
+    static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) { }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) { }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) { }
+    }
+}
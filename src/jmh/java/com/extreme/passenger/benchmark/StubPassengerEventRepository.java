@@ -0,0 +1,87 @@
+package com.extreme.passenger.benchmark;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+
+/**
+ * Repositorio sin BD para aislar el costo Java de processSync: todos los vehículos existen, tienen
+ * histórico de hace 10 minutos y programación activa; las escrituras solo se cuentan.
+ */
+class StubPassengerEventRepository implements PassengerEventRepository {
+
+    static final long PROGRAM_ID = 1L;
+
+    private final List<String> vehicleIds;
+    private final Accumulators lastAcc;
+    final LongAdder writes = new LongAdder();
+
+    StubPassengerEventRepository(List<String> vehicleIds, Accumulators lastAcc) {
+        this.vehicleIds = vehicleIds;
+        this.lastAcc = lastAcc;
+    }
+
+    private static Instant lastDate() {
+        return Instant.now().minus(10, ChronoUnit.MINUTES);
+    }
+
+    @Override public boolean vehicleExists(String idVehicle) { return true; }
+    @Override public List<String> findExistingVehicleIds(Collection<String> idVehicles) { return new ArrayList<>(idVehicles); }
+
+    @Override public Optional<Instant> getLastDate(String idVehicle) { return Optional.of(lastDate()); }
+    @Override public boolean hasHistory(String idVehicle) { return true; }
+    @Override public Optional<RepoAcc> getLastAccumulators(String idVehicle, Instant until) {
+        return Optional.of(new RepoAcc(PROGRAM_ID, lastAcc));
+    }
+
+    @Override public Optional<Long> getActiveProgram(String idVehicle, LocalDate day) { return Optional.of(PROGRAM_ID); }
+    @Override public Optional<PrevPoint> getLastBlankPointOfProgram(Long programId) { return Optional.empty(); }
+
+    @Override public void updateProgvehiculosCounters(Long programId, int in, int out, int block) { writes.increment(); }
+
+    @Override public void insertDiscarded(PassengerEvent ev, Accumulators accNet, Accumulators accRaw, Long programId, Long pointId) {
+        writes.increment();
+    }
+
+    @Override public void insertPassengerEvent(PassengerEvent ev, Long programId, Long pointId, Accumulators accNet, Accumulators accRaw) {
+        writes.increment();
+    }
+
+    @Override public void updateVehicleLastCount(String idVehicle, Instant when) { writes.increment(); }
+    @Override public long getVehicleVersion(String idVehicle) { return 0; }
+    @Override public boolean compareAndSetLastCount(String idVehicle, long expectedVersion, Instant when) {
+        writes.increment();
+        return true;
+    }
+    @Override public boolean validateVehicleVersion(String idVehicle, long expectedVersion) { return true; }
+
+    @Override public void lockVehicleRow(String idVehicle) { }
+
+    @Override public String processInDatabase(PassengerEvent ev, LocalDate day, int tolerance, int timeThresholdMinutes, boolean excluded) {
+        throw new UnsupportedOperationException("modo function no aplica sin BD");
+    }
+
+    @Override public List<String> findVehicleIds() { return vehicleIds; }
+
+    @Override public List<VehicleState> loadVehicleStates(Collection<String> idVehicles) {
+        Instant lastDate = lastDate();
+        return idVehicles.stream()
+                .map(id -> new VehicleState(id, lastDate, true, lastDate, PROGRAM_ID, lastAcc))
+                .toList();
+    }
+
+    @Override public void insertDiscardedBatch(List<CountRow> rows) { writes.add(rows.size()); }
+    @Override public void insertPassengerEventBatch(List<CountRow> rows) { writes.add(rows.size()); }
+    @Override public void updateVehicleLastCountBatch(Map<String, Instant> lastCounts) { writes.add(lastCounts.size()); }
+}
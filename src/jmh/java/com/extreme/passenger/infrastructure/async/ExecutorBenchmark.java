@@ -0,0 +1,104 @@
+package com.extreme.passenger.infrastructure.async;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Pool de plataforma (app.async.* por defecto) contra virtual threads acotados por el pool de conexiones:
+ * cada invocación ejecuta tasks tareas que bloquean latencyMs en la BD (pg_sleep). Necesita un Postgres en
+ * DB_URL/DB_USER/DB_PASSWORD (DB_POOL_SIZE, 10 por defecto), por eso queda fuera del include por defecto:
+ * {@code mvn -Pjmh verify -Djmh.include=ExecutorBenchmark}. Con {@code -prof gc} queda la asignación por
+ * invocación; el pico de hilos se ve con {@code -prof hs_thr}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutorBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String executor;
+
+    @Param("2000")
+    public int tasks;
+
+    @Param("20")
+    public int latencyMs;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private Executor pool;
+    private Semaphore permits;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("DB_URL"));
+        dataSource.setUsername(System.getenv("DB_USER"));
+        dataSource.setPassword(System.getenv("DB_PASSWORD"));
+        int poolSize = Integer.parseInt(System.getenv().getOrDefault("DB_POOL_SIZE", "10"));
+        dataSource.setMaximumPoolSize(poolSize);
+        jdbc = new JdbcTemplate(dataSource);
+
+        if (executor.equals("platform")) {
+            // el pool de plataforma rechaza si la cola no alcanza: se dimensiona para la prueba
+            AsyncProps props = new AsyncProps();
+            props.setQueueCapacity(Math.max(props.getQueueCapacity(), tasks));
+            pool = AsyncConfig.newPlatformExecutor(props);
+        } else {
+            pool = AsyncConfig.newVirtualExecutor();
+            permits = new Semaphore(poolSize, true);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool instanceof ThreadPoolTaskExecutor platform) platform.shutdown();
+        if (pool instanceof SimpleAsyncTaskExecutor virtual) virtual.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void blockingTasks() throws InterruptedException {
+        double sleepSeconds = latencyMs / 1000.0;
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            pool.execute(() -> {
+                try {
+                    if (permits != null) permits.acquireUninterruptibly();
+                    try {
+                        jdbc.queryForObject("SELECT 1 FROM pg_sleep(?)", Integer.class, sleepSeconds);
+                    } finally {
+                        if (permits != null) permits.release();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,120 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+
+/**
+ * Escritura de rows filas sintéticas con update fila a fila, batchUpdate y COPY sobre una tabla temporal
+ * LIKE conteo_pasajeros, en una transacción que se revierte tras cada invocación: no deja datos. Necesita
+ * un Postgres en DB_URL/DB_USER/DB_PASSWORD, por eso queda fuera del include por defecto:
+ * {@code mvn -Pjmh verify -Djmh.include=BulkWriteBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BulkWriteBenchmark {
+
+    private static final String TABLE = "tmp_cp_bench";
+
+    @Param({"update", "batch", "copy"})
+    public String method;
+
+    @Param("10000")
+    public int rows;
+
+    private Connection con;
+    private List<CountRow> data;
+
+    @Setup(Level.Trial)
+    public void connect() throws SQLException {
+        con = DriverManager.getConnection(System.getenv("DB_URL"), System.getenv("DB_USER"), System.getenv("DB_PASSWORD"));
+        con.setAutoCommit(false);
+        data = syntheticRows(rows);
+    }
+
+    @Setup(Level.Invocation)
+    public void createTable() throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute("CREATE TEMP TABLE " + TABLE + " (LIKE " + PgCopyWriter.TABLE_MAIN + " INCLUDING DEFAULTS) ON COMMIT DROP");
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() throws SQLException {
+        con.rollback();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        con.close();
+    }
+
+    @Benchmark
+    public long write() throws SQLException {
+        return switch (method) {
+            case "copy" -> PgCopyWriter.copy(con, TABLE, data, false);
+            case "batch" -> insert(true);
+            default -> insert(false);
+        };
+    }
+
+    private long insert(boolean batch) throws SQLException {
+        String sql = PassengerEventJdbcRepository.SQL_INSERT_MAIN.replace(PgCopyWriter.TABLE_MAIN, TABLE);
+        long written = 0;
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (CountRow r : data) {
+                Object[] args = PassengerEventJdbcRepository.mainArgs(r.ev(), r.programId(), r.pointId(), r.accNet(), r.accRaw());
+                for (int i = 0; i < args.length; i++) ps.setObject(i + 1, args[i]);
+                if (batch) ps.addBatch(); else written += ps.executeUpdate();
+            }
+            if (batch) written = ps.executeBatch().length;
+        }
+        return written;
+    }
+
+    private static List<CountRow> syntheticRows(int n) {
+        List<CountRow> rows = new ArrayList<>(n);
+        Instant t0 = Instant.now();
+        for (int i = 0; i < n; i++) {
+            PassengerEvent ev = PassengerEvent.builder()
+                    .idVehicle("BENCH" + (i % 100))
+                    .door1In(i).door1Out(i).door2In(i).door2Out(i)
+                    .checkinTime(t0.plusSeconds(i))
+                    .build();
+            Accumulators raw = Accumulators.builder()
+                    .totalIn(2 * i).totalOut(2 * i).door1In(i).door1Out(i).door2In(i).door2Out(i).build();
+            Accumulators net = Accumulators.builder()
+                    .totalIn(2).totalOut(2).door1In(1).door1Out(1).door2In(1).door2Out(1).build();
+            rows.add(new CountRow(ev, null, null, net, raw));
+        }
+        return rows;
+    }
+}
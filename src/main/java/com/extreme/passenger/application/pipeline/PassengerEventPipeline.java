@@ -0,0 +1,402 @@
+package com.extreme.passenger.application.pipeline;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.extreme.passenger.application.service.PassengerCountCalculator;
+import com.extreme.passenger.application.service.VehicleStateProvider;
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+import com.extreme.passenger.domain.port.PassengerEventRepository.PrevPoint;
+import com.extreme.passenger.domain.port.PassengerEventRepository.RepoAcc;
+import com.extreme.passenger.infrastructure.cache.ActiveProgramCache;
+import com.extreme.passenger.infrastructure.cache.VehicleRegistry;
+import com.extreme.passenger.infrastructure.persistence.jdbc.BulkCountWriter;
+import com.extreme.passenger.presentation.dto.Status;
+import com.extreme.passenger.presentation.mapper.PassengerEventDecoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pipeline por etapas (app.pipeline.enabled=true): decode → validate/enrich → decide → persist, cada una con
+ * sus propios hilos y ring buffers acotados entre ellas, de modo que el parseo y el cálculo (CPU) se solapan
+ * con las escrituras (IO). Desde validate todo se enruta por hash de vehículo: los eventos de un vehículo se
+ * deciden y persisten en orden de llegada. Las reglas de negocio son las de ProcessPassengerEventService.
+ * <p>
+ * La etapa decide avanza el estado del vehículo en memoria mientras sus filas están en vuelo, por lo que el
+ * pipeline debe ser el único escritor de esos vehículos (misma suposición que la cache de estado). Si ese
+ * estado no cubre la última fecha, decide espera a que se confirmen las filas en vuelo del vehículo antes de
+ * leer la fila previa de la BD.
+ * <p>
+ * Ningún evento termina en ERROR: una etapa que falla reintenta el mismo lote sin límite mientras el pipeline
+ * corra (como el despachador key-parallel), y lo que sigue fallando al detenerse queda sin completar, así que
+ * Kafka lo vuelve a entregar. Cuando un lote de persist se revierte, los eventos de sus vehículos decididos
+ * sobre ese estado en vuelo (el propio lote y los encolados detrás) quedan obsoletos: persist los vuelve a
+ * decidir contra la BD antes de escribirlos, y decide lee el vehículo de la BD en cuanto no quede nada suyo
+ * en vuelo.
+ * <p>
+ * Con app.bulk-write.mode=copy los descartes no pasan por persist: no cambian el estado del vehículo, así que
+ * decide los entrega al {@link BulkCountWriter} y el evento se completa cuando su COPY hizo commit.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.pipeline", name = "enabled", havingValue = "true")
+public class PassengerEventPipeline {
+
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(30);
+
+    private final PassengerEventDecoder decoder;
+    private final PassengerEventRepository repository;
+    private final PassengerCountCalculator calculator;
+    private final VehicleStateProvider states;
+    private final VehicleRegistry vehicles;
+    private final ActiveProgramCache programs;
+    private final TransactionTemplate tx;
+    /** null salvo en modo copy */
+    private final BulkCountWriter discards;
+    private final Duration retryInitialBackoff;
+    private final Duration retryMaxBackoff;
+
+    private final PipelineStage<PipelineEvent> decode;
+    private final PipelineStage<PipelineEvent> enrich;
+    private final PipelineStage<PipelineEvent> decide;
+    private final PipelineStage<PipelineEvent> persist;
+
+    /**
+     * Estado de los vehículos con filas decididas y aún no confirmadas, con el número de filas en vuelo y los
+     * rollbacks vistos. Un vehículo que tuvo un rollback conserva su entrada (a lo sumo una por vehículo de la flota).
+     */
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    /** Monitor que persist notifica al confirmar o abandonar filas en vuelo. */
+    private final Object persisted = new Object();
+
+    private volatile boolean running;
+
+    public PassengerEventPipeline(PipelineProps props, PassengerEventDecoder decoder,
+                                  PassengerEventRepository repository, PassengerCountCalculator calculator,
+                                  VehicleStateProvider states, VehicleRegistry vehicles, ActiveProgramCache programs,
+                                  TransactionTemplate tx, ObjectProvider<BulkCountWriter> bulkWriter,
+                                  MeterRegistry meterRegistry) {
+        this.decoder = decoder;
+        this.repository = repository;
+        this.calculator = calculator;
+        this.states = states;
+        this.vehicles = vehicles;
+        this.programs = programs;
+        this.tx = tx;
+        this.discards = bulkWriter.getIfAvailable();
+        this.retryInitialBackoff = props.getRetryInitialBackoff();
+        this.retryMaxBackoff = props.getRetryMaxBackoff();
+        // decode/enrich/decide procesan de a un item: un reintento nunca repite un item ya entregado a la etapa siguiente
+        this.decode = stage("decode", props.getDecodeWorkers(), 1, props, each(this::decode), this::abandoned, meterRegistry);
+        this.enrich = stage("enrich", props.getEnrichWorkers(), 1, props, each(this::enrich), this::abandoned, meterRegistry);
+        this.decide = stage("decide", props.getDecideShards(), 1, props, each(this::decide), this::abandoned, meterRegistry);
+        this.persist = stage("persist", props.getPersistWorkers(), props.getPersistMaxBatch(), props, this::persist,
+                this::persistAbandoned, meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        persist.start();
+        decide.start();
+        enrich.start();
+        decode.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        decode.stop(STOP_TIMEOUT);
+        enrich.stop(STOP_TIMEOUT);
+        decide.stop(STOP_TIMEOUT);
+        persist.stop(STOP_TIMEOUT);
+    }
+
+    /**
+     * Encola un payload JSON (bytes UTF-8). routingKey reparte el decode (p. ej. la partición Kafka, donde el orden ya está dado);
+     * onDone se invoca una sola vez con el status final, desde un hilo del pipeline, y nunca si el pipeline se detiene
+     * antes de completar el evento. Bloquea si el ring está lleno.
+     */
+    public void submit(byte[] payload, int routingKey, Consumer<Status> onDone) throws InterruptedException {
+        decode.put(routingKey, new PipelineEvent(payload, routingKey, onDone));
+    }
+
+    // 1) Decoder (app.decoder): un payload no deserializable no se puede reprocesar → INVALID
+    private void decode(PipelineEvent e) throws InterruptedException {
+        try {
+            e.event = decoder.decode(e.payload);
+        } catch (Exception ex) {
+            log.error("Pipeline: error deserializando payload → INVALID", ex);
+        }
+        PassengerEvent ev = e.event;
+        if (ev == null || ev.getIdVehicle() == null || ev.getIdVehicle().isBlank() || ev.getCheckinTime() == null) {
+            e.onDone.accept(Status.INVALID);
+            return;
+        }
+        enrich.put(e.vehicleHash(), e);
+    }
+
+    // 2) Existencia del vehículo, acumulados raw y programación activa (caches)
+    private void enrich(PipelineEvent e) throws InterruptedException {
+        if (!vehicles.exists(e.idVehicle())) {
+            log.warn("[vehicle={}][pipeline] Vehículo no encontrado", e.idVehicle());
+            e.onDone.accept(Status.NOT_FOUND);
+            return;
+        }
+        e.raw = calculator.raw(e.event);
+        e.activeProgramId = programs.activeProgramToday(e.idVehicle()).orElse(null);
+        decide.put(e.vehicleHash(), e);
+    }
+
+    // 3) Netos, pico y punto anterior sobre el estado en memoria del shard
+    private void decide(PipelineEvent e) throws InterruptedException {
+        String idVehicle = e.idVehicle();
+        InFlight held = inFlight.get(idVehicle);
+        VehicleState state = held != null ? held.state() : null;
+        if (state != null && state.lastDate() != null && state.hasHistory() && !state.coversLastDate()) state = null;
+        if (state == null) {
+            // la fila previa (o el estado, tras un rollback) se lee de la BD: lo que está en vuelo debe estar confirmado antes
+            if (held != null) {
+                awaitPersisted(idVehicle);
+                held = inFlight.get(idVehicle);
+            }
+            state = states.load(idVehicle);
+        }
+        long epoch = held != null ? held.epoch() : 0;
+
+        decideAgainst(e, state);
+        if (e.discarded && discards != null) {
+            // el estado no cambia: no queda nada en vuelo para el vehículo
+            submitDiscard(e, retryInitialBackoff.toMillis());
+            return;
+        }
+        e.epoch = epoch;
+        VehicleState decided = e.state;
+        inFlight.compute(idVehicle, (k, h) -> h == null
+                ? new InFlight(decided, 1, 0)
+                // un rollback entretanto deja obsoleta esta decisión: persist la rehace y el estado queda por leer
+                : new InFlight(h.epoch() == epoch ? decided : null, h.pending() + 1, h.epoch()));
+        persist.put(e.vehicleHash(), e);
+    }
+
+    /** Decide el evento sobre state: completa row, discarded, blankPointCounters, currentDate y el estado resultante. */
+    private void decideAgainst(PipelineEvent e, VehicleState state) {
+        String idVehicle = e.idVehicle();
+        e.discarded = false;
+        e.blankPointCounters = false;
+        e.currentDate = null;
+        Optional<Instant> lastDateOpt = state.lastDateOpt();
+
+        Accumulators prev = calculator.zero();
+        Long prevProgramId = null;
+        if (lastDateOpt.isPresent() && state.hasHistory()) {
+            Optional<RepoAcc> ra = states.lastAccumulators(state);
+            if (ra.isPresent()) {
+                prevProgramId = ra.get().programId();
+                prev = calculator.prev(ra.get().acc());
+            }
+        }
+
+        Accumulators net = calculator.net(e.raw, prev);
+        Double minutesDiff = calculator.minutesSince(lastDateOpt);
+
+        if (calculator.isSpike(idVehicle, lastDateOpt, net, minutesDiff)) {
+            log.warn("[vehicle={}][pipeline] Evento descartado por pico (net={} minDiff={})", idVehicle, net, minutesDiff);
+            e.discarded = true;
+            e.row = new CountRow(e.event, null, null, net, e.raw);
+        } else {
+            Long programId = e.activeProgramId;
+            Long pointId = null;
+            if (programId == null && lastDateOpt.isPresent() && state.hasHistory() && prevProgramId != null) {
+                Optional<PrevPoint> pp = repository.getLastBlankPointOfProgram(prevProgramId);
+                if (pp.isPresent() && pp.get().blank()) {
+                    programId = prevProgramId;
+                    pointId = pp.get().pointId();
+                    e.blankPointCounters = true;
+                }
+            }
+            e.currentDate = calculator.effectiveDate(e.event.getCheckinTime());
+            e.row = new CountRow(e.event, programId, pointId, net, e.raw);
+            state = state.afterInsert(e.currentDate, e.event.getCheckinTime(), programId, e.raw);
+        }
+        e.state = state;
+    }
+
+    /** Descarte en modo copy: se reenvía con backoff hasta que su COPY haga commit; si el pipeline se detiene queda sin completar. */
+    private void submitDiscard(PipelineEvent e, long backoffMs) throws InterruptedException {
+        discards.submitDiscarded(e.row).whenComplete((v, ex) -> {
+            if (ex == null) {
+                e.onDone.accept(Status.DISCARDED);
+            } else if (!running) {
+                log.warn("[vehicle={}][pipeline] Descarte no persistido al detener (checkin={}) → sin ack", e.idVehicle(), e.event.getCheckinTime());
+            } else {
+                log.error("[vehicle={}][pipeline] Descarte no persistido (checkin={}) → reintento en {} ms", e.idVehicle(), e.event.getCheckinTime(), backoffMs, ex);
+                CompletableFuture.delayedExecutor(backoffMs, TimeUnit.MILLISECONDS)
+                        .execute(() -> resubmitDiscard(e, Math.min(backoffMs * 2, retryMaxBackoff.toMillis())));
+            }
+        });
+    }
+
+    private void resubmitDiscard(PipelineEvent e, long backoffMs) {
+        try {
+            submitDiscard(e, backoffMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            // el writer ya no acepta filas (se está deteniendo): el evento queda sin completar
+            log.warn("[vehicle={}][pipeline] Descarte no reenviado (checkin={}) → sin ack", e.idVehicle(), e.event.getCheckinTime(), ex);
+        }
+    }
+
+    // 4) Una transacción por lote drenado: locks en orden, inserts/updates en batch, acks tras el commit
+    private void persist(List<PipelineEvent> batch) {
+        try {
+            write(batch);
+        } catch (RuntimeException ex) {
+            rolledBack(batch);
+            throw ex;
+        }
+        for (PipelineEvent e : batch) {
+            release(e);
+            e.onDone.accept(e.discarded ? Status.DISCARDED : Status.OK);
+        }
+        notifyPersisted();
+    }
+
+    private void write(List<PipelineEvent> batch) {
+        redecideStale(batch);
+        List<CountRow> inserts = new ArrayList<>();
+        List<CountRow> discards = new ArrayList<>();
+        Map<String, Instant> lastCounts = new LinkedHashMap<>();
+        Map<String, VehicleState> finalStates = new LinkedHashMap<>();
+        for (PipelineEvent e : batch) {
+            if (e.discarded) {
+                discards.add(e.row);
+            } else {
+                inserts.add(e.row);
+                lastCounts.put(e.idVehicle(), e.currentDate);
+            }
+            finalStates.put(e.idVehicle(), e.state);
+        }
+
+        tx.executeWithoutResult(s -> {
+            new TreeSet<>(finalStates.keySet()).forEach(repository::lockVehicleRow);
+            for (PipelineEvent e : batch) {
+                if (!e.blankPointCounters) continue;
+                Accumulators net = e.row.accNet();
+                repository.updateProgvehiculosCounters(e.row.programId(), net.getTotalIn(), net.getTotalOut(), net.getTotalBlock());
+            }
+            repository.insertPassengerEventBatch(inserts);
+            repository.insertDiscardedBatch(discards);
+            repository.updateVehicleLastCountBatch(lastCounts);
+        });
+
+        finalStates.values().forEach(states::publish);
+    }
+
+    /**
+     * Eventos decididos sobre el estado en vuelo de un lote que luego se revirtió (o el propio lote): se vuelven a
+     * decidir en orden, contra la BD (todo lo anterior del vehículo ya está confirmado o abandonado) y contra los
+     * re-decididos del mismo lote.
+     */
+    private void redecideStale(List<PipelineEvent> batch) {
+        Map<String, VehicleState> redecided = new HashMap<>();
+        for (PipelineEvent e : batch) {
+            String idVehicle = e.idVehicle();
+            InFlight held = inFlight.get(idVehicle);
+            if (held == null || held.epoch() == e.epoch) continue;
+            VehicleState state = redecided.containsKey(idVehicle) ? redecided.get(idVehicle) : states.load(idVehicle);
+            decideAgainst(e, state);
+            e.epoch = held.epoch();
+            redecided.put(idVehicle, e.state);
+        }
+    }
+
+    /** El lote no se escribió: lo decidido sobre su estado en vuelo queda obsoleto y sus vehículos se releen de la BD. */
+    private void rolledBack(List<PipelineEvent> batch) {
+        Set<String> vehicleIds = new LinkedHashSet<>();
+        batch.forEach(e -> vehicleIds.add(e.idVehicle()));
+        for (String idVehicle : vehicleIds) {
+            inFlight.computeIfPresent(idVehicle, (k, h) -> new InFlight(null, h.pending(), h.epoch() + 1));
+            states.invalidate(idVehicle);
+        }
+    }
+
+    /** Eventos que decode/enrich/decide no completaron al detenerse (aún sin filas en vuelo): sin ack, Kafka los reentrega. */
+    private void abandoned(List<PipelineEvent> items, Exception cause) {
+        log.warn("Pipeline: {} eventos sin completar al detener → sin ack", items.size());
+    }
+
+    /** Lote de persist que seguía fallando al detenerse: sin ack; ya se revirtió, lo que venga detrás se re-decide. */
+    private void persistAbandoned(List<PipelineEvent> batch, Exception cause) {
+        for (PipelineEvent e : batch) {
+            log.warn("[vehicle={}][pipeline] Evento no persistido al detener (checkin={}) → sin ack", e.idVehicle(), e.event.getCheckinTime());
+            release(e);
+        }
+        notifyPersisted();
+    }
+
+    private void release(PipelineEvent e) {
+        inFlight.computeIfPresent(e.idVehicle(), (k, h) -> h.pending() == 1 && h.epoch() == 0
+                ? null : new InFlight(h.state(), h.pending() - 1, h.epoch()));
+    }
+
+    private void notifyPersisted() {
+        synchronized (persisted) {
+            persisted.notifyAll();
+        }
+    }
+
+    private void awaitPersisted(String idVehicle) throws InterruptedException {
+        synchronized (persisted) {
+            for (InFlight h; (h = inFlight.get(idVehicle)) != null && h.pending() > 0; ) persisted.wait(100);
+        }
+    }
+
+    private static PipelineStage<PipelineEvent> stage(String name, int workers, int maxDrain, PipelineProps props,
+                                                      PipelineStage.Handler<PipelineEvent> handler,
+                                                      PipelineStage.FailureHandler<PipelineEvent> onFailure,
+                                                      MeterRegistry meterRegistry) {
+        return new PipelineStage<>(name, workers, props.getRingCapacity(), maxDrain,
+                props.getRetryInitialBackoff(), props.getRetryMaxBackoff(), handler, onFailure, meterRegistry);
+    }
+
+    private static PipelineStage.Handler<PipelineEvent> each(ItemHandler handler) {
+        return items -> {
+            for (PipelineEvent e : items) handler.handle(e);
+        };
+    }
+
+    @FunctionalInterface
+    private interface ItemHandler {
+        void handle(PipelineEvent e) throws Exception;
+    }
+
+    /** state null: hubo un rollback y el estado se lee de la BD cuando no quede nada en vuelo. */
+    private record InFlight(VehicleState state, int pending, long epoch) {}
+}
@@ -0,0 +1,49 @@
+package com.extreme.passenger.application.pipeline;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+import com.extreme.passenger.presentation.dto.Status;
+
+/**
+ * Unidad de trabajo que recorre las etapas del pipeline. Cada etapa completa sus campos; el paso entre
+ * etapas por una cola bloqueante publica los cambios al hilo siguiente.
+ */
+final class PipelineEvent {
+
+    final byte[] payload;
+    final int routingKey;
+    final Consumer<Status> onDone;
+
+    // decode
+    PassengerEvent event;
+    // validate / enrich
+    Accumulators raw;
+    Long activeProgramId;
+    // decide
+    CountRow row;
+    boolean discarded;
+    boolean blankPointCounters;
+    Instant currentDate;
+    VehicleState state;
+    /** Rollbacks del vehículo vistos al decidir: si persist ve otro valor, la decisión es obsoleta */
+    long epoch;
+
+    PipelineEvent(byte[] payload, int routingKey, Consumer<Status> onDone) {
+        this.payload = payload;
+        this.routingKey = routingKey;
+        this.onDone = onDone;
+    }
+
+    String idVehicle() {
+        return event.getIdVehicle();
+    }
+
+    int vehicleHash() {
+        return event.getIdVehicle().hashCode();
+    }
+}
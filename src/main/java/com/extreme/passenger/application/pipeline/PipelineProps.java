@@ -0,0 +1,27 @@
+package com.extreme.passenger.application.pipeline;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.pipeline")
+@Data
+class PipelineProps {
+  private boolean enabled = false;
+  /** Capacidad de cada ring buffer (uno por hilo de cada etapa) */
+  private int ringCapacity = 1024;
+  private int decodeWorkers = 2;
+  private int enrichWorkers = 2;
+  /** Shards de la etapa de decisión: un vehículo siempre cae en el mismo shard (orden garantizado) */
+  private int decideShards = 4;
+  private int persistWorkers = 2;
+  /** Filas máximas por transacción de la etapa de persistencia */
+  private int persistMaxBatch = 500;
+  /** Backoff entre reintentos de un lote fallido; se reintenta sin límite mientras el pipeline corra */
+  private Duration retryInitialBackoff = Duration.ofMillis(100);
+  private Duration retryMaxBackoff = Duration.ofSeconds(5);
+}
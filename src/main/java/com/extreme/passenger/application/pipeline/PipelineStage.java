@@ -0,0 +1,150 @@
+package com.extreme.passenger.application.pipeline;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Etapa del pipeline: N hilos, cada uno con su ring buffer acotado (ArrayBlockingQueue, preasignado).
+ * put(key, item) enruta por key, así los items con la misma key se procesan en orden por el mismo hilo.
+ * Si el handler falla, el mismo lote se reintenta con backoff exponencial (hasta maxBackoff) mientras la
+ * etapa corra, sin pasar a lo siguiente: el orden se conserva y ningún item se completa sin procesar. Solo al
+ * detener la etapa un lote que sigue fallando se entrega a onFailure.
+ */
+@Slf4j
+final class PipelineStage<T> {
+
+    @FunctionalInterface
+    interface Handler<T> {
+        void handle(List<T> items) throws Exception;
+    }
+
+    /** Recibe el lote que seguía fallando cuando se detuvo la etapa. */
+    @FunctionalInterface
+    interface FailureHandler<T> {
+        void failed(List<T> items, Exception cause);
+    }
+
+    private final String name;
+    private final Handler<T> handler;
+    private final FailureHandler<T> onFailure;
+    private final int maxDrain;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final List<BlockingQueue<Slot<T>>> rings = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    private final Timer waitTimer;
+    private final Timer serviceTimer;
+    private final Counter retries;
+    private final Counter failures;
+
+    private volatile boolean running;
+
+    PipelineStage(String name, int workers, int capacity, int maxDrain, Duration initialBackoff,
+                  Duration maxBackoff, Handler<T> handler, FailureHandler<T> onFailure, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.handler = handler;
+        this.onFailure = onFailure;
+        this.maxDrain = maxDrain;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        for (int i = 0; i < workers; i++) rings.add(new ArrayBlockingQueue<>(capacity));
+        this.waitTimer = meterRegistry.timer("passenger.pipeline.wait", "stage", name);
+        this.serviceTimer = meterRegistry.timer("passenger.pipeline.service", "stage", name);
+        this.retries = meterRegistry.counter("passenger.pipeline.retries", "stage", name);
+        this.failures = meterRegistry.counter("passenger.pipeline.failures", "stage", name);
+        Gauge.builder("passenger.pipeline.depth", this, PipelineStage::depth).tag("stage", name).register(meterRegistry);
+    }
+
+    void start() {
+        running = true;
+        for (int i = 0; i < rings.size(); i++) {
+            BlockingQueue<Slot<T>> ring = rings.get(i);
+            Thread t = new Thread(() -> run(ring), "pipeline-" + name + "-" + i);
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+    }
+
+    /** Deja de aceptar trabajo nuevo en los hilos, vacía lo encolado y espera a que terminen. */
+    void stop(Duration timeout) throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Thread t : threads) {
+            t.join(Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1));
+        }
+    }
+
+    void put(int key, T item) throws InterruptedException {
+        rings.get(Math.floorMod(key, rings.size())).put(new Slot<>(item, System.nanoTime()));
+    }
+
+    int depth() {
+        int depth = 0;
+        for (BlockingQueue<Slot<T>> ring : rings) depth += ring.size();
+        return depth;
+    }
+
+    private void run(BlockingQueue<Slot<T>> ring) {
+        List<Slot<T>> slots = new ArrayList<>(maxDrain);
+        List<T> items = new ArrayList<>(maxDrain);
+        while (running || !ring.isEmpty()) {
+            try {
+                Slot<T> first = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                slots.add(first);
+                ring.drainTo(slots, maxDrain - 1);
+                long now = System.nanoTime();
+                for (Slot<T> s : slots) {
+                    waitTimer.record(now - s.enqueuedAt(), TimeUnit.NANOSECONDS);
+                    items.add(s.item());
+                }
+                handleWithRetry(items);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                slots.clear();
+                items.clear();
+            }
+        }
+    }
+
+    private void handleWithRetry(List<T> items) throws InterruptedException {
+        long backoff = initialBackoff.toMillis();
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                handler.handle(items);
+                serviceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (!running) {
+                    failures.increment();
+                    log.error("Pipeline [{}]: {} items siguen fallando al detener la etapa → sin completar", name, items.size(), e);
+                    onFailure.failed(items, e);
+                    return;
+                }
+                retries.increment();
+                log.error("Pipeline [{}]: error procesando {} items → reintento en {} ms", name, items.size(), backoff, e);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, maxBackoff.toMillis());
+            }
+        }
+    }
+
+    private record Slot<T>(T item, long enqueuedAt) {}
+}
@@ -0,0 +1,81 @@
+package com.extreme.passenger.application.replay;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.port.ReplaySource;
+import com.extreme.passenger.presentation.mapper.PassengerEventDecoder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Archivo NDJSON con un PassengerEventIn por línea (el mismo payload que llega por Kafka). La posición es el
+ * offset en bytes tras la última línea leída; las líneas en blanco se saltan y las que no decodifican se
+ * cuentan como inválidas.
+ */
+@Slf4j
+class NdjsonReplaySource implements ReplaySource {
+
+    private final Path file;
+    private final PassengerEventDecoder decoder;
+    private final FileChannel channel;
+    private final InputStream in;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+    private long position;
+
+    NdjsonReplaySource(Path file, long position, PassengerEventDecoder decoder) throws IOException {
+        this.file = file;
+        this.decoder = decoder;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.channel.position(position);
+        this.in = new BufferedInputStream(Channels.newInputStream(channel), 1 << 16);
+        this.position = position;
+    }
+
+    @Override public Chunk next(int max) throws IOException {
+        List<PassengerEvent> events = new ArrayList<>(max);
+        int invalid = 0;
+        while (events.size() + invalid < max && readLine()) {
+            byte[] payload = line.toByteArray();
+            if (PassengerEventDecoder.isBlank(payload)) continue;
+            try {
+                PassengerEvent event = decoder.decode(payload);
+                if (event != null) {
+                    events.add(event);
+                    continue;
+                }
+            } catch (IOException ex) {
+                log.debug("[replay] Línea inválida en {} antes del offset {}: {}", file, position, ex.getMessage());
+            }
+            invalid++;
+        }
+        return new Chunk(events, invalid, position);
+    }
+
+    /** Lee la siguiente línea en {@code line} y avanza la posición; false al llegar al final del archivo. */
+    private boolean readLine() throws IOException {
+        line.reset();
+        int b;
+        boolean any = false;
+        while ((b = in.read()) != -1) {
+            position++;
+            any = true;
+            if (b == '\n') return true;
+            line.write(b);
+        }
+        return any;
+    }
+
+    @Override public void close() throws IOException {
+        channel.close();
+    }
+}
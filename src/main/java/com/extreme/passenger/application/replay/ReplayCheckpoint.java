@@ -0,0 +1,55 @@
+package com.extreme.passenger.application.replay;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.extreme.passenger.presentation.dto.Status;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Data;
+
+/**
+ * Estado persistido de un replay. chunkStart es la posición de la fuente donde empieza el chunk en curso y
+ * shardDone cuántos eventos de ese chunk confirmó cada shard: al reanudar se relee el chunk, se reparte
+ * igual (mismo parallelism y chunkSize) y cada shard salta lo ya confirmado. shardWatermark es la marca de
+ * la secuencia de la tabla destino tras el último lote confirmado de cada shard: lo que el shard escribió
+ * con id mayor se borra al reanudar. read/invalid/skipped solo cuentan chunks completos; statuses cuenta
+ * cada lote confirmado.
+ */
+@Data
+@JsonIgnoreProperties(value = "processed", allowGetters = true)
+public class ReplayCheckpoint {
+
+    public enum Source { FILE, TABLE }
+
+    public enum State { RUNNING, STOPPED, FAILED, COMPLETED }
+
+    private String runId;
+    private Source source;
+    private String location;
+    /** Tabla destino (replay_&lt;runId&gt;, más replay_&lt;runId&gt;_descartados) */
+    private String target;
+    private Instant from;
+    private Instant to;
+    /** Solo TABLE: id máximo al crear el run */
+    private long upToId;
+    private int parallelism;
+    private int chunkSize;
+    private long chunkStart;
+    private long[] shardDone;
+    private long[] shardWatermark;
+    private long read;
+    private long invalid;
+    private long skipped;
+    private Map<Status, Long> statuses = new EnumMap<>(Status.class);
+    private double eventsPerSecond;
+    private State state;
+    private String error;
+    private Instant startedAt;
+    private Instant updatedAt;
+
+    public long getProcessed() {
+        return statuses.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
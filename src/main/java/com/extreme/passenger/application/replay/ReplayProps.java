@@ -0,0 +1,34 @@
+package com.extreme.passenger.application.replay;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.replay")
+@Data
+class ReplayProps {
+  /** Shards por vehículo (hilos); 0 = núcleos disponibles. Cada shard ocupa una conexión mientras escribe */
+  private int parallelism = 0;
+  /** Entradas leídas de la fuente por chunk; el checkpoint avanza de chunk en chunk */
+  private int chunkSize = 20_000;
+  /** Eventos por lote dentro de cada shard: el checkpoint avanza cuando se confirman todas sus filas */
+  private int batchSize = 500;
+  /** Único directorio del que se leen archivos; location es relativa a él */
+  private String inputDir = "replay/input";
+  /** Tablas que se aceptan como fuente (con las columnas de conteo_pasajeros) */
+  private List<String> sourceTables = List.of("conteo_pasajeros");
+  /** Directorio de los checkpoints (un JSON por runId) */
+  private String checkpointDir = "replay";
+  private Duration reportInterval = Duration.ofSeconds(10);
+  private int maxRetries = 3;
+  private Duration retryBackoff = Duration.ofMillis(500);
+
+  int effectiveParallelism() {
+    return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+  }
+}
@@ -0,0 +1,432 @@
+package com.extreme.passenger.application.replay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import com.extreme.passenger.application.replay.ReplayCheckpoint.Source;
+import com.extreme.passenger.application.replay.ReplayCheckpoint.State;
+import com.extreme.passenger.application.replay.ReplayShard.Decision;
+import com.extreme.passenger.application.service.PassengerCountCalculator;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+import com.extreme.passenger.domain.port.ReplaySource;
+import com.extreme.passenger.domain.port.ReplaySource.Chunk;
+import com.extreme.passenger.domain.port.ReplayTables;
+import com.extreme.passenger.domain.port.ReplayTarget;
+import com.extreme.passenger.infrastructure.cache.VehicleRegistry;
+import com.extreme.passenger.infrastructure.config.AppProperties;
+import com.extreme.passenger.presentation.dto.ReplayRequest;
+import com.extreme.passenger.presentation.dto.Status;
+import com.extreme.passenger.presentation.mapper.PassengerEventDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reprocesa históricos (NDJSON o tabla) con la misma lógica de decisión que el consumidor batch, hacia tablas
+ * destino propias del run (replay_&lt;runId&gt;), nunca hacia conteo_pasajeros ni vehiculos. Las fuentes se
+ * limitan a archivos dentro de input-dir y a las tablas de source-tables. La fuente se lee por chunks; cada
+ * chunk se reparte por vehículo entre shards (hash del idVehicle, así el orden por vehículo se conserva) y
+ * cada shard decide sus lotes con un {@link ReplayShard} y los escribe con el writer bulk de la tabla destino.
+ * Tras confirmarse todas las filas de un lote se guarda el checkpoint con la marca de la secuencia destino:
+ * al reanudar (o al reintentar un lote) se borran las filas que el shard escribió después de esa marca, así
+ * ni un corte ni un reintento duplican filas.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReplayService {
+
+    // 40 caracteres: replay_<runId>_descartados entra en los 63 de un identificador de Postgres
+    private static final Pattern RUN_ID = Pattern.compile("[A-Za-z0-9_-]{1,40}");
+    private static final String TARGET_PREFIX = "replay_";
+
+    private final ReplayProps props;
+    private final ObjectProvider<ReplayTables> tables;
+    private final PassengerEventDecoder decoder;
+    private final ObjectMapper objectMapper;
+    private final PassengerCountCalculator calculator;
+    private final VehicleRegistry vehicles;
+    private final PassengerEventRepository repository;
+    private final AppProperties appProps;
+
+    private final Map<String, Run> runs = new ConcurrentHashMap<>();
+
+    /**
+     * Crea un run nuevo o reanuda el del runId indicado si tiene checkpoint. Devuelve el estado inicial;
+     * el procesamiento sigue en un hilo propio.
+     * @throws IllegalArgumentException si la fuente no está permitida o la tabla destino ya existe
+     * @throws IllegalStateException si el run ya está en curso o no hay repositorio jdbc
+     */
+    public synchronized ReplayCheckpoint start(ReplayRequest request) throws IOException {
+        String runId = request.getRunId() == null || request.getRunId().isBlank()
+                ? UUID.randomUUID().toString() : request.getRunId().trim();
+        if (!RUN_ID.matcher(runId).matches()) {
+            throw new IllegalArgumentException("runId inválido (letras, dígitos, '_' o '-', máximo 40): " + runId);
+        }
+        Run active = runs.get(runId);
+        if (active != null && active.thread.isAlive()) {
+            throw new IllegalStateException("El replay " + runId + " ya está en curso");
+        }
+
+        Path file = checkpointFile(runId);
+        ReplayCheckpoint cp;
+        if (Files.exists(file)) {
+            cp = objectMapper.readValue(file.toFile(), ReplayCheckpoint.class);
+            if (cp.getState() == State.COMPLETED) {
+                return cp;
+            }
+            validate(cp);
+        } else {
+            cp = create(runId, request);
+        }
+        cp.setState(State.RUNNING);
+        cp.setError(null);
+        cp.setEventsPerSecond(0);
+        Run run = new Run(cp, file);
+        save(run);
+        run.thread = new Thread(() -> execute(run), "replay-" + runId);
+        runs.put(runId, run);
+        run.thread.start();
+        log.info("[replay run={}] {} {} → {} desde posición {} (parallelism={}, chunk={}, lote={})", runId,
+                cp.getSource(), cp.getLocation(), cp.getTarget(), cp.getChunkStart(), cp.getParallelism(),
+                cp.getChunkSize(), props.getBatchSize());
+        return snapshot(run);
+    }
+
+    /** Estado del run en curso o, si no está en memoria, el último checkpoint guardado. */
+    public Optional<ReplayCheckpoint> status(String runId) throws IOException {
+        Run run = runs.get(runId);
+        if (run != null) return Optional.of(snapshot(run));
+        if (!RUN_ID.matcher(runId).matches()) return Optional.empty();
+        Path file = checkpointFile(runId);
+        return Files.exists(file) ? Optional.of(objectMapper.readValue(file.toFile(), ReplayCheckpoint.class)) : Optional.empty();
+    }
+
+    /** Los runs en curso terminan su lote actual y quedan en STOPPED para reanudarse al reiniciar. */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        runs.values().forEach(run -> run.stopping = true);
+        for (Run run : runs.values()) {
+            if (run.thread != null) run.thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private ReplayTables tables() {
+        ReplayTables available = tables.getIfAvailable();
+        if (available == null) {
+            throw new IllegalStateException("El replay escribe con COPY en tablas propias: requiere app.repository=jdbc (PostgreSQL)");
+        }
+        return available;
+    }
+
+    private ReplayCheckpoint create(String runId, ReplayRequest request) throws IOException {
+        ReplayTables replayTables = tables();
+        Source source;
+        try {
+            source = Source.valueOf(String.valueOf(request.getSource()).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("source debe ser file o table: " + request.getSource());
+        }
+        if (request.getLocation() == null || request.getLocation().isBlank()) {
+            throw new IllegalArgumentException("location es obligatorio (ruta del archivo o nombre de la tabla)");
+        }
+        ReplayCheckpoint cp = new ReplayCheckpoint();
+        cp.setRunId(runId);
+        cp.setSource(source);
+        cp.setLocation(source == Source.FILE
+                ? inputFile(request.getLocation().trim()).toString()
+                : request.getLocation().trim().toLowerCase(Locale.ROOT));
+        cp.setTarget(TARGET_PREFIX + runId.toLowerCase(Locale.ROOT).replace('-', '_'));
+        cp.setFrom(request.getFrom());
+        cp.setTo(request.getTo());
+        validate(cp);
+        if (source == Source.TABLE) cp.setUpToId(replayTables.maxId(cp.getLocation()));
+        cp.setParallelism(props.effectiveParallelism());
+        cp.setChunkSize(props.getChunkSize());
+        cp.setShardDone(new long[cp.getParallelism()]);
+        cp.setShardWatermark(new long[cp.getParallelism()]);
+        cp.setStartedAt(Instant.now());
+        replayTables.createTarget(cp.getTarget());
+        return cp;
+    }
+
+    /** Fuente permitida y distinta del destino; se revalida al reanudar desde un checkpoint. */
+    private void validate(ReplayCheckpoint cp) throws IOException {
+        if (cp.getTarget() == null || cp.getShardWatermark() == null) {
+            throw new IllegalArgumentException("El checkpoint de " + cp.getRunId() + " no tiene tabla destino: se debe crear un run nuevo");
+        }
+        if (cp.getSource() == Source.FILE) {
+            inputFile(cp.getLocation());
+            return;
+        }
+        if (props.getSourceTables().stream().noneMatch(cp.getLocation()::equalsIgnoreCase)) {
+            throw new IllegalArgumentException("Tabla fuente no permitida: " + cp.getLocation() + " (app.replay.source-tables)");
+        }
+        if (tables().isTarget(cp.getTarget(), cp.getLocation())) {
+            throw new IllegalArgumentException("La fuente " + cp.getLocation() + " es la tabla destino del replay");
+        }
+    }
+
+    /** Archivo regular dentro de input-dir (location relativa a él), sin salir del directorio por '..' ni por enlaces. */
+    private Path inputFile(String location) throws IOException {
+        Path dir = Paths.get(props.getInputDir()).toAbsolutePath().normalize();
+        Path file = dir.resolve(location).normalize();
+        if (!file.startsWith(dir) || !Files.isRegularFile(file) || !file.toRealPath().startsWith(dir.toRealPath())) {
+            throw new IllegalArgumentException("location debe ser un archivo dentro de " + dir + ": " + location);
+        }
+        return file.toRealPath();
+    }
+
+    private void execute(Run run) {
+        ReplayCheckpoint cp = run.checkpoint;
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService shards = Executors.newFixedThreadPool(cp.getParallelism(),
+                r -> new Thread(r, "replay-" + cp.getRunId() + "-" + threads.getAndIncrement()));
+        run.lastReportAt = System.nanoTime();
+        run.lastReportProcessed = cp.getProcessed();
+        ZoneId zone = ZoneId.of(appProps.getTimezone());
+        run.shards = new ReplayShard[cp.getParallelism()];
+        for (int i = 0; i < run.shards.length; i++) run.shards[i] = new ReplayShard(calculator, vehicles, repository, zone);
+        try (ReplaySource source = open(cp); ReplayTarget target = tables().openTarget(cp.getTarget())) {
+            // el primer chunk de esta ejecución puede tener filas escritas después del último checkpoint
+            boolean resumed = true;
+            while (!run.stopping) {
+                Chunk chunk = source.next(cp.getChunkSize());
+                if (chunk.isEmpty()) break;
+                List<List<PassengerEvent>> parts = partition(chunk.events(), cp);
+                boolean rollback = resumed;
+                CompletableFuture<?>[] futures = new CompletableFuture<?>[parts.size()];
+                for (int i = 0; i < parts.size(); i++) {
+                    int shard = i;
+                    futures[i] = CompletableFuture.runAsync(() -> runShard(run, shard, parts.get(shard), target, rollback), shards);
+                }
+                await(run, CompletableFuture.allOf(futures));
+                resumed = false;
+                if (run.stopping) break;
+                synchronized (run) {
+                    cp.setRead(cp.getRead() + chunk.events().size() + chunk.invalid());
+                    cp.setInvalid(cp.getInvalid() + chunk.invalid());
+                    cp.setSkipped(cp.getSkipped() + chunk.events().size() - parts.stream().mapToInt(List::size).sum());
+                    cp.setChunkStart(chunk.position());
+                    Arrays.fill(cp.getShardDone(), 0);
+                    save(run);
+                }
+                report(run, false);
+            }
+            synchronized (run) {
+                cp.setState(run.stopping ? State.STOPPED : State.COMPLETED);
+                save(run);
+            }
+            report(run, true);
+        } catch (Exception ex) {
+            Throwable cause = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+            log.error("[replay run={}] Falló en la posición {}: {}", cp.getRunId(), cp.getChunkStart(), cause.getMessage(), cause);
+            synchronized (run) {
+                cp.setState(State.FAILED);
+                cp.setError(cause.getMessage());
+                saveQuietly(run);
+            }
+        } finally {
+            shards.shutdownNow();
+        }
+    }
+
+    private ReplaySource open(ReplayCheckpoint cp) throws IOException {
+        return cp.getSource() == Source.FILE
+                ? new NdjsonReplaySource(Paths.get(cp.getLocation()), cp.getChunkStart(), decoder)
+                : tables().open(cp.getLocation(), cp.getChunkStart(), cp.getUpToId(), cp.getFrom(), cp.getTo());
+    }
+
+    /** Reparte por vehículo conservando el orden de la fuente; los eventos fuera de [from, to) se omiten. */
+    private static List<List<PassengerEvent>> partition(List<PassengerEvent> events, ReplayCheckpoint cp) {
+        int parallelism = cp.getParallelism();
+        List<List<PassengerEvent>> parts = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) parts.add(new ArrayList<>(events.size() / parallelism + 1));
+        for (PassengerEvent ev : events) {
+            Instant at = ev.getCheckinTime();
+            if (at != null && ((cp.getFrom() != null && at.isBefore(cp.getFrom())) || (cp.getTo() != null && !at.isBefore(cp.getTo())))) {
+                continue;
+            }
+            int shard = ev.getIdVehicle() == null ? 0 : Math.floorMod(ev.getIdVehicle().hashCode(), parallelism);
+            parts.get(shard).add(ev);
+        }
+        return parts;
+    }
+
+    private void runShard(Run run, int shard, List<PassengerEvent> events, ReplayTarget target, boolean rollback) {
+        int done = (int) run.checkpoint.getShardDone()[shard];
+        try {
+            if (rollback) rollback(run, shard, events.subList(done, events.size()), target);
+            while (done < events.size() && !run.stopping) {
+                List<PassengerEvent> batch = events.subList(done, Math.min(done + props.getBatchSize(), events.size()));
+                Map<Status, Long> counts = writeWithRetry(run, shard, batch, target);
+                done += batch.size();
+                // todo lo confirmado del shard queda con id <= watermark
+                long watermark = target.watermark();
+                synchronized (run) {
+                    run.checkpoint.getShardDone()[shard] = done;
+                    run.checkpoint.getShardWatermark()[shard] = watermark;
+                    counts.forEach((status, n) -> run.checkpoint.getStatuses().merge(status, n, Long::sum));
+                    save(run);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(ex);
+        }
+    }
+
+    private Map<Status, Long> writeWithRetry(Run run, int shard, List<PassengerEvent> batch, ReplayTarget target)
+            throws InterruptedException {
+        long backoff = props.getRetryBackoff().toMillis();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return write(run.shards[shard], batch, target);
+            } catch (RuntimeException ex) {
+                if (attempt >= props.getMaxRetries() || run.stopping) throw ex;
+                log.warn("[replay run={}] Lote de {} eventos falló (intento {}/{}), reintento en {} ms: {}",
+                        run.checkpoint.getRunId(), batch.size(), attempt + 1, props.getMaxRetries() + 1, backoff, ex.getMessage());
+                Thread.sleep(backoff);
+                rollback(run, shard, batch, target);
+                backoff *= 2;
+            }
+        }
+    }
+
+    /** Decide el lote y espera el commit de todas sus filas; si algo falla, antes espera a que terminen las ya enviadas. */
+    private static Map<Status, Long> write(ReplayShard shard, List<PassengerEvent> batch, ReplayTarget target)
+            throws InterruptedException {
+        shard.load(batch, target);
+        Map<Status, Long> counts = new EnumMap<>(Status.class);
+        List<CompletableFuture<Void>> acks = new ArrayList<>(batch.size());
+        try {
+            for (PassengerEvent ev : batch) {
+                Decision decision = shard.decide(ev);
+                if (decision.row() != null) acks.add(target.write(decision.row(), decision.discarded()));
+                counts.merge(decision.status(), 1L, Long::sum);
+            }
+        } catch (RuntimeException ex) {
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).handle((v, e) -> null).join();
+            throw ex;
+        }
+        CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).join();
+        return counts;
+    }
+
+    /** Borra lo que el shard escribió para estos eventos después de su último checkpoint y olvida esos vehículos. */
+    private static void rollback(Run run, int shard, List<PassengerEvent> events, ReplayTarget target) {
+        Set<String> idVehicles = new LinkedHashSet<>();
+        for (PassengerEvent ev : events) {
+            if (ev != null && ev.getIdVehicle() != null) idVehicles.add(ev.getIdVehicle());
+        }
+        target.rollback(idVehicles, run.checkpoint.getShardWatermark()[shard]);
+        run.shards[shard].forget(idVehicles);
+    }
+
+    /** Espera el chunk informando el throughput cada report-interval. */
+    private void await(Run run, CompletableFuture<?> all) throws InterruptedException, ExecutionException {
+        while (true) {
+            try {
+                all.get(props.getReportInterval().toMillis(), TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException ex) {
+                report(run, false);
+            }
+        }
+    }
+
+    private void report(Run run, boolean last) {
+        long now = System.nanoTime();
+        long elapsed = now - run.lastReportAt;
+        if (!last && elapsed < props.getReportInterval().toNanos()) return;
+        ReplayCheckpoint cp = run.checkpoint;
+        long processed;
+        synchronized (run) {
+            processed = cp.getProcessed();
+            cp.setEventsPerSecond(elapsed > 0 ? (processed - run.lastReportProcessed) * 1e9 / elapsed : 0);
+        }
+        run.lastReportAt = now;
+        run.lastReportProcessed = processed;
+        log.info("[replay run={}] estado={} procesados={} leídos={} inválidos={} omitidos={} {} ev/s {}",
+                cp.getRunId(), cp.getState(), processed, cp.getRead(), cp.getInvalid(), cp.getSkipped(),
+                String.format(Locale.ROOT, "%.0f", cp.getEventsPerSecond()), cp.getStatuses());
+    }
+
+    private Path checkpointFile(String runId) {
+        return Paths.get(props.getCheckpointDir(), runId + ".json");
+    }
+
+    /** Escritura atómica (tmp + move) para que un corte deje el checkpoint anterior o el nuevo, nunca uno a medias. */
+    private void save(Run run) {
+        try {
+            run.checkpoint.setUpdatedAt(Instant.now());
+            Files.createDirectories(run.file.getParent());
+            Path tmp = run.file.resolveSibling(run.file.getFileName() + ".tmp");
+            Files.write(tmp, objectMapper.writeValueAsBytes(run.checkpoint));
+            Files.move(tmp, run.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new IllegalStateException("No se pudo guardar el checkpoint " + run.file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private void saveQuietly(Run run) {
+        try {
+            save(run);
+        } catch (IllegalStateException ex) {
+            log.error("[replay run={}] {}", run.checkpoint.getRunId(), ex.getMessage());
+        }
+    }
+
+    private ReplayCheckpoint snapshot(Run run) {
+        synchronized (run) {
+            return objectMapper.convertValue(run.checkpoint, ReplayCheckpoint.class);
+        }
+    }
+
+    private static final class Run {
+        final ReplayCheckpoint checkpoint;
+        final Path file;
+        /** Estado propio de cada shard; se recrea en cada ejecución (al reanudar se recarga de la tabla destino). */
+        ReplayShard[] shards;
+        volatile Thread thread;
+        volatile boolean stopping;
+        volatile long lastReportAt;
+        volatile long lastReportProcessed;
+
+        Run(ReplayCheckpoint checkpoint, Path file) {
+            this.checkpoint = checkpoint;
+            this.file = file.toAbsolutePath();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.extreme.passenger.application.replay;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.extreme.passenger.application.service.AccumulatorEngine;
+import com.extreme.passenger.application.service.PassengerCountCalculator;
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+import com.extreme.passenger.domain.port.PassengerEventRepository.PrevPoint;
+import com.extreme.passenger.domain.port.ReplayTarget;
+import com.extreme.passenger.infrastructure.cache.VehicleRegistry;
+import com.extreme.passenger.presentation.dto.Status;
+
+/**
+ * Estado y decisión de un shard del replay. Aplica las reglas de ProcessPassengerEventBatchService (netos
+ * contra la última fila aceptada, pico, programación activa y punto en blanco) sobre un estado propio del run,
+ * cargado de la tabla destino la primera vez que el shard ve un vehículo: no lee ni escribe conteo_pasajeros
+ * ni vehiculos, y no toca los contadores de progvehiculos. El reloj es el checkin de cada lectura, como si se
+ * hubiera procesado al llegar: el pico se mide contra la lectura aceptada anterior, la fecha del estado es la
+ * de la lectura y la programación es la activa en el día local del checkin. Lo usa un solo hilo a la vez.
+ */
+final class ReplayShard {
+
+    /** row null si el evento no genera fila (INVALID, NOT_FOUND). */
+    record Decision(Status status, CountRow row, boolean discarded) {}
+
+    private record DayProgram(LocalDate day, Optional<Long> programId) {}
+
+    private final PassengerCountCalculator calculator;
+    private final VehicleRegistry vehicles;
+    private final PassengerEventRepository repository;
+    private final ZoneId zone;
+
+    private final Map<String, VehicleState> states = new HashMap<>();
+    /** Programación activa del último día consultado por vehículo (los eventos llegan casi ordenados por fecha). */
+    private final Map<String, DayProgram> programs = new HashMap<>();
+
+    ReplayShard(PassengerCountCalculator calculator, VehicleRegistry vehicles, PassengerEventRepository repository,
+                ZoneId zone) {
+        this.calculator = calculator;
+        this.vehicles = vehicles;
+        this.repository = repository;
+        this.zone = zone;
+    }
+
+    /** Carga de la tabla destino el estado de los vehículos del lote que el shard todavía no tiene. */
+    void load(List<PassengerEvent> batch, ReplayTarget target) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (PassengerEvent ev : batch) {
+            if (ev != null && ev.getIdVehicle() != null && !states.containsKey(ev.getIdVehicle())) missing.add(ev.getIdVehicle());
+        }
+        if (missing.isEmpty()) return;
+        target.lastStates(missing).forEach(s -> states.put(s.idVehicle(), s));
+        missing.forEach(id -> states.putIfAbsent(id, new VehicleState(id, null, false, null, null, null)));
+    }
+
+    /** Olvida el estado de esos vehículos: se vuelve a cargar tras deshacer sus filas en la tabla destino. */
+    void forget(Collection<String> idVehicles) {
+        idVehicles.forEach(states::remove);
+    }
+
+    /** Decide un evento y avanza el estado; requiere {@link #load} previo para su vehículo. */
+    Decision decide(PassengerEvent ev) {
+        if (ev == null || ev.getIdVehicle() == null || ev.getIdVehicle().isBlank() || ev.getCheckinTime() == null) {
+            return new Decision(Status.INVALID, null, false);
+        }
+        String idVehicle = ev.getIdVehicle();
+        if (!vehicles.exists(idVehicle)) {
+            return new Decision(Status.NOT_FOUND, null, false);
+        }
+
+        VehicleState state = states.get(idVehicle);
+        Instant checkin = ev.getCheckinTime();
+        Instant lastDate = state.lastDate();
+        boolean history = lastDate != null && state.hasHistory();
+
+        Accumulators raw = calculator.raw(ev);
+        Accumulators prev = history ? calculator.prev(state.lastAcc()) : calculator.zero();
+        Long prevProgramId = history ? state.lastProgramId() : null;
+        Accumulators net = calculator.net(raw, prev);
+        Double minutesDiff = lastDate == null ? null : AccumulatorEngine.minutesSince(lastDate, checkin);
+
+        if (calculator.isSpike(idVehicle, Optional.ofNullable(lastDate), net, minutesDiff)) {
+            return new Decision(Status.DISCARDED, new CountRow(ev, null, null, net, raw), true);
+        }
+
+        Long programId = activeProgram(idVehicle, checkin.atZone(zone).toLocalDate()).orElse(null);
+        Long pointId = null;
+        if (programId == null && history && prevProgramId != null) {
+            Optional<PrevPoint> pp = repository.getLastBlankPointOfProgram(prevProgramId);
+            if (pp.isPresent() && pp.get().blank()) {
+                programId = prevProgramId;
+                pointId = pp.get().pointId();
+            }
+        }
+
+        states.put(idVehicle, state.afterInsert(checkin, checkin, programId, raw));
+        return new Decision(Status.OK, new CountRow(ev, programId, pointId, net, raw), false);
+    }
+
+    private Optional<Long> activeProgram(String idVehicle, LocalDate day) {
+        DayProgram cached = programs.get(idVehicle);
+        if (cached != null && cached.day().equals(day)) return cached.programId();
+        Optional<Long> programId = repository.getActiveProgram(idVehicle, day);
+        programs.put(idVehicle, new DayProgram(day, programId));
+        return programId;
+    }
+}
@@ -0,0 +1,160 @@
+package com.extreme.passenger.application.service;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.infrastructure.config.AppProperties;
+
+/**
+ * Núcleo de cálculo raw/prev/net/pico sobre arreglos int[SLOTS] reutilizables, sin asignaciones por evento.
+ * Cada vector tiene 4 grupos (total, puerta 1, 2 y 3) de 3 contadores (in, out, block), y las tres puertas
+ * se tratan igual. conteo_pasajeros no guarda la puerta 3: sus acumulados previos se derivan como
+ * total - puerta1 - puerta2, que es exacto porque los totales raw se guardan como suma de las tres puertas.
+ * Las diferencias de tiempo se calculan sobre epoch seconds: no dependen de la zona horaria.
+ */
+@Component
+public class AccumulatorEngine {
+
+    public static final int IN = 0, OUT = 1, BLOCK = 2;
+    public static final int TOTAL = 0, DOOR1 = 1, DOOR2 = 2, DOOR3 = 3;
+    public static final int SLOTS = 12;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    /** Buffers raw/prev/net reutilizados por hilo. */
+    public static final class Workspace {
+        public final int[] raw = new int[SLOTS];
+        public final int[] prev = new int[SLOTS];
+        public final int[] net = new int[SLOTS];
+
+        /** Última decisión del hilo: la lee el journal al terminar processSync. */
+        public boolean decided;
+        public long programId = -1;
+        public long pointId = -1;
+
+        public void clearDecision() {
+            decided = false;
+            programId = -1;
+            pointId = -1;
+        }
+    }
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private final AppProperties props;
+    private volatile Excluded excluded = new Excluded(null, Set.of());
+
+    public AccumulatorEngine(AppProperties props) {
+        this.props = props;
+    }
+
+    public static int slot(int door, int kind) {
+        return door * 3 + kind;
+    }
+
+    public Workspace workspace() {
+        return WORKSPACE.get();
+    }
+
+    /** Acumulados de la lectura; los totales son la suma de las tres puertas. */
+    public static void raw(PassengerEvent e, int[] out) {
+        out[3] = e.getDoor1In();  out[4] = e.getDoor1Out();  out[5] = e.getDoor1Block();
+        out[6] = e.getDoor2In();  out[7] = e.getDoor2Out();  out[8] = e.getDoor2Block();
+        out[9] = e.getDoor3In();  out[10] = e.getDoor3Out(); out[11] = e.getDoor3Block();
+        for (int k = 0; k < 3; k++) out[k] = out[3 + k] + out[6 + k] + out[9 + k];
+    }
+
+    public static void zero(int[] out) {
+        Arrays.fill(out, 0);
+    }
+
+    /** Acumulados previos tal como se leen de conteo_pasajeros (puerta 3 derivada de los totales). */
+    public static void prev(Accumulators a, int[] out) {
+        out[0] = a.getTotalIn();  out[1] = a.getTotalOut();  out[2] = a.getTotalBlock();
+        out[3] = a.getDoor1In();  out[4] = a.getDoor1Out();  out[5] = a.getDoor1Block();
+        out[6] = a.getDoor2In();  out[7] = a.getDoor2Out();  out[8] = a.getDoor2Block();
+        for (int k = 0; k < 3; k++) out[9 + k] = Math.max(out[k] - out[3 + k] - out[6 + k], 0);
+    }
+
+    /** Netos no negativos raw - prev, contador a contador. */
+    public static void net(int[] raw, int[] prev, int[] out) {
+        for (int i = 0; i < SLOTS; i++) out[i] = Math.max(raw[i] - prev[i], 0);
+    }
+
+    /** a += b (fusión de netos de lecturas consecutivas). */
+    public static void add(int[] a, int[] b) {
+        for (int i = 0; i < SLOTS; i++) a[i] += b[i];
+    }
+
+    /** true si algún neto de entrada o salida (total o por puerta) alcanza la tolerancia. */
+    public static boolean anyGte(int[] net, int tolerance) {
+        for (int door = TOTAL; door <= DOOR3; door++) {
+            if (net[slot(door, IN)] >= tolerance || net[slot(door, OUT)] >= tolerance) return true;
+        }
+        return false;
+    }
+
+    /** Minutos (segundos enteros / 60, como Duration.getSeconds()) desde lastDate; NaN si no hay fecha previa. */
+    public static double minutesSince(Instant lastDate, Instant now) {
+        if (lastDate == null) return Double.NaN;
+        return floorSecondsBetween(lastDate, now) / 60.0;
+    }
+
+    /** Regla de descarte por pico: net >= tolerancia dentro de la ventana y vehículo no excluido. */
+    public boolean isSpike(String idVehicle, Instant lastDate, int[] net, double minutesDiff) {
+        return lastDate != null
+                && anyGte(net, props.getPassengerCountTolerance())
+                && minutesDiff < props.getTimeThresholdMinutes()
+                && !isExcluded(idVehicle);
+    }
+
+    public boolean isExcluded(String idVehicle) {
+        List<String> ids = props.getExcludedIds();
+        Excluded current = excluded;
+        if (current.source() != ids) {
+            current = new Excluded(ids, ids == null ? Set.of()
+                    : ids.stream().map(s -> s.toUpperCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet()));
+            excluded = current;
+        }
+        return current.upper().contains(idVehicle.toUpperCase(Locale.ROOT));
+    }
+
+    /** Fecha con la que se actualiza vehiculos: la del evento salvo que difiera más de un día de now. */
+    public static Instant effectiveDate(Instant eventTs, Instant now) {
+        long days = Math.abs(floorSecondsBetween(eventTs, now) / SECONDS_PER_DAY);
+        return days > 1 ? now : eventTs;
+    }
+
+    /** Conversión en el borde de persistencia (el puerto del repositorio recibe Accumulators). */
+    public static Accumulators toAccumulators(int[] v) {
+        return Accumulators.builder()
+                .totalIn(v[0]).totalOut(v[1]).totalBlock(v[2])
+                .door1In(v[3]).door1Out(v[4]).door1Block(v[5])
+                .door2In(v[6]).door2Out(v[7]).door2Block(v[8])
+                .door3In(v[9]).door3Out(v[10]).door3Block(v[11])
+                .build();
+    }
+
+    public static void copy(Accumulators a, int[] out) {
+        out[0] = a.getTotalIn();  out[1] = a.getTotalOut();  out[2] = a.getTotalBlock();
+        out[3] = a.getDoor1In();  out[4] = a.getDoor1Out();  out[5] = a.getDoor1Block();
+        out[6] = a.getDoor2In();  out[7] = a.getDoor2Out();  out[8] = a.getDoor2Block();
+        out[9] = a.getDoor3In();  out[10] = a.getDoor3Out(); out[11] = a.getDoor3Block();
+    }
+
+    /** Duration.between(from, to).getSeconds() sin crear la Duration. */
+    private static long floorSecondsBetween(Instant from, Instant to) {
+        long seconds = to.getEpochSecond() - from.getEpochSecond();
+        return to.getNano() < from.getNano() ? seconds - 1 : seconds;
+    }
+
+    private record Excluded(List<String> source, Set<String> upper) {}
+}
@@ -0,0 +1,85 @@
+package com.extreme.passenger.application.service;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reglas de cálculo compartidas por el procesamiento unitario y por lotes:
+ * acumulados raw/net, regla de pico y normalización de fecha. Fachada sobre {@link AccumulatorEngine}
+ * para los caminos que trabajan con Accumulators; el camino unitario usa el motor directamente.
+ */
+@Component
+@RequiredArgsConstructor
+public class PassengerCountCalculator {
+
+    private final AccumulatorEngine engine;
+
+    Instant now() { return Instant.now(); }
+
+    /** Acumulados totales de la lectura (raw). */
+    public Accumulators raw(PassengerEvent event) {
+        int[] v = engine.workspace().raw;
+        AccumulatorEngine.raw(event, v);
+        return AccumulatorEngine.toAccumulators(v);
+    }
+
+    /** Acumulados previos vacíos (vehículo sin histórico). */
+    public Accumulators zero() {
+        return Accumulators.builder().build();
+    }
+
+    /** Acumulados previos tal como se leen de conteo_pasajeros (puerta 3 derivada de los totales). */
+    public Accumulators prev(Accumulators a) {
+        int[] v = engine.workspace().prev;
+        AccumulatorEngine.prev(a, v);
+        return AccumulatorEngine.toAccumulators(v);
+    }
+
+    /** Netos no negativos raw - prev. */
+    public Accumulators net(Accumulators raw, Accumulators prev) {
+        AccumulatorEngine.Workspace w = engine.workspace();
+        AccumulatorEngine.copy(raw, w.raw);
+        AccumulatorEngine.copy(prev, w.prev);
+        AccumulatorEngine.net(w.raw, w.prev, w.net);
+        return AccumulatorEngine.toAccumulators(w.net);
+    }
+
+    /** Suma campo a campo (fusión de netos de lecturas consecutivas). */
+    public Accumulators sum(Accumulators a, Accumulators b) {
+        AccumulatorEngine.Workspace w = engine.workspace();
+        AccumulatorEngine.copy(a, w.net);
+        AccumulatorEngine.copy(b, w.prev);
+        AccumulatorEngine.add(w.net, w.prev);
+        return AccumulatorEngine.toAccumulators(w.net);
+    }
+
+    /** Minutos transcurridos desde last_date, o null si no hay fecha previa. */
+    public Double minutesSince(Optional<Instant> lastDateOpt) {
+        if (lastDateOpt.isEmpty()) return null;
+        return AccumulatorEngine.minutesSince(lastDateOpt.get(), now());
+    }
+
+    /** Regla de descarte por pico: net >= tolerancia dentro de la ventana y vehículo no excluido. */
+    public boolean isSpike(String idVehicle, Optional<Instant> lastDateOpt, Accumulators net, Double minutesDiff) {
+        if (minutesDiff == null) return false;
+        int[] v = engine.workspace().net;
+        AccumulatorEngine.copy(net, v);
+        return engine.isSpike(idVehicle, lastDateOpt.orElse(null), v, minutesDiff);
+    }
+
+    public boolean isExcluded(String idVehicle) {
+        return engine.isExcluded(idVehicle);
+    }
+
+    /** Fecha con la que se actualiza vehiculos: la del evento salvo que difiera más de un día de now. */
+    public Instant effectiveDate(Instant eventTs) {
+        return AccumulatorEngine.effectiveDate(eventTs, now());
+    }
+}
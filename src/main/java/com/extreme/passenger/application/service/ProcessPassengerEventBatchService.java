@@ -0,0 +1,226 @@
+package com.extreme.passenger.application.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+import com.extreme.passenger.domain.port.PassengerEventRepository.PrevPoint;
+import com.extreme.passenger.domain.port.PassengerEventRepository.RepoAcc;
+import com.extreme.passenger.infrastructure.cache.ActiveProgramCache;
+import com.extreme.passenger.infrastructure.cache.VehicleRegistry;
+import com.extreme.passenger.infrastructure.config.AppProperties;
+import com.extreme.passenger.infrastructure.hotspot.HotVehicleTracker;
+import com.extreme.passenger.infrastructure.occupancy.OccupancyTracker;
+import com.extreme.passenger.infrastructure.rollup.RollupEngine;
+import com.extreme.passenger.presentation.dto.PassengerEventOut;
+import com.extreme.passenger.presentation.dto.Status;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Procesa un poll completo de Kafka en una sola transacción. Los eventos se agrupan por vehículo
+ * (conservando el orden de llegada dentro de cada vehículo), el estado previo se lee una vez por
+ * vehículo y se avanza en memoria, y los inserts/updates se envían como batches JDBC.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProcessPassengerEventBatchService {
+
+    private final PassengerEventRepository repository;
+    private final PassengerCountCalculator calculator;
+    private final VehicleStateProvider states;
+    private final VehicleRegistry vehicles;
+    private final ActiveProgramCache programs;
+    private final AppProperties props;
+    private final MeterRegistry meterRegistry;
+    private final HotVehicleTracker hotVehicles;
+    private final RollupEngine rollups;
+    private final OccupancyTracker occupancy;
+
+    @Transactional
+    public List<PassengerEventOut> processBatch(List<PassengerEvent> events) {
+        PassengerEventOut[] out = new PassengerEventOut[events.size()];
+
+        // TreeMap: los locks se toman siempre en el mismo orden entre consumidores (evita deadlocks)
+        Map<String, List<Integer>> byVehicle = new TreeMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            PassengerEvent ev = events.get(i);
+            if (ev == null || ev.getIdVehicle() == null || ev.getIdVehicle().isBlank() || ev.getCheckinTime() == null) {
+                out[i] = result(Status.INVALID, "Evento inválido (falta idVehicle)", ev);
+                continue;
+            }
+            byVehicle.computeIfAbsent(ev.getIdVehicle(), k -> new ArrayList<>()).add(i);
+        }
+
+        Pending pending = new Pending();
+        byVehicle.forEach((idVehicle, indexes) -> processVehicle(idVehicle, indexes, events, out, pending));
+        pending.flush(repository);
+        rollups.recordAfterCommit(pending.accepted);
+        occupancy.recordAfterCommit(pending.accepted);
+
+        log.info("[batch size={}] vehículos={} insertados={} descartados={}",
+                events.size(), byVehicle.size(), pending.inserted, pending.discarded);
+        return Arrays.asList(out);
+    }
+
+    private void processVehicle(String idVehicle, List<Integer> indexes, List<PassengerEvent> events,
+                                PassengerEventOut[] out, Pending pending) {
+        String logPrefix = "[vehicle=" + idVehicle + "][batch]";
+
+        hotVehicles.events(idVehicle, indexes.size());
+
+        // 0) Verificar vehículo
+        if (!vehicles.exists(idVehicle)) {
+            log.warn("{} Vehículo no encontrado ({} eventos)", logPrefix, indexes.size());
+            indexes.forEach(i -> out[i] = result(Status.NOT_FOUND, "Vehículo no encontrado", events.get(i)));
+            return;
+        }
+
+        long lockStart = System.nanoTime();
+        repository.lockVehicleRow(idVehicle);
+        hotVehicles.lockWait(idVehicle, System.nanoTime() - lockStart);
+
+        // Estado previo: se lee una vez (cache o BD) y se avanza en memoria con cada evento insertado
+        VehicleState state = states.load(idVehicle);
+        Optional<Long> activeProgram = null;
+        Map<Long, Optional<PrevPoint>> blankPoints = new HashMap<>();
+
+        for (int i : indexes) {
+            PassengerEvent event = events.get(i);
+            Accumulators raw = calculator.raw(event);
+            Optional<Instant> lastDateOpt = state.lastDateOpt();
+            boolean hasHistory = state.hasHistory();
+
+            Accumulators prev = calculator.zero();
+            Long prevProgramId = null;
+            if (lastDateOpt.isPresent() && hasHistory) {
+                // la fila previa no está en memoria: lo pendiente debe ser visible antes de consultar
+                if (!state.coversLastDate()) {
+                    closeRun(pending);
+                    pending.flush(repository);
+                }
+                Optional<RepoAcc> ra = states.lastAccumulators(state);
+                if (ra.isPresent()) {
+                    prevProgramId = ra.get().programId();
+                    prev = calculator.prev(ra.get().acc());
+                }
+            }
+
+            Accumulators net = calculator.net(raw, prev);
+            Double minutesDiff = calculator.minutesSince(lastDateOpt);
+
+            if (calculator.isSpike(idVehicle, lastDateOpt, net, minutesDiff)) {
+                pending.discards.add(new CountRow(event, null, null, net, raw));
+                hotVehicles.discard(idVehicle);
+                log.warn("{} Evento descartado por pico (net={} minDiff={})", logPrefix, net, minutesDiff);
+                out[i] = result(Status.DISCARDED, "Evento descartado por pico", event);
+                continue;
+            }
+
+            // progvehiculos no cambia dentro de la transacción: se consulta una vez por vehículo
+            if (activeProgram == null) activeProgram = programs.activeProgramToday(idVehicle);
+            Long programId = activeProgram.orElse(null);
+
+            Long pointId = null;
+            if (programId == null && lastDateOpt.isPresent() && hasHistory && prevProgramId != null) {
+                Optional<PrevPoint> pp = blankPoints.computeIfAbsent(prevProgramId, repository::getLastBlankPointOfProgram);
+                if (pp.isPresent() && pp.get().blank()) {
+                    programId = prevProgramId;
+                    pointId = pp.get().pointId();
+                    repository.updateProgvehiculosCounters(programId, net.getTotalIn(), net.getTotalOut(), net.getTotalBlock());
+                }
+            }
+
+            Instant currentDate = calculator.effectiveDate(event.getCheckinTime());
+            accept(pending, new CountRow(event, programId, pointId, net, raw));
+            pending.lastCounts.put(idVehicle, currentDate);
+
+            state = state.afterInsert(currentDate, event.getCheckinTime(), programId, raw);
+            out[i] = result(Status.OK, "Evento procesado exitosamente", event);
+        }
+        closeRun(pending);
+        states.publish(state);
+    }
+
+    /**
+     * Con coalescing habilitado, las lecturas aceptadas consecutivas de un vehículo (misma programación y punto)
+     * se fusionan en una fila: acumulados raw de la última lectura y netos sumados lectura a lectura, de modo
+     * que los totales coinciden con el procesamiento unitario. El pico ya se evaluó por lectura original.
+     */
+    private void accept(Pending pending, CountRow row) {
+        pending.accepted.add(row);
+        if (!props.getCoalescing().isEnabled()) {
+            pending.inserts.add(row);
+            return;
+        }
+        CountRow open = pending.open;
+        if (open != null && Objects.equals(open.programId(), row.programId()) && Objects.equals(open.pointId(), row.pointId())) {
+            pending.open = new CountRow(row.ev(), row.programId(), row.pointId(),
+                    calculator.sum(open.accNet(), row.accNet()), row.accRaw());
+            pending.openReadings++;
+            return;
+        }
+        closeRun(pending);
+        pending.open = row;
+        pending.openReadings = 1;
+    }
+
+    private void closeRun(Pending pending) {
+        if (pending.open == null) return;
+        pending.inserts.add(pending.open);
+        meterRegistry.counter("passenger.coalescing.readings").increment(pending.openReadings);
+        meterRegistry.counter("passenger.coalescing.rows").increment();
+        pending.open = null;
+        pending.openReadings = 0;
+    }
+
+    private static PassengerEventOut result(Status status, String message, PassengerEvent event) {
+        return PassengerEventOut.builder()
+                .status(status)
+                .message(message)
+                .data(event)
+                .build();
+    }
+
+    /** Escrituras acumuladas del lote, enviadas como batches JDBC. */
+    private static final class Pending {
+        final List<CountRow> inserts = new ArrayList<>();
+        /** Cada lectura aceptada, antes de fusionar: alimenta rollups y ocupación tras el commit. */
+        final List<CountRow> accepted = new ArrayList<>();
+        final List<CountRow> discards = new ArrayList<>();
+        final Map<String, Instant> lastCounts = new LinkedHashMap<>();
+        CountRow open;
+        int openReadings;
+        int inserted;
+        int discarded;
+
+        void flush(PassengerEventRepository repository) {
+            repository.insertPassengerEventBatch(inserts);
+            repository.insertDiscardedBatch(discards);
+            repository.updateVehicleLastCountBatch(lastCounts);
+            inserted += inserts.size();
+            discarded += discards.size();
+            inserts.clear();
+            discards.clear();
+            lastCounts.clear();
+        }
+    }
+}
@@ -1,26 +1,36 @@
 package com.extreme.passenger.application.service;
 
-import java.time.Duration;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.extreme.passenger.application.service.ProcessStageMetrics.Stage;
 import com.extreme.passenger.domain.model.Accumulators;
 import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
 import com.extreme.passenger.domain.port.PassengerEventRepository;
 import com.extreme.passenger.domain.port.PassengerEventRepository.PrevPoint;
 import com.extreme.passenger.domain.port.PassengerEventRepository.RepoAcc;
+import com.extreme.passenger.infrastructure.async.ConnectionPermits;
+import com.extreme.passenger.infrastructure.cache.ActiveProgramCache;
+import com.extreme.passenger.infrastructure.cache.VehicleRegistry;
 import com.extreme.passenger.infrastructure.config.AppProperties;
+import com.extreme.passenger.infrastructure.config.ProcessingMode;
+import com.extreme.passenger.infrastructure.hotspot.HotVehicleTracker;
+import com.extreme.passenger.infrastructure.journal.EventJournal;
+import com.extreme.passenger.infrastructure.occupancy.OccupancyTracker;
+import com.extreme.passenger.infrastructure.rollup.RollupEngine;
 import com.extreme.passenger.presentation.dto.PassengerEventOut;
 import com.extreme.passenger.presentation.dto.Status;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -31,13 +41,115 @@ public class ProcessPassengerEventService {
 
     private final AppProperties props;
     private final PassengerEventRepository repository;
+    private final PassengerCountCalculator calculator;
+    private final AccumulatorEngine engine;
+    private final VehicleStateProvider states;
+    private final VehicleRegistry vehicles;
+    private final ActiveProgramCache programs;
+    private final TransactionTemplate tx;
+    private final ConnectionPermits permits;
+    private final MeterRegistry meterRegistry;
+    private final ProcessStageMetrics stageMetrics;
+    private final HotVehicleTracker hotVehicles;
+    private final EventJournal journal;
+    private final RollupEngine rollups;
+    private final OccupancyTracker occupancy;
+
+    /**
+     * Punto de entrada de REST/Kafka. En modo optimistic cada intento corre en su propia transacción y un
+     * conflicto en el compare-and-set de vehiculos la revierte y reintenta con backoff acotado.
+     * Con virtual threads el acceso a BD se acota con {@link ConnectionPermits}. Cada resultado suma en
+     * passenger.process.status y cada etapa en passenger.process.stage ({@link ProcessStageMetrics});
+     * eventos, espera de lock y descartes alimentan {@link HotVehicleTracker}. Con el journal habilitado
+     * cada evento deja un registro binario con la decisión ({@link EventJournal}). Los netos totales de un
+     * evento aceptado se suman, ya confirmados, a los rollups por minuto y hora ({@link RollupEngine}) y a
+     * la ocupación del viaje en curso ({@link OccupancyTracker}).
+     */
+    public PassengerEventOut processSync(PassengerEvent event) {
+        ProcessingMode mode = props.getProcessingMode();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long start = System.nanoTime();
+        AccumulatorEngine.Workspace w = engine.workspace();
+        w.clearDecision();
+        try {
+            PassengerEventOut out = mode != ProcessingMode.OPTIMISTIC
+                    ? permits.call(() -> inTransaction(event, false))
+                    : processOptimistic(event);
+            stageMetrics.count(out.getStatus());
+            if (event != null) {
+                hotVehicles.event(event.getIdVehicle());
+                if (out.getStatus() == Status.DISCARDED) hotVehicles.discard(event.getIdVehicle());
+                journal.append(event, out.getStatus().getName(), w.decided ? w.net : null,
+                        w.programId, w.pointId, System.nanoTime() - start);
+                if (out.getStatus() == Status.OK && w.decided) {
+                    int in = w.net[AccumulatorEngine.slot(AccumulatorEngine.TOTAL, AccumulatorEngine.IN)];
+                    int outNet = w.net[AccumulatorEngine.slot(AccumulatorEngine.TOTAL, AccumulatorEngine.OUT)];
+                    rollups.record(event.getIdVehicle(), w.programId, event.getCheckinTime(), in, outNet,
+                            w.net[AccumulatorEngine.slot(AccumulatorEngine.TOTAL, AccumulatorEngine.BLOCK)]);
+                    occupancy.record(event.getIdVehicle(), w.programId, event.getCheckinTime(), in, outNet);
+                }
+            }
+            return out;
+        } finally {
+            sample.stop(meterRegistry.timer("passenger.process", "mode", mode.name().toLowerCase(Locale.ROOT)));
+        }
+    }
 
-    private ZoneId zone() { return ZoneId.of(props.getTimezone()); }
+    /** El permiso de conexión se toma por intento: el backoff entre intentos no retiene cupo de BD. */
+    private PassengerEventOut processOptimistic(PassengerEvent event) {
+        AppProperties.Optimistic cfg = props.getOptimistic();
+        for (int attempt = 1; ; attempt++) {
+            meterRegistry.counter("passenger.optimistic.attempts").increment();
+            try {
+                return permits.call(() -> inTransaction(event, true));
+            } catch (OptimisticConflictException e) {
+                meterRegistry.counter("passenger.optimistic.conflicts").increment();
+                states.invalidate(event.getIdVehicle());
+                if (attempt >= cfg.getMaxAttempts()) {
+                    meterRegistry.counter("passenger.optimistic.exhausted").increment();
+                    log.warn("[vehicle={}] Conflicto de concurrencia tras {} intentos", event.getIdVehicle(), attempt);
+                    return PassengerEventOut.builder()
+                            .status(Status.ERROR)
+                            .message("Conflicto de concurrencia: reintentos agotados")
+                            .data(event)
+                            .build();
+                }
+                if (!backoff(cfg, attempt)) {
+                    return PassengerEventOut.builder()
+                            .status(Status.ERROR)
+                            .message("Procesamiento interrumpido")
+                            .data(event)
+                            .build();
+                }
+            }
+        }
+    }
 
-    private Instant now() { return Instant.now(); }
+    /** Una transacción por intento; lo que tarda tx.execute tras el callback es el commit (o el rollback). */
+    private PassengerEventOut inTransaction(PassengerEvent event, boolean optimistic) {
+        long[] callbackEnd = new long[1];
+        PassengerEventOut out = tx.execute(s -> {
+            PassengerEventOut result = process(event, optimistic);
+            callbackEnd[0] = System.nanoTime();
+            return result;
+        });
+        stageMetrics.record(Stage.COMMIT, callbackEnd[0]);
+        return out;
+    }
 
-    @Transactional
-    public PassengerEventOut processSync(PassengerEvent event) {
+    /** Backoff exponencial con jitter completo, acotado por maxBackoff. */
+    private static boolean backoff(AppProperties.Optimistic cfg, int attempt) {
+        long cap = Math.min(cfg.getMaxBackoff().toMillis(), cfg.getInitialBackoff().toMillis() << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private PassengerEventOut process(PassengerEvent event, boolean optimistic) {
 
         if (event == null) {
             return PassengerEventOut.builder()
@@ -66,8 +178,26 @@ public class ProcessPassengerEventService {
             
             log.info("{} Evento recibido: {}", logPrefix, event);
 
+            // Modo function: todo el algoritmo en un único round trip
+            if (props.getProcessingMode() == ProcessingMode.FUNCTION) {
+                Status status = vehicles.isKnownMissing(idVehicle) ? Status.NOT_FOUND
+                        : Status.valueOf(repository.processInDatabase(event, programs.today(),
+                                props.getPassengerCountTolerance(), props.getTimeThresholdMinutes(),
+                                calculator.isExcluded(idVehicle)));
+                if (status == Status.NOT_FOUND) vehicles.recordMissing(idVehicle);
+                log.info("{} Evento procesado en BD: {}", logPrefix, status);
+                return PassengerEventOut.builder()
+                        .status(status)
+                        .message(messageOf(status))
+                        .data(event)
+                        .build();
+            }
+
             // 0) Verificar vehículo
-            if (!repository.vehicleExists(idVehicle)) {
+            long t = System.nanoTime();
+            boolean exists = vehicles.exists(idVehicle);
+            t = stageMetrics.record(Stage.VEHICLE_CHECK, t);
+            if (!exists) {
                 log.warn("{} Vehículo no encontrado", logPrefix);
                 return PassengerEventOut.builder()
                 .status(Status.NOT_FOUND)
@@ -76,84 +206,58 @@ public class ProcessPassengerEventService {
                 .build();
             }
             
-            repository.lockVehicleRow(idVehicle);
-
-            // 1) Acumulados totales de esta lectura (raw)
-            Accumulators raw = Accumulators.builder()
-                    .door1In(nz(event.getDoor1In()))
-                    .door1Out(nz(event.getDoor1Out()))
-                    .door1Block(nz(event.getDoor1Block()))
-                    .door2In(nz(event.getDoor2In()))
-                    .door2Out(nz(event.getDoor2Out()))
-                    .door2Block(nz(event.getDoor2Block()))
-                    .door3In(nz(event.getDoor3In()))
-                    .door3Out(nz(event.getDoor3Out()))
-                    .door3Block(nz(event.getDoor3Block()))
-                    .build();
-            raw.setTotalIn(raw.getDoor1In() + raw.getDoor2In() + raw.getDoor3In());
-            raw.setTotalOut(raw.getDoor1Out() + raw.getDoor2Out() + raw.getDoor3Out());
-            raw.setTotalBlock(raw.getDoor1Block() + raw.getDoor2Block() + raw.getDoor3Block());
+            if (!optimistic) {
+                repository.lockVehicleRow(idVehicle);
+                long lockStart = t;
+                t = stageMetrics.record(Stage.LOCK_WAIT, t);
+                hotVehicles.lockWait(idVehicle, t - lockStart);
+            }
 
-            // 2) last_date y flag history
-            Optional<Instant> lastDateOpt = repository.getLastDate(idVehicle);
-            boolean hasHistory = repository.hasHistory(idVehicle);
+            // 1) Acumulados totales de esta lectura (raw), en los buffers del hilo
+            AccumulatorEngine.Workspace w = engine.workspace();
+            AccumulatorEngine.raw(event, w.raw);
+
+            // 2) last_date y flag history (cache de estado o BD); en modo optimistic antes se lee la versión de
+            // vehiculos contra la que se valida al final (la fecha sola no basta: dos eventos pueden tener la misma)
+            long version = optimistic ? repository.getVehicleVersion(idVehicle) : 0;
+            VehicleState state = states.load(idVehicle);
+            Instant lastDate = state.lastDate();
+            boolean hasHistory = state.hasHistory();
 
             // 3) prev accum si aplica
-            Accumulators prev = Accumulators.builder()
-                    .totalIn(0).totalOut(0).totalBlock(0)
-                    .door1In(0).door1Out(0).door1Block(0)
-                    .door2In(0).door2Out(0).door2Block(0)
-                    .build();
+            AccumulatorEngine.zero(w.prev);
             Long prevProgramId = null;
 
-            if (lastDateOpt.isPresent() && hasHistory) {
-                Instant lastDate = lastDateOpt.get();
-                Optional<RepoAcc> ra = repository.getLastAccumulators(idVehicle, lastDate);
+            if (lastDate != null && hasHistory) {
+                Optional<RepoAcc> ra = states.lastAccumulators(state);
                 if (ra.isPresent()) {
                     prevProgramId = ra.get().programId();
-                    var a = ra.get().acc();
-                    prev = Accumulators.builder()
-                            .totalIn(a.getTotalIn()).totalOut(a.getTotalOut()).totalBlock(a.getTotalBlock())
-                            .door1In(a.getDoor1In()).door1Out(a.getDoor1Out()).door1Block(a.getDoor1Block())
-                            .door2In(a.getDoor2In()).door2Out(a.getDoor2Out()).door2Block(a.getDoor2Block())
-                            .build();
+                    AccumulatorEngine.prev(ra.get().acc(), w.prev);
                 }
             }
 
+            t = stageMetrics.record(Stage.HISTORY, t);
+
             // 4) netos no negativos
-            Accumulators net = Accumulators.builder()
-                    .door1In(Math.max(raw.getDoor1In() - prev.getDoor1In(), 0))
-                    .door1Out(Math.max(raw.getDoor1Out() - prev.getDoor1Out(), 0))
-                    .door1Block(Math.max(raw.getDoor1Block() - prev.getDoor1Block(), 0))
-                    .door2In(Math.max(raw.getDoor2In() - prev.getDoor2In(), 0))
-                    .door2Out(Math.max(raw.getDoor2Out() - prev.getDoor2Out(), 0))
-                    .door2Block(Math.max(raw.getDoor2Block() - prev.getDoor2Block(), 0))
-                    .build();
-            net.setTotalIn(Math.max(raw.getTotalIn() - prev.getTotalIn(), 0));
-            net.setTotalOut(Math.max(raw.getTotalOut() - prev.getTotalOut(), 0));
-            net.setTotalBlock(Math.max(raw.getTotalBlock() - prev.getTotalBlock(), 0));
+            AccumulatorEngine.net(w.raw, w.prev, w.net);
+            w.decided = true;
 
             // 5) minutos desde last_date
-            Double minutesDiff = null;
-            if (lastDateOpt.isPresent()) {
-                Instant last = lastDateOpt.get();
-                ZonedDateTime lastZ = ZonedDateTime.ofInstant(last, zone());
-                Duration delta = Duration.between(lastZ, ZonedDateTime.ofInstant(now(), zone()));
-                minutesDiff = delta.getSeconds() / 60.0;
-            }
+            Instant now = calculator.now();
+            double minutesDiff = AccumulatorEngine.minutesSince(lastDate, now);
 
             // 6) descarte por pico
-            int tol = props.getPassengerCountTolerance();
-            int minLimit = props.getTimeThresholdMinutes();
-            boolean spike = anyGte(net, tol);
-            boolean inWindow = minutesDiff != null && minutesDiff < minLimit;
-            boolean excluded = props.getExcludedIds()
-                    .stream().map(s -> s.toUpperCase(Locale.ROOT))
-                    .anyMatch(s -> s.equals(idVehicle.toUpperCase(Locale.ROOT)));
-
-            if (lastDateOpt.isPresent() && spike && inWindow && !excluded) {
-                repository.insertDiscarded(event, net, raw, null, null);
-                log.warn("{} Evento descartado por pico (net={} minDiff={} tol={} minLimit={})", logPrefix, net, minutesDiff, tol, minLimit);
+            if (engine.isSpike(idVehicle, lastDate, w.net, minutesDiff)) {
+                Accumulators net = AccumulatorEngine.toAccumulators(w.net);
+                repository.insertDiscarded(event, net, AccumulatorEngine.toAccumulators(w.raw), null, null);
+                // el descarte se basó en el estado leído: en modo optimistic se valida que siga vigente
+                if (optimistic && !repository.validateVehicleVersion(idVehicle, version)) {
+                    throw new OptimisticConflictException();
+                }
+                stageMetrics.record(Stage.INSERT, t);
+                states.publish(state);
+                log.warn("{} Evento descartado por pico (net={} minDiff={} tol={} minLimit={})", logPrefix, net, minutesDiff,
+                        props.getPassengerCountTolerance(), props.getTimeThresholdMinutes());
                 return PassengerEventOut.builder()
                         .status(Status.DISCARDED)
                         .message("Evento descartado por pico")
@@ -162,32 +266,43 @@ public class ProcessPassengerEventService {
             }
 
             // 7) viaje actual
-            Long programId = repository.getActiveProgramToday(idVehicle).orElse(null);
+            Long programId = programs.activeProgramToday(idVehicle).orElse(null);
             log.info("{} Viaje actual: {}", logPrefix, programId);
 
             // 8) punto anterior
             Long pointId = null;
-            if (programId == null && lastDateOpt.isPresent() && hasHistory && prevProgramId != null) {
+            if (programId == null && lastDate != null && hasHistory && prevProgramId != null) {
                 Optional<PrevPoint> pp = repository.getLastBlankPointOfProgram(prevProgramId);
                 if (pp.isPresent() && pp.get().blank()) {
                     programId = prevProgramId;
                     pointId = pp.get().pointId();
-                    repository.updateProgvehiculosCounters(programId, net.getTotalIn(), net.getTotalOut(), net.getTotalBlock());
+                    repository.updateProgvehiculosCounters(programId,
+                            w.net[AccumulatorEngine.slot(AccumulatorEngine.TOTAL, AccumulatorEngine.IN)],
+                            w.net[AccumulatorEngine.slot(AccumulatorEngine.TOTAL, AccumulatorEngine.OUT)],
+                            w.net[AccumulatorEngine.slot(AccumulatorEngine.TOTAL, AccumulatorEngine.BLOCK)]);
                     log.info("{} Punto anterior encontrado: programId={} pointId={}", logPrefix, programId, pointId);
                 }
             }
 
+            t = stageMetrics.record(Stage.PROGRAM, t);
+            w.programId = programId == null ? -1 : programId;
+            w.pointId = pointId == null ? -1 : pointId;
+
             // 9) ajuste de fecha
-            Instant eventTs = checkinTime;
-            ZonedDateTime eventZ = ZonedDateTime.ofInstant(eventTs, zone());
-            long days = Math.abs(Duration.between(eventZ, ZonedDateTime.ofInstant(now(), zone())).toDays());
-            Instant currentDate = days > 1 ? now() : eventTs;
+            Instant currentDate = AccumulatorEngine.effectiveDate(checkinTime, now);
 
-            // 10) insert final + update vehiculos
-            repository.insertPassengerEvent(event, programId, pointId, net, raw);
+            // 10) insert final + update vehiculos (Accumulators solo en el borde del repositorio)
+            Accumulators raw = AccumulatorEngine.toAccumulators(w.raw);
+            repository.insertPassengerEvent(event, programId, pointId, AccumulatorEngine.toAccumulators(w.net), raw);
             log.info("{} Evento insertado {}", logPrefix, event);
-            repository.updateVehicleLastCount(idVehicle, currentDate);
+            if (!optimistic) {
+                repository.updateVehicleLastCount(idVehicle, currentDate);
+            } else if (!repository.compareAndSetLastCount(idVehicle, version, currentDate)) {
+                throw new OptimisticConflictException();
+            }
+            stageMetrics.record(Stage.INSERT, t);
             log.info("{} Vehículo actualizado", logPrefix);
+            states.publish(state.afterInsert(currentDate, checkinTime, programId, raw));
 
             return PassengerEventOut.builder()
                     .status(Status.OK)
@@ -195,8 +310,11 @@ public class ProcessPassengerEventService {
                     .data(event)
                     .build();
 
+        } catch (OptimisticConflictException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error procesando evento", e);
+            states.invalidate(idVehicle);
             return PassengerEventOut.builder()
                     .status(Status.ERROR)
                     .message("Error interno del servidor: " + e.getMessage())
@@ -205,11 +323,20 @@ public class ProcessPassengerEventService {
         }
     }
 
-    private static int nz(Integer v) { return v == null ? 0 : v; }
+    /** El estado leído ya no es el vigente en vehiculos: revierte la transacción para reintentar. */
+    private static class OptimisticConflictException extends RuntimeException {
+        OptimisticConflictException() {
+            super("vehiculos modificado concurrentemente", null, false, false);
+        }
+    }
 
-    private static boolean anyGte(Accumulators n, int tol) {
-        return n.getTotalIn()  >= tol || n.getDoor1In()  >= tol || n.getDoor2In()  >= tol ||
-               n.getTotalOut() >= tol || n.getDoor1Out() >= tol || n.getDoor2Out() >= tol;
+    private static String messageOf(Status status) {
+        return switch (status) {
+            case OK -> "Evento procesado exitosamente";
+            case DISCARDED -> "Evento descartado por pico";
+            case NOT_FOUND -> "Vehículo no encontrado";
+            default -> status.getName();
+        };
     }
 
     @Async
@@ -0,0 +1,52 @@
+package com.extreme.passenger.application.service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.presentation.dto.Status;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers por etapa del camino unitario (passenger.process.stage) y contadores por Status
+ * (passenger.process.status). Se registran una vez al arrancar para no buscar el meter en cada evento;
+ * los histogramas de percentiles se activan por configuración (management.metrics.distribution).
+ */
+@Component
+public class ProcessStageMetrics {
+
+    public enum Stage {
+        VEHICLE_CHECK, LOCK_WAIT, HISTORY, PROGRAM, INSERT, COMMIT
+    }
+
+    private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+    private final Map<Status, Counter> statuses = new EnumMap<>(Status.class);
+
+    public ProcessStageMetrics(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, Timer.builder("passenger.process.stage")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        for (Status status : Status.values()) {
+            statuses.put(status, meterRegistry.counter("passenger.process.status", "status", status.getName()));
+        }
+    }
+
+    /** Registra la etapa iniciada en startNanos (System.nanoTime) y devuelve el instante actual. */
+    public long record(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        stages.get(stage).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void count(Status status) {
+        if (status != null) statuses.get(status).increment();
+    }
+}
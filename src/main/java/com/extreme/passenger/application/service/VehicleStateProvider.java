@@ -0,0 +1,79 @@
+package com.extreme.passenger.application.service;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+import com.extreme.passenger.domain.port.PassengerEventRepository.RepoAcc;
+import com.extreme.passenger.infrastructure.cache.VehicleStateCache;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Resuelve el estado previo de un vehículo desde la cache write-through o, si no está, desde la BD.
+ * Los cambios se publican a la cache solo tras el commit; un rollback elimina la entrada. La entrada
+ * anterior se invalida en beforeCommit, con el lock de vehiculos aún tomado: una transacción que toma el
+ * lock después del commit ya no puede leer el estado previo de la cache.
+ */
+@Component
+@RequiredArgsConstructor
+public class VehicleStateProvider {
+
+    private final PassengerEventRepository repository;
+    private final VehicleStateCache cache;
+
+    public VehicleState load(String idVehicle) {
+        return cache.get(idVehicle).orElseGet(() -> fromRepository(idVehicle));
+    }
+
+    /** Acumulados previos (≤ lastDate): de memoria si el estado los cubre, si no desde conteo_pasajeros. */
+    public Optional<RepoAcc> lastAccumulators(VehicleState state) {
+        if (state.coversLastDate()) {
+            return Optional.of(new RepoAcc(state.lastProgramId(), state.lastAcc()));
+        }
+        return repository.getLastAccumulators(state.idVehicle(), state.lastDate());
+    }
+
+    public void publish(VehicleState state) {
+        if (!cache.isEnabled()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.put(state);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long version;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                version = cache.reserve(state.idVehicle());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) cache.put(state, version);
+                else cache.evict(state.idVehicle());
+            }
+        });
+    }
+
+    public void invalidate(String idVehicle) {
+        cache.evict(idVehicle);
+    }
+
+    private VehicleState fromRepository(String idVehicle) {
+        Optional<Instant> lastDateOpt = repository.getLastDate(idVehicle);
+        boolean hasHistory = repository.hasHistory(idVehicle);
+        if (lastDateOpt.isEmpty() || !hasHistory) {
+            return new VehicleState(idVehicle, lastDateOpt.orElse(null), hasHistory, null, null, null);
+        }
+        Instant lastDate = lastDateOpt.get();
+        return repository.getLastAccumulators(idVehicle, lastDate)
+                .map(ra -> new VehicleState(idVehicle, lastDate, true, lastDate, ra.programId(), ra.acc()))
+                .orElseGet(() -> new VehicleState(idVehicle, lastDate, true, null, null, null));
+    }
+}
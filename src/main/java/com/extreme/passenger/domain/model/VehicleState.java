@@ -0,0 +1,26 @@
+package com.extreme.passenger.domain.model;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Estado previo de un vehículo necesario para calcular netos: última fecha de conteo (vehiculos),
+ * existencia de histórico y última fila conocida de conteo_pasajeros (fecha, programación y acumulados raw).
+ */
+public record VehicleState(String idVehicle, Instant lastDate, boolean hasHistory,
+                           Instant lastRowDate, Long lastProgramId, Accumulators lastAcc) {
+
+    public Optional<Instant> lastDateOpt() {
+        return Optional.ofNullable(lastDate);
+    }
+
+    /** true si la última fila conocida es la que devolvería la consulta de acumulados previos para lastDate. */
+    public boolean coversLastDate() {
+        return lastAcc != null && lastDate != null && lastRowDate != null && !lastRowDate.isAfter(lastDate);
+    }
+
+    /** Estado resultante tras insertar una fila en conteo_pasajeros y actualizar vehiculos. */
+    public VehicleState afterInsert(Instant currentDate, Instant rowDate, Long programId, Accumulators raw) {
+        return new VehicleState(idVehicle, currentDate, true, rowDate, programId, raw);
+    }
+}
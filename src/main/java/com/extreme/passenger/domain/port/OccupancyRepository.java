@@ -0,0 +1,14 @@
+package com.extreme.passenger.domain.port;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Viaje en curso por vehículo reconstruido desde conteo_pasajeros, para la ocupación en memoria. */
+public interface OccupancyRepository {
+
+    /** Tramo final de filas con la misma programación (programId null: sin programación); in y out son netos sumados. */
+    record Trip(String idVehicle, Long programId, long in, long out, long events, Instant since, Instant lastDate) {}
+
+    /** Un Trip por vehículo con filas desde since; un viaje que empezó antes queda truncado en since. */
+    List<Trip> currentTrips(Instant since);
+}
@@ -1,19 +1,25 @@
 package com.extreme.passenger.domain.port;
 
 import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.extreme.passenger.domain.model.Accumulators;
 import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
 
 public interface PassengerEventRepository {
     boolean vehicleExists(String idVehicle);
+    List<String> findExistingVehicleIds(Collection<String> idVehicles);
 
     Optional<Instant> getLastDate(String idVehicle);
     boolean hasHistory(String idVehicle);
     Optional<RepoAcc> getLastAccumulators(String idVehicle, Instant until);
 
-    Optional<Long> getActiveProgramToday(String idVehicle); // progvehiculos activa hoy
+    Optional<Long> getActiveProgram(String idVehicle, LocalDate day); // progvehiculos activa con salida en day (hora local)
     Optional<PrevPoint> getLastBlankPointOfProgram(Long programId); // rutascontrol
 
     void updateProgvehiculosCounters(Long programId, int in, int out, int block);
@@ -25,9 +31,32 @@ public interface PassengerEventRepository {
 
     void updateVehicleLastCount(String idVehicle, Instant when);
 
+    // Versión de la fila de vehiculos: toda escritura de fecha_ultimo_conteo la incrementa (modo optimistic)
+    long getVehicleVersion(String idVehicle);
+
+    // Compare-and-set sobre la versión (modo optimistic): fija fecha_ultimo_conteo e incrementa la versión;
+    // false si otra transacción escribió después de leer expectedVersion
+    boolean compareAndSetLastCount(String idVehicle, long expectedVersion, Instant when);
+
+    // Igual sin escribir (descartes): bloquea la fila hasta el commit y valida que la versión siga vigente
+    boolean validateVehicleVersion(String idVehicle, long expectedVersion);
+
     public void lockVehicleRow(String idVehicle);
 
+    // Procesamiento completo en BD (app.processing-mode=function); day es el de getActiveProgram. Devuelve el nombre del Status
+    String processInDatabase(PassengerEvent ev, LocalDate day, int tolerance, int timeThresholdMinutes, boolean excluded);
+
+    // Precarga de estado por vehículo (cache de estado)
+    List<String> findVehicleIds();
+    List<VehicleState> loadVehicleStates(Collection<String> idVehicles);
+
+    // Escrituras por lotes (listener batch)
+    void insertDiscardedBatch(List<CountRow> rows);
+    void insertPassengerEventBatch(List<CountRow> rows);
+    void updateVehicleLastCountBatch(Map<String, Instant> lastCounts);
+
     // Tipos auxiliares
     record RepoAcc(Long programId, Accumulators acc) {}
     record PrevPoint(Long pointId, Integer order, boolean blank) {}
+    record CountRow(PassengerEvent ev, Long programId, Long pointId, Accumulators accNet, Accumulators accRaw) {}
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.extreme.passenger.domain.port;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+
+/**
+ * Fuente secuencial de eventos históricos para el replay. La posición es opaca para el llamador (offset en
+ * bytes de un archivo, último id leído de una tabla) y permite reabrir la fuente justo después de un chunk.
+ */
+public interface ReplaySource extends Closeable {
+
+    /** Lee hasta max entradas (eventos o líneas inválidas); un chunk vacío indica fin de la fuente. */
+    Chunk next(int max) throws IOException;
+
+    /**
+     * @param events   eventos decodificados, en el orden de la fuente
+     * @param invalid  entradas que no se pudieron decodificar (cuentan para max)
+     * @param position posición justo después de la última entrada leída
+     */
+    record Chunk(List<PassengerEvent> events, int invalid, long position) {
+        public boolean isEmpty() {
+            return events.isEmpty() && invalid == 0;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.extreme.passenger.domain.port;
+
+import java.time.Instant;
+
+/**
+ * Tablas del replay: fuentes con el formato de conteo_pasajeros (recorrido por id ascendente) y tablas destino
+ * propias de cada run, para que el reproceso nunca escriba en conteo_pasajeros ni en vehiculos.
+ */
+public interface ReplayTables {
+
+    /** Id máximo actual de la tabla: el replay no lee más allá aunque la tabla siga creciendo. */
+    long maxId(String table);
+
+    /** Fuente que lee filas con afterId < id <= upToId, filtradas por fecha en [from, to) si no son null. */
+    ReplaySource open(String table, long afterId, long upToId, Instant from, Instant to);
+
+    /** true si table es una de las dos tablas destino de target (aceptadas o descartadas). */
+    boolean isTarget(String target, String table);
+
+    /**
+     * Crea las tablas destino vacías de un run nuevo.
+     * @throws IllegalArgumentException si ya existen (otro run las usa o quedaron de uno anterior)
+     */
+    void createTarget(String target);
+
+    /** Abre para escritura las tablas destino creadas con {@link #createTarget}. */
+    ReplayTarget openTarget(String target);
+}
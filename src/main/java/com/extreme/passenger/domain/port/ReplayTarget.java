@@ -0,0 +1,33 @@
+package com.extreme.passenger.domain.port;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+
+/**
+ * Tablas destino de un replay (aceptadas y descartadas), separadas de conteo_pasajeros. Las filas se escriben
+ * en bulk con acuse por fila; ambas tablas toman el id de una secuencia propia, así las filas de un vehículo
+ * quedan con ids crecientes en el orden en que se escribieron.
+ */
+public interface ReplayTarget extends Closeable {
+
+    /** El future se completa tras el commit de la fila, o con la excepción si su escritura falló. */
+    CompletableFuture<Void> write(CountRow row, boolean discarded) throws InterruptedException;
+
+    /** Último id entregado por la secuencia: toda fila ya confirmada tiene id menor o igual. */
+    long watermark();
+
+    /** Borra las filas de esos vehículos con id mayor que watermark (escritas después de un checkpoint). */
+    void rollback(Collection<String> idVehicles, long watermark);
+
+    /** Estado según la última fila aceptada de cada vehículo; los vehículos sin filas no aparecen. */
+    List<VehicleState> lastStates(Collection<String> idVehicles);
+
+    /** Espera lo pendiente y libera el writer. */
+    @Override
+    void close();
+}
@@ -0,0 +1,27 @@
+package com.extreme.passenger.domain.port;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Tablas de rollup: netos agregados por vehículo y por programación en buckets de minuto y de hora. */
+public interface RollupRepository {
+
+    enum Granularity { MINUTE, HOUR }
+
+    /** Agregado de un bucket: eventos y suma de los netos totales de subida, bajada y bloqueo. */
+    record Bucket(Instant start, long events, long in, long out, long block) {}
+
+    record VehicleDelta(String idVehicle, Granularity granularity, Bucket delta) {}
+
+    record ProgramDelta(long programId, Granularity granularity, Bucket delta) {}
+
+    /** Suma cada delta a su bucket (lo crea si no existe). */
+    void addVehicleDeltas(List<VehicleDelta> deltas);
+
+    void addProgramDeltas(List<ProgramDelta> deltas);
+
+    /** Buckets con inicio en [from, to), ordenados por inicio. */
+    List<Bucket> vehicleBuckets(String idVehicle, Granularity granularity, Instant from, Instant to);
+
+    List<Bucket> programBuckets(long programId, Granularity granularity, Instant from, Instant to);
+}
@@ -0,0 +1,70 @@
+package com.extreme.passenger.infrastructure.async;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Admisión de processAsync: como mucho max-pool-size + queue-capacity eventos pendientes (lo mismo que
+ * admite el ThreadPoolTaskExecutor; con virtual threads es el único límite). Si no hay cupo, el caller
+ * responde 429 de inmediato con un Retry-After estimado como pendientes / ritmo de vaciado (EWMA por segundo).
+ */
+@Component
+public class AsyncBackpressure {
+
+    private static final double ALPHA = 0.3;
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final Semaphore admission;
+    private final int capacity;
+    private final AtomicLong completions = new AtomicLong();
+    private final Counter rejected;
+
+    private volatile double drainPerSecond;
+
+    public AsyncBackpressure(AsyncProps props, MeterRegistry meterRegistry,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.capacity = (virtualThreads ? 0 : props.getMaxPoolSize()) + props.getQueueCapacity();
+        this.admission = new Semaphore(capacity);
+        this.rejected = meterRegistry.counter("passenger.async.rejected");
+        Gauge.builder("passenger.async.pending", this, AsyncBackpressure::pending).register(meterRegistry);
+        Gauge.builder("passenger.async.drain.rate", this, b -> b.drainPerSecond).register(meterRegistry);
+    }
+
+    /** true si el evento tiene cupo; en ese caso el caller debe invocar {@link #release()} al terminar. */
+    public boolean tryAcquire() {
+        if (admission.tryAcquire()) return true;
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        completions.incrementAndGet();
+        admission.release();
+    }
+
+    public int pending() {
+        return capacity - admission.availablePermits();
+    }
+
+    /** Segundos estimados hasta que se libere cupo (mínimo 1, máximo 60). */
+    public Duration retryAfter() {
+        double rate = drainPerSecond;
+        long seconds = rate <= 0 ? MAX_RETRY_AFTER_SECONDS : (long) Math.ceil(pending() / rate);
+        return Duration.ofSeconds(Math.max(1, Math.min(seconds, MAX_RETRY_AFTER_SECONDS)));
+    }
+
+    @Scheduled(fixedRate = 1000)
+    void sampleDrainRate() {
+        long done = completions.getAndSet(0);
+        drainPerSecond = drainPerSecond == 0 ? done : ALPHA * done + (1 - ALPHA) * drainPerSecond;
+    }
+}
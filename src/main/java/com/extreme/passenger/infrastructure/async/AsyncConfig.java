@@ -3,8 +3,10 @@ package com.extreme.passenger.infrastructure.async;
 import java.util.concurrent.Executor;
 
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -18,8 +20,53 @@ public class AsyncConfig implements AsyncConfigurer {
 
     private final AsyncProps props;
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Con spring.threads.virtual.enabled=true cada processAsync corre en su propio virtual thread (sin pool
+     * ni cola que dimensionar); la concurrencia contra Postgres la acota {@link ConnectionPermits}.
+     */
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
+        if (virtualThreads) {
+            return newVirtualExecutor();
+        }
+        return newPlatformExecutor(props);
+    }
+
+    /**
+     * Executor del endpoint bulk: bulk-parallelism hilos (o virtual threads) y cola del tamaño de la ventana
+     * en vuelo, que el controller ya acota por request.
+     */
+    @Bean(name = "bulkExecutor")
+    public Executor bulkExecutor() {
+        if (virtualThreads) {
+            return newVirtualExecutor("PassengerEventBulk-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(props.getBulkParallelism());
+        executor.setMaxPoolSize(props.getBulkParallelism());
+        executor.setQueueCapacity(Integer.MAX_VALUE);
+        executor.setThreadNamePrefix("PassengerEventBulk-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    static SimpleAsyncTaskExecutor newVirtualExecutor() {
+        return newVirtualExecutor("PassengerEventProcessor-");
+    }
+
+    private static SimpleAsyncTaskExecutor newVirtualExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+
+    static ThreadPoolTaskExecutor newPlatformExecutor(AsyncProps props) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(props.getCorePoolSize());
         executor.setMaxPoolSize(props.getMaxPoolSize());
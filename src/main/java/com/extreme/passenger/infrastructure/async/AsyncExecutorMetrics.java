@@ -0,0 +1,36 @@
+package com.extreme.passenger.infrastructure.async;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Gauges de los executors de {@link AsyncConfig} (tag executor=task|bulk): tareas en cola, cupo restante de
+ * la cola e hilos activos. Con virtual threads no hay pool ni cola y no se registran; la espera se ve en
+ * passenger.db.permits.waiting.
+ */
+@Component
+class AsyncExecutorMetrics {
+
+    AsyncExecutorMetrics(@Qualifier("taskExecutor") Executor taskExecutor,
+                         @Qualifier("bulkExecutor") Executor bulkExecutor,
+                         MeterRegistry meterRegistry) {
+        register("task", taskExecutor, meterRegistry);
+        register("bulk", bulkExecutor, meterRegistry);
+    }
+
+    private static void register(String name, Executor executor, MeterRegistry meterRegistry) {
+        if (!(executor instanceof ThreadPoolTaskExecutor pool)) return;
+        Gauge.builder("passenger.executor.queue", pool, ThreadPoolTaskExecutor::getQueueSize)
+                .tag("executor", name).register(meterRegistry);
+        Gauge.builder("passenger.executor.queue.remaining", pool, p -> p.getThreadPoolExecutor().getQueue().remainingCapacity())
+                .tag("executor", name).register(meterRegistry);
+        Gauge.builder("passenger.executor.active", pool, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("executor", name).register(meterRegistry);
+    }
+}
@@ -1,5 +1,7 @@
 package com.extreme.passenger.infrastructure.async;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -14,4 +16,12 @@ class AsyncProps {
   private int corePoolSize = 2;
   private int maxPoolSize = 2;
   private int queueCapacity = 500;
-}
\ No newline at end of file
+  /** Resultados de processAsync consultables por ticket */
+  private int ticketMaxSize = 50_000;
+  private Duration ticketTtl = Duration.ofMinutes(15);
+  /** Endpoint bulk: hilos que procesan vehículos en paralelo y eventos en vuelo por request */
+  private int bulkParallelism = 8;
+  private int bulkMaxInFlight = 1_000;
+  /** Permisos de acceso a BD en modo virtual threads; <= 0 usa el tamaño del pool de conexiones */
+  private int dbPermits = 0;
+}
@@ -0,0 +1,81 @@
+package com.extreme.passenger.infrastructure.async;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.presentation.dto.PassengerEventOut;
+import com.extreme.passenger.presentation.dto.Status;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Resultados de processAsync por ticket: acotado a app.async.ticket-max-size (se descarta el más antiguo)
+ * y cada entrada expira tras app.async.ticket-ttl. Mientras el evento se procesa el ticket vale RECEIVED.
+ */
+@Component
+public class AsyncTicketStore {
+
+    private final AsyncProps props;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(1024) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > props.getTicketMaxSize();
+        }
+    };
+
+    public AsyncTicketStore(AsyncProps props, MeterRegistry meterRegistry) {
+        this.props = props;
+        Gauge.builder("passenger.async.tickets", this, AsyncTicketStore::size).register(meterRegistry);
+    }
+
+    /** Registra un evento aceptado y devuelve la respuesta RECEIVED con su ticket. */
+    public PassengerEventOut open(PassengerEvent event) {
+        String ticketId = UUID.randomUUID().toString();
+        PassengerEventOut received = PassengerEventOut.builder()
+                .ticketId(ticketId)
+                .data(event)
+                .status(Status.RECEIVED)
+                .message("Event is being processed asynchronously")
+                .build();
+        put(ticketId, received);
+        return received;
+    }
+
+    public void complete(String ticketId, PassengerEventOut out) {
+        out.setTicketId(ticketId);
+        put(ticketId, out);
+    }
+
+    public synchronized Optional<PassengerEventOut> get(String ticketId) {
+        Entry e = entries.get(ticketId);
+        if (e == null) return Optional.empty();
+        if (System.nanoTime() - e.storedAt() > props.getTicketTtl().toNanos()) {
+            entries.remove(ticketId);
+            return Optional.empty();
+        }
+        return Optional.of(e.out());
+    }
+
+    public synchronized void remove(String ticketId) {
+        entries.remove(ticketId);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void put(String ticketId, PassengerEventOut out) {
+        // reinsertar mueve la entrada al final: el orden de inserción sigue siendo el de expiración
+        entries.remove(ticketId);
+        entries.put(ticketId, new Entry(out, System.nanoTime()));
+    }
+
+    private record Entry(PassengerEventOut out, long storedAt) {}
+}
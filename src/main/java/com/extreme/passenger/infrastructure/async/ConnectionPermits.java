@@ -0,0 +1,47 @@
+package com.extreme.passenger.infrastructure.async;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Semáforo que acota cuántos eventos acceden a la BD a la vez cuando REST, @Async y Kafka corren en
+ * virtual threads (sin pool que limite). Por defecto tantos permisos como conexiones tiene Hikari, así
+ * los virtual threads esperan aquí (barato) en lugar de en el pool de conexiones con timeout.
+ * Con platform threads no limita: la concurrencia ya la fijan los pools.
+ */
+@Slf4j
+@Component
+public class ConnectionPermits {
+
+    private final Semaphore semaphore;
+
+    public ConnectionPermits(AsyncProps props,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                             @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                             MeterRegistry meterRegistry) {
+        int permits = props.getDbPermits() > 0 ? props.getDbPermits() : poolSize;
+        this.semaphore = virtualThreads ? new Semaphore(permits, true) : null;
+        if (semaphore != null) {
+            log.info("Virtual threads habilitados: {} permisos de acceso a BD", permits);
+            Gauge.builder("passenger.db.permits.available", semaphore, Semaphore::availablePermits).register(meterRegistry);
+            Gauge.builder("passenger.db.permits.waiting", semaphore, Semaphore::getQueueLength).register(meterRegistry);
+        }
+    }
+
+    public <T> T call(Supplier<T> work) {
+        if (semaphore == null) return work.get();
+        semaphore.acquireUninterruptibly();
+        try {
+            return work.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
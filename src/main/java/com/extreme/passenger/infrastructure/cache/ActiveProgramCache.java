@@ -0,0 +1,79 @@
+package com.extreme.passenger.infrastructure.cache;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+import com.extreme.passenger.infrastructure.config.AppProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache de la programación activa (idprogramacion) por vehículo y fecha local (AppProperties.timezone).
+ * El mismo día se pasa a la consulta, así la clave de la cache y el filtro de fechasalida no difieren cerca de
+ * medianoche. Una entrada solo vale para ese día y durante app.program-cache.ttl: el servicio no modifica
+ * activa ni fechasalida, así que un despacho nuevo o cancelado se ve a más tardar tras el TTL; a medianoche
+ * se vacía completa. El contador de hits equivale a consultas a progvehiculos ahorradas.
+ */
+@Slf4j
+@Component
+public class ActiveProgramCache {
+
+    private final ActiveProgramCacheProps props;
+    private final AppProperties appProps;
+    private final PassengerEventRepository repository;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public ActiveProgramCache(ActiveProgramCacheProps props, AppProperties appProps,
+                              PassengerEventRepository repository, MeterRegistry meterRegistry) {
+        this.props = props;
+        this.appProps = appProps;
+        this.repository = repository;
+        this.hits = meterRegistry.counter("passenger.program.cache", "result", "hit");
+        this.misses = meterRegistry.counter("passenger.program.cache", "result", "miss");
+        Gauge.builder("passenger.program.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    /** Día de programación: fecha local en app.timezone, también la que recibe procesar_conteo_pasajeros. */
+    public LocalDate today() {
+        return LocalDate.now(ZoneId.of(appProps.getTimezone()));
+    }
+
+    public Optional<Long> activeProgramToday(String idVehicle) {
+        LocalDate today = today();
+        if (!props.isEnabled()) return repository.getActiveProgram(idVehicle, today);
+
+        long now = System.nanoTime();
+        Entry e = entries.get(idVehicle);
+        if (e != null && e.day().equals(today) && e.expiresAt() - now > 0) {
+            hits.increment();
+            return Optional.ofNullable(e.programId());
+        }
+
+        misses.increment();
+        Optional<Long> programId = repository.getActiveProgram(idVehicle, today);
+        entries.put(idVehicle, new Entry(today, programId.orElse(null), now + props.getTtl().toNanos()));
+        return programId;
+    }
+
+    @Scheduled(cron = "0 0 0 * * *", zone = "${app.timezone}")
+    public void onMidnight() {
+        int size = entries.size();
+        entries.clear();
+        log.info("Cache de programación activa vaciada por cambio de día ({} entradas)", size);
+    }
+
+    private record Entry(LocalDate day, Long programId, long expiresAt) {}
+}
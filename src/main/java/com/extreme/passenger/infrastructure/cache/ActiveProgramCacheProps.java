@@ -0,0 +1,16 @@
+package com.extreme.passenger.infrastructure.cache;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.program-cache")
+@Data
+class ActiveProgramCacheProps {
+  private boolean enabled = false;
+  private Duration ttl = Duration.ofMinutes(2);
+}
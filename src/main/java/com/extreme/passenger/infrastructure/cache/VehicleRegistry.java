@@ -0,0 +1,147 @@
+package com.extreme.passenger.infrastructure.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registro en memoria de los vehículos existentes. Responde vehicleExists sin ir a la BD para los ids
+ * conocidos y cachea los desconocidos (negativos) durante app.vehicle-registry.negative-ttl.
+ * Se carga al arrancar; el refresco periódico revalida los negativos y recarga todo cada full-reload-interval.
+ */
+@Slf4j
+@Component
+public class VehicleRegistry {
+
+    private final VehicleRegistryProps props;
+    private final PassengerEventRepository repository;
+
+    private volatile Set<String> known = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> negatives = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile long lastFullLoad;
+
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter misses;
+
+    public VehicleRegistry(VehicleRegistryProps props, PassengerEventRepository repository, MeterRegistry meterRegistry) {
+        this.props = props;
+        this.repository = repository;
+        this.hits = meterRegistry.counter("passenger.vehicle.registry", "result", "hit");
+        this.negativeHits = meterRegistry.counter("passenger.vehicle.registry", "result", "negative_hit");
+        this.misses = meterRegistry.counter("passenger.vehicle.registry", "result", "miss");
+        Gauge.builder("passenger.vehicle.registry.size", this, r -> r.known.size()).tag("type", "known").register(meterRegistry);
+        Gauge.builder("passenger.vehicle.registry.size", negatives, Map::size).tag("type", "negative").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    @PostConstruct
+    void load() {
+        if (!props.isEnabled()) return;
+        try {
+            fullReload();
+        } catch (Exception e) {
+            // sin carga inicial el registro se completa bajo demanda
+            log.warn("No se pudo cargar el registro de vehículos al arrancar", e);
+        }
+    }
+
+    public boolean exists(String idVehicle) {
+        if (!props.isEnabled()) return repository.vehicleExists(idVehicle);
+
+        if (known.contains(idVehicle)) {
+            hits.increment();
+            return true;
+        }
+        if (isKnownMissing(idVehicle)) {
+            negativeHits.increment();
+            return false;
+        }
+
+        misses.increment();
+        boolean exists = repository.vehicleExists(idVehicle);
+        if (exists) {
+            known.add(idVehicle);
+            negatives.remove(idVehicle);
+        } else {
+            cacheNegative(idVehicle);
+        }
+        return exists;
+    }
+
+    /** true si el id está cacheado como inexistente y no ha expirado (no consulta la BD). */
+    public boolean isKnownMissing(String idVehicle) {
+        if (!props.isEnabled()) return false;
+        Long expiresAt = negatives.get(idVehicle);
+        if (expiresAt == null) return false;
+        if (expiresAt - System.nanoTime() > 0) return true;
+        negatives.remove(idVehicle, expiresAt);
+        return false;
+    }
+
+    /** Registra un id que la BD reportó como inexistente por otra vía (ej. modo function). */
+    public void recordMissing(String idVehicle) {
+        if (props.isEnabled()) cacheNegative(idVehicle);
+    }
+
+    @Scheduled(fixedDelayString = "${app.vehicle-registry.refresh-interval:1m}")
+    public void refresh() {
+        if (!props.isEnabled()) return;
+        try {
+            if (!loaded || System.nanoTime() - lastFullLoad >= props.getFullReloadInterval().toNanos()) {
+                fullReload();
+                return;
+            }
+            // Incremental: los negativos que ya existen en vehiculos pasan a conocidos
+            purgeExpired();
+            if (negatives.isEmpty()) return;
+            List<String> found = repository.findExistingVehicleIds(List.copyOf(negatives.keySet()));
+            found.forEach(id -> {
+                known.add(id);
+                negatives.remove(id);
+            });
+            if (!found.isEmpty()) log.info("Registro de vehículos: {} ids dados de alta", found.size());
+        } catch (Exception e) {
+            log.warn("Error refrescando el registro de vehículos", e);
+        }
+    }
+
+    private void fullReload() {
+        Set<String> fresh = ConcurrentHashMap.newKeySet();
+        fresh.addAll(repository.findVehicleIds());
+        known = fresh;
+        negatives.keySet().removeAll(fresh);
+        lastFullLoad = System.nanoTime();
+        loaded = true;
+        log.info("Registro de vehículos cargado: {} vehículos", fresh.size());
+    }
+
+    private void cacheNegative(String idVehicle) {
+        if (negatives.size() >= props.getNegativeMaxSize()) {
+            purgeExpired();
+            if (negatives.size() >= props.getNegativeMaxSize()) return;
+        }
+        negatives.put(idVehicle, System.nanoTime() + props.getNegativeTtl().toNanos());
+    }
+
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        negatives.values().removeIf(expiresAt -> expiresAt - now <= 0);
+    }
+}
@@ -0,0 +1,18 @@
+package com.extreme.passenger.infrastructure.cache;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.vehicle-registry")
+@Data
+class VehicleRegistryProps {
+  private boolean enabled = false;
+  private Duration negativeTtl = Duration.ofMinutes(10);
+  private int negativeMaxSize = 10_000;
+  private Duration fullReloadInterval = Duration.ofHours(1);
+}
@@ -0,0 +1,85 @@
+package com.extreme.passenger.infrastructure.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.model.VehicleState;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cache LRU acotada del estado previo por vehículo. Las entradas expiran tras app.state-cache.ttl
+ * como red de seguridad ante escrituras de otra instancia; con la cache deshabilitada no guarda nada.
+ * Cada escritura lleva una versión creciente: {@link #reserve} deja una marca vacía (la lectura va a la BD)
+ * y un put con versión menor que la vigente se ignora, así un put tardío no pisa el estado de una
+ * transacción posterior.
+ */
+@Component
+@RequiredArgsConstructor
+public class VehicleStateCache {
+
+    private final VehicleStateCacheProps props;
+    private long versions;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > props.getMaxSize();
+        }
+    };
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    public synchronized Optional<VehicleState> get(String idVehicle) {
+        if (!props.isEnabled()) return Optional.empty();
+        Entry e = entries.get(idVehicle);
+        if (e == null || e.state() == null) return Optional.empty();
+        if (System.nanoTime() - e.storedAt() > props.getTtl().toNanos()) {
+            entries.remove(idVehicle);
+            return Optional.empty();
+        }
+        return Optional.of(e.state());
+    }
+
+    public synchronized void put(VehicleState state) {
+        if (!props.isEnabled()) return;
+        entries.put(state.idVehicle(), new Entry(state, System.nanoTime(), ++versions));
+    }
+
+    /** Invalida la entrada hasta un put con esta versión (o posterior); devuelve la versión reservada. */
+    public synchronized long reserve(String idVehicle) {
+        if (!props.isEnabled()) return 0;
+        long version = ++versions;
+        entries.put(idVehicle, new Entry(null, System.nanoTime(), version));
+        return version;
+    }
+
+    /** Guarda el estado salvo que la entrada vigente sea de una versión posterior. */
+    public synchronized void put(VehicleState state, long version) {
+        if (!props.isEnabled()) return;
+        Entry current = entries.get(state.idVehicle());
+        if (current != null && current.version() > version) return;
+        entries.put(state.idVehicle(), new Entry(state, System.nanoTime(), version));
+    }
+
+    public synchronized void evict(String idVehicle) {
+        entries.remove(idVehicle);
+    }
+
+    public synchronized void evictIf(Predicate<String> idVehicle) {
+        entries.keySet().removeIf(idVehicle);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** state null: reservada por una transacción que aún no confirmó. */
+    private record Entry(VehicleState state, long storedAt, long version) {}
+}
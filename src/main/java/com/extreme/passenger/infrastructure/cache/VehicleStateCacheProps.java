@@ -0,0 +1,17 @@
+package com.extreme.passenger.infrastructure.cache;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.state-cache")
+@Data
+class VehicleStateCacheProps {
+  private boolean enabled = false;
+  private int maxSize = 10_000;
+  private Duration ttl = Duration.ofMinutes(10);
+}
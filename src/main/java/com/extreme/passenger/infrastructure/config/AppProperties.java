@@ -1,5 +1,6 @@
 package com.extreme.passenger.infrastructure.config;
 
+import java.time.Duration;
 import java.util.List;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -17,5 +18,20 @@ public class AppProperties {
     private int passengerCountTolerance;
     private int timeThresholdMinutes;
     private String timezone;
+    private ProcessingMode processingMode = ProcessingMode.STANDARD;
+    private Optimistic optimistic = new Optimistic();
+    private Coalescing coalescing = new Coalescing();
+
+    @Getter @Setter
+    public static class Optimistic {
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofMillis(5);
+        private Duration maxBackoff = Duration.ofMillis(200);
+    }
+
+    @Getter @Setter
+    public static class Coalescing {
+        private boolean enabled = false;
+    }
 
 }
@@ -0,0 +1,23 @@
+package com.extreme.passenger.infrastructure.config;
+
+import java.time.Instant;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * checkin_time llega como "yyyy-MM-dd HH:mm:ss" sin zona: un @JsonFormat con pattern sobre Instant solo
+ * lo resuelve si el formato trae zona, así que se fija por defecto la del ObjectMapper (spring.jackson.time-zone).
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer instantTimeZone() {
+        return builder -> builder.postConfigurer(mapper -> mapper.configOverride(Instant.class)
+                .setFormat(JsonFormat.Value.empty().withTimeZone(mapper.getDeserializationConfig().getTimeZone())));
+    }
+}
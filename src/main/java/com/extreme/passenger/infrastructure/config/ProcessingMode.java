@@ -0,0 +1,13 @@
+package com.extreme.passenger.infrastructure.config;
+
+/**
+ * Modo de ejecución de processSync (app.processing-mode).
+ */
+public enum ProcessingMode {
+    /** Algoritmo en Java con lock pesimista sobre vehiculos (una consulta por paso). */
+    STANDARD,
+    /** Algoritmo completo en la función procesar_conteo_pasajeros: un round trip por evento. */
+    FUNCTION,
+    /** Sin lock pesimista: compare-and-set sobre vehiculos.version_conteo y reintento con backoff. */
+    OPTIMISTIC
+}
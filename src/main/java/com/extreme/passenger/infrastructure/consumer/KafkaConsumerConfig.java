@@ -1,8 +1,15 @@
 package com.extreme.passenger.infrastructure.consumer;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
 
 @EnableKafka
 @Configuration
@@ -14,4 +21,77 @@ public class KafkaConsumerConfig {
     @Value(value = "${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    /**
+     * Factory por defecto (reemplaza la de Spring Boot) con el listener de rebalanceo que precarga
+     * y limpia la cache de estado por partición.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> kafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            VehicleStateRebalanceListener rebalanceListener) {
+        return newFactory(configurer, consumerFactory, rebalanceListener);
+    }
+
+    /**
+     * Factory para el listener por lotes: hereda la configuración de spring.kafka.* (ack-mode incluido)
+     * y entrega el poll completo (hasta max-poll-records) en una sola invocación.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.kafka", name = "batch-enabled", havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            VehicleStateRebalanceListener rebalanceListener) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = newFactory(configurer, consumerFactory, rebalanceListener);
+        factory.setBatchListener(true);
+        return factory;
+    }
+
+    /**
+     * Factory del modo pipeline: los acks llegan fuera de orden desde los hilos del pipeline, así que se usa
+     * ack-mode manual con async acks (el contenedor confirma el offset solo cuando el prefijo está completo).
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.pipeline", name = "enabled", havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> pipelineKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            VehicleStateRebalanceListener rebalanceListener) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = newFactory(configurer, consumerFactory, rebalanceListener);
+        factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+
+    /**
+     * Factory del modo por clave: recibe el poll completo para despacharlo y confirma offsets a mano
+     * (KeyParallelDispatcher). Los eventos idle permiten confirmar lo terminado aunque no lleguen registros.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.key-parallel", name = "enabled", havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> keyParallelKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            VehicleStateRebalanceListener rebalanceListener,
+            KeyParallelDispatcher dispatcher,
+            KeyParallelProps props) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
+                newFactory(configurer, consumerFactory, dispatcher.withOffsets(rebalanceListener));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+        factory.getContainerProperties().setIdleEventInterval(props.getCommitInterval().toMillis());
+        return factory;
+    }
+
+    private static ConcurrentKafkaListenerContainerFactory<Object, Object> newFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            ConsumerAwareRebalanceListener rebalanceListener) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener);
+        return factory;
+    }
+
 }
@@ -0,0 +1,223 @@
+package com.extreme.passenger.infrastructure.consumer;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.infrastructure.consumer.PartitionOffsets.Slot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consumo en paralelo por clave (app.key-parallel.enabled=true). Cada registro se encadena tras el anterior de
+ * la misma clave (idVehicle) en un pool propio, así claves distintas de una misma partición avanzan en paralelo
+ * y una clave conserva su orden. Un intento fallido se reintenta en sitio con backoff (bloquea solo a su clave).
+ * El commit es manual: por partición se confirma el prefijo contiguo de registros terminados (ver
+ * PartitionOffsets), desde el hilo consumidor al volver del listener o en los eventos idle del contenedor.
+ * Métricas por grupo de claves: registros pendientes (passenger.kafka.keygroup.pending) y espera hasta empezar
+ * a procesarse (passenger.kafka.keygroup.wait).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.key-parallel", name = "enabled", havingValue = "true")
+public class KeyParallelDispatcher {
+
+    /** Un intento de procesar el registro: true si terminó (se puede confirmar), false o excepción → reintento. */
+    @FunctionalInterface
+    public interface Attempt {
+        boolean run() throws Exception;
+    }
+
+    private final KeyParallelProps props;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+    private final AtomicInteger[] pending;
+    private final Timer[] waits;
+    private final Counter retries;
+    private volatile boolean running = true;
+
+    public KeyParallelDispatcher(KeyParallelProps props, MeterRegistry meterRegistry) {
+        this.props = props;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(props.getWorkers(), r -> new Thread(r, "kafka-key-" + threads.getAndIncrement()));
+        this.permits = new Semaphore(props.getMaxInFlight());
+        this.pending = new AtomicInteger[props.getKeyGroups()];
+        this.waits = new Timer[props.getKeyGroups()];
+        for (int g = 0; g < props.getKeyGroups(); g++) {
+            String group = String.valueOf(g);
+            pending[g] = meterRegistry.gauge("passenger.kafka.keygroup.pending", Tags.of("group", group), new AtomicInteger());
+            waits[g] = Timer.builder("passenger.kafka.keygroup.wait").tag("group", group).register(meterRegistry);
+        }
+        Gauge.builder("passenger.kafka.keyparallel.inflight", permits, p -> props.getMaxInFlight() - p.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("passenger.kafka.keyparallel.uncommitted", partitions,
+                        m -> m.values().stream().mapToInt(po -> po.blocked).sum())
+                .register(meterRegistry);
+        this.retries = meterRegistry.counter("passenger.kafka.keyparallel.retries");
+    }
+
+    /**
+     * Registra el offset y encadena el intento tras el anterior de la misma clave. Con maxInFlight registros
+     * sin terminar bloquea el hilo consumidor, confirmando lo completado mientras espera.
+     */
+    public void submit(Consumer<?, ?> consumer, ConsumerRecord<?, ?> record, String key, Attempt attempt)
+            throws InterruptedException {
+        while (!permits.tryAcquire(props.getCommitInterval().toMillis(), TimeUnit.MILLISECONDS)) {
+            commit(consumer, false);
+        }
+        Slot slot = offsets(record).track(record.offset());
+        int group = Math.floorMod(key.hashCode(), pending.length);
+        pending[group].incrementAndGet();
+        long dispatchedAt = System.nanoTime();
+        Runnable task = () -> {
+            waits[group].record(System.nanoTime() - dispatchedAt, TimeUnit.NANOSECONDS);
+            try {
+                slot.done = retrying(attempt, record);
+            } finally {
+                pending[group].decrementAndGet();
+                permits.release();
+            }
+        };
+        CompletableFuture<Void> next = tails.compute(key, (k, tail) -> tail == null
+                ? CompletableFuture.runAsync(task, executor)
+                : tail.thenRunAsync(task, executor));
+        next.whenComplete((v, ex) -> tails.remove(key, next));
+    }
+
+    /** Registro sin trabajo (ruido o no deserializable): queda terminado al registrarlo. */
+    public void skip(ConsumerRecord<?, ?> record) {
+        offsets(record).track(record.offset()).done = true;
+    }
+
+    /** Confirma el prefijo terminado de las particiones asignadas; sin force respeta commitInterval. Hilo consumidor. */
+    public void commit(Consumer<?, ?> consumer, boolean force) {
+        Map<TopicPartition, OffsetAndMetadata> toCommit = committable(consumer.assignment(), force);
+        if (toCommit.isEmpty()) return;
+        consumer.commitAsync(toCommit, (offsets, ex) -> {
+            if (ex != null) log.warn("Kafka key-parallel: commit fallido {} (se cubre con el próximo avance)", offsets, ex);
+        });
+    }
+
+    /** Envuelve el listener de rebalanceo para confirmar lo terminado de las particiones revocadas. */
+    public ConsumerAwareRebalanceListener withOffsets(ConsumerAwareRebalanceListener delegate) {
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+                revoke(consumer, revoked);
+                delegate.onPartitionsRevokedBeforeCommit(consumer, revoked);
+            }
+
+            @Override
+            public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+                delegate.onPartitionsRevokedAfterCommit(consumer, revoked);
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+                lost.forEach(partitions::remove);
+                delegate.onPartitionsLost(consumer, lost);
+            }
+
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> assigned) {
+                delegate.onPartitionsAssigned(consumer, assigned);
+            }
+        };
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(props.getRevokeTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Espera (hasta revokeTimeout) a que terminen los registros en vuelo de las particiones revocadas y
+     * confirma su prefijo de forma síncrona; lo que quede sin terminar lo reprocesa el nuevo dueño.
+     */
+    private void revoke(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        long deadline = System.nanoTime() + props.getRevokeTimeout().toNanos();
+        for (TopicPartition tp : revoked) {
+            PartitionOffsets po = partitions.get(tp);
+            while (po != null && !po.drained() && System.nanoTime() < deadline) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        Map<TopicPartition, OffsetAndMetadata> toCommit = committable(revoked, true);
+        try {
+            if (!toCommit.isEmpty()) consumer.commitSync(toCommit);
+        } catch (Exception e) {
+            log.warn("Kafka key-parallel: no se pudo confirmar {} al revocar", toCommit, e);
+        }
+        revoked.forEach(partitions::remove);
+        log.info("Kafka key-parallel: particiones revocadas {} (confirmado {})", revoked, toCommit);
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> committable(Collection<TopicPartition> tps, boolean force) {
+        long now = System.currentTimeMillis();
+        Map<TopicPartition, OffsetAndMetadata> toCommit = new HashMap<>();
+        for (TopicPartition tp : tps) {
+            PartitionOffsets po = partitions.get(tp);
+            if (po == null || (!force && !po.due(now, props.getCommitInterval().toMillis()))) continue;
+            long offset = po.advance();
+            if (offset < 0) continue;
+            toCommit.put(tp, new OffsetAndMetadata(offset));
+            po.committed(offset, now);
+        }
+        return toCommit;
+    }
+
+    private PartitionOffsets offsets(ConsumerRecord<?, ?> record) {
+        return partitions.computeIfAbsent(new TopicPartition(record.topic(), record.partition()), tp -> new PartitionOffsets());
+    }
+
+    private boolean retrying(Attempt attempt, ConsumerRecord<?, ?> record) {
+        long backoff = props.getRetryInitialBackoff().toMillis();
+        while (running) {
+            try {
+                if (attempt.run()) return true;
+            } catch (Exception e) {
+                log.error("Kafka key-parallel [tp={}-{}@{}]: error procesando → reintento en {} ms",
+                        record.topic(), record.partition(), record.offset(), backoff, e);
+            }
+            retries.increment();
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff = Math.min(backoff * 2, props.getRetryMaxBackoff().toMillis());
+        }
+        return false;
+    }
+}
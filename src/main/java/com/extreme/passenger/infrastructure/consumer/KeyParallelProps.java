@@ -0,0 +1,27 @@
+package com.extreme.passenger.infrastructure.consumer;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.key-parallel")
+@Data
+class KeyParallelProps {
+  private boolean enabled = false;
+  /** Hilos que procesan claves (idVehicle) distintas en paralelo; cada uno ocupa una conexión mientras procesa */
+  private int workers = 8;
+  /** Registros despachados sin terminar antes de frenar el poll */
+  private int maxInFlight = 2_000;
+  /** Grupos de claves (hash del idVehicle) sobre los que se publican las métricas de lag */
+  private int keyGroups = 16;
+  /** Intervalo mínimo entre commits por partición (y de eventos idle para confirmar sin tráfico) */
+  private Duration commitInterval = Duration.ofSeconds(1);
+  /** Espera máxima a los registros en vuelo de una partición revocada antes de confirmar su prefijo */
+  private Duration revokeTimeout = Duration.ofSeconds(10);
+  private Duration retryInitialBackoff = Duration.ofMillis(100);
+  private Duration retryMaxBackoff = Duration.ofSeconds(5);
+}
@@ -0,0 +1,60 @@
+package com.extreme.passenger.infrastructure.consumer;
+
+import java.util.ArrayDeque;
+
+/**
+ * Offsets despachados de una partición, en orden. Solo el hilo consumidor agrega y avanza; los workers
+ * únicamente marcan su Slot como terminado. El offset a confirmar es el siguiente al prefijo contiguo de
+ * slots terminados, así un registro lento retiene el commit de los posteriores pero no su procesamiento.
+ */
+final class PartitionOffsets {
+
+    static final class Slot {
+        final long offset;
+        volatile boolean done;
+
+        Slot(long offset) {
+            this.offset = offset;
+        }
+    }
+
+    private final ArrayDeque<Slot> slots = new ArrayDeque<>();
+    private long next = -1;
+    private long committed = -1;
+    private long lastCommitAt;
+    /** Slots terminados detrás de uno pendiente (confirmables cuando se cierre el hueco) */
+    volatile int blocked;
+
+    Slot track(long offset) {
+        Slot slot = new Slot(offset);
+        slots.addLast(slot);
+        return slot;
+    }
+
+    /** Avanza sobre el prefijo terminado; devuelve el offset a confirmar o -1 si no cambió desde el último commit. */
+    long advance() {
+        while (!slots.isEmpty() && slots.peekFirst().done) {
+            next = slots.pollFirst().offset + 1;
+        }
+        int behind = 0;
+        for (Slot slot : slots) {
+            if (slot.done) behind++;
+        }
+        blocked = behind;
+        return next > committed ? next : -1;
+    }
+
+    boolean due(long now, long intervalMillis) {
+        return now - lastCommitAt >= intervalMillis;
+    }
+
+    void committed(long offset, long now) {
+        committed = offset;
+        lastCommitAt = now;
+    }
+
+    boolean drained() {
+        advance();
+        return slots.isEmpty();
+    }
+}
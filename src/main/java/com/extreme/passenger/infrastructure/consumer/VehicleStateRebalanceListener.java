@@ -0,0 +1,91 @@
+package com.extreme.passenger.infrastructure.consumer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+import com.extreme.passenger.infrastructure.cache.VehicleStateCache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Precarga y limpia la cache de estado por partición. Asume que los registros del tópico usan idVehicle
+ * como key, de modo que la partición de cada vehículo se obtiene con el particionador por defecto (murmur2).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VehicleStateRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private static final int WARM_CHUNK = 500;
+
+    private final PassengerEventRepository repository;
+    private final VehicleStateCache cache;
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (!cache.isEnabled() || partitions.isEmpty()) return;
+        try {
+            Map<String, Integer> partitionCounts = partitionCounts(consumer, partitions);
+            List<String> ids = repository.findVehicleIds().stream()
+                    .filter(id -> owned(id, partitions, partitionCounts))
+                    .toList();
+            for (int from = 0; from < ids.size(); from += WARM_CHUNK) {
+                repository.loadVehicleStates(ids.subList(from, Math.min(from + WARM_CHUNK, ids.size())))
+                        .forEach(cache::put);
+            }
+            log.info("Cache de estado precargada: {} vehículos para {}", ids.size(), partitions);
+        } catch (Exception e) {
+            // la cache es opcional: si falla la precarga el estado se lee bajo demanda
+            log.warn("No se pudo precargar la cache de estado para {}", partitions, e);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        clear(consumer, partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        clear(consumer, partitions);
+    }
+
+    private void clear(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (!cache.isEnabled() || partitions.isEmpty()) return;
+        try {
+            Map<String, Integer> partitionCounts = partitionCounts(consumer, partitions);
+            cache.evictIf(id -> owned(id, partitions, partitionCounts));
+        } catch (Exception e) {
+            log.warn("No se pudo calcular la partición de los vehículos revocados; se limpia toda la cache", e);
+            cache.evictIf(id -> true);
+        }
+        log.info("Cache de estado liberada para {}", partitions);
+    }
+
+    private static Map<String, Integer> partitionCounts(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Set<String> topics = partitions.stream().map(TopicPartition::topic).collect(Collectors.toSet());
+        Map<String, Integer> counts = new HashMap<>();
+        topics.forEach(t -> counts.put(t, consumer.partitionsFor(t).size()));
+        return counts;
+    }
+
+    private static boolean owned(String idVehicle, Collection<TopicPartition> partitions, Map<String, Integer> partitionCounts) {
+        byte[] key = idVehicle.getBytes(StandardCharsets.UTF_8);
+        int hash = Utils.toPositive(Utils.murmur2(key));
+        return partitions.stream()
+                .anyMatch(tp -> hash % partitionCounts.get(tp.topic()) == tp.partition());
+    }
+}
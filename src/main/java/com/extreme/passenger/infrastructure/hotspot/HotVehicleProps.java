@@ -0,0 +1,19 @@
+package com.extreme.passenger.infrastructure.hotspot;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.hot-vehicles")
+@Data
+class HotVehicleProps {
+  private boolean enabled = true;
+  private int capacity = 64;
+  private Duration window = Duration.ofMinutes(5);
+  private int buckets = 5;
+  private int top = 10;
+}
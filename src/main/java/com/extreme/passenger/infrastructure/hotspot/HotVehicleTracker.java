@@ -0,0 +1,115 @@
+package com.extreme.passenger.infrastructure.hotspot;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Vehículos más activos por ventana deslizante, en memoria constante: la ventana se parte en buckets
+ * (app.hot-vehicles.window / buckets) y cada bucket tiene un {@link SpaceSavingSketch} por métrica. Un
+ * bucket se reutiliza al volver a tocarle turno, así que la consulta cubre entre window − bucket y window.
+ * El camino de procesamiento solo toma el monitor del bucket actual (un lookup y O(log capacity)).
+ */
+@Slf4j
+@Component
+public class HotVehicleTracker {
+
+    /** EVENTS y DISCARDS cuentan eventos; LOCK_WAIT suma microsegundos de espera de lockVehicleRow. */
+    public enum Metric { EVENTS, LOCK_WAIT, DISCARDS }
+
+    /** count es una cota superior; count − error, una inferior (dentro de cada bucket). */
+    public record Entry(String idVehicle, long count, long error) {}
+
+    private static final class Bucket {
+        long epoch = -1;
+        final SpaceSavingSketch[] sketches;
+
+        Bucket(int capacity) {
+            sketches = new SpaceSavingSketch[Metric.values().length];
+            for (int i = 0; i < sketches.length; i++) sketches[i] = new SpaceSavingSketch(capacity);
+        }
+
+        void reset(long epoch) {
+            this.epoch = epoch;
+            for (SpaceSavingSketch s : sketches) s.clear();
+        }
+    }
+
+    private final boolean enabled;
+    private final long bucketMillis;
+    private final int defaultTop;
+    private final Bucket[] buckets;
+
+    HotVehicleTracker(HotVehicleProps props) {
+        this.enabled = props.isEnabled();
+        this.bucketMillis = Math.max(props.getWindow().toMillis() / props.getBuckets(), 1);
+        this.defaultTop = props.getTop();
+        this.buckets = new Bucket[props.getBuckets()];
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new Bucket(props.getCapacity());
+        if (enabled) {
+            log.info("Detección de vehículos calientes: top-{} de {} contadores, ventana {} en {} buckets",
+                    defaultTop, props.getCapacity(), props.getWindow(), buckets.length);
+        }
+    }
+
+    public void event(String idVehicle) {
+        add(Metric.EVENTS, idVehicle, 1);
+    }
+
+    public void events(String idVehicle, int count) {
+        add(Metric.EVENTS, idVehicle, count);
+    }
+
+    public void lockWait(String idVehicle, long nanos) {
+        add(Metric.LOCK_WAIT, idVehicle, Math.max(nanos / 1_000, 0));
+    }
+
+    public void discard(String idVehicle) {
+        add(Metric.DISCARDS, idVehicle, 1);
+    }
+
+    private void add(Metric metric, String idVehicle, long weight) {
+        if (!enabled || idVehicle == null) return;
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        Bucket bucket = buckets[(int) (epoch % buckets.length)];
+        synchronized (bucket) {
+            if (bucket.epoch != epoch) bucket.reset(epoch);
+            bucket.sketches[metric.ordinal()].add(idVehicle, weight);
+        }
+    }
+
+    public List<Entry> top(Metric metric) {
+        return top(metric, defaultTop);
+    }
+
+    public List<Entry> top(Metric metric, int limit) {
+        long oldest = System.currentTimeMillis() / bucketMillis - buckets.length;
+        Map<String, long[]> merged = new HashMap<>();
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                if (bucket.epoch > oldest) bucket.sketches[metric.ordinal()].mergeInto(merged);
+            }
+        }
+        List<Entry> entries = new ArrayList<>(merged.size());
+        merged.forEach((id, c) -> entries.add(new Entry(id, c[0], c[1])));
+        // primero lo garantizado: una clave recién llegada hereda un conteo alto pero con error igual de alto
+        entries.sort(Comparator.comparingLong((Entry e) -> e.count() - e.error()).reversed()
+                .thenComparing(Comparator.comparingLong(Entry::count).reversed()));
+        return entries.size() > limit ? List.copyOf(entries.subList(0, limit)) : entries;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration window() {
+        return Duration.ofMillis(bucketMillis * buckets.length);
+    }
+}
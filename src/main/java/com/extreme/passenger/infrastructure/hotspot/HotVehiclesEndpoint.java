@@ -0,0 +1,56 @@
+package com.extreme.passenger.infrastructure.hotspot;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.infrastructure.hotspot.HotVehicleTracker.Entry;
+import com.extreme.passenger.infrastructure.hotspot.HotVehicleTracker.Metric;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * GET actuator/hotvehicles: top de vehículos por eventos, espera de lock (µs) y descartes en la ventana.
+ * GET actuator/hotvehicles/{metric}?limit=N: una sola métrica (events, lock-wait, discards).
+ */
+@Component
+@Endpoint(id = "hotvehicles")
+@RequiredArgsConstructor
+public class HotVehiclesEndpoint {
+
+    private final HotVehicleTracker tracker;
+
+    @ReadOperation
+    public Map<String, Object> hotVehicles(@Nullable Integer limit) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", tracker.isEnabled());
+        body.put("window", tracker.window().toString());
+        for (Metric metric : Metric.values()) body.put(name(metric), top(metric, limit));
+        return body;
+    }
+
+    @ReadOperation
+    public List<Entry> hotVehicles(@Selector String metric, @Nullable Integer limit) {
+        try {
+            return top(Metric.valueOf(metric.toUpperCase(Locale.ROOT).replace('-', '_')), limit);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException("Métrica desconocida: " + metric, "Métrica desconocida");
+        }
+    }
+
+    private List<Entry> top(Metric metric, Integer limit) {
+        return limit == null ? tracker.top(metric) : tracker.top(metric, limit);
+    }
+
+    private static String name(Metric metric) {
+        return metric.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
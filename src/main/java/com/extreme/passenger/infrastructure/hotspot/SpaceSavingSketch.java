@@ -0,0 +1,101 @@
+package com.extreme.passenger.infrastructure.hotspot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Heavy hitters con Space-Saving ponderado: como mucho capacity contadores. Una clave nueva con el sketch
+ * lleno reemplaza a la de menor conteo y hereda ese conteo como error (sobreestimación máxima), así
+ * toda clave con peso real mayor que total/capacity sigue presente. Los contadores van en un min-heap en el
+ * que cada uno conoce su posición: incrementar y reemplazar cuestan un lookup y O(log capacity).
+ * No es thread-safe: lo sincroniza quien lo usa.
+ */
+final class SpaceSavingSketch {
+
+    private static final class Counter {
+        String key;
+        long count;
+        long error;
+        int index;
+    }
+
+    private final Counter[] heap;
+    private final Map<String, Counter> counters;
+    private int size;
+
+    SpaceSavingSketch(int capacity) {
+        this.heap = new Counter[capacity];
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    void add(String key, long weight) {
+        Counter c = counters.get(key);
+        if (c != null) {
+            c.count += weight;
+            siftDown(c.index);
+            return;
+        }
+        if (size < heap.length) {
+            c = heap[size];
+            if (c == null) heap[size] = c = new Counter();
+            c.index = size++;
+            c.key = key;
+            c.count = weight;
+            c.error = 0;
+            counters.put(key, c);
+            siftUp(c.index);
+        } else {
+            // reemplaza al mínimo (raíz), que hereda su conteo como error
+            c = heap[0];
+            counters.remove(c.key);
+            c.key = key;
+            c.error = c.count;
+            c.count += weight;
+            counters.put(key, c);
+            siftDown(0);
+        }
+    }
+
+    /** Suma los contadores en acc (clave → {conteo, error}). */
+    void mergeInto(Map<String, long[]> acc) {
+        for (int i = 0; i < size; i++) {
+            long[] c = acc.computeIfAbsent(heap[i].key, k -> new long[2]);
+            c[0] += heap[i].count;
+            c[1] += heap[i].error;
+        }
+    }
+
+    /** Vacía el sketch reutilizando los contadores (sin asignar al rotar buckets). */
+    void clear() {
+        counters.clear();
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].count <= heap[i].count) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) return;
+            int smallest = left + 1 < size && heap[left + 1].count < heap[left].count ? left + 1 : left;
+            if (heap[i].count <= heap[smallest].count) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Counter c = heap[a];
+        heap[a] = heap[b];
+        heap[b] = c;
+        heap[a].index = a;
+        heap[b].index = b;
+    }
+}
@@ -0,0 +1,153 @@
+package com.extreme.passenger.infrastructure.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Journal binario de eventos procesados (app.journal.enabled=true): registros de tamaño fijo
+ * ({@link JournalRecord}) en segmentos mapeados en memoria y preasignados de app.journal.segment-size.
+ * Escribir es copiar ~200 bytes al mapeo (sin formatear ni asignar); el sistema operativo baja las páginas
+ * a disco y el segmento se fuerza al rotar y al cerrar, así que un crash del proceso no pierde registros
+ * (un crash del sistema operativo sí puede perder los últimos). Al rotar se borran los segmentos que
+ * exceden app.journal.max-segments o son más viejos que app.journal.retention. Un error de IO deshabilita
+ * el journal: el procesamiento de eventos nunca falla por él.
+ */
+@Slf4j
+@Component
+public class EventJournal {
+
+    static final String SUFFIX = ".journal";
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final JournalProps props;
+    private final Path directory;
+    private final int segmentSize;
+    private final Counter records;
+    private final Counter segments;
+
+    private volatile boolean enabled;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private long lastSegmentMillis;
+
+    EventJournal(JournalProps props, MeterRegistry meterRegistry) {
+        this.props = props;
+        this.directory = Path.of(props.getDirectory());
+        long size = props.getSegmentSize().toBytes();
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE - JournalRecord.SIZE,
+                Math.max(size, JournalRecord.HEADER_SIZE + JournalRecord.SIZE));
+        this.records = meterRegistry.counter("passenger.journal.records");
+        this.segments = meterRegistry.counter("passenger.journal.segments");
+        this.enabled = props.isEnabled();
+        if (enabled) {
+            log.info("Journal de eventos habilitado en {} (segmentos de {} bytes, máx {} segmentos, retención {})",
+                    directory.toAbsolutePath(), segmentSize, props.getMaxSegments(), props.getRetention());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Agrega un registro. net son los netos de la decisión (null si no se calcularon: NOT_FOUND, INVALID,
+     * modo function); programId/pointId -1 si no se asignaron.
+     */
+    public void append(PassengerEvent ev, String status, int[] net, long programId, long pointId, long durationNanos) {
+        if (!enabled || ev == null) return;
+        Instant now = Instant.now();
+        synchronized (this) {
+            if (!enabled) return;
+            try {
+                if (buffer == null || position + JournalRecord.SIZE > buffer.capacity()) roll(now);
+            } catch (IOException | UncheckedIOException e) {
+                log.error("Journal: error rotando segmento en {} → journal deshabilitado", directory, e);
+                enabled = false;
+                closeQuietly();
+                return;
+            }
+            JournalRecord.write(buffer, position, JournalRecord.epochMicros(now), JournalRecord.epochMicros(ev.getCheckinTime()),
+                    durationNanos, programId, pointId, ev.getLatitude(), ev.getLongitude(),
+                    ev.getDoor1In(), ev.getDoor1Out(), ev.getDoor1Block(),
+                    ev.getDoor2In(), ev.getDoor2Out(), ev.getDoor2Block(),
+                    ev.getDoor3In(), ev.getDoor3Out(), ev.getDoor3Block(),
+                    net, status, ev.getIdVehicle());
+            position += JournalRecord.SIZE;
+        }
+        records.increment();
+    }
+
+    private void roll(Instant now) throws IOException {
+        closeQuietly();
+        Files.createDirectories(directory);
+        // nombres ordenables por fecha; dos segmentos en el mismo milisegundo avanzan uno
+        long millis = Math.max(now.toEpochMilli(), lastSegmentMillis + 1);
+        lastSegmentMillis = millis;
+        Path file = directory.resolve("events-" + NAME.format(Instant.ofEpochMilli(millis)) + SUFFIX);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int records = (segmentSize - JournalRecord.HEADER_SIZE) / JournalRecord.SIZE;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, JournalRecord.HEADER_SIZE + (long) records * JournalRecord.SIZE);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        JournalRecord.writeHeader(buffer, millis);
+        position = JournalRecord.HEADER_SIZE;
+        segments.increment();
+        log.info("Journal: nuevo segmento {}", file.getFileName());
+        prune(file, now);
+    }
+
+    /** Retención: conserva a lo sumo max-segments (incluido el actual) y ninguno más viejo que retention. */
+    private void prune(Path current, Instant now) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(p -> p.getFileName().toString().endsWith(SUFFIX) && !p.equals(current)).sorted().toList();
+        }
+        Instant oldest = now.minus(props.getRetention());
+        int excess = files.size() + 1 - Math.max(props.getMaxSegments(), 1);
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            if (i < excess || Files.getLastModifiedTime(file).toInstant().isBefore(oldest)) {
+                Files.deleteIfExists(file);
+                log.info("Journal: segmento {} eliminado por retención", file.getFileName());
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        if (buffer != null) buffer.force();
+        buffer = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Journal: error cerrando segmento", e);
+            }
+            channel = null;
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        closeQuietly();
+    }
+}
@@ -0,0 +1,20 @@
+package com.extreme.passenger.infrastructure.journal;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.journal")
+@Data
+class JournalProps {
+  private boolean enabled = false;
+  private String directory = "journal";
+  private DataSize segmentSize = DataSize.ofMegabytes(64);
+  private int maxSegments = 48;
+  private Duration retention = Duration.ofDays(7);
+}
@@ -0,0 +1,114 @@
+package com.extreme.passenger.infrastructure.journal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Lector del journal de eventos: recorre los segmentos de un directorio (o un archivo) en orden y aplica
+ * filtros. Sin dependencias de Spring, se corre con las clases compiladas:
+ * <pre>
+ *   java -cp target/classes com.extreme.passenger.infrastructure.journal.JournalReader journal \
+ *        [--vehicle ID] [--status DISCARDED] [--from 2025-08-22T10:00:00Z] [--to ...] [--limit N]
+ * </pre>
+ * Escribe CSV por stdout (una fila por registro, netos en el orden de AccumulatorEngine).
+ */
+public final class JournalReader {
+
+    private JournalReader() {
+    }
+
+    /** Segmentos de path (archivo o directorio) en orden cronológico. */
+    public static List<Path> segments(Path path) throws IOException {
+        if (!Files.isDirectory(path)) return List.of(path);
+        try (Stream<Path> list = Files.list(path)) {
+            return list.filter(p -> p.getFileName().toString().endsWith(EventJournal.SUFFIX)).sorted().toList();
+        }
+    }
+
+    /** Recorre los registros completos de un segmento (se detiene en el primero sin escribir). */
+    public static void read(Path segment, Consumer<JournalRecord> sink) throws IOException {
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            JournalRecord.checkHeader(buf, segment.toString());
+            for (int at = JournalRecord.HEADER_SIZE; at + JournalRecord.SIZE <= buf.capacity(); at += JournalRecord.SIZE) {
+                JournalRecord r = JournalRecord.read(buf, at);
+                if (r == null) return;
+                sink.accept(r);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            System.err.println("Uso: JournalReader <directorio|segmento> [--vehicle ID] [--status S] [--from ISO] [--to ISO] [--limit N]");
+            System.exit(2);
+        }
+        Predicate<JournalRecord> filter = r -> true;
+        long limit = Long.MAX_VALUE;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--vehicle" -> filter = filter.and(r -> r.idVehicle().equalsIgnoreCase(value));
+                case "--status" -> filter = filter.and(r -> r.status().equalsIgnoreCase(value));
+                case "--from" -> { Instant from = Instant.parse(value); filter = filter.and(r -> !r.writtenAt().isBefore(from)); }
+                case "--to" -> { Instant to = Instant.parse(value); filter = filter.and(r -> r.writtenAt().isBefore(to)); }
+                case "--limit" -> limit = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+
+        PrintStream out = System.out;
+        out.println(header());
+        Predicate<JournalRecord> selected = filter;
+        long[] remaining = { limit };
+        for (Path segment : segments(Path.of(args[0]))) {
+            if (remaining[0] <= 0) break;
+            read(segment, r -> {
+                if (remaining[0] > 0 && selected.test(r)) {
+                    out.println(csv(r));
+                    remaining[0]--;
+                }
+            });
+        }
+        out.flush();
+    }
+
+    static String header() {
+        List<String> cols = new ArrayList<>(List.of("written_at", "id_vehicle", "status", "checkin_time", "duration_us",
+                "program_id", "point_id", "latitude", "longitude"));
+        for (String door : new String[] { "d1", "d2", "d3" }) {
+            for (String kind : new String[] { "in", "out", "block" }) cols.add("raw_" + door + "_" + kind);
+        }
+        for (String door : new String[] { "total", "d1", "d2", "d3" }) {
+            for (String kind : new String[] { "in", "out", "block" }) cols.add("net_" + door + "_" + kind);
+        }
+        return String.join(",", cols);
+    }
+
+    static String csv(JournalRecord r) {
+        StringBuilder sb = new StringBuilder(256)
+                .append(r.writtenAt()).append(',')
+                .append(r.idVehicle()).append(',')
+                .append(r.status()).append(',')
+                .append(r.checkinTime() == null ? "" : r.checkinTime()).append(',')
+                .append(r.durationNanos() / 1_000).append(',')
+                .append(r.programId() < 0 ? "" : r.programId()).append(',')
+                .append(r.pointId() < 0 ? "" : r.pointId()).append(',')
+                .append(String.format(Locale.ROOT, "%.6f,%.6f", r.latitude(), r.longitude()));
+        for (int v : r.raw()) sb.append(',').append(v);
+        for (int v : r.net()) sb.append(',').append(v);
+        return sb.toString();
+    }
+}
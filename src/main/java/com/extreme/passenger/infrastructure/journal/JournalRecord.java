@@ -0,0 +1,115 @@
+package com.extreme.passenger.infrastructure.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Registro de tamaño fijo del journal ({@link #SIZE} bytes, little endian). Offsets:
+ * <pre>
+ *   0 long   escrito (epoch µs; 0 = fin de los datos del segmento, se escribe al final)
+ *   8 long   checkin_time (epoch µs; Long.MIN_VALUE si falta)
+ *  16 long   duración de processSync (ns)
+ *  24 long   idprogramacion (-1 = sin asignar)
+ *  32 long   idpunto (-1 = sin asignar)
+ *  40 double latitud
+ *  48 double longitud
+ *  56 int[9]  raw del evento: puertas 1..3 × subida/bajada/bloqueo
+ *  92 int[12] netos: total y puertas 1..3 × subida/bajada/bloqueo (orden de AccumulatorEngine)
+ * 140 byte[12] status (ASCII, relleno con 0)
+ * 152 byte     largo del idVehicle
+ * 153 byte[50] idVehicle (ASCII, '?' fuera de rango; se trunca a 50 como la columna)
+ * </pre>
+ * Solo depende del JDK para que {@link JournalReader} corra sin el contexto de Spring.
+ */
+public record JournalRecord(Instant writtenAt, Instant checkinTime, long durationNanos, long programId, long pointId,
+                            double latitude, double longitude, int[] raw, int[] net, String status, String idVehicle) {
+
+    public static final int SIZE = 208;
+    public static final int HEADER_SIZE = 64;
+    public static final int MAGIC = 0x50434A31; // "PCJ1"
+    public static final short VERSION = 1;
+
+    static final int RAW_SLOTS = 9;
+    static final int NET_SLOTS = 12;
+
+    private static final int WRITTEN = 0, CHECKIN = 8, DURATION = 16, PROGRAM = 24, POINT = 32, LAT = 40, LON = 48,
+            RAW = 56, NET = 92, STATUS = 140, STATUS_LEN = 12, ID_LEN = 152, ID = 153, ID_MAX = 50;
+
+    static void writeHeader(ByteBuffer buf, long createdMillis) {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(0, MAGIC).putShort(4, VERSION).putShort(6, (short) SIZE).putLong(8, createdMillis);
+    }
+
+    /** Valida la cabecera del segmento; IllegalArgumentException si no es un journal compatible. */
+    static void checkHeader(ByteBuffer buf, String source) {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getShort(4) != VERSION || buf.getShort(6) != SIZE) {
+            throw new IllegalArgumentException("No es un segmento de journal v" + VERSION + ": " + source);
+        }
+    }
+
+    /** Escribe en offset sin asignar memoria; el campo escrito va al final (marca el registro como completo). */
+    static void write(ByteBuffer buf, int offset, long writtenMicros, long checkinMicros, long durationNanos,
+                      long programId, long pointId, double latitude, double longitude,
+                      int d1In, int d1Out, int d1Block, int d2In, int d2Out, int d2Block, int d3In, int d3Out, int d3Block,
+                      int[] net, String status, String idVehicle) {
+        buf.putLong(offset + CHECKIN, checkinMicros)
+           .putLong(offset + DURATION, durationNanos)
+           .putLong(offset + PROGRAM, programId)
+           .putLong(offset + POINT, pointId)
+           .putDouble(offset + LAT, latitude)
+           .putDouble(offset + LON, longitude);
+        int r = offset + RAW;
+        buf.putInt(r, d1In).putInt(r + 4, d1Out).putInt(r + 8, d1Block)
+           .putInt(r + 12, d2In).putInt(r + 16, d2Out).putInt(r + 20, d2Block)
+           .putInt(r + 24, d3In).putInt(r + 28, d3Out).putInt(r + 32, d3Block);
+        for (int i = 0; i < NET_SLOTS; i++) buf.putInt(offset + NET + 4 * i, net == null ? 0 : net[i]);
+        putAscii(buf, offset + STATUS, STATUS_LEN, status);
+        int len = idVehicle == null ? 0 : Math.min(idVehicle.length(), ID_MAX);
+        buf.put(offset + ID_LEN, (byte) len);
+        putAscii(buf, offset + ID, ID_MAX, idVehicle);
+        buf.putLong(offset + WRITTEN, writtenMicros);
+    }
+
+    /** Lee el registro en offset; null si aún no se escribió (fin de los datos). */
+    static JournalRecord read(ByteBuffer buf, int offset) {
+        long written = buf.getLong(offset + WRITTEN);
+        if (written == 0) return null;
+        long checkin = buf.getLong(offset + CHECKIN);
+        int[] raw = new int[RAW_SLOTS];
+        for (int i = 0; i < RAW_SLOTS; i++) raw[i] = buf.getInt(offset + RAW + 4 * i);
+        int[] net = new int[NET_SLOTS];
+        for (int i = 0; i < NET_SLOTS; i++) net[i] = buf.getInt(offset + NET + 4 * i);
+        return new JournalRecord(micros(written), checkin == Long.MIN_VALUE ? null : micros(checkin),
+                buf.getLong(offset + DURATION), buf.getLong(offset + PROGRAM), buf.getLong(offset + POINT),
+                buf.getDouble(offset + LAT), buf.getDouble(offset + LON), raw, net,
+                getAscii(buf, offset + STATUS, STATUS_LEN), getAscii(buf, offset + ID, buf.get(offset + ID_LEN)));
+    }
+
+    static long epochMicros(Instant instant) {
+        return instant == null ? Long.MIN_VALUE : instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+    }
+
+    private static Instant micros(long epochMicros) {
+        return Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS);
+    }
+
+    private static void putAscii(ByteBuffer buf, int at, int max, String s) {
+        int len = s == null ? 0 : Math.min(s.length(), max);
+        for (int i = 0; i < max; i++) {
+            char c = i < len ? s.charAt(i) : 0;
+            buf.put(at + i, (byte) (c < 128 ? c : '?'));
+        }
+    }
+
+    private static String getAscii(ByteBuffer buf, int at, int max) {
+        int len = 0;
+        while (len < max && buf.get(at + len) != 0) len++;
+        byte[] bytes = new byte[len];
+        buf.get(at, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,17 @@
+package com.extreme.passenger.infrastructure.occupancy;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.occupancy")
+@Data
+class OccupancyProps {
+  private boolean enabled = false;
+  /** Filas de conteo_pasajeros que se leen al arrancar para reconstruir el viaje en curso */
+  private Duration rebuildWindow = Duration.ofHours(24);
+}
@@ -0,0 +1,137 @@
+package com.extreme.passenger.infrastructure.occupancy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.port.OccupancyRepository;
+import com.extreme.passenger.domain.port.OccupancyRepository.Trip;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ocupación actual por vehículo: netos de subida menos netos de bajada desde el inicio del viaje (primer evento
+ * con la programación vigente). Cada vehículo es un {@link AtomicReference} a un {@link Trip} inmutable que se
+ * reemplaza por CAS, así ni el procesamiento ni las lecturas toman locks. Un evento con otra programación
+ * reinicia el viaje, salvo que sea anterior al último aplicado (llegó tarde del viaje previo y se ignora).
+ * Al arrancar se reconstruye desde conteo_pasajeros (rebuild-window hacia atrás); con app.repository=memory
+ * arranca vacío.
+ */
+@Slf4j
+@Component
+public class OccupancyTracker {
+
+    /** onboard = max(in − out, 0); programId null si el viaje no tiene programación. */
+    public record Occupancy(String idVehicle, Long programId, long onboard, long in, long out, long events,
+                            Instant since, Instant lastDate) {}
+
+    private static final Trip NONE = new Trip(null, null, 0, 0, 0, Instant.MIN, Instant.MIN);
+
+    private final boolean enabled;
+    private final OccupancyProps props;
+    private final OccupancyRepository repository;
+    private final ConcurrentHashMap<String, AtomicReference<Trip>> trips = new ConcurrentHashMap<>();
+
+    OccupancyTracker(OccupancyProps props, ObjectProvider<OccupancyRepository> repository, MeterRegistry meterRegistry) {
+        this.enabled = props.isEnabled();
+        this.props = props;
+        this.repository = repository.getIfAvailable();
+        meterRegistry.gauge("passenger.occupancy.vehicles", trips, ConcurrentHashMap::size);
+    }
+
+    // Antes de que arranquen los listeners de Kafka (SmartLifecycle) y el servidor web
+    @PostConstruct
+    void rebuild() {
+        if (!enabled || repository == null) return;
+        long start = System.nanoTime();
+        List<Trip> current = repository.currentTrips(Instant.now().minus(props.getRebuildWindow()));
+        current.forEach(t -> trips.put(t.idVehicle(), new AtomicReference<>(t)));
+        log.info("Ocupación reconstruida: {} vehículos con filas en los últimos {} ({} ms)", current.size(),
+                props.getRebuildWindow(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Suma un evento aceptado; programId < 0 si la fila no tiene programación. */
+    public void record(String idVehicle, long programId, Instant date, long in, long out) {
+        if (!enabled || idVehicle == null || date == null) return;
+        Long program = programId < 0 ? null : programId;
+        AtomicReference<Trip> ref = trips.get(idVehicle);
+        if (ref == null) ref = trips.computeIfAbsent(idVehicle, k -> new AtomicReference<>(NONE));
+        Trip cur;
+        Trip next;
+        do {
+            cur = ref.get();
+            next = next(cur, idVehicle, program, date, in, out);
+        } while (next != cur && !ref.compareAndSet(cur, next));
+    }
+
+    /** Filas insertadas en la transacción en curso: se aplican recién tras el commit (nada si hay rollback). */
+    public void recordAfterCommit(List<CountRow> rows) {
+        if (!enabled || rows.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rows.forEach(this::record);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rows.forEach(OccupancyTracker.this::record);
+            }
+        });
+    }
+
+    private void record(CountRow row) {
+        Accumulators net = row.accNet();
+        record(row.ev().getIdVehicle(), row.programId() == null ? -1 : row.programId(), row.ev().getCheckinTime(),
+                net.getTotalIn(), net.getTotalOut());
+    }
+
+    private static Trip next(Trip cur, String idVehicle, Long program, Instant date, long in, long out) {
+        if (cur == NONE || !Objects.equals(cur.programId(), program)) {
+            if (cur != NONE && date.isBefore(cur.lastDate())) return cur;
+            return new Trip(idVehicle, program, in, out, 1, date, date);
+        }
+        return new Trip(idVehicle, program, cur.in() + in, cur.out() + out, cur.events() + 1,
+                date.isBefore(cur.since()) ? date : cur.since(),
+                date.isAfter(cur.lastDate()) ? date : cur.lastDate());
+    }
+
+    public Optional<Occupancy> vehicle(String idVehicle) {
+        AtomicReference<Trip> ref = trips.get(idVehicle);
+        Trip t = ref == null ? NONE : ref.get();
+        return t == NONE ? Optional.empty() : Optional.of(view(t));
+    }
+
+    /** Foto de la flota ordenada por idVehicle; cada vehículo es consistente, el conjunto no es atómico. */
+    public List<Occupancy> fleet() {
+        List<Occupancy> out = new ArrayList<>(trips.size());
+        trips.values().forEach(ref -> {
+            Trip t = ref.get();
+            if (t != NONE) out.add(view(t));
+        });
+        out.sort(Comparator.comparing(Occupancy::idVehicle));
+        return out;
+    }
+
+    private static Occupancy view(Trip t) {
+        return new Occupancy(t.idVehicle(), t.programId(), Math.max(t.in() - t.out(), 0), t.in(), t.out(), t.events(),
+                t.since(), t.lastDate());
+    }
+}
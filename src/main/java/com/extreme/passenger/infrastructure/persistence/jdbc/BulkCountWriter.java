@@ -0,0 +1,154 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Buffer acotado de filas de conteo que se vacía con COPY al llegar a max-batch filas o tras flush-interval.
+ * Cada submit devuelve un future que se completa cuando la transacción del COPY hizo commit
+ * (acuse de durabilidad por evento) o excepcionalmente si falló. Si el buffer está lleno, submit espera;
+ * una vez detenido el writer, submit falla de inmediato y lo que quedó sin escribir se completa con error.
+ * El bean de las tablas de producción solo existe con app.bulk-write.mode=copy ({@link BulkWriteConfig});
+ * el replay crea uno propio sobre sus tablas destino.
+ */
+@Slf4j
+public class BulkCountWriter {
+
+    private final BulkWriteProps props;
+    private final TransactionTemplate tx;
+    private final PgCopyWriter copyWriter;
+    private final String table;
+    private final String discardedTable;
+    private final BlockingQueue<Item> queue;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter rowsWritten;
+    private final Timer flushTimer;
+    private final Gauge buffered;
+
+    private volatile boolean running;
+    /** true cuando el hilo de vaciado ya terminó: nada de lo que quede en la cola se va a escribir. */
+    private volatile boolean stopped;
+    private Thread flusher;
+
+    BulkCountWriter(BulkWriteProps props, TransactionTemplate tx, PgCopyWriter copyWriter, MeterRegistry meterRegistry,
+                    String table, String discardedTable) {
+        this.props = props;
+        this.tx = tx;
+        this.copyWriter = copyWriter;
+        this.table = table;
+        this.discardedTable = discardedTable;
+        this.queue = new ArrayBlockingQueue<>(props.getBufferCapacity());
+        this.meterRegistry = meterRegistry;
+        this.rowsWritten = meterRegistry.counter("passenger.bulk.rows", "table", table);
+        this.flushTimer = meterRegistry.timer("passenger.bulk.flush", "table", table);
+        this.buffered = Gauge.builder("passenger.bulk.buffer", queue, BlockingQueue::size).tag("table", table)
+                .register(meterRegistry);
+    }
+
+    void start() {
+        running = true;
+        flusher = new Thread(this::run, "bulk-count-writer-" + table);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /** Vacía lo pendiente (con un tope de espera) y falla lo que no se alcanzó a escribir. */
+    void stop() throws InterruptedException {
+        running = false;
+        try {
+            if (flusher != null) flusher.join(props.getFlushInterval().toMillis() * 10 + 5_000);
+        } finally {
+            stopped = true;
+            List<Item> left = new ArrayList<>();
+            queue.drainTo(left);
+            if (!left.isEmpty()) log.warn("BulkCountWriter {} detenido con {} filas sin escribir", table, left.size());
+            left.forEach(i -> i.ack().completeExceptionally(stoppedException()));
+            meterRegistry.remove(buffered);
+        }
+    }
+
+    public CompletableFuture<Void> submit(CountRow row) throws InterruptedException {
+        return enqueue(row, false);
+    }
+
+    public CompletableFuture<Void> submitDiscarded(CountRow row) throws InterruptedException {
+        return enqueue(row, true);
+    }
+
+    private CompletableFuture<Void> enqueue(CountRow row, boolean discarded) throws InterruptedException {
+        if (!running) throw stoppedException();
+        Item item = new Item(row, discarded, new CompletableFuture<>());
+        // offer con espera acotada: si el writer se detiene con el buffer lleno no se bloquea para siempre
+        while (!queue.offer(item, props.getFlushInterval().toNanos(), TimeUnit.NANOSECONDS)) {
+            if (!running) throw stoppedException();
+        }
+        // stop() pudo vaciar la cola justo antes de que el item entrara: si sigue ahí, nadie lo va a escribir
+        if (stopped && queue.remove(item)) throw stoppedException();
+        return item.ack();
+    }
+
+    private IllegalStateException stoppedException() {
+        return new IllegalStateException("BulkCountWriter " + table + " detenido");
+    }
+
+    private void run() {
+        List<Item> batch = new ArrayList<>(props.getMaxBatch());
+        while (running || !queue.isEmpty()) {
+            try {
+                Item first = queue.poll(props.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + props.getFlushInterval().toNanos();
+                while (batch.size() < props.getMaxBatch()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 && queue.drainTo(batch, props.getMaxBatch() - batch.size()) == 0) break;
+                    Item next = queue.poll(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                batch.forEach(i -> i.ack().completeExceptionally(e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Item> batch) {
+        List<CountRow> main = new ArrayList<>(batch.size());
+        List<CountRow> discarded = new ArrayList<>();
+        batch.forEach(i -> (i.discarded() ? discarded : main).add(i.row()));
+        try {
+            flushTimer.record(() -> tx.executeWithoutResult(s -> {
+                copyWriter.copy(table, main, false);
+                copyWriter.copy(discardedTable, discarded, true);
+            }));
+            rowsWritten.increment(batch.size());
+            batch.forEach(i -> i.ack().complete(null));
+        } catch (Exception e) {
+            log.error("Error escribiendo lote COPY en {} ({} filas)", table, batch.size(), e);
+            batch.forEach(i -> i.ack().completeExceptionally(e));
+        }
+    }
+
+    private record Item(CountRow row, boolean discarded, CompletableFuture<Void> ack) {}
+}
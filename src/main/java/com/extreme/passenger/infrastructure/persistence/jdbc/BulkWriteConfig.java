@@ -0,0 +1,23 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+class BulkWriteConfig {
+
+    /**
+     * Writer de conteo_pasajeros y conteo_pasajeros_descartados: solo en modo copy y contra Postgres, así en
+     * batch (o con H2/memoria) no queda un hilo de vaciado corriendo sin nadie que lo use.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnExpression("'${app.bulk-write.mode:batch}'.toLowerCase() == 'copy' and '${app.repository:jdbc}' == 'jdbc'")
+    BulkCountWriter bulkCountWriter(BulkWriteProps props, TransactionTemplate tx, PgCopyWriter copyWriter,
+                                    MeterRegistry meterRegistry) {
+        return new BulkCountWriter(props, tx, copyWriter, meterRegistry, PgCopyWriter.TABLE_MAIN, PgCopyWriter.TABLE_DISCARDED);
+    }
+}
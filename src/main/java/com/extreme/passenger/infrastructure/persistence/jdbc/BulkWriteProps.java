@@ -0,0 +1,21 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.bulk-write")
+@Data
+class BulkWriteProps {
+  /** batch: JdbcTemplate.batchUpdate | copy: COPY FROM STDIN (CSV) */
+  private Mode mode = Mode.BATCH;
+  private int bufferCapacity = 10_000;
+  private int maxBatch = 5_000;
+  private Duration flushInterval = Duration.ofMillis(200);
+
+  enum Mode { BATCH, COPY }
+}
@@ -0,0 +1,121 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adaptador sobre la BD embebida (app.repository=embedded, H2 con DB_URL vacío): mismas sentencias que
+ * PassengerEventJdbcRepository salvo las propias de Postgres. El estado por vehículo usa una subconsulta en lugar de
+ * LATERAL (también al leer la última fila para vehicle_state), el upsert de la proyección es MERGE ... KEY y
+ * los lotes van siempre como batch JDBC (sin COPY). El esquema se crea al arrancar.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(prefix = "app", name = "repository", havingValue = "embedded")
+public class EmbeddedPassengerEventRepository extends PassengerEventJdbcRepository {
+
+    private static final String SCHEMA = "db/schema-embedded.sql";
+
+
+    private static final String SQL_VEHICLE_STATES = """
+        SELECT v.idvehiculo, v.fecha_ultimo_conteo,
+               EXISTS(SELECT 1 FROM conteo_pasajeros h WHERE h.idvehiculo = v.idvehiculo) AS has_history,
+               c.fecha, c.idprogramacion,
+               c.acumulada_subida, c.acumulada_bajada, c.acumulada_bloqueo,
+               c.acumulada_subida_puerta1, c.acumulada_bajada_puerta1, c.acumulada_bloqueo_puerta1,
+               c.acumulada_subida_puerta2, c.acumulada_bajada_puerta2, c.acumulada_bloqueo_puerta2
+        FROM vehiculos v
+        LEFT JOIN conteo_pasajeros c ON c.id = (
+            SELECT MAX(x.id) FROM conteo_pasajeros x
+            WHERE x.idvehiculo = v.idvehiculo AND x.fecha <= v.fecha_ultimo_conteo)
+        WHERE v.idvehiculo = ANY (?)
+        """;
+
+    private static final String SQL_UPSERT_STATE = """
+        MERGE INTO vehicle_state (
+            idvehiculo, has_history, fecha, idprogramacion,
+            acumulada_subida, acumulada_bajada, acumulada_bloqueo,
+            acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+            acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2
+        ) KEY (idvehiculo) VALUES (?, TRUE, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String SQL_LAST_ROWS = """
+        SELECT c.idvehiculo, TRUE AS has_history, c.fecha, c.idprogramacion,
+               c.acumulada_subida, c.acumulada_bajada, c.acumulada_bloqueo,
+               c.acumulada_subida_puerta1, c.acumulada_bajada_puerta1, c.acumulada_bloqueo_puerta1,
+               c.acumulada_subida_puerta2, c.acumulada_bajada_puerta2, c.acumulada_bloqueo_puerta2
+        FROM conteo_pasajeros c
+        WHERE c.id IN (SELECT MAX(x.id) FROM conteo_pasajeros x WHERE x.idvehiculo = ANY (?) GROUP BY x.idvehiculo)
+        """;
+
+    private static final String SQL_SEED_VEHICLE =
+            "MERGE INTO vehiculos (idvehiculo) KEY (idvehiculo) VALUES (?)";
+
+    private final List<String> seedVehicles;
+
+    public EmbeddedPassengerEventRepository(JdbcTemplate jdbc, BulkWriteProps bulkProps, PgCopyWriter copyWriter,
+                                            VehicleStateProps stateProps,
+                                            @Value("${app.seed-vehicles:}") List<String> seedVehicles) {
+        super(jdbc, bulkProps, copyWriter, stateProps);
+        this.seedVehicles = seedVehicles;
+    }
+
+    @PostConstruct
+    void install() {
+        DataSource dataSource = jdbc.getDataSource();
+        if (!EmbeddedDatabaseConnection.isEmbedded(dataSource)) {
+            throw new IllegalStateException("app.repository=embedded requiere la BD embebida (DB_URL vacío y H2 en el classpath)");
+        }
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(dataSource);
+        seedVehicles.stream().filter(id -> !id.isBlank()).forEach(id -> jdbc.update(SQL_SEED_VEHICLE, id.trim()));
+        log.info("Repositorio embebido habilitado ({}, {} vehículos precargados)", SCHEMA, seedVehicles.size());
+    }
+
+
+    @Override public String processInDatabase(PassengerEvent ev, LocalDate day, int tolerance, int timeThresholdMinutes, boolean excluded) {
+        throw new UnsupportedOperationException("app.processing-mode=function requiere Postgres (app.repository=jdbc)");
+    }
+
+    @Override public void insertDiscardedBatch(List<CountRow> rows) {
+        if (rows.isEmpty()) return;
+        jdbc.batchUpdate(SQL_INSERT_DISCARDED, rows.stream()
+                .map(r -> discardedArgs(r.ev(), r.accNet(), r.accRaw(), r.programId(), r.pointId()))
+                .toList());
+    }
+
+    @Override public void insertPassengerEventBatch(List<CountRow> rows) {
+        if (rows.isEmpty()) return;
+        jdbc.batchUpdate(SQL_INSERT_MAIN, rows.stream()
+                .map(r -> mainArgs(r.ev(), r.programId(), r.pointId(), r.accNet(), r.accRaw()))
+                .toList());
+        upsertLastStates(rows);
+    }
+
+    @Override String sqlVehicleStates() {
+        return SQL_VEHICLE_STATES;
+    }
+
+    @Override String sqlUpsertState() {
+        return SQL_UPSERT_STATE;
+    }
+
+    @Override String sqlLastRows() {
+        return SQL_LAST_ROWS;
+    }
+}
@@ -0,0 +1,39 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/** Tablas de rollup sobre H2 (app.repository=embedded): el upsert aditivo es un MERGE ... USING. */
+@Repository
+@ConditionalOnExpression("${app.rollup.enabled:false} and '${app.repository:jdbc}' == 'embedded'")
+public class EmbeddedRollupRepository extends JdbcRollupRepository {
+
+    private static final String SQL_MERGE = """
+        MERGE INTO %1$s t
+        USING (VALUES (CAST(? AS %2$s), CAST(? AS CHAR(1)), CAST(? AS TIMESTAMP),
+                       CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT)))
+            AS s(%3$s, granularidad, inicio, eventos, subidas, bajadas, bloqueos)
+        ON t.%3$s = s.%3$s AND t.granularidad = s.granularidad AND t.inicio = s.inicio
+        WHEN MATCHED THEN UPDATE SET
+            eventos = t.eventos + s.eventos, subidas = t.subidas + s.subidas,
+            bajadas = t.bajadas + s.bajadas, bloqueos = t.bloqueos + s.bloqueos
+        WHEN NOT MATCHED THEN INSERT (%3$s, granularidad, inicio, eventos, subidas, bajadas, bloqueos)
+            VALUES (s.%3$s, s.granularidad, s.inicio, s.eventos, s.subidas, s.bajadas, s.bloqueos)
+        """;
+
+    private static final String SQL_ADD_VEHICLE = SQL_MERGE.formatted("conteo_rollup_vehiculo", "VARCHAR(50)", "idvehiculo");
+    private static final String SQL_ADD_PROGRAM = SQL_MERGE.formatted("conteo_rollup_programacion", "BIGINT", "idprogramacion");
+
+    public EmbeddedRollupRepository(JdbcTemplate jdbc) {
+        super(jdbc);
+    }
+
+    @Override String sqlAddVehicle() {
+        return SQL_ADD_VEHICLE;
+    }
+
+    @Override String sqlAddProgram() {
+        return SQL_ADD_PROGRAM;
+    }
+}
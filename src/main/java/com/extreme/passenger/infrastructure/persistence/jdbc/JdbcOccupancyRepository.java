@@ -0,0 +1,63 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.extreme.passenger.domain.port.OccupancyRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Viaje en curso por vehículo en una sola consulta (SQL válido en Postgres y H2): la programación de la última
+ * fila, el último cambio de programación antes de ella y la suma de netos posterior a ese cambio. Todo filtrado
+ * por fecha >= since, así con tablas particionadas solo se leen las particiones recientes.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnExpression("${app.occupancy.enabled:false} and '${app.repository:jdbc}' != 'memory'")
+public class JdbcOccupancyRepository implements OccupancyRepository {
+
+    private static final String SQL_CURRENT_TRIPS = """
+        WITH ultima AS (
+            SELECT idvehiculo, MAX(fecha) AS fecha
+            FROM conteo_pasajeros
+            WHERE fecha >= ?
+            GROUP BY idvehiculo
+        ), programa AS (
+            SELECT c.idvehiculo, MAX(c.idprogramacion) AS idprogramacion
+            FROM conteo_pasajeros c
+            JOIN ultima u ON u.idvehiculo = c.idvehiculo AND c.fecha = u.fecha
+            GROUP BY c.idvehiculo
+        ), corte AS (
+            SELECT p.idvehiculo, p.idprogramacion, MAX(c.fecha) AS fecha
+            FROM programa p
+            LEFT JOIN conteo_pasajeros c ON c.idvehiculo = p.idvehiculo AND c.fecha >= ?
+                 AND c.idprogramacion IS DISTINCT FROM p.idprogramacion
+            GROUP BY p.idvehiculo, p.idprogramacion
+        )
+        SELECT k.idvehiculo, k.idprogramacion,
+               SUM(c.cantidad_subida) AS subidas, SUM(c.cantidad_bajada) AS bajadas, COUNT(*) AS eventos,
+               MIN(c.fecha) AS desde, MAX(c.fecha) AS hasta
+        FROM corte k
+        JOIN conteo_pasajeros c ON c.idvehiculo = k.idvehiculo AND c.fecha >= ?
+             AND (k.fecha IS NULL OR c.fecha > k.fecha)
+        GROUP BY k.idvehiculo, k.idprogramacion
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    @Override public List<Trip> currentTrips(Instant since) {
+        Timestamp from = Timestamp.from(since);
+        return jdbc.query(SQL_CURRENT_TRIPS, (rs, i) -> new Trip(
+                rs.getString("idvehiculo"),
+                rs.getObject("idprogramacion") == null ? null : rs.getLong("idprogramacion"),
+                rs.getLong("subidas"), rs.getLong("bajadas"), rs.getLong("eventos"),
+                rs.getTimestamp("desde").toInstant(), rs.getTimestamp("hasta").toInstant()),
+                from, from, from);
+    }
+}
@@ -0,0 +1,204 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+import com.extreme.passenger.domain.port.ReplaySource;
+import com.extreme.passenger.domain.port.ReplayTables;
+import com.extreme.passenger.domain.port.ReplayTarget;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Lee para el replay tablas con las columnas de conteo_pasajeros (la propia tabla o una copia de staging).
+ * Se reconstruye el evento original desde los acumulados crudos: la puerta 3 es el total menos las puertas
+ * 1 y 2, igual que al leer el estado previo. El recorrido es por keyset sobre id.
+ * <p>
+ * Cada run escribe en sus propias tablas (LIKE conteo_pasajeros / conteo_pasajeros_descartados, con una
+ * secuencia compartida para el id y un índice por vehículo e id) a través de un {@link BulkCountWriter}
+ * propio, con COPY: requiere PostgreSQL.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app", name = "repository", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcReplayTables implements ReplayTables {
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private static final String SQL_SELECT = """
+        SELECT id, fecha, idvehiculo,
+               acumulada_subida, acumulada_bajada, acumulada_bloqueo,
+               acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+               acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2,
+               latitud, longitud
+        FROM %s
+        WHERE id > ? AND id <= ? AND fecha >= ? AND fecha < ?
+        ORDER BY id
+        LIMIT ?
+        """;
+
+    private static final String DISCARDED_SUFFIX = "_descartados";
+    private static final String SEQUENCE_SUFFIX = "_id_seq";
+
+    private static final String SQL_LAST_STATES = """
+        SELECT DISTINCT ON (idvehiculo) idvehiculo, fecha AS fecha_ultimo_conteo, TRUE AS has_history,
+               fecha, idprogramacion,
+               acumulada_subida, acumulada_bajada, acumulada_bloqueo,
+               acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+               acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2
+        FROM %s
+        WHERE idvehiculo = ANY (?)
+        ORDER BY idvehiculo, id DESC
+        """;
+
+    private static final Timestamp MIN_DATE = Timestamp.from(Instant.parse("1970-01-01T00:00:00Z"));
+    private static final Timestamp MAX_DATE = Timestamp.from(Instant.parse("9999-01-01T00:00:00Z"));
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final PgCopyWriter copyWriter;
+    private final BulkWriteProps bulkProps;
+    private final MeterRegistry meterRegistry;
+
+    @Override public long maxId(String table) {
+        Long max = jdbc.queryForObject("SELECT MAX(id) FROM " + checked(table), Long.class);
+        return max == null ? 0 : max;
+    }
+
+    @Override public ReplaySource open(String table, long afterId, long upToId, Instant from, Instant to) {
+        String sql = SQL_SELECT.formatted(checked(table));
+        Timestamp lower = from == null ? MIN_DATE : Timestamp.from(from);
+        Timestamp upper = to == null ? MAX_DATE : Timestamp.from(to);
+        return new ReplaySource() {
+            private long lastId = afterId;
+
+            @Override public Chunk next(int max) {
+                List<PassengerEvent> events = new ArrayList<>(max);
+                long[] last = { lastId };
+                jdbc.query(sql, rs -> {
+                    last[0] = rs.getLong("id");
+                    events.add(mapEvent(rs));
+                }, lastId, upToId, lower, upper, max);
+                lastId = last[0];
+                return new Chunk(events, 0, lastId);
+            }
+
+            @Override public void close() {
+                // sin recursos propios: cada chunk es una consulta independiente
+            }
+        };
+    }
+
+    @Override public boolean isTarget(String target, String table) {
+        return table.equalsIgnoreCase(target) || table.equalsIgnoreCase(target + DISCARDED_SUFFIX);
+    }
+
+    @Override public void createTarget(String target) {
+        String table = checked(target);
+        if (Boolean.TRUE.equals(jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table))) {
+            throw new IllegalArgumentException("La tabla destino " + table + " ya existe");
+        }
+        String sequence = table + SEQUENCE_SUFFIX;
+        tx.executeWithoutResult(s -> {
+            jdbc.execute("CREATE SEQUENCE " + sequence);
+            createLike(table, PgCopyWriter.TABLE_MAIN, sequence);
+            createLike(table + DISCARDED_SUFFIX, PgCopyWriter.TABLE_DISCARDED, sequence);
+        });
+    }
+
+    // Sin INCLUDING IDENTITY/INDEXES: el id toma la secuencia del run y no se copian PK ni particiones
+    private void createLike(String table, String like, String sequence) {
+        jdbc.execute("CREATE TABLE " + table + " (LIKE " + like + " INCLUDING DEFAULTS)");
+        jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        jdbc.execute("CREATE INDEX ON " + table + " (idvehiculo, id)");
+    }
+
+    @Override public ReplayTarget openTarget(String target) {
+        String table = checked(target);
+        String discardedTable = table + DISCARDED_SUFFIX;
+        BulkCountWriter writer = new BulkCountWriter(bulkProps, tx, copyWriter, meterRegistry, table, discardedTable);
+        writer.start();
+        return new ReplayTarget() {
+            @Override public CompletableFuture<Void> write(CountRow row, boolean discarded) throws InterruptedException {
+                return discarded ? writer.submitDiscarded(row) : writer.submit(row);
+            }
+
+            @Override public long watermark() {
+                Long last = jdbc.queryForObject(
+                        "SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM " + table + SEQUENCE_SUFFIX, Long.class);
+                return last == null ? 0 : last;
+            }
+
+            @Override public void rollback(Collection<String> idVehicles, long watermark) {
+                if (idVehicles.isEmpty()) return;
+                tx.executeWithoutResult(s -> {
+                    for (String t : List.of(table, discardedTable)) {
+                        jdbc.update("DELETE FROM " + t + " WHERE idvehiculo = ANY (?) AND id > ?", vehiclesAnd(idVehicles, watermark));
+                    }
+                });
+            }
+
+            @Override public List<VehicleState> lastStates(Collection<String> idVehicles) {
+                if (idVehicles.isEmpty()) return List.of();
+                return jdbc.query(SQL_LAST_STATES.formatted(table),
+                        ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", idVehicles.toArray())),
+                        (rs, i) -> PassengerEventJdbcRepository.mapState(rs));
+            }
+
+            @Override public void close() {
+                try {
+                    writer.stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static PreparedStatementSetter vehiclesAnd(Collection<String> idVehicles, long watermark) {
+        return ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", idVehicles.toArray()));
+            ps.setLong(2, watermark);
+        };
+    }
+
+    private static String checked(String table) {
+        if (table == null || !TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException("Nombre de tabla inválido para replay: " + table);
+        }
+        return table;
+    }
+
+    private static PassengerEvent mapEvent(ResultSet rs) throws SQLException {
+        int in1 = rs.getInt("acumulada_subida_puerta1"), out1 = rs.getInt("acumulada_bajada_puerta1"), block1 = rs.getInt("acumulada_bloqueo_puerta1");
+        int in2 = rs.getInt("acumulada_subida_puerta2"), out2 = rs.getInt("acumulada_bajada_puerta2"), block2 = rs.getInt("acumulada_bloqueo_puerta2");
+        return PassengerEvent.builder()
+                .idVehicle(rs.getString("idvehiculo"))
+                .checkinTime(rs.getTimestamp("fecha").toInstant())
+                .door1In(in1).door1Out(out1).door1Block(block1)
+                .door2In(in2).door2Out(out2).door2Block(block2)
+                .door3In(rs.getInt("acumulada_subida") - in1 - in2)
+                .door3Out(rs.getInt("acumulada_bajada") - out1 - out2)
+                .door3Block(rs.getInt("acumulada_bloqueo") - block1 - block2)
+                .latitude(rs.getDouble("latitud"))
+                .longitude(rs.getDouble("longitud"))
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+
+import com.extreme.passenger.domain.port.RollupRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Tablas de rollup sobre Postgres: cada delta se suma con INSERT ... ON CONFLICT DO UPDATE. Los deltas se
+ * escriben ordenados por clave, así dos instancias que vacían a la vez toman los locks de fila en el mismo orden.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnExpression("${app.rollup.enabled:false} and '${app.repository:jdbc}' == 'jdbc'")
+public class JdbcRollupRepository implements RollupRepository {
+
+    private static final String SCHEMA = "db/rollups.sql";
+
+    private static final String SQL_ADD_VEHICLE = """
+        INSERT INTO conteo_rollup_vehiculo (idvehiculo, granularidad, inicio, eventos, subidas, bajadas, bloqueos)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (idvehiculo, granularidad, inicio) DO UPDATE SET
+            eventos  = conteo_rollup_vehiculo.eventos  + EXCLUDED.eventos,
+            subidas  = conteo_rollup_vehiculo.subidas  + EXCLUDED.subidas,
+            bajadas  = conteo_rollup_vehiculo.bajadas  + EXCLUDED.bajadas,
+            bloqueos = conteo_rollup_vehiculo.bloqueos + EXCLUDED.bloqueos
+        """;
+
+    private static final String SQL_ADD_PROGRAM = """
+        INSERT INTO conteo_rollup_programacion (idprogramacion, granularidad, inicio, eventos, subidas, bajadas, bloqueos)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (idprogramacion, granularidad, inicio) DO UPDATE SET
+            eventos  = conteo_rollup_programacion.eventos  + EXCLUDED.eventos,
+            subidas  = conteo_rollup_programacion.subidas  + EXCLUDED.subidas,
+            bajadas  = conteo_rollup_programacion.bajadas  + EXCLUDED.bajadas,
+            bloqueos = conteo_rollup_programacion.bloqueos + EXCLUDED.bloqueos
+        """;
+
+    private static final String SQL_VEHICLE_BUCKETS = """
+        SELECT inicio, eventos, subidas, bajadas, bloqueos
+        FROM conteo_rollup_vehiculo
+        WHERE idvehiculo = ? AND granularidad = ? AND inicio >= ? AND inicio < ?
+        ORDER BY inicio
+        """;
+
+    private static final String SQL_PROGRAM_BUCKETS = """
+        SELECT inicio, eventos, subidas, bajadas, bloqueos
+        FROM conteo_rollup_programacion
+        WHERE idprogramacion = ? AND granularidad = ? AND inicio >= ? AND inicio < ?
+        ORDER BY inicio
+        """;
+
+    private static final RowMapper<Bucket> BUCKET = (rs, i) -> new Bucket(rs.getTimestamp("inicio").toInstant(),
+            rs.getLong("eventos"), rs.getLong("subidas"), rs.getLong("bajadas"), rs.getLong("bloqueos"));
+
+    final JdbcTemplate jdbc;
+
+    @PostConstruct
+    void install() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(jdbc.getDataSource());
+    }
+
+    String sqlAddVehicle() {
+        return SQL_ADD_VEHICLE;
+    }
+
+    String sqlAddProgram() {
+        return SQL_ADD_PROGRAM;
+    }
+
+    @Override public void addVehicleDeltas(List<VehicleDelta> deltas) {
+        if (deltas.isEmpty()) return;
+        jdbc.batchUpdate(sqlAddVehicle(), deltas.stream()
+                .sorted(Comparator.comparing(VehicleDelta::idVehicle)
+                        .thenComparing(VehicleDelta::granularity).thenComparing(d -> d.delta().start()))
+                .map(d -> args(d.idVehicle(), d.granularity(), d.delta()))
+                .toList());
+    }
+
+    @Override public void addProgramDeltas(List<ProgramDelta> deltas) {
+        if (deltas.isEmpty()) return;
+        jdbc.batchUpdate(sqlAddProgram(), deltas.stream()
+                .sorted(Comparator.comparingLong(ProgramDelta::programId)
+                        .thenComparing(ProgramDelta::granularity).thenComparing(d -> d.delta().start()))
+                .map(d -> args(d.programId(), d.granularity(), d.delta()))
+                .toList());
+    }
+
+    @Override public List<Bucket> vehicleBuckets(String idVehicle, Granularity granularity, Instant from, Instant to) {
+        return jdbc.query(SQL_VEHICLE_BUCKETS, BUCKET, idVehicle, code(granularity), Timestamp.from(from), Timestamp.from(to));
+    }
+
+    @Override public List<Bucket> programBuckets(long programId, Granularity granularity, Instant from, Instant to) {
+        return jdbc.query(SQL_PROGRAM_BUCKETS, BUCKET, programId, code(granularity), Timestamp.from(from), Timestamp.from(to));
+    }
+
+    private static Object[] args(Object key, Granularity granularity, Bucket b) {
+        return new Object[] { key, code(granularity), Timestamp.from(b.start()), b.events(), b.in(), b.out(), b.block() };
+    }
+
+    private static String code(Granularity granularity) {
+        return granularity == Granularity.MINUTE ? "m" : "h";
+    }
+}
@@ -0,0 +1,235 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.postgresql.PGConnection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+import com.extreme.passenger.infrastructure.persistence.jdbc.PartitionProps.Granularity;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Particiones por rango de fecha de conteo_pasajeros y conteo_pasajeros_descartados (app.partitions.enabled,
+ * solo Postgres). Al arrancar y cada maintenance-interval crea el periodo actual y los `ahead` siguientes; si
+ * la partición por defecto ya tiene filas del rango, las mueve a la nueva en la misma transacción. Las
+ * particiones que terminan antes de los `retain` periodos anteriores se desadjuntan y luego se exportan con
+ * COPY a archive-dir/<partición>.csv.gz; la tabla se elimina solo cuando el archivo quedó en disco.
+ * Los inserts (unitarios, batch y COPY) van siempre a la tabla padre: Postgres enruta cada fila a su
+ * partición y <tabla>_default recibe las que caen fuera de las creadas. Los límites se calculan con
+ * LOCALTIMESTAMP de la sesión, la misma zona con la que el driver escribe las fechas. Con varias instancias
+ * solo trabaja la que toma el advisory lock de la tabla.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("${app.partitions.enabled:false} and '${app.repository:jdbc}' == 'jdbc'")
+public class PartitionMaintainer {
+
+    private static final String SCRIPT = "db/particionar_conteo.sql";
+    private static final List<String> TABLES = List.of(PgCopyWriter.TABLE_MAIN, PgCopyWriter.TABLE_DISCARDED);
+    private static final String ARCHIVE_MARK = "pendiente de archivar";
+
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern RANGE = Pattern.compile("FROM \\((MINVALUE|'[^']+')\\) TO \\((MAXVALUE|'[^']+')\\)");
+
+    private static final String SQL_LOCK =
+            "SELECT pg_try_advisory_xact_lock(hashtext(?))";
+
+    private static final String SQL_IS_PARTITIONED =
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))";
+
+    private static final String SQL_PARTITIONS = """
+        SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound
+        FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = to_regclass(?)
+        """;
+
+    private static final String SQL_PENDING_ARCHIVE = """
+        SELECT c.relname FROM pg_class c
+        WHERE c.relkind = 'r' AND pg_table_is_visible(c.oid)
+          AND (starts_with(c.relname, ?) OR c.relname = ?) AND obj_description(c.oid, 'pg_class') = ?
+        """;
+
+    /** Partición adjunta; from/to null = MINVALUE/MAXVALUE. */
+    record Partition(String name, LocalDateTime from, LocalDateTime to, boolean isDefault) {
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return !isDefault && (to == null || start.isBefore(to)) && (from == null || from.isBefore(end));
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final PartitionProps props;
+    private final Set<String> warned = ConcurrentHashMap.newKeySet();
+
+    // Antes de que arranquen los listeners de Kafka (SmartLifecycle)
+    @PostConstruct
+    void init() throws IOException {
+        jdbc.execute(StreamUtils.copyToString(new ClassPathResource(SCRIPT).getInputStream(), StandardCharsets.UTF_8));
+        if (props.isConvertOnStartup()) TABLES.forEach(this::convert);
+        maintain();
+    }
+
+    @Scheduled(fixedDelayString = "${app.partitions.maintenance-interval:1h}",
+               initialDelayString = "${app.partitions.maintenance-interval:1h}")
+    public void maintain() {
+        for (String table : TABLES) {
+            try {
+                tx.executeWithoutResult(status -> createAndDetach(table));
+                for (String name : jdbc.queryForList(SQL_PENDING_ARCHIVE, String.class,
+                        table + "_p", table + "_legacy", ARCHIVE_MARK)) {
+                    archive(table, name);
+                }
+            } catch (Exception e) {
+                log.warn("Error en el mantenimiento de particiones de {}", table, e);
+            }
+        }
+    }
+
+    private void convert(String table) {
+        tx.executeWithoutResult(status -> {
+            if (!locked(table)) return;
+            Timestamp upTo = jdbc.queryForObject("SELECT particionar_conteo(?, ?)", Timestamp.class,
+                    table, unit(props.getGranularity()));
+            if (upTo != null) log.info("{} particionada por fecha: {}_legacy conserva las filas anteriores a {}", table, table, upTo);
+        });
+    }
+
+    private void createAndDetach(String table) {
+        if (!locked(table)) return;
+        if (!Boolean.TRUE.equals(jdbc.queryForObject(SQL_IS_PARTITIONED, Boolean.class, table))) {
+            if (warned.add(table)) log.warn("{} no está particionada (ver {} y app.partitions.convert-on-startup)", table, SCRIPT);
+            return;
+        }
+        Granularity granularity = props.getGranularity();
+        LocalDateTime current = truncate(jdbc.queryForObject("SELECT LOCALTIMESTAMP", Timestamp.class).toLocalDateTime(), granularity);
+        List<Partition> partitions = jdbc.query(SQL_PARTITIONS, (rs, i) -> partition(rs.getString(1), rs.getString(2)), table);
+        String defaultPartition = partitions.stream().filter(Partition::isDefault).map(Partition::name).findFirst().orElse(null);
+
+        for (int i = 0; i <= props.getAhead(); i++) {
+            LocalDateTime from = plus(current, i, granularity), to = plus(current, i + 1, granularity);
+            if (partitions.stream().noneMatch(p -> p.overlaps(from, to))) {
+                create(table, table + "_p" + suffix(from, granularity), from, to, defaultPartition);
+            }
+        }
+        if (props.getRetain() <= 0) return;
+        LocalDateTime cutoff = plus(current, -props.getRetain(), granularity);
+        for (Partition p : partitions) {
+            if (p.isDefault() || p.to() == null || p.to().isAfter(cutoff)) continue;
+            jdbc.execute("ALTER TABLE " + table + " DETACH PARTITION " + p.name());
+            jdbc.execute("COMMENT ON TABLE " + p.name() + " IS '" + ARCHIVE_MARK + "'");
+            log.info("Partición {} desadjuntada de {} (hasta {})", p.name(), table, p.to());
+        }
+    }
+
+    /** Crea la partición; si la de por defecto tiene filas del rango, las mueve antes de adjuntarla. */
+    private void create(String table, String name, LocalDateTime from, LocalDateTime to, String defaultPartition) {
+        String range = " FOR VALUES FROM ('" + BOUND.format(from) + "') TO ('" + BOUND.format(to) + "')";
+        Timestamp start = Timestamp.valueOf(from), end = Timestamp.valueOf(to);
+        boolean pending = defaultPartition != null && Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + defaultPartition + " WHERE fecha >= ? AND fecha < ?)", Boolean.class, start, end));
+        if (!pending) {
+            jdbc.execute("CREATE TABLE " + name + " PARTITION OF " + table + range);
+            log.info("Partición {} creada", name);
+            return;
+        }
+        jdbc.execute("CREATE TABLE " + name + " (LIKE " + table + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int moved = jdbc.update("INSERT INTO " + name + " OVERRIDING SYSTEM VALUE SELECT * FROM " + defaultPartition
+                + " WHERE fecha >= ? AND fecha < ?", start, end);
+        jdbc.update("DELETE FROM " + defaultPartition + " WHERE fecha >= ? AND fecha < ?", start, end);
+        jdbc.execute("ALTER TABLE " + table + " ATTACH PARTITION " + name + range);
+        log.info("Partición {} creada con {} filas movidas desde {}", name, moved, defaultPartition);
+    }
+
+    /** Exporta la tabla desadjuntada a <archive-dir>/<nombre>.csv.gz y la elimina una vez sincronizado el archivo. */
+    private void archive(String table, String name) {
+        tx.executeWithoutResult(status -> {
+            if (!locked(table)) return;
+            try {
+                Path dir = Files.createDirectories(Path.of(props.getArchiveDir()));
+                Path target = dir.resolve(name + ".csv.gz");
+                Path tmp = dir.resolve(name + ".csv.gz.tmp");
+                Long rows;
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+                    rows = jdbc.execute((ConnectionCallback<Long>) con -> {
+                        try {
+                            return con.unwrap(PGConnection.class).getCopyAPI()
+                                    .copyOut("COPY " + name + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                jdbc.execute("DROP TABLE " + name);
+                log.info("Partición {} archivada en {} ({} filas)", name, target, rows);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo archivar " + name, e);
+            }
+        });
+    }
+
+    private boolean locked(String table) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(SQL_LOCK, Boolean.class, "particiones:" + table));
+    }
+
+    static Partition partition(String name, String bound) {
+        if ("DEFAULT".equals(bound)) return new Partition(name, null, null, true);
+        Matcher m = RANGE.matcher(bound);
+        if (!m.find()) throw new IllegalStateException("Límite de partición no soportado en " + name + ": " + bound);
+        return new Partition(name, boundValue(m.group(1)), boundValue(m.group(2)), false);
+    }
+
+    // '2025-10-01 00:00:00' o, en columnas timestamptz, '2025-10-01 00:00:00-05' (zona de la sesión)
+    private static LocalDateTime boundValue(String literal) {
+        if (literal.endsWith("VALUE")) return null;
+        return LocalDateTime.parse(literal.substring(1, 20), BOUND);
+    }
+
+    static LocalDateTime truncate(LocalDateTime t, Granularity granularity) {
+        LocalDateTime day = t.toLocalDate().atStartOfDay();
+        return granularity == Granularity.DAY ? day : day.withDayOfMonth(1);
+    }
+
+    static LocalDateTime plus(LocalDateTime start, int periods, Granularity granularity) {
+        return granularity == Granularity.DAY ? start.plusDays(periods) : start.plusMonths(periods);
+    }
+
+    static String suffix(LocalDateTime start, Granularity granularity) {
+        return start.format(DateTimeFormatter.ofPattern(granularity == Granularity.DAY ? "yyyyMMdd" : "yyyyMM"));
+    }
+
+    private static String unit(Granularity granularity) {
+        return granularity == Granularity.DAY ? "day" : "month";
+    }
+}
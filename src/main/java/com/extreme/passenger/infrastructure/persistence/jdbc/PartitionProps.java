@@ -0,0 +1,26 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.partitions")
+@Data
+class PartitionProps {
+  /** Mantenimiento de particiones por fecha de conteo_pasajeros y conteo_pasajeros_descartados (solo Postgres) */
+  private boolean enabled = false;
+  /** Rango de cada partición */
+  private Granularity granularity = Granularity.MONTH;
+  /** Periodos creados por adelantado además del actual */
+  private int ahead = 2;
+  /** Periodos completos anteriores al actual que quedan adjuntos; los más viejos se archivan (0 = nunca) */
+  private int retain = 0;
+  /** Directorio de los archivos <partición>.csv.gz */
+  private String archiveDir = "archive";
+  /** Al arrancar convierte las tablas que aún no están particionadas (db/particionar_conteo.sql) */
+  private boolean convertOnStartup = false;
+
+  enum Granularity { MONTH, DAY }
+}
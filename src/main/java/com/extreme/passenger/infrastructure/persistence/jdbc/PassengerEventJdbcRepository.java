@@ -1,30 +1,56 @@
 package com.extreme.passenger.infrastructure.persistence.jdbc;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.stereotype.Repository;
 
 import com.extreme.passenger.domain.model.Accumulators;
 import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
 import com.extreme.passenger.domain.port.PassengerEventRepository;
 
+import jakarta.annotation.PostConstruct;
+
+import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Repository
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app", name = "repository", havingValue = "jdbc", matchIfMissing = true)
 public class PassengerEventJdbcRepository implements PassengerEventRepository {
 
-    private final JdbcTemplate jdbc;
+    final JdbcTemplate jdbc;
+    private final BulkWriteProps bulkProps;
+    private final PgCopyWriter copyWriter;
+    final VehicleStateProps stateProps;
+
+    private static final String VERSION_SCHEMA = "db/vehiculos_version.sql";
 
     // ---- SQLs ----
     private static final String SQL_VEHICLE_EXISTS =
             "SELECT EXISTS(SELECT 1 FROM vehiculos WHERE idvehiculo = ?)";
 
+    private static final String SQL_EXISTING_VEHICLES =
+            "SELECT idvehiculo FROM vehiculos WHERE idvehiculo = ANY (?)";
+
     private static final String SQL_LAST_DATE =
             "SELECT fecha_ultimo_conteo FROM vehiculos WHERE idvehiculo = ?";
 
@@ -42,10 +68,12 @@ public class PassengerEventJdbcRepository implements PassengerEventRepository {
         LIMIT 1
         """;
 
-    private static final String SQL_ACTIVE_PROGRAM_TODAY = """
+    // El día lo calcula la aplicación con app.timezone (el mismo reloj que la cache), no localtimestamp de la sesión
+    private static final String SQL_ACTIVE_PROGRAM = """
         SELECT idprogramacion
         FROM progvehiculos
-        WHERE idvehiculo = ? AND activa = 'S' AND fechasalida::date = localtimestamp::date
+        WHERE idvehiculo = ? AND activa = 'S'
+          AND fechasalida >= ? AND fechasalida < ?
         ORDER BY idprogramacion DESC LIMIT 1
         """;
 
@@ -66,7 +94,7 @@ public class PassengerEventJdbcRepository implements PassengerEventRepository {
         WHERE idprogramacion = ?
         """;
 
-    private static final String SQL_INSERT_DISCARDED = """
+    static final String SQL_INSERT_DISCARDED = """
         INSERT INTO conteo_pasajeros_descartados (
             fecha, idvehiculo,
             acumulada_subida, cantidad_subida,
@@ -84,7 +112,7 @@ public class PassengerEventJdbcRepository implements PassengerEventRepository {
         )
         """;
 
-    private static final String SQL_INSERT_MAIN = """
+    static final String SQL_INSERT_MAIN = """
         INSERT INTO conteo_pasajeros (
             fecha, idvehiculo,
             acumulada_subida, cantidad_subida,
@@ -101,11 +129,127 @@ public class PassengerEventJdbcRepository implements PassengerEventRepository {
         """;
 
     private static final String SQL_UPDATE_LAST_COUNT =
-            "UPDATE vehiculos SET fecha_ultimo_conteo = ? WHERE idvehiculo = ?";
+            "UPDATE vehiculos SET fecha_ultimo_conteo = ?, version_conteo = version_conteo + 1 WHERE idvehiculo = ?";
+
+    private static final String SQL_PROCESS_FUNCTION =
+            "SELECT procesar_conteo_pasajeros(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_VEHICLE_IDS =
+            "SELECT idvehiculo FROM vehiculos";
+
+    private static final String SQL_VEHICLE_STATES = """
+        SELECT v.idvehiculo, v.fecha_ultimo_conteo,
+               EXISTS(SELECT 1 FROM conteo_pasajeros h WHERE h.idvehiculo = v.idvehiculo) AS has_history,
+               c.fecha, c.idprogramacion,
+               c.acumulada_subida, c.acumulada_bajada, c.acumulada_bloqueo,
+               c.acumulada_subida_puerta1, c.acumulada_bajada_puerta1, c.acumulada_bloqueo_puerta1,
+               c.acumulada_subida_puerta2, c.acumulada_bajada_puerta2, c.acumulada_bloqueo_puerta2
+        FROM vehiculos v
+        LEFT JOIN LATERAL (
+            SELECT fecha, idprogramacion,
+                   acumulada_subida, acumulada_bajada, acumulada_bloqueo,
+                   acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+                   acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2
+            FROM conteo_pasajeros
+            WHERE idvehiculo = v.idvehiculo AND fecha <= v.fecha_ultimo_conteo
+            ORDER BY id DESC
+            LIMIT 1
+        ) c ON TRUE
+        WHERE v.idvehiculo = ANY (?)
+        """;
+
+    private static final String SQL_VERSION_COLUMN = """
+        SELECT COUNT(*) FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'vehiculos' AND column_name = 'version_conteo'
+        """;
+
+    private static final String SQL_VEHICLE_VERSION =
+            "SELECT version_conteo FROM vehiculos WHERE idvehiculo = ?";
+
+    // la versión está en la fila que se actualiza: bajo READ COMMITTED el re-chequeo tras un commit concurrente la ve cambiada
+    private static final String SQL_CAS_LAST_COUNT =
+            "UPDATE vehiculos SET fecha_ultimo_conteo = ?, version_conteo = version_conteo + 1 WHERE idvehiculo = ? AND version_conteo = ?";
+
+    private static final String SQL_VALIDATE_VERSION =
+            "SELECT idvehiculo FROM vehiculos WHERE idvehiculo = ? AND version_conteo = ? FOR UPDATE";
+
+    // ---- proyección vehicle_state (app.vehicle-state.mode) ----
+    private static final String STATE_COLUMNS = """
+        idvehiculo, has_history, fecha, idprogramacion,
+        acumulada_subida, acumulada_bajada, acumulada_bloqueo,
+        acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+        acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2""";
+
+    private static final String SQL_STATE_HAS_HISTORY =
+            "SELECT has_history FROM vehicle_state WHERE idvehiculo = ?";
+
+    private static final String SQL_STATE_ROWS =
+            "SELECT " + STATE_COLUMNS + " FROM vehicle_state WHERE idvehiculo = ANY (?)";
+
+    private static final String SQL_UPSERT_STATE = """
+        INSERT INTO vehicle_state (%s)
+        VALUES (?, TRUE, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (idvehiculo) DO UPDATE SET
+            has_history = TRUE, fecha = EXCLUDED.fecha, idprogramacion = EXCLUDED.idprogramacion,
+            acumulada_subida = EXCLUDED.acumulada_subida, acumulada_bajada = EXCLUDED.acumulada_bajada,
+            acumulada_bloqueo = EXCLUDED.acumulada_bloqueo,
+            acumulada_subida_puerta1 = EXCLUDED.acumulada_subida_puerta1,
+            acumulada_bajada_puerta1 = EXCLUDED.acumulada_bajada_puerta1,
+            acumulada_bloqueo_puerta1 = EXCLUDED.acumulada_bloqueo_puerta1,
+            acumulada_subida_puerta2 = EXCLUDED.acumulada_subida_puerta2,
+            acumulada_bajada_puerta2 = EXCLUDED.acumulada_bajada_puerta2,
+            acumulada_bloqueo_puerta2 = EXCLUDED.acumulada_bloqueo_puerta2
+        """.formatted(STATE_COLUMNS);
+
+    private static final String SQL_DELETE_STATES =
+            "DELETE FROM vehicle_state WHERE idvehiculo = ANY (?)";
+
+    /** Última fila de conteo_pasajeros por vehículo: la fuente de verdad del backfill y del chequeo. */
+    private static final String SQL_LAST_ROWS = """
+        SELECT v.idvehiculo, TRUE AS has_history, c.fecha, c.idprogramacion,
+               c.acumulada_subida, c.acumulada_bajada, c.acumulada_bloqueo,
+               c.acumulada_subida_puerta1, c.acumulada_bajada_puerta1, c.acumulada_bloqueo_puerta1,
+               c.acumulada_subida_puerta2, c.acumulada_bajada_puerta2, c.acumulada_bloqueo_puerta2
+        FROM vehiculos v
+        JOIN LATERAL (
+            SELECT fecha, idprogramacion,
+                   acumulada_subida, acumulada_bajada, acumulada_bloqueo,
+                   acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+                   acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2
+            FROM conteo_pasajeros
+            WHERE idvehiculo = v.idvehiculo
+            ORDER BY id DESC
+            LIMIT 1
+        ) c ON TRUE
+        WHERE v.idvehiculo = ANY (?)
+        """;
+
+    private static final String SQL_VEHICLE_STATES_PROJECTED = """
+        SELECT v.idvehiculo, v.fecha_ultimo_conteo, COALESCE(s.has_history, FALSE) AS has_history,
+               s.fecha, s.idprogramacion,
+               s.acumulada_subida, s.acumulada_bajada, s.acumulada_bloqueo,
+               s.acumulada_subida_puerta1, s.acumulada_bajada_puerta1, s.acumulada_bloqueo_puerta1,
+               s.acumulada_subida_puerta2, s.acumulada_bajada_puerta2, s.acumulada_bloqueo_puerta2
+        FROM vehiculos v
+        LEFT JOIN vehicle_state s ON s.idvehiculo = v.idvehiculo
+        WHERE v.idvehiculo = ANY (?)
+        """;
+
+    private static final String SQL_LOCK_VEHICLES =
+            "SELECT idvehiculo FROM vehiculos WHERE idvehiculo = ANY (?) ORDER BY idvehiculo FOR UPDATE";
 
     private static final String SQL_LOCK_VEHICLE =
         "SELECT idvehiculo FROM vehiculos WHERE idvehiculo = ? FOR UPDATE";
 
+    // El ALTER solo corre si falta la columna: no toma el lock de la tabla en cada arranque
+    @PostConstruct
+    void install() {
+        Integer present = jdbc.queryForObject(SQL_VERSION_COLUMN, Integer.class);
+        if (present != null && present > 0) return;
+        new ResourceDatabasePopulator(new ClassPathResource(VERSION_SCHEMA)).execute(jdbc.getDataSource());
+        log.info("Columna vehiculos.version_conteo agregada ({})", VERSION_SCHEMA);
+    }
+
     @Override public void lockVehicleRow(String idVehicle) {
         // Toma un lock exclusivo sobre la fila del vehículo hasta el commit/rollback
         jdbc.queryForObject(SQL_LOCK_VEHICLE, String.class, idVehicle);
@@ -116,17 +260,37 @@ public class PassengerEventJdbcRepository implements PassengerEventRepository {
         return Boolean.TRUE.equals(exists);
     }
 
+    @Override public List<String> findExistingVehicleIds(Collection<String> idVehicles) {
+        if (idVehicles.isEmpty()) return List.of();
+        return jdbc.query(SQL_EXISTING_VEHICLES,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", idVehicles.toArray())),
+                (rs, i) -> rs.getString(1));
+    }
+
     @Override public Optional<Instant> getLastDate(String idVehicle) {
         Timestamp ts = jdbc.queryForObject(SQL_LAST_DATE, Timestamp.class, idVehicle);
         return Optional.ofNullable(ts).map(Timestamp::toInstant);
     }
 
     @Override public boolean hasHistory(String idVehicle) {
+        if (stateProps.reads()) {
+            // sin fila en la proyección (backfill pendiente o vehículo nuevo) se consulta conteo_pasajeros
+            List<Boolean> flag = jdbc.queryForList(SQL_STATE_HAS_HISTORY, Boolean.class, idVehicle);
+            if (!flag.isEmpty() && Boolean.TRUE.equals(flag.get(0))) return true;
+        }
         Boolean flag = jdbc.queryForObject(SQL_HAS_HISTORY, Boolean.class, idVehicle);
         return Boolean.TRUE.equals(flag);
     }
 
     @Override public Optional<RepoAcc> getLastAccumulators(String idVehicle, Instant until) {
+        if (stateProps.reads()) {
+            // la proyección es la última fila; si falta o es posterior a until se busca en conteo_pasajeros
+            List<StateRow> rows = stateRows(List.of(idVehicle));
+            if (!rows.isEmpty() && !rows.get(0).date().isAfter(until)) {
+                StateRow row = rows.get(0);
+                return Optional.of(new RepoAcc(row.programId(), row.acc()));
+            }
+        }
         try {
             return jdbc.query(SQL_LAST_ACCUM,
                     ps -> { ps.setString(1, idVehicle); ps.setTimestamp(2, Timestamp.from(until)); },
@@ -139,9 +303,10 @@ public class PassengerEventJdbcRepository implements PassengerEventRepository {
         }
     }
 
-    @Override public Optional<Long> getActiveProgramToday(String idVehicle) {
+    @Override public Optional<Long> getActiveProgram(String idVehicle, LocalDate day) {
         try {
-            Long id = jdbc.queryForObject(SQL_ACTIVE_PROGRAM_TODAY, Long.class, idVehicle);
+            Long id = jdbc.queryForObject(SQL_ACTIVE_PROGRAM, Long.class, idVehicle,
+                    Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
             return Optional.ofNullable(id);
         } catch (EmptyResultDataAccessException ex) {
             return Optional.empty();
@@ -170,7 +335,174 @@ public class PassengerEventJdbcRepository implements PassengerEventRepository {
     }
 
     @Override public void insertDiscarded(PassengerEvent ev, Accumulators net, Accumulators raw, Long programId, Long pointId) {
-        jdbc.update(SQL_INSERT_DISCARDED,
+        jdbc.update(SQL_INSERT_DISCARDED, discardedArgs(ev, net, raw, programId, pointId));
+    }
+
+    @Override public void insertPassengerEvent(PassengerEvent ev, Long programId, Long pointId,
+                                               Accumulators net, Accumulators raw) {
+        jdbc.update(SQL_INSERT_MAIN, mainArgs(ev, programId, pointId, net, raw));
+        if (stateProps.writes()) {
+            upsertStates(List.of(new StateRow(ev.getIdVehicle(), ev.getCheckinTime(), programId, raw)));
+        }
+    }
+
+    @Override public void updateVehicleLastCount(String idVehicle, Instant when) {
+        jdbc.update(SQL_UPDATE_LAST_COUNT, Timestamp.from(when), idVehicle);
+    }
+
+    @Override public long getVehicleVersion(String idVehicle) {
+        return jdbc.queryForObject(SQL_VEHICLE_VERSION, Long.class, idVehicle);
+    }
+
+    @Override public boolean compareAndSetLastCount(String idVehicle, long expectedVersion, Instant when) {
+        return jdbc.update(SQL_CAS_LAST_COUNT, Timestamp.from(when), idVehicle, expectedVersion) == 1;
+    }
+
+    @Override public boolean validateVehicleVersion(String idVehicle, long expectedVersion) {
+        return !jdbc.queryForList(SQL_VALIDATE_VERSION, String.class, idVehicle, expectedVersion).isEmpty();
+    }
+
+    @Override public String processInDatabase(PassengerEvent ev, LocalDate day, int tolerance, int timeThresholdMinutes, boolean excluded) {
+        String status = jdbc.queryForObject(SQL_PROCESS_FUNCTION, String.class,
+                ev.getIdVehicle(), Timestamp.from(ev.getCheckinTime()),
+                ev.getDoor1In(), ev.getDoor1Out(), ev.getDoor1Block(),
+                ev.getDoor2In(), ev.getDoor2Out(), ev.getDoor2Block(),
+                ev.getDoor3In(), ev.getDoor3Out(), ev.getDoor3Block(),
+                ev.getLatitude(), ev.getLongitude(),
+                tolerance, timeThresholdMinutes, excluded, Date.valueOf(day));
+        // la función inserta por su cuenta: la proyección se refresca desde la fila que acaba de escribir
+        if (stateProps.writes() && "OK".equals(status)) {
+            upsertStates(lastRows(List.of(ev.getIdVehicle())));
+        }
+        return status;
+    }
+
+    @Override public List<String> findVehicleIds() {
+        return jdbc.queryForList(SQL_VEHICLE_IDS, String.class);
+    }
+
+    @Override public List<VehicleState> loadVehicleStates(Collection<String> idVehicles) {
+        if (idVehicles.isEmpty()) return List.of();
+        if (!stateProps.reads()) return queryVehicleStates(sqlVehicleStates(), idVehicles);
+        // La proyección guarda la última fila; si falta (sin historial en vehicle_state) o es posterior a
+        // fecha_ultimo_conteo se busca en conteo_pasajeros
+        List<VehicleState> states = new ArrayList<>(queryVehicleStates(SQL_VEHICLE_STATES_PROJECTED, idVehicles));
+        Set<String> fallback = states.stream()
+                .filter(s -> !s.hasHistory() || (s.lastRowDate() != null && !s.coversLastDate()))
+                .map(VehicleState::idVehicle)
+                .collect(Collectors.toSet());
+        if (fallback.isEmpty()) return states;
+        states.removeIf(s -> fallback.contains(s.idVehicle()));
+        states.addAll(queryVehicleStates(sqlVehicleStates(), fallback));
+        return states;
+    }
+
+    String sqlVehicleStates() {
+        return SQL_VEHICLE_STATES;
+    }
+
+    private List<VehicleState> queryVehicleStates(String sql, Collection<String> idVehicles) {
+        return jdbc.query(sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", idVehicles.toArray())),
+                (rs, i) -> mapState(rs));
+    }
+
+    @Override public void insertDiscardedBatch(List<CountRow> rows) {
+        if (rows.isEmpty()) return;
+        if (bulkProps.getMode() == BulkWriteProps.Mode.COPY) {
+            copyWriter.copyDiscarded(rows);
+            return;
+        }
+        jdbc.batchUpdate(SQL_INSERT_DISCARDED, rows.stream()
+                .map(r -> discardedArgs(r.ev(), r.accNet(), r.accRaw(), r.programId(), r.pointId()))
+                .toList());
+    }
+
+    @Override public void insertPassengerEventBatch(List<CountRow> rows) {
+        if (rows.isEmpty()) return;
+        if (bulkProps.getMode() == BulkWriteProps.Mode.COPY) {
+            copyWriter.copyPassengerEvents(rows);
+            upsertLastStates(rows);
+            return;
+        }
+        jdbc.batchUpdate(SQL_INSERT_MAIN, rows.stream()
+                .map(r -> mainArgs(r.ev(), r.programId(), r.pointId(), r.accNet(), r.accRaw()))
+                .toList());
+        upsertLastStates(rows);
+    }
+
+    @Override public void updateVehicleLastCountBatch(Map<String, Instant> lastCounts) {
+        if (lastCounts.isEmpty()) return;
+        jdbc.batchUpdate(SQL_UPDATE_LAST_COUNT, lastCounts.entrySet().stream()
+                .map(e -> new Object[] { Timestamp.from(e.getValue()), e.getKey() })
+                .toList());
+    }
+
+    // ---- proyección vehicle_state ----
+
+    /** Fila de vehicle_state: la última de conteo_pasajeros del vehículo (fecha, programación y acumulados raw). */
+    record StateRow(String idVehicle, Instant date, Long programId, Accumulators acc) {}
+
+    String sqlUpsertState() {
+        return SQL_UPSERT_STATE;
+    }
+
+    String sqlLastRows() {
+        return SQL_LAST_ROWS;
+    }
+
+    /** Una fila por vehículo: la última insertada en el lote (las filas llegan en orden por vehículo). */
+    void upsertLastStates(List<CountRow> rows) {
+        if (!stateProps.writes()) return;
+        Map<String, StateRow> last = new LinkedHashMap<>();
+        for (CountRow r : rows) {
+            last.put(r.ev().getIdVehicle(), new StateRow(r.ev().getIdVehicle(), r.ev().getCheckinTime(), r.programId(), r.accRaw()));
+        }
+        upsertStates(last.values());
+    }
+
+    void upsertStates(Collection<StateRow> rows) {
+        if (rows.isEmpty()) return;
+        jdbc.batchUpdate(sqlUpsertState(), rows.stream().map(r -> new Object[] {
+                r.idVehicle(), Timestamp.from(r.date()), r.programId(),
+                r.acc().getTotalIn(), r.acc().getTotalOut(), r.acc().getTotalBlock(),
+                r.acc().getDoor1In(), r.acc().getDoor1Out(), r.acc().getDoor1Block(),
+                r.acc().getDoor2In(), r.acc().getDoor2Out(), r.acc().getDoor2Block()
+        }).toList());
+    }
+
+    void deleteStates(Collection<String> idVehicles) {
+        if (idVehicles.isEmpty()) return;
+        jdbc.update(SQL_DELETE_STATES, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", idVehicles.toArray())));
+    }
+
+    /** Contenido actual de vehicle_state para los vehículos indicados. */
+    List<StateRow> stateRows(Collection<String> idVehicles) {
+        return queryStateRows(SQL_STATE_ROWS, idVehicles);
+    }
+
+    /** Última fila de conteo_pasajeros de cada vehículo con histórico (lo que debería haber en vehicle_state). */
+    List<StateRow> lastRows(Collection<String> idVehicles) {
+        return queryStateRows(sqlLastRows(), idVehicles);
+    }
+
+    /** Lock de las filas de vehiculos (en orden, como lockVehicleRow) hasta el fin de la transacción. */
+    void lockVehicles(Collection<String> idVehicles) {
+        if (idVehicles.isEmpty()) return;
+        jdbc.query(SQL_LOCK_VEHICLES, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", idVehicles.toArray())),
+                rs -> { });
+    }
+
+    private List<StateRow> queryStateRows(String sql, Collection<String> idVehicles) {
+        if (idVehicles.isEmpty()) return List.of();
+        return jdbc.query(sql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", idVehicles.toArray())),
+                (rs, i) -> new StateRow(rs.getString("idvehiculo"), rs.getTimestamp("fecha").toInstant(),
+                        rs.getObject("idprogramacion", Long.class), mapAcc(rs)));
+    }
+
+    // ---- helpers ----
+    static Object[] discardedArgs(PassengerEvent ev, Accumulators net, Accumulators raw, Long programId, Long pointId) {
+        return new Object[] {
                 ev.getIdVehicle(),
                 raw.getTotalIn(),  net.getTotalIn(),
                 raw.getTotalOut(), net.getTotalOut(),
@@ -181,12 +513,12 @@ public class PassengerEventJdbcRepository implements PassengerEventRepository {
                 net.getDoor1In(), net.getDoor1Out(), net.getDoor1Block(),
                 raw.getDoor2In(), raw.getDoor2Out(), raw.getDoor2Block(),
                 net.getDoor2In(), net.getDoor2Out(), net.getDoor2Block()
-        );
+        };
     }
 
-    @Override public void insertPassengerEvent(PassengerEvent ev, Long programId, Long pointId,
-                                               Accumulators net, Accumulators raw) {
-        jdbc.update(SQL_INSERT_MAIN,
+    static Object[] mainArgs(PassengerEvent ev, Long programId, Long pointId,
+                                     Accumulators net, Accumulators raw) {
+        return new Object[] {
                 Timestamp.from(ev.getCheckinTime()), ev.getIdVehicle(),
                 raw.getTotalIn(),  net.getTotalIn(),
                 raw.getTotalOut(), net.getTotalOut(),
@@ -196,14 +528,21 @@ public class PassengerEventJdbcRepository implements PassengerEventRepository {
                 net.getDoor1In(), net.getDoor1Out(), net.getDoor1Block(),
                 raw.getDoor2In(), raw.getDoor2Out(), raw.getDoor2Block(),
                 net.getDoor2In(), net.getDoor2Out(), net.getDoor2Block()
-        );
+        };
     }
 
-    @Override public void updateVehicleLastCount(String idVehicle, Instant when) {
-        jdbc.update(SQL_UPDATE_LAST_COUNT, Timestamp.from(when), idVehicle);
+    static VehicleState mapState(ResultSet rs) throws SQLException {
+        String idVehicle = rs.getString("idvehiculo");
+        Timestamp lastDate = rs.getTimestamp("fecha_ultimo_conteo");
+        boolean hasHistory = rs.getBoolean("has_history");
+        Timestamp rowDate = rs.getTimestamp("fecha");
+        if (lastDate == null || rowDate == null) {
+            return new VehicleState(idVehicle, lastDate == null ? null : lastDate.toInstant(), hasHistory, null, null, null);
+        }
+        return new VehicleState(idVehicle, lastDate.toInstant(), hasHistory, rowDate.toInstant(),
+                rs.getObject("idprogramacion", Long.class), mapAcc(rs));
     }
 
-    // ---- helpers ----
     private static Accumulators mapAcc(ResultSet rs) throws SQLException {
         return Accumulators.builder()
                 .totalIn(nz(rs, "acumulada_subida"))
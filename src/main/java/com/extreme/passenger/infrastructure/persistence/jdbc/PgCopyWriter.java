@@ -0,0 +1,105 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Escritura masiva de filas de conteo con COPY ... FROM STDIN (CSV) del driver pgjdbc.
+ * Usa la conexión de la transacción en curso, por lo que participa del mismo commit/rollback.
+ */
+@Component
+@RequiredArgsConstructor
+public class PgCopyWriter {
+
+    static final String TABLE_MAIN = "conteo_pasajeros";
+    static final String TABLE_DISCARDED = "conteo_pasajeros_descartados";
+
+    // Mismo orden de columnas que SQL_INSERT_MAIN / SQL_INSERT_DISCARDED
+    private static final String COLUMNS = """
+            fecha, idvehiculo,
+            acumulada_subida, cantidad_subida,
+            acumulada_bajada, cantidad_bajada,
+            acumulada_bloqueo, cantidad_bloqueo,
+            latitud, longitud, idprogramacion, idpunto,
+            acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+            cantidad_subida_puerta1, cantidad_bajada_puerta1, cantidad_bloqueo_puerta1,
+            acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2,
+            cantidad_subida_puerta2, cantidad_bajada_puerta2, cantidad_bloqueo_puerta2""";
+
+    private final JdbcTemplate jdbc;
+
+    public long copyPassengerEvents(List<CountRow> rows) {
+        return copy(TABLE_MAIN, rows, false);
+    }
+
+    public long copyDiscarded(List<CountRow> rows) {
+        return copy(TABLE_DISCARDED, rows, true);
+    }
+
+    long copy(String table, List<CountRow> rows, boolean discarded) {
+        if (rows.isEmpty()) return 0;
+        Long copied = jdbc.execute((ConnectionCallback<Long>) con -> copy(con, table, rows, discarded));
+        return copied == null ? 0 : copied;
+    }
+
+    static long copy(Connection con, String table, List<CountRow> rows, boolean discarded) throws SQLException {
+        CopyManager copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+        // Los descartados usan NOW() como fecha, igual que SQL_INSERT_DISCARDED
+        Instant now = Instant.now();
+        StringBuilder csv = new StringBuilder(rows.size() * 192);
+        for (CountRow r : rows) {
+            appendRow(csv, r, discarded ? now : r.ev().getCheckinTime());
+        }
+        try {
+            return copyManager.copyIn("COPY " + table + " (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(csv.toString()));
+        } catch (IOException e) {
+            throw new SQLException("Error en COPY " + table, e);
+        }
+    }
+
+    private static void appendRow(StringBuilder sb, CountRow r, Instant fecha) {
+        Accumulators raw = r.accRaw();
+        Accumulators net = r.accNet();
+        // Zona de la JVM: mismo literal que genera pgjdbc para Timestamp
+        sb.append(OffsetDateTime.ofInstant(fecha, ZoneId.systemDefault())).append(',');
+        quoted(sb, r.ev().getIdVehicle()).append(',');
+        sb.append(raw.getTotalIn()).append(',').append(net.getTotalIn()).append(',')
+          .append(raw.getTotalOut()).append(',').append(net.getTotalOut()).append(',')
+          .append(raw.getTotalBlock()).append(',').append(net.getTotalBlock()).append(',')
+          .append(r.ev().getLatitude()).append(',').append(r.ev().getLongitude()).append(',');
+        nullable(sb, r.programId()).append(',');
+        nullable(sb, r.pointId()).append(',');
+        sb.append(raw.getDoor1In()).append(',').append(raw.getDoor1Out()).append(',').append(raw.getDoor1Block()).append(',')
+          .append(net.getDoor1In()).append(',').append(net.getDoor1Out()).append(',').append(net.getDoor1Block()).append(',')
+          .append(raw.getDoor2In()).append(',').append(raw.getDoor2Out()).append(',').append(raw.getDoor2Block()).append(',')
+          .append(net.getDoor2In()).append(',').append(net.getDoor2Out()).append(',').append(net.getDoor2Block())
+          .append('\n');
+    }
+
+    private static StringBuilder quoted(StringBuilder sb, String value) {
+        return sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    // En CSV un campo vacío sin comillas es NULL
+    private static StringBuilder nullable(StringBuilder sb, Long value) {
+        return value == null ? sb : sb.append(value.longValue());
+    }
+}
@@ -0,0 +1,37 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Instala (CREATE OR REPLACE) la función procesar_conteo_pasajeros al arrancar en modo function,
+ * para que la versión de la BD siempre coincida con la del servicio desplegado.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app", name = "processing-mode", havingValue = "function")
+public class ProcessingFunctionInstaller {
+
+    private static final String SCRIPT = "db/procesar_conteo_pasajeros.sql";
+
+    private final JdbcTemplate jdbc;
+
+    // Antes de que arranquen los listeners de Kafka (SmartLifecycle)
+    @PostConstruct
+    public void install() throws IOException {
+        String ddl = StreamUtils.copyToString(new ClassPathResource(SCRIPT).getInputStream(), StandardCharsets.UTF_8);
+        jdbc.execute(ddl);
+        log.info("Función procesar_conteo_pasajeros instalada ({})", SCRIPT);
+    }
+}
@@ -0,0 +1,45 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.infrastructure.persistence.jdbc.VehicleStateProjection.Report;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * GET actuator/vehiclestate: chequeo de consistencia de vehicle_state (sin escribir).
+ * POST actuator/vehiclestate {"action": "backfill" | "repair"}: recalcula todo o solo lo que difiere; solo con
+ * app.vehicle-state.endpoint-writes=true. El endpoint no se expone por defecto (agregarlo a MANAGEMENT_ENDPOINTS).
+ */
+@Component
+@Endpoint(id = "vehiclestate")
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${app.vehicle-state.mode:off}'.toLowerCase() != 'off' and '${app.repository:jdbc}' != 'memory'")
+public class VehicleStateEndpoint {
+
+    private final VehicleStateProjection projection;
+    private final VehicleStateProps props;
+
+    @ReadOperation
+    public Report check() {
+        return projection.check(false);
+    }
+
+    @WriteOperation
+    public Report run(String action) {
+        if (!props.isEndpointWrites()) {
+            throw new InvalidEndpointRequestException("Escrituras deshabilitadas (app.vehicle-state.endpoint-writes=false)",
+                    "Escrituras deshabilitadas");
+        }
+        return switch (action) {
+            case "backfill" -> projection.backfill();
+            case "repair" -> projection.check(true);
+            default -> throw new InvalidEndpointRequestException("Acción desconocida: " + action, "Acción desconocida");
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.extreme.passenger.infrastructure.persistence.jdbc.PassengerEventJdbcRepository.StateRow;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Instala vehicle_state y ofrece el backfill y el chequeo de consistencia contra conteo_pasajeros. Ambos
+ * recorren todos los vehículos en chunks de chunkSize repartidos en parallelism hilos. El backfill toma el lock
+ * de las filas de vehiculos del chunk (el mismo que toma el procesamiento), así una escritura concurrente
+ * queda antes o después del recálculo y nunca la pisa. El chequeo lee ambas tablas en una transacción
+ * REPEATABLE READ (misma foto) y, con repair, recalcula solo los vehículos que difieren.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${app.vehicle-state.mode:off}'.toLowerCase() != 'off' and '${app.repository:jdbc}' != 'memory'")
+public class VehicleStateProjection implements ApplicationRunner {
+
+    private static final String SCHEMA = "db/vehicle_state.sql";
+    private static final int SAMPLE = 20;
+
+    /** Resultado de un backfill o chequeo; sample lista algunos vehículos con diferencias. */
+    public record Report(String action, int vehicles, long written, long missing, long stale, long orphan,
+                        List<String> sample, long elapsedMillis) {}
+
+    private final PassengerEventJdbcRepository repository;
+    private final DataSource dataSource;
+    private final VehicleStateProps props;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate snapshot;
+
+    public VehicleStateProjection(PassengerEventJdbcRepository repository, DataSource dataSource, VehicleStateProps props,
+                                  PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.dataSource = dataSource;
+        this.props = props;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshot.setReadOnly(true);
+    }
+
+    // Antes de que arranquen los listeners de Kafka (SmartLifecycle)
+    @PostConstruct
+    void install() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(dataSource);
+        log.info("Proyección vehicle_state habilitada (modo {}, {})", props.getMode(), SCHEMA);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (props.isBackfillOnStartup()) log.info("{}", backfill());
+        if (props.isCheckOnStartup()) log.info("{}", check(props.isRepair()));
+    }
+
+    /** Recalcula vehicle_state desde conteo_pasajeros para todos los vehículos. */
+    public Report backfill() {
+        AtomicLong written = new AtomicLong();
+        return overChunks("backfill", chunk -> {
+            tx.executeWithoutResult(status -> {
+                repository.lockVehicles(chunk);
+                List<StateRow> rows = repository.lastRows(chunk);
+                repository.upsertStates(rows);
+                written.addAndGet(rows.size());
+            });
+            return new long[] { 0, 0, 0 };
+        }, written, List.of());
+    }
+
+    /** Compara vehicle_state con la última fila de conteo_pasajeros; con repair recalcula los que difieren. */
+    public Report check(boolean repair) {
+        AtomicLong written = new AtomicLong();
+        List<String> sample = Collections.synchronizedList(new ArrayList<>());
+        return overChunks(repair ? "check+repair" : "check", chunk -> {
+            long[] diff = new long[3];
+            List<String> differing = snapshot.execute(status -> compare(chunk, diff));
+            if (sample.size() < SAMPLE) differing.stream().limit(SAMPLE).forEach(sample::add);
+            if (repair && !differing.isEmpty()) {
+                tx.executeWithoutResult(status -> {
+                    repository.lockVehicles(differing);
+                    List<StateRow> rows = repository.lastRows(differing);
+                    List<String> withoutHistory = new ArrayList<>(differing);
+                    rows.forEach(r -> withoutHistory.remove(r.idVehicle()));
+                    repository.upsertStates(rows);
+                    repository.deleteStates(withoutHistory);
+                    written.addAndGet(differing.size());
+                });
+            }
+            return diff;
+        }, written, sample);
+    }
+
+    /** diff = {missing, stale, orphan}; devuelve los vehículos que difieren. */
+    private List<String> compare(List<String> chunk, long[] diff) {
+        Map<String, StateRow> expected = byVehicle(repository.lastRows(chunk));
+        Map<String, StateRow> actual = byVehicle(repository.stateRows(chunk));
+        List<String> differing = new ArrayList<>();
+        for (String id : chunk) {
+            StateRow e = expected.get(id);
+            StateRow a = actual.get(id);
+            if (e == null && a == null) continue;
+            if (a == null) diff[0]++;
+            else if (e == null) diff[2]++;
+            else if (same(e, a)) continue;
+            else diff[1]++;
+            differing.add(id);
+        }
+        return differing;
+    }
+
+    private static boolean same(StateRow e, StateRow a) {
+        return e.date().equals(a.date()) && Objects.equals(e.programId(), a.programId()) && e.acc().equals(a.acc());
+    }
+
+    private static Map<String, StateRow> byVehicle(List<StateRow> rows) {
+        Map<String, StateRow> map = new HashMap<>();
+        rows.forEach(r -> map.put(r.idVehicle(), r));
+        return map;
+    }
+
+    private Report overChunks(String action, Function<List<String>, long[]> work, AtomicLong written, List<String> sample) {
+        long start = System.nanoTime();
+        List<String> ids = repository.findVehicleIds();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(props.getParallelism(),
+                r -> new Thread(r, "vehicle-state-" + threads.getAndIncrement()));
+        long[] totals = new long[3];
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += props.getChunkSize()) {
+                List<String> chunk = ids.subList(from, Math.min(from + props.getChunkSize(), ids.size()));
+                futures.add(pool.submit(() -> work.apply(chunk)));
+            }
+            for (Future<long[]> f : futures) {
+                long[] d = f.get();
+                for (int i = 0; i < totals.length; i++) totals[i] += d[i];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("vehicle_state " + action + " interrumpido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("vehicle_state " + action + " falló: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        List<String> limited;
+        synchronized (sample) {
+            limited = List.copyOf(sample.subList(0, Math.min(sample.size(), SAMPLE)));
+        }
+        return new Report(action, ids.size(), written.get(), totals[0], totals[1], totals[2], limited,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,36 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.vehicle-state")
+@Data
+class VehicleStateProps {
+  /** off: sin proyección | write: se mantiene pero se lee de conteo_pasajeros | read: se mantiene y se lee */
+  private Mode mode = Mode.OFF;
+  /** Al arrancar recalcula vehicle_state desde conteo_pasajeros para todos los vehículos */
+  private boolean backfillOnStartup = false;
+  /** Al arrancar compara vehicle_state con conteo_pasajeros (tras el backfill si también está activo) */
+  private boolean checkOnStartup = false;
+  /** El chequeo corrige las diferencias que encuentra */
+  private boolean repair = false;
+  /** Hilos del backfill y del chequeo */
+  private int parallelism = 4;
+  /** Vehículos por transacción del backfill y del chequeo */
+  private int chunkSize = 500;
+  /** Habilita el POST de actuator/vehiclestate (backfill/repair); además hay que exponer el endpoint */
+  private boolean endpointWrites = false;
+
+  enum Mode { OFF, WRITE, READ }
+
+  boolean writes() {
+    return mode != Mode.OFF;
+  }
+
+  boolean reads() {
+    return mode == Mode.READ;
+  }
+}
@@ -0,0 +1,366 @@
+package com.extreme.passenger.infrastructure.persistence.memory;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adaptador en memoria (app.repository=memory) con la misma semántica que las consultas de
+ * PassengerEventJdbcRepository: sirve para medir el servicio sin BD y para pruebas de carga en CI.
+ * Mapas concurrentes por tabla; lockVehicleRow toma un lock por vehículo que se libera al terminar la
+ * transacción en curso, y las escrituras hechas dentro de una transacción se deshacen si hace rollback.
+ * Como en conteo_pasajeros, de los acumulados solo se guardan totales y puertas 1 y 2, y las fechas se
+ * truncan a microsegundos (precisión de timestamp en Postgres).
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(prefix = "app", name = "repository", havingValue = "memory")
+public class InMemoryPassengerEventRepository implements PassengerEventRepository {
+
+    /** Fila de conteo_pasajeros / conteo_pasajeros_descartados. */
+    public record CountRecord(long id, Instant fecha, String idVehicle, Accumulators raw, Accumulators net,
+                              double latitude, double longitude, Long programId, Long pointId) {}
+
+    /** Fila de progvehiculos (contadores null hasta el primer update, como en la tabla). */
+    public record Program(long programId, String idVehicle, boolean active, LocalDateTime departure,
+                          Integer passengers, Integer alightings, Integer blocks) {}
+
+    private record ControlPoint(long pointId, int order, boolean blank) {}
+
+    private static final class Vehicle {
+        Instant lastCount;
+        long version;
+    }
+
+    private final Map<String, Vehicle> vehicles = new ConcurrentHashMap<>();
+    private final Map<String, List<CountRecord>> counts = new ConcurrentHashMap<>();
+    private final Map<String, List<CountRecord>> discarded = new ConcurrentHashMap<>();
+    private final Map<Long, Program> programs = new ConcurrentHashMap<>();
+    private final Map<Long, List<ControlPoint>> points = new ConcurrentHashMap<>();
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private final AtomicLong countIds = new AtomicLong();
+    private final AtomicLong discardedIds = new AtomicLong();
+
+    public InMemoryPassengerEventRepository(@Value("${app.seed-vehicles:}") List<String> seedVehicles) {
+        seedVehicles.stream().filter(id -> !id.isBlank()).forEach(id -> addVehicle(id.trim(), null));
+        log.info("Repositorio en memoria habilitado ({} vehículos precargados)", vehicles.size());
+    }
+
+    // ---- datos de referencia (vehiculos, progvehiculos, rutascontrol) ----
+
+    public void addVehicle(String idVehicle, Instant lastCount) {
+        Vehicle v = new Vehicle();
+        v.lastCount = micros(lastCount);
+        vehicles.put(idVehicle, v);
+    }
+
+    public void addProgram(long programId, String idVehicle, boolean active, LocalDateTime departure) {
+        programs.put(programId, new Program(programId, idVehicle, active, departure, null, null, null));
+    }
+
+    public void addControlPoint(long programId, long pointId, int order, boolean blank) {
+        List<ControlPoint> list = points.computeIfAbsent(programId, k -> new ArrayList<>());
+        synchronized (list) {
+            list.add(new ControlPoint(pointId, order, blank));
+        }
+    }
+
+    // ---- lectura de lo escrito (pruebas y verificación de cargas) ----
+
+    public Optional<Program> program(long programId) {
+        return Optional.ofNullable(programs.get(programId));
+    }
+
+    public List<CountRecord> passengerCounts() {
+        return snapshot(counts);
+    }
+
+    public List<CountRecord> discardedCounts() {
+        return snapshot(discarded);
+    }
+
+    // ---- puerto ----
+
+    @Override public void lockVehicleRow(String idVehicle) {
+        vehicle(idVehicle);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return; // autocommit: el lock dura la sentencia
+        Tx tx = tx();
+        if (!tx.locked.add(idVehicle)) return;
+        locks.computeIfAbsent(idVehicle, k -> new ReentrantLock()).lock();
+    }
+
+    @Override public boolean vehicleExists(String idVehicle) {
+        return vehicles.containsKey(idVehicle);
+    }
+
+    @Override public List<String> findExistingVehicleIds(Collection<String> idVehicles) {
+        return idVehicles.stream().filter(vehicles::containsKey).distinct().toList();
+    }
+
+    @Override public Optional<Instant> getLastDate(String idVehicle) {
+        Vehicle v = vehicle(idVehicle);
+        synchronized (v) {
+            return Optional.ofNullable(v.lastCount);
+        }
+    }
+
+    @Override public boolean hasHistory(String idVehicle) {
+        List<CountRecord> rows = counts.get(idVehicle);
+        if (rows == null) return false;
+        synchronized (rows) {
+            return !rows.isEmpty();
+        }
+    }
+
+    @Override public Optional<RepoAcc> getLastAccumulators(String idVehicle, Instant until) {
+        return lastRow(idVehicle, until).map(r -> new RepoAcc(r.programId(), persisted(r.raw())));
+    }
+
+    @Override public Optional<Long> getActiveProgram(String idVehicle, LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        return programs.values().stream()
+                .filter(p -> p.idVehicle().equals(idVehicle) && p.active())
+                .filter(p -> !p.departure().isBefore(from) && p.departure().isBefore(to))
+                .map(Program::programId)
+                .max(Comparator.naturalOrder());
+    }
+
+    @Override public Optional<PrevPoint> getLastBlankPointOfProgram(Long programId) {
+        if (programId == null) return Optional.empty();
+        List<ControlPoint> list = points.get(programId);
+        if (list == null) return Optional.empty();
+        synchronized (list) {
+            return list.stream()
+                    .max(Comparator.comparingInt(ControlPoint::order))
+                    .map(p -> new PrevPoint(p.pointId(), p.order(), p.blank()));
+        }
+    }
+
+    @Override public void updateProgvehiculosCounters(Long programId, int in, int out, int block) {
+        if (programId == null) return;
+        Program[] before = new Program[1];
+        programs.computeIfPresent(programId, (id, p) -> {
+            before[0] = p;
+            return new Program(p.programId(), p.idVehicle(), p.active(), p.departure(),
+                    nz(p.passengers()) + in, nz(p.alightings()) + out, nz(p.blocks()) + block);
+        });
+        if (before[0] != null) onRollback(() -> programs.put(programId, before[0]));
+    }
+
+    @Override public void insertDiscarded(PassengerEvent ev, Accumulators accNet, Accumulators accRaw, Long programId, Long pointId) {
+        append(discarded, discardedIds, ev.getIdVehicle(), id -> new CountRecord(id, micros(Instant.now()), ev.getIdVehicle(),
+                persisted(accRaw), persisted(accNet), ev.getLatitude(), ev.getLongitude(), programId, pointId));
+    }
+
+    @Override public void insertPassengerEvent(PassengerEvent ev, Long programId, Long pointId,
+                                               Accumulators accNet, Accumulators accRaw) {
+        append(counts, countIds, ev.getIdVehicle(), id -> new CountRecord(id, micros(ev.getCheckinTime()), ev.getIdVehicle(),
+                persisted(accRaw), persisted(accNet), ev.getLatitude(), ev.getLongitude(), programId, pointId));
+    }
+
+    @Override public void updateVehicleLastCount(String idVehicle, Instant when) {
+        Vehicle v = vehicles.get(idVehicle);
+        if (v == null) return;
+        synchronized (v) {
+            set(v, micros(when));
+        }
+    }
+
+    @Override public long getVehicleVersion(String idVehicle) {
+        Vehicle v = vehicle(idVehicle);
+        synchronized (v) {
+            return v.version;
+        }
+    }
+
+    @Override public boolean compareAndSetLastCount(String idVehicle, long expectedVersion, Instant when) {
+        Vehicle v = vehicles.get(idVehicle);
+        if (v == null) return false;
+        synchronized (v) {
+            if (v.version != expectedVersion) return false;
+            set(v, micros(when));
+            return true;
+        }
+    }
+
+    @Override public boolean validateVehicleVersion(String idVehicle, long expectedVersion) {
+        Vehicle v = vehicles.get(idVehicle);
+        if (v == null) return false;
+        synchronized (v) {
+            return v.version == expectedVersion;
+        }
+    }
+
+    @Override public String processInDatabase(PassengerEvent ev, LocalDate day, int tolerance, int timeThresholdMinutes, boolean excluded) {
+        throw new UnsupportedOperationException("app.processing-mode=function requiere Postgres (app.repository=jdbc)");
+    }
+
+    @Override public List<String> findVehicleIds() {
+        return List.copyOf(vehicles.keySet());
+    }
+
+    @Override public List<VehicleState> loadVehicleStates(Collection<String> idVehicles) {
+        List<VehicleState> states = new ArrayList<>();
+        for (String id : new HashSet<>(idVehicles)) {
+            Vehicle v = vehicles.get(id);
+            if (v == null) continue;
+            Instant lastDate;
+            synchronized (v) {
+                lastDate = v.lastCount;
+            }
+            boolean hasHistory = hasHistory(id);
+            Optional<CountRecord> row = lastDate == null ? Optional.empty() : lastRow(id, lastDate);
+            states.add(row
+                    .map(r -> new VehicleState(id, lastDate, hasHistory, r.fecha(), r.programId(), persisted(r.raw())))
+                    .orElseGet(() -> new VehicleState(id, lastDate, hasHistory, null, null, null)));
+        }
+        return states;
+    }
+
+    @Override public void insertDiscardedBatch(List<CountRow> rows) {
+        rows.forEach(r -> insertDiscarded(r.ev(), r.accNet(), r.accRaw(), r.programId(), r.pointId()));
+    }
+
+    @Override public void insertPassengerEventBatch(List<CountRow> rows) {
+        rows.forEach(r -> insertPassengerEvent(r.ev(), r.programId(), r.pointId(), r.accNet(), r.accRaw()));
+    }
+
+    @Override public void updateVehicleLastCountBatch(Map<String, Instant> lastCounts) {
+        lastCounts.forEach(this::updateVehicleLastCount);
+    }
+
+    // ---- helpers ----
+
+    private Vehicle vehicle(String idVehicle) {
+        Vehicle v = vehicles.get(idVehicle);
+        if (v == null) throw new EmptyResultDataAccessException(1);
+        return v;
+    }
+
+    /** Última fila del vehículo (mayor id) con fecha <= until. */
+    private Optional<CountRecord> lastRow(String idVehicle, Instant until) {
+        List<CountRecord> rows = counts.get(idVehicle);
+        if (rows == null) return Optional.empty();
+        Instant limit = micros(until);
+        synchronized (rows) {
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                if (!rows.get(i).fecha().isAfter(limit)) return Optional.of(rows.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** El id se asigna con la lista del vehículo tomada: dentro de un vehículo las filas quedan en orden de id. */
+    private void append(Map<String, List<CountRecord>> table, AtomicLong ids, String idVehicle, LongFunction<CountRecord> row) {
+        List<CountRecord> rows = table.computeIfAbsent(idVehicle, k -> new ArrayList<>());
+        CountRecord added;
+        synchronized (rows) {
+            added = row.apply(ids.incrementAndGet());
+            rows.add(added);
+        }
+        onRollback(() -> {
+            synchronized (rows) {
+                rows.remove(added);
+            }
+        });
+    }
+
+    private void set(Vehicle v, Instant when) {
+        Instant before = v.lastCount;
+        long versionBefore = v.version;
+        v.lastCount = when;
+        v.version++;
+        onRollback(() -> {
+            synchronized (v) {
+                v.lastCount = before;
+                v.version = versionBefore;
+            }
+        });
+    }
+
+    private static List<CountRecord> snapshot(Map<String, List<CountRecord>> table) {
+        List<CountRecord> all = new ArrayList<>();
+        for (List<CountRecord> rows : table.values()) {
+            synchronized (rows) {
+                all.addAll(rows);
+            }
+        }
+        all.sort(Comparator.comparingLong(CountRecord::id));
+        return all;
+    }
+
+    /** Copia con las columnas de acumulados que existen en conteo_pasajeros (sin puerta 3). */
+    private static Accumulators persisted(Accumulators a) {
+        return Accumulators.builder()
+                .totalIn(a.getTotalIn()).totalOut(a.getTotalOut()).totalBlock(a.getTotalBlock())
+                .door1In(a.getDoor1In()).door1Out(a.getDoor1Out()).door1Block(a.getDoor1Block())
+                .door2In(a.getDoor2In()).door2Out(a.getDoor2Out()).door2Block(a.getDoor2Block())
+                .build();
+    }
+
+    private static Instant micros(Instant instant) {
+        return instant == null ? null : instant.truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static int nz(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    // ---- transacción: locks por vehículo y deshacer en rollback ----
+
+    private void onRollback(Runnable undo) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) tx().undo.push(undo);
+    }
+
+    private Tx tx() {
+        Tx tx = (Tx) TransactionSynchronizationManager.getResource(this);
+        if (tx == null) {
+            tx = new Tx();
+            TransactionSynchronizationManager.bindResource(this, tx);
+            TransactionSynchronizationManager.registerSynchronization(tx);
+        }
+        return tx;
+    }
+
+    private final class Tx implements TransactionSynchronization {
+        final Deque<Runnable> undo = new ArrayDeque<>();
+        final Set<String> locked = new HashSet<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InMemoryPassengerEventRepository.this);
+            if (status != STATUS_COMMITTED) undo.forEach(Runnable::run);
+            locked.forEach(id -> locks.get(id).unlock());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.extreme.passenger.infrastructure.rollup;
+
+import java.util.Arrays;
+
+/**
+ * Agregados por (owner, bucket) con claves primitivas y direccionamiento abierto (sondeo lineal): owner es un
+ * índice de vehículo o un idprogramacion y bucket, los minutos epoch del inicio del bucket. Por entrada guarda
+ * en arreglos paralelos el total acumulado y lo pendiente de escribir en las tablas de rollup (eventos,
+ * subidas, bajadas, bloqueos), así sumar un evento no crea objetos. Se rehace al crecer y al desalojar.
+ * No es thread-safe: lo sincroniza quien lo usa.
+ */
+final class BucketMap {
+
+    static final int FIELDS = 4;
+
+    /** Recibe una entrada; values trae FIELDS valores desde offset. */
+    @FunctionalInterface
+    interface Visitor {
+        void accept(long owner, int bucket, long[] values, int offset);
+    }
+
+    private long[] owners;
+    private int[] buckets;
+    private boolean[] used;
+    private long[] totals;
+    private long[] pending;
+    private int size;
+
+    BucketMap() {
+        allocate(256);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(long owner, int bucket, long events, long in, long out, long block) {
+        int base = insert(owner, bucket) * FIELDS;
+        totals[base] += events;
+        totals[base + 1] += in;
+        totals[base + 2] += out;
+        totals[base + 3] += block;
+        pending[base] += events;
+        pending[base + 1] += in;
+        pending[base + 2] += out;
+        pending[base + 3] += block;
+    }
+
+    /** Devuelve a pendiente un delta cuyo flush falló (el total ya lo incluía). */
+    void restore(long owner, int bucket, long[] values, int offset) {
+        int base = insert(owner, bucket) * FIELDS;
+        for (int f = 0; f < FIELDS; f++) pending[base + f] += values[offset + f];
+    }
+
+    /** Totales (o solo lo pendiente) de los buckets from, from + step, ... anteriores a to. */
+    void collect(long owner, int from, int to, int step, boolean pendingOnly, Visitor visitor) {
+        long[] source = pendingOnly ? pending : totals;
+        for (int bucket = from; bucket < to; bucket += step) {
+            int i = find(owner, bucket);
+            if (i >= 0) visitor.accept(owner, bucket, source, i * FIELDS);
+        }
+    }
+
+    /** Entrega y pone en cero lo pendiente de cada entrada. */
+    void drain(Visitor visitor) {
+        for (int i = 0; i < used.length; i++) {
+            if (!used[i] || isZero(pending, i * FIELDS)) continue;
+            visitor.accept(owners[i], buckets[i], pending, i * FIELDS);
+            Arrays.fill(pending, i * FIELDS, i * FIELDS + FIELDS, 0);
+        }
+    }
+
+    /** Quita los buckets anteriores a horizon que no tienen nada pendiente. */
+    void evictBefore(int horizon) {
+        boolean any = false;
+        for (int i = 0; i < used.length && !any; i++) {
+            any = used[i] && buckets[i] < horizon && isZero(pending, i * FIELDS);
+        }
+        if (any) rehash(used.length, horizon);
+    }
+
+    private int insert(long owner, int bucket) {
+        if ((size + 1) * 4 > used.length * 3) rehash(used.length * 2, Integer.MIN_VALUE);
+        int mask = used.length - 1;
+        int i = hash(owner, bucket) & mask;
+        while (used[i]) {
+            if (owners[i] == owner && buckets[i] == bucket) return i;
+            i = (i + 1) & mask;
+        }
+        used[i] = true;
+        owners[i] = owner;
+        buckets[i] = bucket;
+        size++;
+        return i;
+    }
+
+    private int find(long owner, int bucket) {
+        int mask = used.length - 1;
+        int i = hash(owner, bucket) & mask;
+        while (used[i]) {
+            if (owners[i] == owner && buckets[i] == bucket) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity, int horizon) {
+        long[] oldOwners = owners, oldTotals = totals, oldPending = pending;
+        int[] oldBuckets = buckets;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int j = 0; j < oldUsed.length; j++) {
+            if (!oldUsed[j] || (oldBuckets[j] < horizon && isZero(oldPending, j * FIELDS))) continue;
+            int base = insert(oldOwners[j], oldBuckets[j]) * FIELDS;
+            System.arraycopy(oldTotals, j * FIELDS, totals, base, FIELDS);
+            System.arraycopy(oldPending, j * FIELDS, pending, base, FIELDS);
+        }
+    }
+
+    private void allocate(int capacity) {
+        owners = new long[capacity];
+        buckets = new int[capacity];
+        used = new boolean[capacity];
+        totals = new long[capacity * FIELDS];
+        pending = new long[capacity * FIELDS];
+        size = 0;
+    }
+
+    private static boolean isZero(long[] values, int offset) {
+        for (int f = 0; f < FIELDS; f++) if (values[offset + f] != 0) return false;
+        return true;
+    }
+
+    private static int hash(long owner, int bucket) {
+        long h = (owner * 0x9E3779B97F4A7C15L) ^ (bucket * 0xC2B2AE3D27D4EB4FL);
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,315 @@
+package com.extreme.passenger.infrastructure.rollup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+import com.extreme.passenger.domain.port.RollupRepository;
+import com.extreme.passenger.domain.port.RollupRepository.Bucket;
+import com.extreme.passenger.domain.port.RollupRepository.Granularity;
+import com.extreme.passenger.domain.port.RollupRepository.ProgramDelta;
+import com.extreme.passenger.domain.port.RollupRepository.VehicleDelta;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rollups incrementales de netos (eventos, subidas, bajadas y bloqueos totales) por vehículo y por programación,
+ * en buckets de minuto y de hora según la fecha del evento (epoch, alineados a UTC). Lo alimentan processSync y,
+ * tras el commit, el procesamiento por lotes. El estado se parte en stripes por idVehicle con un
+ * {@link BucketMap} por dimensión y granularidad; cada flush-interval lo pendiente se suma a las tablas de
+ * rollup en una transacción y los buckets fuera de la retención se desalojan.
+ * Una consulta se responde desde memoria si el rango entero está en ella (posterior al arranque y dentro de
+ * la retención); si no, con las tablas de rollup más lo aún no escrito. El flush y las lecturas contra las
+ * tablas se excluyen entre sí, así un delta nunca se cuenta dos veces ni se pierde a mitad de flush.
+ * Sin tablas (app.repository=memory) todo queda en memoria y lo desalojado se pierde.
+ */
+@Slf4j
+@Component
+public class RollupEngine {
+
+    /** Buckets de la consulta y de dónde salieron: memory o rollup (tablas + pendiente). */
+    public record Series(String source, List<Bucket> buckets) {}
+
+    private static final int MINUTE = Granularity.MINUTE.ordinal();
+    private static final int HOUR = Granularity.HOUR.ordinal();
+
+    private static final class Stripe {
+        final Map<String, Integer> owners = new HashMap<>();
+        final List<String> vehicles = new ArrayList<>();
+        final BucketMap[] byVehicle = { new BucketMap(), new BucketMap() };
+        final BucketMap[] byProgram = { new BucketMap(), new BucketMap() };
+
+        int owner(String idVehicle) {
+            Integer owner = owners.get(idVehicle);
+            if (owner == null) {
+                owner = vehicles.size();
+                vehicles.add(idVehicle);
+                owners.put(idVehicle, owner);
+            }
+            return owner;
+        }
+    }
+
+    /** Lo drenado en un flush, para devolverlo a pendiente si la escritura falla. */
+    private record Drained(Stripe stripe, BucketMap map, long owner, int bucket, long[] values) {}
+
+    private final boolean enabled;
+    private final RollupProps props;
+    private final RollupRepository repository;
+    private final TransactionTemplate tx;
+    private final Stripe[] stripes;
+    private final int[] completeFrom = new int[2];
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final Timer flushTimer;
+    private final Counter flushErrors;
+
+    RollupEngine(RollupProps props, ObjectProvider<RollupRepository> repository, TransactionTemplate tx,
+                 MeterRegistry meterRegistry) {
+        this.enabled = props.isEnabled();
+        this.props = props;
+        this.repository = repository.getIfAvailable();
+        this.tx = tx;
+        this.stripes = new Stripe[props.getStripes()];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe();
+        // El bucket en curso al arrancar está incompleto en memoria
+        int now = minuteOf(Instant.now());
+        completeFrom[MINUTE] = now + 1;
+        completeFrom[HOUR] = hourOf(now) + 60;
+        this.flushTimer = meterRegistry.timer("passenger.rollup.flush");
+        this.flushErrors = meterRegistry.counter("passenger.rollup.flush.errors");
+        if (enabled) {
+            log.info("Rollups habilitados: {} stripes, retención {} (minuto) / {} (hora), {}", stripes.length,
+                    props.getMinuteRetention(), props.getHourRetention(),
+                    this.repository == null ? "solo memoria" : "flush a tablas de rollup");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Suma un evento aceptado; programId < 0 si la fila no tiene programación. */
+    public void record(String idVehicle, long programId, Instant date, long in, long out, long block) {
+        if (!enabled || idVehicle == null || date == null) return;
+        int minute = minuteOf(date);
+        int hour = hourOf(minute);
+        Stripe s = stripe(idVehicle);
+        synchronized (s) {
+            int owner = s.owner(idVehicle);
+            s.byVehicle[MINUTE].add(owner, minute, 1, in, out, block);
+            s.byVehicle[HOUR].add(owner, hour, 1, in, out, block);
+            if (programId >= 0) {
+                s.byProgram[MINUTE].add(programId, minute, 1, in, out, block);
+                s.byProgram[HOUR].add(programId, hour, 1, in, out, block);
+            }
+        }
+    }
+
+    /** Filas insertadas en la transacción en curso: se suman recién tras el commit (nada si hay rollback). */
+    public void recordAfterCommit(List<CountRow> rows) {
+        if (!enabled || rows.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rows.forEach(this::record);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rows.forEach(RollupEngine.this::record);
+            }
+        });
+    }
+
+    private void record(CountRow row) {
+        Accumulators net = row.accNet();
+        record(row.ev().getIdVehicle(), row.programId() == null ? -1 : row.programId(), row.ev().getCheckinTime(),
+                net.getTotalIn(), net.getTotalOut(), net.getTotalBlock());
+    }
+
+    public Series vehicle(String idVehicle, Granularity granularity, Instant from, Instant to) {
+        Stripe s = stripe(idVehicle);
+        return series(granularity, from, to, (first, end, step, pendingOnly, into) -> {
+            synchronized (s) {
+                Integer owner = s.owners.get(idVehicle);
+                if (owner != null) s.byVehicle[granularity.ordinal()].collect(owner, first, end, step, pendingOnly, into);
+            }
+        }, () -> repository.vehicleBuckets(idVehicle, granularity, from, to));
+    }
+
+    public Series program(long programId, Granularity granularity, Instant from, Instant to) {
+        return series(granularity, from, to, (first, end, step, pendingOnly, into) -> {
+            for (Stripe s : stripes) {
+                synchronized (s) {
+                    s.byProgram[granularity.ordinal()].collect(programId, first, end, step, pendingOnly, into);
+                }
+            }
+        }, () -> repository.programBuckets(programId, granularity, from, to));
+    }
+
+    @FunctionalInterface
+    private interface MemoryReader {
+        void read(int first, int end, int step, boolean pendingOnly, BucketMap.Visitor into);
+    }
+
+    private Series series(Granularity granularity, Instant from, Instant to, MemoryReader memory,
+                          Supplier<List<Bucket>> stored) {
+        if (!enabled) throw new IllegalStateException("Rollups deshabilitados (app.rollup.enabled=false)");
+        if (!from.isBefore(to)) throw new IllegalArgumentException("from debe ser anterior a to");
+        int g = granularity.ordinal();
+        int step = g == MINUTE ? 1 : 60;
+        int first = ceil(minuteOf(from) + (from.getEpochSecond() % 60 == 0 && from.getNano() == 0 ? 0 : 1), g);
+        int end = ceil(minuteOf(to) + (to.getEpochSecond() % 60 == 0 && to.getNano() == 0 ? 0 : 1), g);
+        if ((end - first) / step > props.getMaxBuckets()) {
+            throw new IllegalArgumentException("El rango supera " + props.getMaxBuckets() + " buckets");
+        }
+        TreeMap<Integer, long[]> merged = new TreeMap<>();
+        BucketMap.Visitor into = (owner, bucket, values, offset) -> {
+            long[] acc = merged.computeIfAbsent(bucket, b -> new long[BucketMap.FIELDS]);
+            for (int f = 0; f < BucketMap.FIELDS; f++) acc[f] += values[offset + f];
+        };
+        if (repository == null || (props.isMemoryReads() && first >= Math.max(completeFrom[g], horizon(g)))) {
+            memory.read(first, end, step, false, into);
+            return new Series("memory", buckets(merged));
+        }
+        flushLock.readLock().lock();
+        try {
+            for (Bucket b : stored.get()) {
+                into.accept(0, minuteOf(b.start()), new long[] { b.events(), b.in(), b.out(), b.block() }, 0);
+            }
+            memory.read(first, end, step, true, into);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        return new Series("rollup", buckets(merged));
+    }
+
+    /** Suma lo pendiente a las tablas de rollup y desaloja lo que quedó fuera de la retención. */
+    @Scheduled(fixedDelayString = "${app.rollup.flush-interval:5s}")
+    public void flush() {
+        if (!enabled) return;
+        if (repository != null) {
+            long start = System.nanoTime();
+            flushLock.writeLock().lock();
+            try {
+                write();
+            } finally {
+                flushLock.writeLock().unlock();
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (int g = MINUTE; g <= HOUR; g++) {
+                    if (repository == null) {
+                        // Solo memoria: nada que escribir, lo pendiente no retiene el desalojo
+                        s.byVehicle[g].drain((owner, bucket, values, offset) -> {});
+                        s.byProgram[g].drain((owner, bucket, values, offset) -> {});
+                    }
+                    s.byVehicle[g].evictBefore(horizon(g));
+                    s.byProgram[g].evictBefore(horizon(g));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private void write() {
+        List<Drained> drained = new ArrayList<>();
+        List<VehicleDelta> vehicleDeltas = new ArrayList<>();
+        List<ProgramDelta> programDeltas = new ArrayList<>();
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (Granularity granularity : Granularity.values()) {
+                    int g = granularity.ordinal();
+                    s.byVehicle[g].drain((owner, bucket, values, offset) -> {
+                        drained.add(new Drained(s, s.byVehicle[g], owner, bucket, copy(values, offset)));
+                        vehicleDeltas.add(new VehicleDelta(s.vehicles.get((int) owner), granularity, bucket(bucket, values, offset)));
+                    });
+                    s.byProgram[g].drain((owner, bucket, values, offset) -> {
+                        drained.add(new Drained(s, s.byProgram[g], owner, bucket, copy(values, offset)));
+                        programDeltas.add(new ProgramDelta(owner, granularity, bucket(bucket, values, offset)));
+                    });
+                }
+            }
+        }
+        if (drained.isEmpty()) return;
+        try {
+            tx.executeWithoutResult(status -> {
+                repository.addVehicleDeltas(vehicleDeltas);
+                repository.addProgramDeltas(programDeltas);
+            });
+            log.debug("Rollups: {} buckets de vehículo y {} de programación escritos", vehicleDeltas.size(), programDeltas.size());
+        } catch (RuntimeException e) {
+            flushErrors.increment();
+            log.warn("Rollups: flush fallido, {} buckets quedan pendientes", drained.size(), e);
+            for (Drained d : drained) {
+                synchronized (d.stripe()) {
+                    d.map().restore(d.owner(), d.bucket(), d.values(), 0);
+                }
+            }
+        }
+    }
+
+    private int horizon(int g) {
+        int now = minuteOf(Instant.now());
+        long retention = (g == MINUTE ? props.getMinuteRetention() : props.getHourRetention()).toMinutes();
+        return g == MINUTE ? (int) (now - retention) : hourOf((int) (now - retention));
+    }
+
+    private Stripe stripe(String idVehicle) {
+        return stripes[Math.floorMod(idVehicle.hashCode(), stripes.length)];
+    }
+
+    private static List<Bucket> buckets(TreeMap<Integer, long[]> merged) {
+        List<Bucket> out = new ArrayList<>(merged.size());
+        merged.forEach((bucket, v) -> out.add(new Bucket(Instant.ofEpochSecond(bucket * 60L), v[0], v[1], v[2], v[3])));
+        return out;
+    }
+
+    private static Bucket bucket(int bucket, long[] values, int offset) {
+        return new Bucket(Instant.ofEpochSecond(bucket * 60L),
+                values[offset], values[offset + 1], values[offset + 2], values[offset + 3]);
+    }
+
+    private static long[] copy(long[] values, int offset) {
+        long[] copy = new long[BucketMap.FIELDS];
+        System.arraycopy(values, offset, copy, 0, BucketMap.FIELDS);
+        return copy;
+    }
+
+    /** Primer inicio de bucket mayor o igual que minute. */
+    private static int ceil(int minute, int g) {
+        return g == MINUTE ? minute : hourOf(minute + 59);
+    }
+
+    private static int minuteOf(Instant instant) {
+        return (int) Math.floorDiv(instant.getEpochSecond(), 60);
+    }
+
+    private static int hourOf(int minute) {
+        return minute - Math.floorMod(minute, 60);
+    }
+}
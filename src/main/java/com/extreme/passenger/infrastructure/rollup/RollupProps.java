@@ -0,0 +1,25 @@
+package com.extreme.passenger.infrastructure.rollup;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.rollup")
+@Data
+class RollupProps {
+  private boolean enabled = false;
+  /** Particiones del estado en memoria (un monitor cada una, por hash de idVehicle) */
+  private int stripes = 16;
+  /** Buckets de minuto que se conservan en memoria */
+  private Duration minuteRetention = Duration.ofHours(3);
+  /** Buckets de hora que se conservan en memoria */
+  private Duration hourRetention = Duration.ofDays(2);
+  /** Responde desde memoria cuando el rango entero está en ella (una sola instancia por vehículo) */
+  private boolean memoryReads = true;
+  /** Buckets máximos por consulta */
+  private int maxBuckets = 10_000;
+}
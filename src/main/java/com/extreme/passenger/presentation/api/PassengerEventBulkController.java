@@ -0,0 +1,174 @@
+package com.extreme.passenger.presentation.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.extreme.passenger.application.service.ProcessPassengerEventService;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.presentation.dto.BulkItemResult;
+import com.extreme.passenger.presentation.dto.PassengerEventIn;
+import com.extreme.passenger.presentation.dto.PassengerEventOut;
+import com.extreme.passenger.presentation.dto.Status;
+import com.extreme.passenger.presentation.mapper.PassengerEventMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ingesta masiva: el body es un arreglo JSON o NDJSON de PassengerEventIn y se parsea de forma incremental.
+ * Cada evento se encadena tras el anterior del mismo vehículo (orden por vehículo) y vehículos distintos se
+ * procesan en paralelo en bulkExecutor. La respuesta es NDJSON con un BulkItemResult por evento, en orden de
+ * terminación, escrito a medida que cada evento termina.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/passenger-events")
+public class PassengerEventBulkController {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final ObjectMapper json;
+    private final PassengerEventMapper mapper;
+    private final ProcessPassengerEventService service;
+    private final Executor executor;
+    private final int maxInFlight;
+
+    public PassengerEventBulkController(ObjectMapper json, PassengerEventMapper mapper, ProcessPassengerEventService service,
+                                        @Qualifier("bulkExecutor") Executor executor,
+                                        @Value("${app.async.bulk-max-in-flight:1000}") int maxInFlight) {
+        this.json = json;
+        this.mapper = mapper;
+        this.service = service;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @PostMapping(path = "bulk/process-events",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> handleBulkIngest(HttpServletRequest request) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> ingest(request.getInputStream(), out));
+    }
+
+    private void ingest(InputStream body, OutputStream out) throws IOException {
+        BlockingQueue<BulkItemResult> done = new LinkedBlockingQueue<>();
+        Semaphore window = new Semaphore(maxInFlight);
+        Map<String, CompletableFuture<Void>> tails = new HashMap<>();
+        int submitted = 0;
+        int written = 0;
+
+        try (JsonGenerator gen = json.getFactory().createGenerator(out);
+             MappingIterator<PassengerEventIn> items = json.readerFor(PassengerEventIn.class).readValues(body)) {
+            gen.setRootValueSeparator(new SerializedString("\n"));
+
+            while (true) {
+                int index = submitted;
+                PassengerEventIn in;
+                try {
+                    if (!items.hasNextValue()) break;
+                    in = items.nextValue();
+                } catch (JsonParseException e) {
+                    // JSON mal formado: no se puede ubicar el siguiente evento → se corta la lectura
+                    done.add(invalid(index, "JSON mal formado: " + e.getOriginalMessage()));
+                    submitted++;
+                    break;
+                } catch (JsonMappingException e) {
+                    done.add(invalid(index, "Evento inválido: " + e.getOriginalMessage()));
+                    submitted++;
+                    continue;
+                }
+
+                PassengerEvent event = mapper.toDomain(in);
+                String key = event != null && event.getIdVehicle() != null ? event.getIdVehicle() : "";
+                window.acquireUninterruptibly();
+                CompletableFuture<Void> next = tails.getOrDefault(key, DONE)
+                        .thenRunAsync(() -> done.add(process(index, event, window)), executor);
+                tails.put(key, next);
+                submitted++;
+
+                written += drain(gen, done, false);
+            }
+
+            while (written < submitted) {
+                written += drain(gen, done, true);
+            }
+            gen.writeRaw('\n');
+        }
+        log.info("Bulk ingest: {} eventos procesados", submitted);
+    }
+
+    private BulkItemResult process(int index, PassengerEvent event, Semaphore window) {
+        try {
+            PassengerEventOut out = service.processSync(event);
+            return BulkItemResult.builder()
+                    .index(index)
+                    .idVehicle(event != null ? event.getIdVehicle() : null)
+                    .status(out.getStatus())
+                    .message(out.getMessage())
+                    .build();
+        } catch (Exception e) {
+            log.error("Bulk ingest: error procesando evento {}", index, e);
+            return BulkItemResult.builder()
+                    .index(index)
+                    .idVehicle(event != null ? event.getIdVehicle() : null)
+                    .status(Status.ERROR)
+                    .message("Failed to process event: " + e.getMessage())
+                    .build();
+        } finally {
+            window.release();
+        }
+    }
+
+    /** Escribe los resultados terminados; con wait=true espera al menos uno. */
+    private int drain(JsonGenerator gen, BlockingQueue<BulkItemResult> done, boolean wait) throws IOException {
+        int n = 0;
+        if (wait) {
+            try {
+                BulkItemResult first = done.take();
+                json.writeValue(gen, first);
+                n++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Bulk ingest interrumpido", e);
+            }
+        }
+        for (BulkItemResult r; (r = done.poll()) != null; n++) {
+            json.writeValue(gen, r);
+        }
+        if (n > 0) gen.flush();
+        return n;
+    }
+
+    private static BulkItemResult invalid(int index, String message) {
+        return BulkItemResult.builder()
+                .index(index)
+                .status(Status.INVALID)
+                .message(message)
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.extreme.passenger.presentation.api;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.extreme.passenger.infrastructure.occupancy.OccupancyTracker;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Pasajeros a bordo por vehículo (viaje en curso) o de toda la flota, servidos desde memoria sin consultar la BD.
+ * 404 si la ocupación está deshabilitada o el vehículo no tiene viaje.
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/passenger-events")
+public class PassengerEventOccupancyController {
+
+    private final OccupancyTracker occupancy;
+
+    @GetMapping("occupancy")
+    public ResponseEntity<?> fleet() {
+        if (!occupancy.isEnabled()) return disabled();
+        return ResponseEntity.ok(occupancy.fleet());
+    }
+
+    @GetMapping("occupancy/{idVehicle}")
+    public ResponseEntity<?> vehicle(@PathVariable String idVehicle) {
+        if (!occupancy.isEnabled()) return disabled();
+        return occupancy.vehicle(idVehicle)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("message", "Sin viaje en curso para " + idVehicle)));
+    }
+
+    private static ResponseEntity<?> disabled() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .body(Map.of("message", "Ocupación deshabilitada (app.occupancy.enabled=false)"));
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.extreme.passenger.presentation.api;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.extreme.passenger.application.replay.ReplayCheckpoint;
+import com.extreme.passenger.application.replay.ReplayService;
+import com.extreme.passenger.presentation.dto.ReplayRequest;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Replay de históricos: POST crea o reanuda un run (202 con Location al estado) y GET devuelve el progreso
+ * (posición, contadores por Status y throughput del último intervalo). Solo se aceptan archivos dentro de
+ * app.replay.input-dir y tablas de app.replay.source-tables (400 en otro caso); el resultado queda en las
+ * tablas replay_&lt;runId&gt;, nunca en conteo_pasajeros.
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/passenger-events")
+public class PassengerEventReplayController {
+
+    private final ReplayService replay;
+
+    @PostMapping("replay")
+    public ResponseEntity<?> start(@RequestBody ReplayRequest request) throws IOException {
+        try {
+            ReplayCheckpoint started = replay.start(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{runId}").buildAndExpand(started.getRunId()).toUri())
+                .body(started);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("replay/{runId}")
+    public ResponseEntity<ReplayCheckpoint> status(@PathVariable String runId) throws IOException {
+        return replay.status(runId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+}
@@ -1,14 +1,23 @@
 package com.extreme.passenger.presentation.api;
 
+import java.time.Duration;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.extreme.passenger.application.service.ProcessPassengerEventService;
 import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.infrastructure.async.AsyncBackpressure;
+import com.extreme.passenger.infrastructure.async.AsyncTicketStore;
 import com.extreme.passenger.presentation.dto.PassengerEventIn;
 import com.extreme.passenger.presentation.dto.PassengerEventOut;
 import com.extreme.passenger.presentation.dto.Status;
@@ -23,6 +32,8 @@ public class PassengerEventRestController {
 
     private final PassengerEventMapper mapper;
     private final ProcessPassengerEventService service;
+    private final AsyncTicketStore tickets;
+    private final AsyncBackpressure backpressure;
 
     @PostMapping("sync/process-event")
     public ResponseEntity<PassengerEventOut> handleSyncIngest(@RequestBody PassengerEventIn in) {
@@ -41,19 +52,39 @@ public class PassengerEventRestController {
         }
     }
 
+    /**
+     * Acepta el evento y devuelve un ticket consultable en GET async/process-event/{ticketId}. Sin cupo
+     * en el executor responde 429 con Retry-After en lugar de encolar o fallar con 500.
+     */
     @PostMapping("async/process-event")
     public ResponseEntity<PassengerEventOut> handleAsyncIngest(@RequestBody PassengerEventIn in) {
+        if (!backpressure.tryAcquire()) {
+            return saturated(backpressure.retryAfter());
+        }
+        PassengerEventOut received = null;
         try {
             PassengerEvent event = mapper.toDomain(in);
-            service.processAsync(event);
-            return ResponseEntity.status(HttpStatus.ACCEPTED).body(PassengerEventOut.builder()
-                .data(event)
-                .status(Status.RECEIVED)
-                .message("Event is being processed asynchronously")
-                .build()
-            );
+            received = tickets.open(event);
+            String ticketId = received.getTicketId();
+            service.processAsync(event).whenComplete((out, ex) -> {
+                backpressure.release();
+                tickets.complete(ticketId, out != null ? out : PassengerEventOut.builder()
+                    .data(event)
+                    .status(Status.ERROR)
+                    .message("Failed to process event: " + (ex != null ? ex.getMessage() : "sin resultado"))
+                    .build());
+            });
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{ticketId}").buildAndExpand(ticketId).toUri())
+                .body(received);
+        } catch (TaskRejectedException e) {
+            backpressure.release();
+            if (received != null) tickets.remove(received.getTicketId());
+            return saturated(backpressure.retryAfter());
         } catch (Exception e) {
             e.printStackTrace();
+            backpressure.release();
+            if (received != null) tickets.remove(received.getTicketId());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(PassengerEventOut.builder()
                 .data(null)
                 .status(Status.ERROR)
@@ -63,4 +94,26 @@ public class PassengerEventRestController {
         }
     }
 
+    @GetMapping("async/process-event/{ticketId}")
+    public ResponseEntity<PassengerEventOut> getAsyncResult(@PathVariable String ticketId) {
+        return tickets.get(ticketId)
+            .map(out -> ResponseEntity.status(out.getStatus() == Status.RECEIVED ? HttpStatus.ACCEPTED : HttpStatus.OK).body(out))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(PassengerEventOut.builder()
+                .status(Status.NOT_FOUND)
+                .message("Ticket desconocido o expirado")
+                .ticketId(ticketId)
+                .build()
+            ));
+    }
+
+    private static ResponseEntity<PassengerEventOut> saturated(Duration retryAfter) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.toSeconds()))
+            .body(PassengerEventOut.builder()
+                .status(Status.ERROR)
+                .message("Procesamiento asíncrono saturado, reintente en " + retryAfter.toSeconds() + " s")
+                .build()
+            );
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.extreme.passenger.presentation.api;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.extreme.passenger.domain.port.RollupRepository.Granularity;
+import com.extreme.passenger.infrastructure.rollup.RollupEngine;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Lectura de rollups por vehículo o programación: granularity minute|hour y rango [from, to) en ISO-8601
+ * (por defecto la última hora en minute y el último día en hour). Se responde desde memoria o desde las tablas
+ * de rollup, nunca recorriendo conteo_pasajeros; 404 si los rollups están deshabilitados.
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/passenger-events")
+public class PassengerEventRollupController {
+
+    private final RollupEngine rollups;
+
+    @GetMapping("rollups/vehicles/{idVehicle}")
+    public ResponseEntity<?> vehicle(@PathVariable String idVehicle,
+                                     @RequestParam(defaultValue = "minute") String granularity,
+                                     @RequestParam(required = false) Instant from,
+                                     @RequestParam(required = false) Instant to) {
+        return respond(() -> {
+            Granularity g = granularity(granularity);
+            Instant end = to != null ? to : Instant.now();
+            return rollups.vehicle(idVehicle, g, from != null ? from : end.minus(window(g)), end);
+        });
+    }
+
+    @GetMapping("rollups/programs/{programId}")
+    public ResponseEntity<?> program(@PathVariable long programId,
+                                     @RequestParam(defaultValue = "minute") String granularity,
+                                     @RequestParam(required = false) Instant from,
+                                     @RequestParam(required = false) Instant to) {
+        return respond(() -> {
+            Granularity g = granularity(granularity);
+            Instant end = to != null ? to : Instant.now();
+            return rollups.program(programId, g, from != null ? from : end.minus(window(g)), end);
+        });
+    }
+
+    private static ResponseEntity<?> respond(Supplier<RollupEngine.Series> query) {
+        try {
+            return ResponseEntity.ok(query.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    private static Granularity granularity(String value) {
+        try {
+            return Granularity.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("granularity debe ser minute u hour");
+        }
+    }
+
+    private static Duration window(Granularity g) {
+        return g == Granularity.MINUTE ? Duration.ofHours(1) : Duration.ofDays(1);
+    }
+
+}
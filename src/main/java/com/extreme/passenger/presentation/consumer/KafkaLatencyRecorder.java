@@ -0,0 +1,59 @@
+package com.extreme.passenger.presentation.consumer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.record.RecordBatch;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latencia extremo a extremo de Kafka (passenger.kafka.e2e): desde el timestamp del registro (productor o
+ * broker según message.timestamp.type) hasta el ack, por listener. Registros sin timestamp no se miden y
+ * los desfases de reloj negativos cuentan como 0.
+ */
+@Component
+class KafkaLatencyRecorder {
+
+    private final Timer single;
+    private final Timer batch;
+    private final Timer pipeline;
+    private final Timer keyParallel;
+
+    KafkaLatencyRecorder(MeterRegistry meterRegistry) {
+        this.single = timer(meterRegistry, "single");
+        this.batch = timer(meterRegistry, "batch");
+        this.pipeline = timer(meterRegistry, "pipeline");
+        this.keyParallel = timer(meterRegistry, "key-parallel");
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String listener) {
+        return Timer.builder("passenger.kafka.e2e").tag("listener", listener).register(meterRegistry);
+    }
+
+    void single(ConsumerRecord<?, ?> record) {
+        record(single, record, System.currentTimeMillis());
+    }
+
+    void pipeline(ConsumerRecord<?, ?> record) {
+        record(pipeline, record, System.currentTimeMillis());
+    }
+
+    void keyParallel(ConsumerRecord<?, ?> record) {
+        record(keyParallel, record, System.currentTimeMillis());
+    }
+
+    /** Registros confirmados del lote: [0, end). */
+    void batch(List<? extends ConsumerRecord<?, ?>> records, int end) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < end; i++) record(batch, records.get(i), now);
+    }
+
+    private static void record(Timer timer, ConsumerRecord<?, ?> record, long now) {
+        if (record.timestamp() == RecordBatch.NO_TIMESTAMP) return;
+        timer.record(Math.max(now - record.timestamp(), 0), TimeUnit.MILLISECONDS);
+    }
+}
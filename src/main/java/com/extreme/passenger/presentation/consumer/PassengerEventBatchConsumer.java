@@ -0,0 +1,101 @@
+package com.extreme.passenger.presentation.consumer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.application.service.ProcessPassengerEventBatchService;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.presentation.dto.PassengerEventOut;
+import com.extreme.passenger.presentation.mapper.PassengerEventDecoder;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Listener por lotes (app.kafka.batch-enabled=true). Mantiene la semántica de ack del listener unitario:
+ * payload vacío o no deserializable → ack & skip; status en NON_RETRYABLE → ack; cualquier otro caso
+ * → se confirma el prefijo previo y se reentrega desde el primer registro recuperable.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("${app.kafka.batch-enabled:false} and !${app.pipeline.enabled:false} and !${app.key-parallel.enabled:false}")
+public class PassengerEventBatchConsumer {
+
+    private static final Duration RETRY_SLEEP = Duration.ofSeconds(1);
+
+    private final PassengerEventDecoder decoder;
+    private final ProcessPassengerEventBatchService service;
+    private final KafkaLatencyRecorder latency;
+
+    @KafkaListener(
+        topics = "${app.kafka.passenger-topic}",
+        concurrency = "${KAFKA_CONCURRENCY:1}",
+        autoStartup = "${app.kafka.consumer-enabled}",
+        containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void onBatch(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack) {
+        List<PassengerEvent> events = new ArrayList<>(records.size());
+        List<Integer> positions = new ArrayList<>(records.size());
+
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            byte[] payload = record.value();
+
+            // 1) Descarta ruidos (payload vacío) → ack & skip
+            if (PassengerEventDecoder.isBlank(payload)) {
+                log.debug("Kafka {}: payload vacío → ack & skip", meta(record));
+                continue;
+            }
+
+            // 2) Deserialización (si falla NO se puede reprocesar) → ack & skip
+            try {
+                PassengerEvent event = decoder.decode(payload);
+                if (event == null) continue;
+                events.add(event);
+                positions.add(i);
+            } catch (Exception e) {
+                log.error("Kafka {}: error deserializando payload → ack & skip", meta(record), e);
+            }
+        }
+
+        // 3) Proceso de negocio en una transacción: si falla (BD down, etc) se reintenta desde el primer evento
+        int firstRetry = -1;
+        try {
+            List<PassengerEventOut> outs = events.isEmpty() ? List.of() : service.processBatch(events);
+            for (int j = 0; j < outs.size(); j++) {
+                PassengerEventOut out = outs.get(j);
+                if (out == null || !PassengerEventConsumer.NON_RETRYABLE.contains(out.getStatus())) {
+                    firstRetry = positions.get(j);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Kafka batch size={}: error procesando (recuperable) → NO ack (retry)", records.size(), e);
+            firstRetry = positions.get(0);
+        }
+
+        if (firstRetry < 0) {
+            log.info("Kafka batch size={} eventos={} → ack", records.size(), events.size());
+            ack.acknowledge();
+            latency.batch(records, records.size());
+        } else {
+            log.warn("Kafka {}: status recuperable → ack hasta offset previo, se reintentará desde aquí",
+                    meta(records.get(firstRetry)));
+            ack.nack(firstRetry, RETRY_SLEEP);
+            latency.batch(records, firstRetry);
+        }
+    }
+
+    private static String meta(ConsumerRecord<String, byte[]> record) {
+        return String.format("[tp=%s-%d@%d key=%s]",
+                record.topic(), record.partition(), record.offset(), record.key());
+    }
+}
@@ -4,16 +4,16 @@ import java.util.EnumSet;
 import java.util.Set;
 
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
 import com.extreme.passenger.application.service.ProcessPassengerEventService;
-import com.extreme.passenger.presentation.dto.PassengerEventIn;
+import com.extreme.passenger.domain.model.PassengerEvent;
 import com.extreme.passenger.presentation.dto.PassengerEventOut;
 import com.extreme.passenger.presentation.dto.Status;
-import com.extreme.passenger.presentation.mapper.PassengerEventMapper;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.extreme.passenger.presentation.mapper.PassengerEventDecoder;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,13 +21,14 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnExpression("!${app.kafka.batch-enabled:false} and !${app.pipeline.enabled:false} and !${app.key-parallel.enabled:false}")
 public class PassengerEventConsumer {
 
-    private final ObjectMapper json;
-    private final PassengerEventMapper mapper;
+    private final PassengerEventDecoder decoder;
     private final ProcessPassengerEventService service;
+    private final KafkaLatencyRecorder latency;
 
-    private static final Set<Status> NON_RETRYABLE = 
+    static final Set<Status> NON_RETRYABLE = 
     EnumSet.of(Status.OK, Status.DISCARDED, Status.NOT_FOUND, Status.INVALID);
 
     @KafkaListener(
@@ -35,36 +36,36 @@ public class PassengerEventConsumer {
         concurrency = "${KAFKA_CONCURRENCY:1}",
         autoStartup = "${app.kafka.consumer-enabled}"
     )
-    public void onMessage(ConsumerRecord<String, String> record, Acknowledgment ack) {
-        final String payload = record.value();
+    public void onMessage(ConsumerRecord<String, byte[]> record, Acknowledgment ack) {
+        final byte[] payload = record.value();
         final String meta = String.format("[tp=%s-%d@%d key=%s]",
                 record.topic(), record.partition(), record.offset(), record.key());
 
         // 1) Descarta ruidos (payload vacío) → ack & skip
-        if (payload == null || payload.isBlank()) {
+        if (PassengerEventDecoder.isBlank(payload)) {
             log.debug("Kafka {}: payload vacío → ack & skip", meta);
-            ack.acknowledge();
+            ack(record, ack);
             return;
         }
 
         // 2) Deserialización (si falla NO se puede reprocesar) → ack & skip
-        final PassengerEventIn in;
+        final PassengerEvent event;
         try {
-            in = json.readValue(payload, PassengerEventIn.class);
+            event = decoder.decode(payload);
         } catch (Exception e) {
             log.error("Kafka {}: error deserializando payload → ack & skip", meta, e);
-            ack.acknowledge();
+            ack(record, ack);
             return;
         }
 
-        if (in == null) {
-            ack.acknowledge();
+        if (event == null) {
+            ack(record, ack);
             return;
         }
 
         // 3) Proceso de negocio: si falla (BD down, etc) NO ack → retry por el contenedor
         try {
-            PassengerEventOut out = service.processSync(mapper.toDomain(in));
+            PassengerEventOut out = service.processSync(event);
 
             if (out == null) {
                 // recuperable: NO ack -> para que se reintente
@@ -74,7 +75,7 @@ public class PassengerEventConsumer {
 
             if (NON_RETRYABLE.contains(out.getStatus())) {
                 log.info("Kafka {}: procesado status='{}' → ack", meta, out.getStatus());
-                ack.acknowledge();
+                ack(record, ack);
             } else {
                 log.warn("Kafka {}: status recuperable='{}' → NO ack (se reintentará)", meta, out.getStatus());
             }
@@ -82,4 +83,9 @@ public class PassengerEventConsumer {
             log.error("Kafka {}: error procesando (recuperable) → NO ack (retry)", meta, e);
         }
     }
+
+    private void ack(ConsumerRecord<String, byte[]> record, Acknowledgment ack) {
+        ack.acknowledge();
+        latency.single(record);
+    }
 }
@@ -0,0 +1,100 @@
+package com.extreme.passenger.presentation.consumer;
+
+import java.util.List;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.application.service.ProcessPassengerEventService;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.infrastructure.consumer.KeyParallelDispatcher;
+import com.extreme.passenger.presentation.dto.PassengerEventOut;
+import com.extreme.passenger.presentation.mapper.PassengerEventDecoder;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Listener del modo por clave (app.key-parallel.enabled=true): decodifica en el hilo consumidor y despacha
+ * cada evento por idVehicle a KeyParallelDispatcher, que procesa claves distintas en paralelo y confirma el
+ * prefijo contiguo terminado. Misma semántica de ack que el listener unitario, salvo que un status
+ * recuperable o un error se reintenta en sitio (solo espera esa clave) en lugar de dejarse sin ack.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("${app.key-parallel.enabled:false} and !${app.pipeline.enabled:false}")
+public class PassengerEventKeyParallelConsumer {
+
+    static final String LISTENER_ID = "passenger-key-parallel";
+
+    private final PassengerEventDecoder decoder;
+    private final ProcessPassengerEventService service;
+    private final KeyParallelDispatcher dispatcher;
+    private final KafkaLatencyRecorder latency;
+
+    @KafkaListener(
+        id = LISTENER_ID,
+        topics = "${app.kafka.passenger-topic}",
+        concurrency = "${KAFKA_CONCURRENCY:1}",
+        autoStartup = "${app.kafka.consumer-enabled}",
+        containerFactory = "keyParallelKafkaListenerContainerFactory"
+    )
+    public void onBatch(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) throws InterruptedException {
+        for (ConsumerRecord<String, byte[]> record : records) {
+            byte[] payload = record.value();
+
+            // 1) Descarta ruidos (payload vacío) → ack & skip
+            if (PassengerEventDecoder.isBlank(payload)) {
+                log.debug("Kafka {}: payload vacío → ack & skip", meta(record));
+                dispatcher.skip(record);
+                continue;
+            }
+
+            // 2) Deserialización (si falla NO se puede reprocesar) → ack & skip
+            final PassengerEvent event;
+            try {
+                event = decoder.decode(payload);
+            } catch (Exception e) {
+                log.error("Kafka {}: error deserializando payload → ack & skip", meta(record), e);
+                dispatcher.skip(record);
+                continue;
+            }
+            if (event == null) {
+                dispatcher.skip(record);
+                continue;
+            }
+
+            // 3) Proceso de negocio tras el evento anterior del mismo vehículo
+            String key = event.getIdVehicle() == null ? "" : event.getIdVehicle();
+            dispatcher.submit(consumer, record, key, () -> process(record, event));
+        }
+        dispatcher.commit(consumer, false);
+    }
+
+    /** Sin registros nuevos: confirma lo que terminó desde el último poll (se publica en el hilo consumidor). */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        dispatcher.commit(event.getConsumer(), true);
+    }
+
+    private boolean process(ConsumerRecord<String, byte[]> record, PassengerEvent event) {
+        PassengerEventOut out = service.processSync(event);
+        if (out != null && PassengerEventConsumer.NON_RETRYABLE.contains(out.getStatus())) {
+            log.info("Kafka {}: procesado status='{}' → ack", meta(record), out.getStatus());
+            latency.keyParallel(record);
+            return true;
+        }
+        log.warn("Kafka {}: status recuperable='{}' → reintento", meta(record), out == null ? null : out.getStatus());
+        return false;
+    }
+
+    private static String meta(ConsumerRecord<String, byte[]> record) {
+        return String.format("[tp=%s-%d@%d key=%s]", record.topic(), record.partition(), record.offset(), record.key());
+    }
+}
@@ -0,0 +1,56 @@
+package com.extreme.passenger.presentation.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.application.pipeline.PassengerEventPipeline;
+import com.extreme.passenger.presentation.mapper.PassengerEventDecoder;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Listener del modo pipeline (app.pipeline.enabled=true): solo encola el payload y retorna. El ack llega
+ * desde el hilo del pipeline con el status final, solo si está en NON_RETRYABLE (las etapas reintentan en
+ * sitio sin límite; lo que queda sin completar al detenerse no se confirma y Kafka lo vuelve a entregar);
+ * el contenedor usa async acks y confirma offsets cuando no quedan huecos por partición.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.pipeline", name = "enabled", havingValue = "true")
+public class PassengerEventPipelineConsumer {
+
+    private final PassengerEventPipeline pipeline;
+    private final KafkaLatencyRecorder latency;
+
+    @KafkaListener(
+        topics = "${app.kafka.passenger-topic}",
+        concurrency = "${KAFKA_CONCURRENCY:1}",
+        autoStartup = "${app.kafka.consumer-enabled}",
+        containerFactory = "pipelineKafkaListenerContainerFactory"
+    )
+    public void onMessage(ConsumerRecord<String, byte[]> record, Acknowledgment ack) throws InterruptedException {
+        byte[] payload = record.value();
+
+        // Descarta ruidos (payload vacío) → ack & skip
+        if (PassengerEventDecoder.isBlank(payload)) {
+            ack.acknowledge();
+            latency.pipeline(record);
+            return;
+        }
+
+        pipeline.submit(payload, record.partition(), status -> {
+            if (!PassengerEventConsumer.NON_RETRYABLE.contains(status)) {
+                log.warn("Kafka [tp={}-{}@{}]: pipeline status='{}' → sin ack (se reentrega)", record.topic(), record.partition(), record.offset(), status);
+                return;
+            }
+            log.debug("Kafka [tp={}-{}@{}]: pipeline status='{}' → ack", record.topic(), record.partition(), record.offset(), status);
+            ack.acknowledge();
+            latency.pipeline(record);
+        });
+    }
+}
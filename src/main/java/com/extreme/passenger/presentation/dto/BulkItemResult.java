@@ -0,0 +1,16 @@
+package com.extreme.passenger.presentation.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/** Resultado de un evento del endpoint bulk; index es la posición del evento en el body (desde 0). */
+@Data
+@Builder
+public class BulkItemResult {
+
+    private int index;
+    private String idVehicle;
+    private Status status;
+    private String message;
+
+}
@@ -2,6 +2,8 @@ package com.extreme.passenger.presentation.dto;
 
 import com.extreme.passenger.domain.model.PassengerEvent;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Builder;
 import lombok.Data;
 
@@ -12,5 +14,9 @@ public class PassengerEventOut {
     private PassengerEvent data;
     private Status status;
     private String message;
+
+    // Solo en respuestas del flujo asíncrono
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String ticketId;
     
 }
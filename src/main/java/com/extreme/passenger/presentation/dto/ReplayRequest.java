@@ -0,0 +1,23 @@
+package com.extreme.passenger.presentation.dto;
+
+import java.time.Instant;
+
+import lombok.Data;
+
+/**
+ * Body de POST /passenger-events/replay. Con un runId que ya tiene checkpoint se reanuda ese run y el resto
+ * de campos se ignora (la fuente y el reparto quedan fijados en el checkpoint).
+ */
+@Data
+public class ReplayRequest {
+
+    private String runId;
+    /** file (NDJSON dentro de app.replay.input-dir) o table (una de app.replay.source-tables) */
+    private String source;
+    /** Ruta del archivo relativa a input-dir o nombre de la tabla */
+    private String location;
+    /** Filtro opcional por checkin_time en [from, to) */
+    private Instant from;
+    private Instant to;
+
+}
@@ -0,0 +1,27 @@
+package com.extreme.passenger.presentation.mapper;
+
+import java.io.IOException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.presentation.dto.PassengerEventIn;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+/** Decodificación por data binding: PassengerEventIn (builder + aliases) y luego PassengerEventMapper. */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app", name = "decoder", havingValue = "jackson", matchIfMissing = true)
+public class JacksonPassengerEventDecoder implements PassengerEventDecoder {
+
+    private final ObjectMapper json;
+    private final PassengerEventMapper mapper;
+
+    @Override
+    public PassengerEvent decode(byte[] payload) throws IOException {
+        return mapper.toDomain(json.readValue(payload, PassengerEventIn.class));
+    }
+}
@@ -0,0 +1,24 @@
+package com.extreme.passenger.presentation.mapper;
+
+import java.io.IOException;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+
+/**
+ * Decodifica un payload JSON (bytes UTF-8) de PassengerEventIn al evento de dominio. La implementación se
+ * elige con app.decoder: jackson (DTO + mapper) o streaming (JsonParser directo al dominio).
+ * Devuelve null si el payload es el literal null; lanza IOException si no se puede decodificar.
+ */
+public interface PassengerEventDecoder {
+
+    PassengerEvent decode(byte[] payload) throws IOException;
+
+    /** true si el payload es nulo, vacío o solo espacios (ruido que se descarta sin decodificar). */
+    static boolean isBlank(byte[] payload) {
+        if (payload == null) return true;
+        for (byte b : payload) {
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,320 @@
+package com.extreme.passenger.presentation.mapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.presentation.dto.PassengerEventIn;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.InputCoercionException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decodificador a nivel de JsonParser: recorre los tokens del payload y llena directamente el evento de
+ * dominio, sin DTO, builder de Jackson ni mapper. Los nombres (canónico y aliases) se resuelven con una
+ * tabla precalculada a partir de las anotaciones de PassengerEventIn, así ambos decodificadores aceptan
+ * exactamente los mismos campos. checkin_time (yyyy-MM-dd HH:mm:ss) se parsea sobre el buffer de
+ * caracteres del parser con la misma zona que aplica Jackson. Las coerciones (string→número, float→int,
+ * null→default) y los errores (MismatchedInputException / InvalidFormatException) siguen al data binding.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app", name = "decoder", havingValue = "streaming")
+public class StreamingPassengerEventDecoder implements PassengerEventDecoder {
+
+    private enum Field {
+        ID_VEHICLE, DOOR1_IN, DOOR1_OUT, DOOR1_BLOCK, DOOR2_IN, DOOR2_OUT, DOOR2_BLOCK,
+        DOOR3_IN, DOOR3_OUT, DOOR3_BLOCK, CHECKIN_TIME, LATITUDE, LONGITUDE
+    }
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private final ObjectMapper json;
+    private final Map<String, Field> fields;
+    /** Offset fijo si la zona de Jackson no tiene cambios de hora; si no, reglas de la zona. */
+    private final ZoneOffset fixedOffset;
+    private final ZoneRules zoneRules;
+
+    public StreamingPassengerEventDecoder(ObjectMapper json) {
+        this.json = json;
+        this.fields = fieldTable();
+        ZoneOffset january = probeOffset(json, "2000-01-15 00:00:00");
+        ZoneOffset july = probeOffset(json, "2000-07-15 00:00:00");
+        this.fixedOffset = january.equals(july) ? january : null;
+        this.zoneRules = json.getDeserializationConfig().getTimeZone().toZoneId().getRules();
+        log.info("Decoder streaming habilitado ({} nombres de campo, zona checkin_time={})",
+                fields.size(), fixedOffset != null ? fixedOffset : json.getDeserializationConfig().getTimeZone().getID());
+    }
+
+    @Override
+    public PassengerEvent decode(byte[] payload) throws IOException {
+        try (JsonParser p = json.getFactory().createParser(payload)) {
+            JsonToken root = p.nextToken();
+            if (root == null) {
+                throw MismatchedInputException.from(p, PassengerEventIn.class, "No content to map due to end-of-input");
+            }
+            if (root == JsonToken.VALUE_NULL) return null;
+            if (root != JsonToken.START_OBJECT) {
+                throw MismatchedInputException.from(p, PassengerEventIn.class,
+                        "Cannot deserialize value of type `PassengerEventIn` from " + root);
+            }
+
+            String idVehicle = null;
+            int d1In = 0, d1Out = 0, d1Block = 0, d2In = 0, d2Out = 0, d2Block = 0, d3In = 0, d3Out = 0, d3Block = 0;
+            Instant checkinTime = null;
+            double latitude = 0, longitude = 0;
+
+            for (String name = p.nextFieldName(); name != null; name = p.nextFieldName()) {
+                Field field = fields.get(name);
+                JsonToken t = p.nextToken();
+                if (field == null) {
+                    p.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case ID_VEHICLE -> idVehicle = readString(p, t);
+                    case DOOR1_IN -> d1In = readInt(p, t);
+                    case DOOR1_OUT -> d1Out = readInt(p, t);
+                    case DOOR1_BLOCK -> d1Block = readInt(p, t);
+                    case DOOR2_IN -> d2In = readInt(p, t);
+                    case DOOR2_OUT -> d2Out = readInt(p, t);
+                    case DOOR2_BLOCK -> d2Block = readInt(p, t);
+                    case DOOR3_IN -> d3In = readInt(p, t);
+                    case DOOR3_OUT -> d3Out = readInt(p, t);
+                    case DOOR3_BLOCK -> d3Block = readInt(p, t);
+                    case CHECKIN_TIME -> checkinTime = readInstant(p, t);
+                    case LATITUDE -> latitude = readDouble(p, t);
+                    case LONGITUDE -> longitude = readDouble(p, t);
+                }
+            }
+            if (p.currentToken() != JsonToken.END_OBJECT) {
+                throw MismatchedInputException.from(p, PassengerEventIn.class, "Unexpected token " + p.currentToken());
+            }
+
+            if (idVehicle != null) {
+                idVehicle = idVehicle.trim();
+                if (idVehicle.isEmpty()) idVehicle = null;
+            }
+            return PassengerEvent.builder()
+                    .idVehicle(idVehicle)
+                    .door1In(d1In).door1Out(d1Out).door1Block(d1Block)
+                    .door2In(d2In).door2Out(d2Out).door2Block(d2Block)
+                    .door3In(d3In).door3Out(d3Out).door3Block(d3Block)
+                    .checkinTime(checkinTime)
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .build();
+        }
+    }
+
+    // ---- valores ----
+
+    private static String readString(JsonParser p, JsonToken t) throws IOException {
+        return switch (t) {
+            case VALUE_STRING, VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_TRUE, VALUE_FALSE -> p.getText();
+            case VALUE_NULL -> null;
+            default -> throw MismatchedInputException.from(p, String.class,
+                    "Cannot deserialize value of type `java.lang.String` from " + t);
+        };
+    }
+
+    private static int readInt(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                try {
+                    return t == JsonToken.VALUE_NUMBER_INT ? p.getIntValue() : p.getValueAsInt();
+                } catch (InputCoercionException e) {
+                    // fuera de rango de int: el data binding lo envuelve con la ruta del campo
+                    throw JsonMappingException.wrapWithPath(e, PassengerEventIn.class, p.currentName());
+                }
+            case VALUE_NULL:
+                return 0;
+            case VALUE_STRING: {
+                char[] buf = p.getTextCharacters();
+                int start = p.getTextOffset();
+                int end = start + p.getTextLength();
+                while (start < end && Character.isWhitespace(buf[start])) start++;
+                while (end > start && Character.isWhitespace(buf[end - 1])) end--;
+                if (start == end) return 0;
+                boolean negative = buf[start] == '-';
+                int i = negative || buf[start] == '+' ? start + 1 : start;
+                if (i == end) throw invalidInt(p);
+                long value = 0;
+                for (; i < end; i++) {
+                    int digit = buf[i] - '0';
+                    if (digit < 0 || digit > 9) throw invalidInt(p);
+                    value = value * 10 + digit;
+                    if (value > (long) Integer.MAX_VALUE + 1) throw invalidInt(p);
+                }
+                value = negative ? -value : value;
+                if (value > Integer.MAX_VALUE) throw invalidInt(p);
+                return (int) value;
+            }
+            default:
+                throw MismatchedInputException.from(p, Integer.class,
+                        "Cannot deserialize value of type `java.lang.Integer` from " + t);
+        }
+    }
+
+    private static double readDouble(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return p.getDoubleValue();
+            case VALUE_NULL:
+                return 0;
+            case VALUE_STRING: {
+                String text = p.getText().trim();
+                if (text.isEmpty()) return 0;
+                try {
+                    return Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    throw InvalidFormatException.from(p, "Cannot deserialize value of type `java.lang.Double` from String \""
+                            + text + "\": not a valid `Double` value", text, Double.class);
+                }
+            }
+            default:
+                throw MismatchedInputException.from(p, Double.class,
+                        "Cannot deserialize value of type `java.lang.Double` from " + t);
+        }
+    }
+
+    private Instant readInstant(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_STRING:
+                return parseCheckin(p);
+            case VALUE_NUMBER_INT:
+                return Instant.ofEpochSecond(p.getLongValue());
+            case VALUE_NUMBER_FLOAT: {
+                BigDecimal seconds = p.getDecimalValue();
+                long whole = seconds.longValue();
+                int nanos = seconds.subtract(BigDecimal.valueOf(whole)).movePointRight(9).intValue();
+                return Instant.ofEpochSecond(whole, nanos);
+            }
+            case VALUE_NULL:
+                return null;
+            default:
+                throw MismatchedInputException.from(p, Instant.class,
+                        "Cannot deserialize value of type `java.time.Instant` from " + t);
+        }
+    }
+
+    /** yyyy-MM-dd HH:mm:ss sobre el buffer del parser; mismas reglas que ResolverStyle.SMART. */
+    private Instant parseCheckin(JsonParser p) throws IOException {
+        char[] buf = p.getTextCharacters();
+        int start = p.getTextOffset();
+        int end = start + p.getTextLength();
+        while (start < end && Character.isWhitespace(buf[start])) start++;
+        while (end > start && Character.isWhitespace(buf[end - 1])) end--;
+        if (start == end) return null;
+        if (end - start != 19 || buf[start + 4] != '-' || buf[start + 7] != '-' || buf[start + 10] != ' '
+                || buf[start + 13] != ':' || buf[start + 16] != ':') {
+            throw invalidInstant(p);
+        }
+        int year = digits(p, buf, start, 4);
+        int month = digits(p, buf, start + 5, 2);
+        int day = digits(p, buf, start + 8, 2);
+        int hour = digits(p, buf, start + 11, 2);
+        int minute = digits(p, buf, start + 14, 2);
+        int second = digits(p, buf, start + 17, 2);
+        if (month < 1 || month > 12 || day < 1 || day > 31 || minute > 59 || second > 59
+                || hour > 24 || (hour == 24 && (minute != 0 || second != 0))) {
+            throw invalidInstant(p);
+        }
+        // SMART: día 29-31 inexistente en el mes → último día del mes; 24:00:00 → medianoche del día siguiente
+        day = Math.min(day, lengthOfMonth(year, month));
+        long localEpochSecond = daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+        int offsetSeconds = fixedOffset != null ? fixedOffset.getTotalSeconds()
+                : zoneRules.getOffset(LocalDateTime.ofEpochSecond(localEpochSecond, 0, ZoneOffset.UTC)).getTotalSeconds();
+        return Instant.ofEpochSecond(localEpochSecond - offsetSeconds);
+    }
+
+    private static int digits(JsonParser p, char[] buf, int from, int count) throws IOException {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) throw invalidInstant(p);
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /** Días desde 1970-01-01 del calendario gregoriano proléptico (algoritmo days_from_civil). */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        int yoe = (int) (y - era * 400);
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097 + doe - 719_468;
+    }
+
+    private static InvalidFormatException invalidInt(JsonParser p) throws IOException {
+        String text = p.getText();
+        return InvalidFormatException.from(p, "Cannot deserialize value of type `java.lang.Integer` from String \""
+                + text + "\": not a valid `java.lang.Integer` value", text, Integer.class);
+    }
+
+    private static InvalidFormatException invalidInstant(JsonParser p) throws IOException {
+        String text = p.getText();
+        return InvalidFormatException.from(p, "Cannot deserialize value of type `java.time.Instant` from String \""
+                + text + "\": expected format yyyy-MM-dd HH:mm:ss", text, Instant.class);
+    }
+
+    // ---- tabla de nombres y zona, calculadas una vez ----
+
+    /** Nombre JSON (canónico o alias) → campo, leído de las anotaciones de PassengerEventIn. */
+    private static Map<String, Field> fieldTable() {
+        Map<String, Field> table = new HashMap<>();
+        for (java.lang.reflect.Field f : PassengerEventIn.class.getDeclaredFields()) {
+            JsonProperty property = f.getAnnotation(JsonProperty.class);
+            if (property == null) continue;
+            Field field = Field.valueOf(f.getName().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT));
+            table.put(property.value(), field);
+            JsonAlias alias = f.getAnnotation(JsonAlias.class);
+            if (alias != null) {
+                for (String a : alias.value()) table.put(a, field);
+            }
+        }
+        return Map.copyOf(table);
+    }
+
+    /** Offset que aplica el data binding de Jackson a un checkin_time sin zona. */
+    private static ZoneOffset probeOffset(ObjectMapper json, String localDateTime) {
+        try {
+            Instant parsed = json.readValue("{\"checkin_time\":\"" + localDateTime + "\"}", PassengerEventIn.class).getCheckinTime();
+            long local = LocalDateTime.parse(localDateTime.replace(' ', 'T')).toEpochSecond(ZoneOffset.UTC);
+            return ZoneOffset.ofTotalSeconds((int) (local - parsed.getEpochSecond()));
+        } catch (Exception e) {
+            return json.getDeserializationConfig().getTimeZone().toZoneId().getRules()
+                    .getOffset(LocalDateTime.parse(localDateTime.replace(' ', 'T')));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+-- Conversión de una tabla de conteo (conteo_pasajeros o conteo_pasajeros_descartados) a tabla particionada
+-- por rango de fecha (app.partitions.convert-on-startup=true), conservando datos, secuencia de id e índices.
+-- La tabla actual pasa a ser la partición <tabla>_legacy desde MINVALUE hasta el inicio del periodo siguiente
+-- al actual (p_periodo: 'month' | 'day'); las filas posteriores van a <tabla>_default, que recibe toda fila
+-- fuera de las particiones creadas. La PK pasa a ser (id, fecha). Toma un lock exclusivo de la tabla mientras
+-- construye el índice único de legacy: correrla en una ventana de mantenimiento.
+-- Devuelve el límite superior de legacy, o NULL si la tabla ya estaba particionada.
+CREATE OR REPLACE FUNCTION particionar_conteo(p_tabla text, p_periodo text)
+RETURNS timestamp
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_legacy   text := p_tabla || '_legacy';
+    v_default  text := p_tabla || '_default';
+    v_hasta    timestamp;
+    v_seq      text;
+    v_ultimo   bigint;
+    v_identity boolean;
+    v_pk       boolean;
+    v_idx      record;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(p_tabla)) THEN
+        RETURN NULL;
+    END IF;
+
+    EXECUTE format('LOCK TABLE %I IN ACCESS EXCLUSIVE MODE', p_tabla);
+    v_hasta := date_trunc(p_periodo, LOCALTIMESTAMP) + ('1 ' || p_periodo)::interval;
+
+    -- 1) último id entregado (serial o identity) para continuar la numeración
+    v_seq := pg_get_serial_sequence(p_tabla, 'id');
+    SELECT a.attidentity <> '' INTO v_identity
+      FROM pg_attribute a WHERE a.attrelid = to_regclass(p_tabla) AND a.attname = 'id';
+    IF v_seq IS NOT NULL THEN
+        EXECUTE format('SELECT last_value FROM %s', v_seq) INTO v_ultimo;
+    END IF;
+    EXECUTE format('SELECT GREATEST(COALESCE(MAX(id), 0), %s) FROM %I', COALESCE(v_ultimo, 0), p_tabla) INTO v_ultimo;
+    SELECT EXISTS (SELECT 1 FROM pg_index WHERE indrelid = to_regclass(p_tabla) AND indisprimary) INTO v_pk;
+
+    -- 2) la tabla actual queda como legacy y se crea la particionada con su mismo esquema
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', p_tabla, v_legacy);
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING STORAGE '
+                   'INCLUDING COMMENTS INCLUDING IDENTITY) PARTITION BY RANGE (fecha)', p_tabla, v_legacy);
+    IF v_identity THEN
+        -- una partición no puede tener identity propio: la numeración sigue en la secuencia de la nueva tabla
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY', v_legacy);
+        PERFORM setval(pg_get_serial_sequence(p_tabla, 'id'), GREATEST(v_ultimo, 1));
+    ELSIF v_seq IS NOT NULL THEN
+        EXECUTE format('ALTER SEQUENCE %s OWNED BY %I.id', v_seq, p_tabla);
+    END IF;
+    IF v_pk THEN
+        EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, fecha)', p_tabla);
+    END IF;
+
+    -- 3) índices no únicos de la tabla original, ahora sobre la particionada (legacy reutiliza los suyos)
+    FOR v_idx IN
+        SELECT pg_get_indexdef(i.indexrelid) AS def, i.indisunique, c.relname
+          FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+         WHERE i.indrelid = to_regclass(v_legacy) AND NOT i.indisprimary
+    LOOP
+        IF v_idx.indisunique THEN
+            RAISE NOTICE 'Índice único % omitido: en una tabla particionada debe incluir fecha', v_idx.relname;
+        ELSE
+            EXECUTE regexp_replace(v_idx.def, '^CREATE INDEX \S+ ON \S+', 'CREATE INDEX ON ' || quote_ident(p_tabla));
+        END IF;
+    END LOOP;
+
+    -- 4) partición por defecto y filas de legacy posteriores a su rango
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', v_default, p_tabla);
+    EXECUTE format('INSERT INTO %I OVERRIDING SYSTEM VALUE SELECT * FROM %I WHERE fecha >= %L',
+                   v_default, v_legacy, v_hasta);
+    EXECUTE format('DELETE FROM %I WHERE fecha >= %L', v_legacy, v_hasta);
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (MINVALUE) TO (%L)',
+                   p_tabla, v_legacy, v_hasta);
+    RETURN v_hasta;
+END;
+$$;
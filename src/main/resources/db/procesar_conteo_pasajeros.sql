@@ -0,0 +1,179 @@
+-- Procesamiento completo de un evento de conteo en una sola llamada (app.processing-mode=function).
+-- Replica ProcessPassengerEventService.processSync: verificación de vehículo, lock, acumulados previos,
+-- netos no negativos, descarte por pico, programación activa / punto en blanco, insert y update de vehiculos.
+-- p_dia es el día de la programación activa, calculado en el servicio con app.timezone (el mismo que usa el
+-- modo jdbc): no depende de la zona de la sesión de BD.
+-- Devuelve el Status: 'OK' | 'DISCARDED' | 'NOT_FOUND'.
+-- La firma anterior (sin p_dia) se elimina: CREATE OR REPLACE con otros parámetros crearía una sobrecarga.
+DROP FUNCTION IF EXISTS procesar_conteo_pasajeros(
+    varchar, timestamptz,
+    integer, integer, integer, integer, integer, integer, integer, integer, integer,
+    double precision, double precision, integer, integer, boolean);
+
+CREATE OR REPLACE FUNCTION procesar_conteo_pasajeros(
+    p_idvehiculo        varchar,
+    p_fecha             timestamptz,
+    p_door1_in          integer, p_door1_out integer, p_door1_block integer,
+    p_door2_in          integer, p_door2_out integer, p_door2_block integer,
+    p_door3_in          integer, p_door3_out integer, p_door3_block integer,
+    p_latitud           double precision,
+    p_longitud          double precision,
+    p_tolerancia        integer,
+    p_umbral_minutos    integer,
+    p_excluido          boolean,
+    p_dia               date
+) RETURNS varchar
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_last_date     timestamptz;
+    v_has_history   boolean;
+    v_prev_program  bigint;
+    v_program       bigint;
+    v_point         bigint;
+    v_blank         boolean;
+    -- raw
+    r_in  integer := p_door1_in + p_door2_in + p_door3_in;
+    r_out integer := p_door1_out + p_door2_out + p_door3_out;
+    r_blk integer := p_door1_block + p_door2_block + p_door3_block;
+    -- prev
+    a_in  integer := 0; a_out  integer := 0; a_blk  integer := 0;
+    a1_in integer := 0; a1_out integer := 0; a1_blk integer := 0;
+    a2_in integer := 0; a2_out integer := 0; a2_blk integer := 0;
+    a3_in integer := 0; a3_out integer := 0;
+    -- net
+    n_in  integer; n_out  integer; n_blk  integer;
+    n1_in integer; n1_out integer; n1_blk integer;
+    n2_in integer; n2_out integer; n2_blk integer;
+    n3_in integer; n3_out integer;
+    v_minutes       double precision;
+    v_current_date  timestamptz;
+BEGIN
+    -- 0) Verificar vehículo + lock de la fila hasta el commit
+    IF NOT EXISTS (SELECT 1 FROM vehiculos WHERE idvehiculo = p_idvehiculo) THEN
+        RETURN 'NOT_FOUND';
+    END IF;
+    SELECT fecha_ultimo_conteo INTO v_last_date
+      FROM vehiculos WHERE idvehiculo = p_idvehiculo FOR UPDATE;
+
+    -- 2) flag history
+    v_has_history := EXISTS (SELECT 1 FROM conteo_pasajeros WHERE idvehiculo = p_idvehiculo);
+
+    -- 3) prev accum si aplica
+    IF v_last_date IS NOT NULL AND v_has_history THEN
+        SELECT idprogramacion,
+               COALESCE(acumulada_subida, 0), COALESCE(acumulada_bajada, 0), COALESCE(acumulada_bloqueo, 0),
+               COALESCE(acumulada_subida_puerta1, 0), COALESCE(acumulada_bajada_puerta1, 0), COALESCE(acumulada_bloqueo_puerta1, 0),
+               COALESCE(acumulada_subida_puerta2, 0), COALESCE(acumulada_bajada_puerta2, 0), COALESCE(acumulada_bloqueo_puerta2, 0)
+          INTO v_prev_program, a_in, a_out, a_blk, a1_in, a1_out, a1_blk, a2_in, a2_out, a2_blk
+          FROM conteo_pasajeros
+         WHERE idvehiculo = p_idvehiculo AND fecha <= v_last_date
+         ORDER BY id DESC
+         LIMIT 1;
+        IF NOT FOUND THEN
+            a_in := 0; a_out := 0; a_blk := 0;
+            a1_in := 0; a1_out := 0; a1_blk := 0;
+            a2_in := 0; a2_out := 0; a2_blk := 0;
+            v_prev_program := NULL;
+        END IF;
+        -- la puerta 3 no se guarda: sus acumulados previos son total - puerta1 - puerta2
+        a3_in := GREATEST(a_in - a1_in - a2_in, 0);
+        a3_out := GREATEST(a_out - a1_out - a2_out, 0);
+    END IF;
+
+    -- 4) netos no negativos
+    n_in  := GREATEST(r_in - a_in, 0);             n_out  := GREATEST(r_out - a_out, 0);             n_blk  := GREATEST(r_blk - a_blk, 0);
+    n1_in := GREATEST(p_door1_in - a1_in, 0);      n1_out := GREATEST(p_door1_out - a1_out, 0);      n1_blk := GREATEST(p_door1_block - a1_blk, 0);
+    n2_in := GREATEST(p_door2_in - a2_in, 0);      n2_out := GREATEST(p_door2_out - a2_out, 0);      n2_blk := GREATEST(p_door2_block - a2_blk, 0);
+    n3_in := GREATEST(p_door3_in - a3_in, 0);      n3_out := GREATEST(p_door3_out - a3_out, 0);
+
+    -- 5) minutos desde last_date (segundos enteros, como Duration.getSeconds())
+    IF v_last_date IS NOT NULL THEN
+        v_minutes := floor(EXTRACT(EPOCH FROM (now() - v_last_date))) / 60.0;
+    END IF;
+
+    -- 6) descarte por pico
+    IF v_last_date IS NOT NULL
+       AND (n_in >= p_tolerancia OR n1_in >= p_tolerancia OR n2_in >= p_tolerancia OR n3_in >= p_tolerancia
+            OR n_out >= p_tolerancia OR n1_out >= p_tolerancia OR n2_out >= p_tolerancia OR n3_out >= p_tolerancia)
+       AND v_minutes < p_umbral_minutos
+       AND NOT p_excluido THEN
+        INSERT INTO conteo_pasajeros_descartados (
+            fecha, idvehiculo,
+            acumulada_subida, cantidad_subida,
+            acumulada_bajada, cantidad_bajada,
+            acumulada_bloqueo, cantidad_bloqueo,
+            latitud, longitud, idprogramacion, idpunto,
+            acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+            cantidad_subida_puerta1, cantidad_bajada_puerta1, cantidad_bloqueo_puerta1,
+            acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2,
+            cantidad_subida_puerta2, cantidad_bajada_puerta2, cantidad_bloqueo_puerta2
+        ) VALUES (
+            NOW(), p_idvehiculo,
+            r_in, n_in, r_out, n_out, r_blk, n_blk,
+            p_latitud, p_longitud, NULL, NULL,
+            p_door1_in, p_door1_out, p_door1_block, n1_in, n1_out, n1_blk,
+            p_door2_in, p_door2_out, p_door2_block, n2_in, n2_out, n2_blk
+        );
+        RETURN 'DISCARDED';
+    END IF;
+
+    -- 7) viaje actual
+    SELECT idprogramacion INTO v_program
+      FROM progvehiculos
+     WHERE idvehiculo = p_idvehiculo AND activa = 'S'
+       AND fechasalida >= p_dia AND fechasalida < p_dia + 1
+     ORDER BY idprogramacion DESC LIMIT 1;
+
+    -- 8) punto anterior
+    IF v_program IS NULL AND v_last_date IS NOT NULL AND v_has_history AND v_prev_program IS NOT NULL THEN
+        SELECT idpunto,
+               (cantidad_subida IS NULL OR cantidad_bajada IS NULL OR cantidad_bloqueo IS NULL)
+          INTO v_point, v_blank
+          FROM rutascontrol
+         WHERE idprogramacion = v_prev_program
+         ORDER BY orden DESC
+         LIMIT 1;
+        IF FOUND AND v_blank THEN
+            v_program := v_prev_program;
+            UPDATE progvehiculos
+               SET numeropasajeros = COALESCE(numeropasajeros,0) + n_in,
+                   numerobajadas   = COALESCE(numerobajadas,0)   + n_out,
+                   numerobloqueos  = COALESCE(numerobloqueos,0)  + n_blk
+             WHERE idprogramacion = v_program;
+        ELSE
+            v_point := NULL;
+        END IF;
+    END IF;
+
+    -- 9) ajuste de fecha (Duration.toDays() trunca hacia cero)
+    v_current_date := CASE
+        WHEN abs(trunc(EXTRACT(EPOCH FROM (now() - p_fecha)) / 86400)) > 1 THEN now()
+        ELSE p_fecha
+    END;
+
+    -- 10) insert final + update vehiculos
+    INSERT INTO conteo_pasajeros (
+        fecha, idvehiculo,
+        acumulada_subida, cantidad_subida,
+        acumulada_bajada, cantidad_bajada,
+        acumulada_bloqueo, cantidad_bloqueo,
+        latitud, longitud, idprogramacion, idpunto,
+        acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+        cantidad_subida_puerta1, cantidad_bajada_puerta1, cantidad_bloqueo_puerta1,
+        acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2,
+        cantidad_subida_puerta2, cantidad_bajada_puerta2, cantidad_bloqueo_puerta2
+    ) VALUES (
+        p_fecha, p_idvehiculo,
+        r_in, n_in, r_out, n_out, r_blk, n_blk,
+        p_latitud, p_longitud, v_program, v_point,
+        p_door1_in, p_door1_out, p_door1_block, n1_in, n1_out, n1_blk,
+        p_door2_in, p_door2_out, p_door2_block, n2_in, n2_out, n2_blk
+    );
+
+    UPDATE vehiculos SET fecha_ultimo_conteo = v_current_date, version_conteo = version_conteo + 1
+     WHERE idvehiculo = p_idvehiculo;
+
+    RETURN 'OK';
+END;
+$$;
@@ -0,0 +1,24 @@
+-- Rollups de netos por vehículo y por programación (app.rollup.enabled=true). granularidad: 'm' minuto | 'h' hora;
+-- inicio es el comienzo del bucket. Los mantiene RollupEngine sumando deltas; DDL válido en Postgres y H2.
+
+CREATE TABLE IF NOT EXISTS conteo_rollup_vehiculo (
+    idvehiculo     VARCHAR(50) NOT NULL,
+    granularidad   CHAR(1)     NOT NULL,
+    inicio         TIMESTAMP   NOT NULL,
+    eventos        BIGINT      NOT NULL,
+    subidas        BIGINT      NOT NULL,
+    bajadas        BIGINT      NOT NULL,
+    bloqueos       BIGINT      NOT NULL,
+    PRIMARY KEY (idvehiculo, granularidad, inicio)
+);
+
+CREATE TABLE IF NOT EXISTS conteo_rollup_programacion (
+    idprogramacion BIGINT      NOT NULL,
+    granularidad   CHAR(1)     NOT NULL,
+    inicio         TIMESTAMP   NOT NULL,
+    eventos        BIGINT      NOT NULL,
+    subidas        BIGINT      NOT NULL,
+    bajadas        BIGINT      NOT NULL,
+    bloqueos       BIGINT      NOT NULL,
+    PRIMARY KEY (idprogramacion, granularidad, inicio)
+);
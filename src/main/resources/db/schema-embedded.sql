@@ -0,0 +1,85 @@
+-- Esquema mínimo para app.repository=embedded (H2): solo las tablas y columnas que usa el servicio.
+-- Los nombres y tipos siguen a los de Postgres para que las mismas sentencias de PassengerEventJdbcRepository apliquen.
+
+CREATE TABLE IF NOT EXISTS vehiculos (
+    idvehiculo          VARCHAR(50) PRIMARY KEY,
+    fecha_ultimo_conteo TIMESTAMP,
+    version_conteo      BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS progvehiculos (
+    idprogramacion  BIGINT PRIMARY KEY,
+    idvehiculo      VARCHAR(50) NOT NULL,
+    activa          CHAR(1) NOT NULL,
+    fechasalida     TIMESTAMP NOT NULL,
+    numeropasajeros INTEGER,
+    numerobajadas   INTEGER,
+    numerobloqueos  INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS rutascontrol (
+    idprogramacion   BIGINT NOT NULL,
+    idpunto          BIGINT NOT NULL,
+    orden            INTEGER NOT NULL,
+    cantidad_subida  INTEGER,
+    cantidad_bajada  INTEGER,
+    cantidad_bloqueo INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS conteo_pasajeros (
+    id                        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    fecha                     TIMESTAMP NOT NULL,
+    idvehiculo                VARCHAR(50) NOT NULL,
+    acumulada_subida          INTEGER,
+    cantidad_subida           INTEGER,
+    acumulada_bajada          INTEGER,
+    cantidad_bajada           INTEGER,
+    acumulada_bloqueo         INTEGER,
+    cantidad_bloqueo          INTEGER,
+    latitud                   DOUBLE PRECISION,
+    longitud                  DOUBLE PRECISION,
+    idprogramacion            BIGINT,
+    idpunto                   BIGINT,
+    acumulada_subida_puerta1  INTEGER,
+    acumulada_bajada_puerta1  INTEGER,
+    acumulada_bloqueo_puerta1 INTEGER,
+    cantidad_subida_puerta1   INTEGER,
+    cantidad_bajada_puerta1   INTEGER,
+    cantidad_bloqueo_puerta1  INTEGER,
+    acumulada_subida_puerta2  INTEGER,
+    acumulada_bajada_puerta2  INTEGER,
+    acumulada_bloqueo_puerta2 INTEGER,
+    cantidad_subida_puerta2   INTEGER,
+    cantidad_bajada_puerta2   INTEGER,
+    cantidad_bloqueo_puerta2  INTEGER
+);
+
+CREATE INDEX IF NOT EXISTS conteo_pasajeros_vehiculo_idx ON conteo_pasajeros (idvehiculo, id);
+
+CREATE TABLE IF NOT EXISTS conteo_pasajeros_descartados (
+    id                        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    fecha                     TIMESTAMP NOT NULL,
+    idvehiculo                VARCHAR(50) NOT NULL,
+    acumulada_subida          INTEGER,
+    cantidad_subida           INTEGER,
+    acumulada_bajada          INTEGER,
+    cantidad_bajada           INTEGER,
+    acumulada_bloqueo         INTEGER,
+    cantidad_bloqueo          INTEGER,
+    latitud                   DOUBLE PRECISION,
+    longitud                  DOUBLE PRECISION,
+    idprogramacion            BIGINT,
+    idpunto                   BIGINT,
+    acumulada_subida_puerta1  INTEGER,
+    acumulada_bajada_puerta1  INTEGER,
+    acumulada_bloqueo_puerta1 INTEGER,
+    cantidad_subida_puerta1   INTEGER,
+    cantidad_bajada_puerta1   INTEGER,
+    cantidad_bloqueo_puerta1  INTEGER,
+    acumulada_subida_puerta2  INTEGER,
+    acumulada_bajada_puerta2  INTEGER,
+    acumulada_bloqueo_puerta2 INTEGER,
+    cantidad_subida_puerta2   INTEGER,
+    cantidad_bajada_puerta2   INTEGER,
+    cantidad_bloqueo_puerta2  INTEGER
+);
@@ -0,0 +1,18 @@
+-- Proyección con la última fila de conteo_pasajeros por vehículo (app.vehicle-state.mode=write|read).
+-- La mantiene PassengerEventJdbcRepository en la misma transacción que el insert; DDL válido en Postgres y H2.
+
+CREATE TABLE IF NOT EXISTS vehicle_state (
+    idvehiculo                VARCHAR(50) PRIMARY KEY,
+    has_history               BOOLEAN NOT NULL,
+    fecha                     TIMESTAMP NOT NULL,
+    idprogramacion            BIGINT,
+    acumulada_subida          INTEGER,
+    acumulada_bajada          INTEGER,
+    acumulada_bloqueo         INTEGER,
+    acumulada_subida_puerta1  INTEGER,
+    acumulada_bajada_puerta1  INTEGER,
+    acumulada_bloqueo_puerta1 INTEGER,
+    acumulada_subida_puerta2  INTEGER,
+    acumulada_bajada_puerta2  INTEGER,
+    acumulada_bloqueo_puerta2 INTEGER
+);
@@ -0,0 +1,5 @@
+-- Versión de la fila de vehiculos: toda escritura de fecha_ultimo_conteo la incrementa. El modo optimistic
+-- hace compare-and-set sobre ella (no sobre la fecha, que se repite con eventos de igual fecha efectiva).
+-- La aplica PassengerEventJdbcRepository al arrancar si falta; DDL válido en Postgres y H2.
+
+ALTER TABLE vehiculos ADD COLUMN IF NOT EXISTS version_conteo BIGINT NOT NULL DEFAULT 0;
@@ -3,7 +3,11 @@ package com.extreme.passenger;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+/** Levanta el contexto completo sobre el adaptador embebido (H2), sin depender del DB_URL ni de Kafka del entorno. */
+@SpringBootTest(properties = {
+		"spring.datasource.url=", "spring.datasource.username=", "spring.datasource.password=",
+		"app.repository=embedded",
+		"app.kafka.consumer-enabled=false"})
 class PassengerApplicationTests {
 
 	@Test
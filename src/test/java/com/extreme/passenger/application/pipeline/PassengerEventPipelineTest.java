@@ -0,0 +1,145 @@
+package com.extreme.passenger.application.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.extreme.passenger.infrastructure.persistence.memory.InMemoryPassengerEventRepository;
+import com.extreme.passenger.presentation.dto.Status;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Fallos de persist en el pipeline: un lote revertido se reintenta hasta que confirma (ningún evento termina
+ * en ERROR) y los eventos decididos sobre el estado en vuelo de un lote abandonado se re-deciden contra la BD.
+ * Un solo hilo de persist con lotes de una fila, así cada evento es su propia transacción.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=", "spring.datasource.username=", "spring.datasource.password=",
+        "app.repository=memory",
+        "app.kafka.consumer-enabled=false",
+        "app.pipeline.enabled=true",
+        "app.pipeline.persist-workers=1",
+        "app.pipeline.persist-max-batch=1",
+        "app.pipeline.retry-initial-backoff=10ms",
+        "app.pipeline.retry-max-backoff=50ms",
+        "app.passenger-count-tolerance=200",
+        "app.time-threshold-minutes=45"})
+class PassengerEventPipelineTest {
+
+    private static final Instant T0 = Instant.now().minus(30, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.SECONDS);
+
+    @Autowired PassengerEventPipeline pipeline;
+    @Autowired FlakyRepository repository;
+    @Autowired MeterRegistry meterRegistry;
+
+    private final Map<Instant, Status> statuses = new ConcurrentHashMap<>();
+
+    @Test
+    void rolledBackBatchIsRetriedUntilItCommitsAndNoEventEndsInError() throws Exception {
+        repository.addVehicle("PIPE-1", null);
+        AtomicInteger failures = repository.failWhen(rows -> rows.get(0).ev().getIdVehicle().equals("PIPE-1"), 3);
+
+        submit("PIPE-1", T0, 5);
+        submit("PIPE-1", T0.plusSeconds(60), 8);
+        submit("PIPE-1", T0.plusSeconds(120), 12);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> statuses.size() == 3);
+        assertThat(statuses).containsOnlyKeys(T0, T0.plusSeconds(60), T0.plusSeconds(120)).doesNotContainValue(Status.ERROR);
+        assertThat(statuses.values()).containsOnly(Status.OK);
+        assertThat(failures).hasValue(0);
+        assertThat(netIn("PIPE-1")).containsExactly(5, 3, 4);
+    }
+
+    @Test
+    @DirtiesContext
+    void eventsDecidedOverAnAbandonedBatchAreRedecidedAgainstTheDatabase() throws Exception {
+        repository.addVehicle("PIPE-2", null);
+        submit("PIPE-2", T0, 5);
+        await().atMost(Duration.ofSeconds(10)).until(() -> statuses.containsKey(T0));
+
+        // el segundo evento nunca confirma; el tercero se decide sobre su estado en vuelo (neto 12 - 9)
+        Instant poisoned = T0.plusSeconds(60);
+        repository.failWhen(rows -> rows.get(0).ev().getCheckinTime().equals(poisoned), Integer.MAX_VALUE);
+        submit("PIPE-2", poisoned, 9);
+        submit("PIPE-2", T0.plusSeconds(120), 12);
+        await().atMost(Duration.ofSeconds(10)).until(() -> persistDepth() == 1);
+
+        // al detener, el lote que sigue fallando queda sin completar y el tercero se re-decide contra la fila de 5
+        pipeline.stop();
+        assertThat(statuses).containsOnlyKeys(T0, T0.plusSeconds(120));
+        assertThat(statuses.values()).containsOnly(Status.OK);
+        assertThat(netIn("PIPE-2")).containsExactly(5, 7);
+    }
+
+    private void submit(String idVehicle, Instant checkin, int doorIn) throws InterruptedException {
+        String json = """
+                {"vehicleID":"%s","door1_in":%d,"checkin_time":%d}""".formatted(idVehicle, doorIn, checkin.getEpochSecond());
+        pipeline.submit(json.getBytes(StandardCharsets.UTF_8), 0, status -> statuses.put(checkin, status));
+    }
+
+    private List<Integer> netIn(String idVehicle) {
+        return repository.passengerCounts().stream()
+                .filter(r -> r.idVehicle().equals(idVehicle))
+                .map(r -> r.net().getTotalIn())
+                .toList();
+    }
+
+    private double persistDepth() {
+        return meterRegistry.get("passenger.pipeline.depth").tag("stage", "persist").gauge().value();
+    }
+
+    /** Repositorio en memoria cuyo insert de conteos falla (antes de escribir) para los lotes elegidos. */
+    static class FlakyRepository extends InMemoryPassengerEventRepository {
+
+        private volatile Predicate<List<CountRow>> failing = rows -> false;
+        private volatile AtomicInteger remaining = new AtomicInteger();
+
+        FlakyRepository(List<String> seedVehicles) {
+            super(seedVehicles);
+        }
+
+        /** Los próximos times lotes que cumplen failing fallan; devuelve cuántos fallos quedan. */
+        AtomicInteger failWhen(Predicate<List<CountRow>> failing, int times) {
+            this.remaining = new AtomicInteger(times);
+            this.failing = failing;
+            return remaining;
+        }
+
+        @Override public void insertPassengerEventBatch(List<CountRow> rows) {
+            if (!rows.isEmpty() && failing.test(rows) && remaining.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                throw new DataAccessResourceFailureException("BD no disponible");
+            }
+            super.insertPassengerEventBatch(rows);
+        }
+    }
+
+    @TestConfiguration
+    static class FlakyRepositoryConfig {
+
+        @Bean
+        @Primary
+        FlakyRepository flakyRepository(@Value("${app.seed-vehicles:}") List<String> seedVehicles) {
+            return new FlakyRepository(seedVehicles);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.extreme.passenger.application.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.infrastructure.config.AppProperties;
+
+class AccumulatorEngineTest {
+
+    private static final int TOLERANCE = 200;
+    private static final int THRESHOLD_MINUTES = 45;
+
+    private AppProperties props;
+    private AccumulatorEngine engine;
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void setUp() {
+        props = new AppProperties();
+        props.setPassengerCountTolerance(TOLERANCE);
+        props.setTimeThresholdMinutes(THRESHOLD_MINUTES);
+        props.setExcludedIds(List.of("COOCHOFAL250"));
+        props.setTimezone("America/Bogota");
+        engine = new AccumulatorEngine(props);
+    }
+
+    @Test
+    void rawPrevAndNetMatchPreviousCalculationForTotalsAndDoors1And2() {
+        AccumulatorEngine.Workspace w = engine.workspace();
+        for (int i = 0; i < 10_000; i++) {
+            PassengerEvent event = randomEvent("EMBUSA50");
+            Accumulators stored = storedRow(randomEvent("EMBUSA50"));
+
+            Accumulators legacyRaw = Legacy.raw(event);
+            Accumulators legacyNet = Legacy.net(legacyRaw, Legacy.prev(stored));
+
+            AccumulatorEngine.raw(event, w.raw);
+            AccumulatorEngine.prev(stored, w.prev);
+            AccumulatorEngine.net(w.raw, w.prev, w.net);
+
+            assertThat(AccumulatorEngine.toAccumulators(w.raw)).isEqualTo(legacyRaw);
+            Accumulators net = AccumulatorEngine.toAccumulators(w.net);
+            assertThat(withoutDoor3(net)).isEqualTo(withoutDoor3(legacyNet));
+        }
+    }
+
+    @Test
+    void spikeDecisionMatchesPreviousRuleWhenDoor3IsBelowTolerance() {
+        AccumulatorEngine.Workspace w = engine.workspace();
+        Instant now = Instant.parse("2025-08-22T16:00:00.250Z");
+        int compared = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String id = random.nextInt(10) == 0 ? "coochofal250" : "EMBUSA50";
+            PassengerEvent event = randomEvent(id);
+            Accumulators stored = storedRow(randomEvent(id));
+            Instant lastDate = random.nextInt(10) == 0 ? null : now.minusMillis(random.nextInt(90 * 60_000));
+
+            AccumulatorEngine.raw(event, w.raw);
+            AccumulatorEngine.prev(stored, w.prev);
+            AccumulatorEngine.net(w.raw, w.prev, w.net);
+            if (w.net[9] >= TOLERANCE || w.net[10] >= TOLERANCE) continue;
+            compared++;
+
+            Legacy legacy = new Legacy(props, now);
+            Accumulators legacyNet = Legacy.net(Legacy.raw(event), Legacy.prev(stored));
+            Optional<Instant> lastDateOpt = Optional.ofNullable(lastDate);
+            boolean expected = legacy.isSpike(id, lastDateOpt, legacyNet, legacy.minutesSince(lastDateOpt));
+
+            double minutes = AccumulatorEngine.minutesSince(lastDate, now);
+            assertThat(engine.isSpike(id, lastDate, w.net, minutes)).isEqualTo(expected);
+        }
+        assertThat(compared).isGreaterThan(1_000);
+    }
+
+    @Test
+    void door3IsDerivedFromTotalsAndTreatedLikeTheOtherDoors() {
+        AccumulatorEngine.Workspace w = engine.workspace();
+        PassengerEvent previous = PassengerEvent.builder().idVehicle("EMBUSA50")
+                .door1In(10).door1Out(8).door2In(5).door2Out(4).door3In(7).door3Out(6).build();
+        PassengerEvent current = PassengerEvent.builder().idVehicle("EMBUSA50")
+                .door1In(11).door1Out(8).door2In(5).door2Out(4).door3In(7 + TOLERANCE).door3Out(9).build();
+
+        AccumulatorEngine.prev(storedRow(previous), w.prev);
+        assertThat(w.prev[AccumulatorEngine.slot(AccumulatorEngine.DOOR3, AccumulatorEngine.IN)]).isEqualTo(7);
+        assertThat(w.prev[AccumulatorEngine.slot(AccumulatorEngine.DOOR3, AccumulatorEngine.OUT)]).isEqualTo(6);
+
+        AccumulatorEngine.raw(current, w.raw);
+        AccumulatorEngine.net(w.raw, w.prev, w.net);
+        assertThat(w.net[AccumulatorEngine.slot(AccumulatorEngine.DOOR3, AccumulatorEngine.IN)]).isEqualTo(TOLERANCE);
+        assertThat(w.net[AccumulatorEngine.slot(AccumulatorEngine.DOOR3, AccumulatorEngine.OUT)]).isEqualTo(3);
+        assertThat(w.net[AccumulatorEngine.slot(AccumulatorEngine.TOTAL, AccumulatorEngine.IN)]).isEqualTo(TOLERANCE + 1);
+
+        Instant now = Instant.now();
+        assertThat(engine.isSpike("EMBUSA50", now.minusSeconds(60), w.net, 1.0)).isTrue();
+        assertThat(engine.isSpike("COOCHOFAL250", now.minusSeconds(60), w.net, 1.0)).isFalse();
+    }
+
+    @Test
+    void minutesAndEffectiveDateMatchZonedCalculation() {
+        Instant now = Instant.parse("2025-08-22T16:00:00.123456789Z");
+        Legacy legacy = new Legacy(props, now);
+        for (int i = 0; i < 10_000; i++) {
+            Instant other = now.plusSeconds(random.nextInt(5 * 86_400) - 3 * 86_400).plusNanos(random.nextInt(1_000_000_000));
+            assertThat(AccumulatorEngine.minutesSince(other, now)).isEqualTo(legacy.minutesSince(Optional.of(other)));
+            assertThat(AccumulatorEngine.effectiveDate(other, now)).isEqualTo(legacy.effectiveDate(other));
+        }
+        assertThat(AccumulatorEngine.minutesSince(null, now)).isNaN();
+    }
+
+    // ---- datos ----
+
+    /** Contadores pequeños (sin picos salvo por reinicios) con alguno ocasionalmente alto. */
+    private PassengerEvent randomEvent(String idVehicle) {
+        return PassengerEvent.builder()
+                .idVehicle(idVehicle)
+                .door1In(count()).door1Out(count()).door1Block(count())
+                .door2In(count()).door2Out(count()).door2Block(count())
+                .door3In(count()).door3Out(count()).door3Block(count())
+                .checkinTime(Instant.now())
+                .build();
+    }
+
+    private int count() {
+        return random.nextInt(20) == 0 ? random.nextInt(400) : random.nextInt(60);
+    }
+
+    /** Fila de conteo_pasajeros tal como la devuelve el repositorio: totales raw, puertas 1 y 2, sin puerta 3. */
+    private static Accumulators storedRow(PassengerEvent event) {
+        Accumulators raw = Legacy.raw(event);
+        raw.setDoor3In(0);
+        raw.setDoor3Out(0);
+        raw.setDoor3Block(0);
+        return raw;
+    }
+
+    private static Accumulators withoutDoor3(Accumulators a) {
+        return Accumulators.builder()
+                .totalIn(a.getTotalIn()).totalOut(a.getTotalOut()).totalBlock(a.getTotalBlock())
+                .door1In(a.getDoor1In()).door1Out(a.getDoor1Out()).door1Block(a.getDoor1Block())
+                .door2In(a.getDoor2In()).door2Out(a.getDoor2Out()).door2Block(a.getDoor2Block())
+                .build();
+    }
+
+    /** Cálculo previo al motor (builders, ZoneId.of y ZonedDateTime por evento), como referencia. */
+    private static final class Legacy {
+
+        private final AppProperties props;
+        private final Instant now;
+
+        Legacy(AppProperties props, Instant now) {
+            this.props = props;
+            this.now = now;
+        }
+
+        private ZoneId zone() { return ZoneId.of(props.getTimezone()); }
+
+        static Accumulators raw(PassengerEvent event) {
+            Accumulators raw = Accumulators.builder()
+                    .door1In(event.getDoor1In()).door1Out(event.getDoor1Out()).door1Block(event.getDoor1Block())
+                    .door2In(event.getDoor2In()).door2Out(event.getDoor2Out()).door2Block(event.getDoor2Block())
+                    .door3In(event.getDoor3In()).door3Out(event.getDoor3Out()).door3Block(event.getDoor3Block())
+                    .build();
+            raw.setTotalIn(raw.getDoor1In() + raw.getDoor2In() + raw.getDoor3In());
+            raw.setTotalOut(raw.getDoor1Out() + raw.getDoor2Out() + raw.getDoor3Out());
+            raw.setTotalBlock(raw.getDoor1Block() + raw.getDoor2Block() + raw.getDoor3Block());
+            return raw;
+        }
+
+        static Accumulators prev(Accumulators a) {
+            return Accumulators.builder()
+                    .totalIn(a.getTotalIn()).totalOut(a.getTotalOut()).totalBlock(a.getTotalBlock())
+                    .door1In(a.getDoor1In()).door1Out(a.getDoor1Out()).door1Block(a.getDoor1Block())
+                    .door2In(a.getDoor2In()).door2Out(a.getDoor2Out()).door2Block(a.getDoor2Block())
+                    .build();
+        }
+
+        static Accumulators net(Accumulators raw, Accumulators prev) {
+            Accumulators net = Accumulators.builder()
+                    .door1In(Math.max(raw.getDoor1In() - prev.getDoor1In(), 0))
+                    .door1Out(Math.max(raw.getDoor1Out() - prev.getDoor1Out(), 0))
+                    .door1Block(Math.max(raw.getDoor1Block() - prev.getDoor1Block(), 0))
+                    .door2In(Math.max(raw.getDoor2In() - prev.getDoor2In(), 0))
+                    .door2Out(Math.max(raw.getDoor2Out() - prev.getDoor2Out(), 0))
+                    .door2Block(Math.max(raw.getDoor2Block() - prev.getDoor2Block(), 0))
+                    .build();
+            net.setTotalIn(Math.max(raw.getTotalIn() - prev.getTotalIn(), 0));
+            net.setTotalOut(Math.max(raw.getTotalOut() - prev.getTotalOut(), 0));
+            net.setTotalBlock(Math.max(raw.getTotalBlock() - prev.getTotalBlock(), 0));
+            return net;
+        }
+
+        Double minutesSince(Optional<Instant> lastDateOpt) {
+            if (lastDateOpt.isEmpty()) return null;
+            ZonedDateTime lastZ = ZonedDateTime.ofInstant(lastDateOpt.get(), zone());
+            Duration delta = Duration.between(lastZ, ZonedDateTime.ofInstant(now, zone()));
+            return delta.getSeconds() / 60.0;
+        }
+
+        boolean isSpike(String idVehicle, Optional<Instant> lastDateOpt, Accumulators net, Double minutesDiff) {
+            int tol = props.getPassengerCountTolerance();
+            boolean spike = net.getTotalIn() >= tol || net.getDoor1In() >= tol || net.getDoor2In() >= tol
+                    || net.getTotalOut() >= tol || net.getDoor1Out() >= tol || net.getDoor2Out() >= tol;
+            boolean inWindow = minutesDiff != null && minutesDiff < props.getTimeThresholdMinutes();
+            boolean excluded = props.getExcludedIds().stream().map(s -> s.toUpperCase(Locale.ROOT))
+                    .anyMatch(s -> s.equals(idVehicle.toUpperCase(Locale.ROOT)));
+            return lastDateOpt.isPresent() && spike && inWindow && !excluded;
+        }
+
+        Instant effectiveDate(Instant eventTs) {
+            ZonedDateTime eventZ = ZonedDateTime.ofInstant(eventTs, zone());
+            long days = Math.abs(Duration.between(eventZ, ZonedDateTime.ofInstant(now, zone())).toDays());
+            return days > 1 ? now : eventTs;
+        }
+    }
+}
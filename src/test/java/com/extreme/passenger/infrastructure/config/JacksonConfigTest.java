@@ -0,0 +1,40 @@
+package com.extreme.passenger.infrastructure.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import com.extreme.passenger.presentation.dto.PassengerEventIn;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+/** checkin_time "yyyy-MM-dd HH:mm:ss" sin zona con el ObjectMapper que Spring Boot arma para REST y Kafka. */
+class JacksonConfigTest {
+
+    private static final String PAYLOAD = """
+            {"vehicleID":"V1","checkin_time":"2024-05-10 08:15:30"}""";
+
+    private final ApplicationContextRunner context = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class))
+            .withPropertyValues("spring.jackson.time-zone=America/Bogota");
+
+    @Test
+    void checkinTimeWithoutZoneIsReadInTheConfiguredZone() {
+        context.withUserConfiguration(JacksonConfig.class).run(ctx -> {
+            PassengerEventIn in = ctx.getBean(ObjectMapper.class).readValue(PAYLOAD, PassengerEventIn.class);
+            assertThat(in.getCheckinTime()).isEqualTo(Instant.parse("2024-05-10T13:15:30Z"));
+        });
+    }
+
+    @Test
+    void withoutTheCustomizerThePatternCannotBeResolvedToAnInstant() {
+        context.run(ctx -> assertThatThrownBy(() -> ctx.getBean(ObjectMapper.class).readValue(PAYLOAD, PassengerEventIn.class))
+                .isInstanceOf(InvalidFormatException.class));
+    }
+}
@@ -0,0 +1,127 @@
+package com.extreme.passenger.infrastructure.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** Commits por partición con un registro lento: el hueco retiene el commit, la revocación y la reasignación. */
+class KeyParallelDispatcherTest {
+
+    private static final TopicPartition TP0 = new TopicPartition("conteos", 0);
+    private static final TopicPartition TP1 = new TopicPartition("conteos", 1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private KeyParallelProps props;
+    private MockConsumer<String, String> consumer;
+    private KeyParallelDispatcher dispatcher;
+    private ConsumerAwareRebalanceListener listener;
+
+    @BeforeEach
+    void setUp() {
+        props = new KeyParallelProps();
+        props.setWorkers(4);
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(List.of(TP0, TP1));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void revokeWaitsForInFlightRecordsAndCommitsTheirPrefix() throws Exception {
+        start(Duration.ofSeconds(5));
+        submitWithSlowSecond();
+        dispatcher.skip(record(TP1, 0));
+
+        // el offset 1 sigue en vuelo: 0 está confirmado y 2 queda retenido detrás del hueco
+        awaitCommitted(TP0, 1);
+        dispatcher.commit(consumer, true);
+        assertThat(committed(TP0)).isEqualTo(1);
+
+        CompletableFuture<Void> revoke = CompletableFuture.runAsync(
+                () -> listener.onPartitionsRevokedBeforeCommit(consumer, List.of(TP0)));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(revoke).isNotDone();
+
+        release.countDown();
+        revoke.get(5, TimeUnit.SECONDS);
+        assertThat(committed(TP0)).isEqualTo(3);
+
+        // la partición que sigue asignada no se vio afectada
+        dispatcher.commit(consumer, true);
+        assertThat(committed(TP1)).isEqualTo(1);
+    }
+
+    @Test
+    void revokeTimeoutCommitsThePrefixAndReassignStartsFromTheRedeliveredOffset() throws Exception {
+        start(Duration.ofMillis(100));
+        submitWithSlowSecond();
+        awaitCommitted(TP0, 1);
+
+        listener.onPartitionsRevokedBeforeCommit(consumer, List.of(TP0));
+        assertThat(committed(TP0)).isEqualTo(1);
+
+        // reasignada: el broker vuelve a entregar desde el offset confirmado; la clave B sigue detrás del intento lento
+        dispatcher.submit(consumer, record(TP0, 1), "B", () -> true);
+        dispatcher.submit(consumer, record(TP0, 2), "C", () -> true);
+        TimeUnit.MILLISECONDS.sleep(100);
+        dispatcher.commit(consumer, true);
+        assertThat(committed(TP0)).isEqualTo(1);
+
+        release.countDown();
+        awaitCommitted(TP0, 3);
+        // el intento lento de la asignación anterior termina sin hacer retroceder el commit
+        dispatcher.commit(consumer, true);
+        assertThat(committed(TP0)).isEqualTo(3);
+    }
+
+    private void start(Duration revokeTimeout) {
+        props.setRevokeTimeout(revokeTimeout);
+        dispatcher = new KeyParallelDispatcher(props, new SimpleMeterRegistry());
+        listener = dispatcher.withOffsets(new ConsumerAwareRebalanceListener() {});
+    }
+
+    /** Offsets 0, 1 y 2 de TP0 con claves distintas; el 1 no termina hasta release. */
+    private void submitWithSlowSecond() throws InterruptedException {
+        dispatcher.submit(consumer, record(TP0, 0), "A", () -> true);
+        dispatcher.submit(consumer, record(TP0, 1), "B", () -> release.await(10, TimeUnit.SECONDS));
+        dispatcher.submit(consumer, record(TP0, 2), "C", () -> true);
+    }
+
+    private void awaitCommitted(TopicPartition tp, long offset) {
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            dispatcher.commit(consumer, true);
+            assertThat(committed(tp)).isEqualTo(offset);
+        });
+    }
+
+    private long committed(TopicPartition tp) {
+        OffsetAndMetadata offset = consumer.committed(Set.of(tp)).get(tp);
+        return offset == null ? -1 : offset.offset();
+    }
+
+    private static ConsumerRecord<String, String> record(TopicPartition tp, long offset) {
+        return new ConsumerRecord<>(tp.topic(), tp.partition(), offset, null, "{}");
+    }
+}
@@ -0,0 +1,76 @@
+package com.extreme.passenger.infrastructure.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.extreme.passenger.infrastructure.consumer.PartitionOffsets.Slot;
+
+/** Prefijo contiguo de offsets terminados: completado fuera de orden, huecos y commits repetidos. */
+class PartitionOffsetsTest {
+
+    private final PartitionOffsets offsets = new PartitionOffsets();
+
+    @Test
+    void outOfOrderCompletionCommitsOnlyTheContiguousPrefix() {
+        Slot s10 = offsets.track(10);
+        Slot s11 = offsets.track(11);
+        Slot s12 = offsets.track(12);
+        assertThat(offsets.advance()).isEqualTo(-1);
+
+        s12.done = true;
+        s11.done = true;
+        assertThat(offsets.advance()).isEqualTo(-1);
+        assertThat(offsets.blocked).isEqualTo(2);
+
+        s10.done = true;
+        assertThat(offsets.advance()).isEqualTo(13);
+        assertThat(offsets.blocked).isZero();
+        assertThat(offsets.drained()).isTrue();
+    }
+
+    @Test
+    void gapHoldsBackTheCommitUntilItCloses() {
+        Slot s0 = offsets.track(0);
+        Slot s1 = offsets.track(1);
+        Slot s2 = offsets.track(2);
+        Slot s3 = offsets.track(3);
+        s0.done = true;
+        s2.done = true;
+        s3.done = true;
+
+        assertThat(offsets.advance()).isEqualTo(1);
+        offsets.committed(1, 0);
+        assertThat(offsets.blocked).isEqualTo(2);
+        assertThat(offsets.drained()).isFalse();
+
+        // sin avance no se repite el commit
+        assertThat(offsets.advance()).isEqualTo(-1);
+
+        s1.done = true;
+        assertThat(offsets.advance()).isEqualTo(4);
+        assertThat(offsets.drained()).isTrue();
+    }
+
+    @Test
+    void offsetsWithHolesFromCompactionCommitPastTheLastDoneSlot() {
+        // los offsets despachados no tienen por qué ser consecutivos (compactación, transacciones)
+        Slot s5 = offsets.track(5);
+        Slot s9 = offsets.track(9);
+        s9.done = true;
+        assertThat(offsets.advance()).isEqualTo(-1);
+        s5.done = true;
+        assertThat(offsets.advance()).isEqualTo(10);
+    }
+
+    @Test
+    void commitIsDueOncePerInterval() {
+        assertThat(offsets.due(1_000, 500)).isTrue();
+        offsets.track(0).done = true;
+        offsets.committed(offsets.advance(), 1_000);
+
+        assertThat(offsets.due(1_400, 500)).isFalse();
+        assertThat(offsets.due(1_500, 500)).isTrue();
+        assertThat(offsets.advance()).isEqualTo(-1);
+    }
+}
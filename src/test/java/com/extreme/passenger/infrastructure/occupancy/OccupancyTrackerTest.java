@@ -0,0 +1,135 @@
+package com.extreme.passenger.infrastructure.occupancy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.port.OccupancyRepository;
+import com.extreme.passenger.domain.port.OccupancyRepository.Trip;
+import com.extreme.passenger.domain.port.PassengerEventRepository.CountRow;
+import com.extreme.passenger.infrastructure.occupancy.OccupancyTracker.Occupancy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** Recorte a cero, reinicio del viaje por programación, aplicación tras commit y reconstrucción. */
+class OccupancyTrackerTest {
+
+    private static final Instant T0 = Instant.now().minus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MINUTES);
+
+    private OccupancyProps props;
+
+    @BeforeEach
+    void setUp() {
+        props = new OccupancyProps();
+        props.setEnabled(true);
+    }
+
+    @Test
+    void onboardIsClampedAtZeroButTotalsAreKept() {
+        OccupancyTracker occupancy = tracker(null);
+        occupancy.record("V1", 7, T0, 2, 5);
+        assertThat(occupancy.vehicle("V1")).contains(new Occupancy("V1", 7L, 0, 2, 5, 1, T0, T0));
+
+        // el exceso de bajadas sigue contando: hacen falta 3 subidas para volver a cero
+        occupancy.record("V1", 7, T0.plusSeconds(60), 6, 0);
+        assertThat(occupancy.vehicle("V1")).map(Occupancy::onboard).contains(3L);
+    }
+
+    @Test
+    void programChangeResetsTheTripAndLateEventsOfThePreviousTripAreIgnored() {
+        OccupancyTracker occupancy = tracker(null);
+        occupancy.record("V1", 7, T0, 10, 2);
+        occupancy.record("V1", 7, T0.plusSeconds(60), 3, 4);
+
+        Instant start = T0.plusSeconds(120);
+        occupancy.record("V1", 8, start, 4, 1);
+        assertThat(occupancy.vehicle("V1")).contains(new Occupancy("V1", 8L, 3, 4, 1, 1, start, start));
+
+        // tardío del viaje anterior: anterior al último evento aplicado, no reinicia
+        occupancy.record("V1", 7, T0.plusSeconds(90), 50, 0);
+        // tardío del viaje en curso: se suma y corre since hacia atrás
+        occupancy.record("V1", 8, start.minusSeconds(10), 2, 0);
+        assertThat(occupancy.vehicle("V1")).contains(new Occupancy("V1", 8L, 5, 6, 1, 2, start.minusSeconds(10), start));
+
+        // sin programación también es otro viaje
+        Instant unprogrammed = start.plusSeconds(60);
+        occupancy.record("V1", -1, unprogrammed, 1, 0);
+        assertThat(occupancy.vehicle("V1")).contains(new Occupancy("V1", null, 1, 1, 0, 1, unprogrammed, unprogrammed));
+    }
+
+    @Test
+    void fleetIsSortedByVehicle() {
+        OccupancyTracker occupancy = tracker(null);
+        occupancy.record("V3", 1, T0, 1, 0);
+        occupancy.record("V1", 2, T0, 2, 0);
+        occupancy.record("V2", -1, T0, 3, 0);
+
+        assertThat(occupancy.fleet()).extracting(Occupancy::idVehicle).containsExactly("V1", "V2", "V3");
+        assertThat(occupancy.vehicle("V9")).isEmpty();
+    }
+
+    @Test
+    void rowsOfATransactionAreAppliedOnlyAfterCommit() {
+        OccupancyTracker occupancy = tracker(null);
+        List<CountRow> rows = List.of(row("V1", 7L, T0, 4, 1), row("V2", null, T0, 2, 0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            occupancy.recordAfterCommit(rows);
+            assertThat(occupancy.fleet()).isEmpty();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(occupancy.fleet()).extracting(Occupancy::idVehicle, Occupancy::programId, Occupancy::onboard)
+                .containsExactly(tuple("V1", 7L, 3L), tuple("V2", null, 2L));
+
+        // sin transacción se aplica de inmediato
+        occupancy.recordAfterCommit(List.of(row("V1", 7L, T0.plusSeconds(60), 1, 0)));
+        assertThat(occupancy.vehicle("V1")).map(Occupancy::onboard).contains(4L);
+    }
+
+    @Test
+    void rebuildLoadsCurrentTripsAndEventsContinueThem() {
+        Trip trip = new Trip("V1", 7L, 15, 8, 2, T0, T0.plusSeconds(60));
+        OccupancyTracker occupancy = tracker(since -> List.of(trip));
+        occupancy.rebuild();
+        assertThat(occupancy.vehicle("V1")).contains(new Occupancy("V1", 7L, 7, 15, 8, 2, T0, T0.plusSeconds(60)));
+
+        occupancy.record("V1", 7, T0.plusSeconds(120), 1, 3);
+        assertThat(occupancy.vehicle("V1")).map(Occupancy::onboard).contains(5L);
+    }
+
+    @Test
+    void disabledTrackerRecordsAndRebuildsNothing() {
+        props.setEnabled(false);
+        OccupancyTracker occupancy = tracker(since -> List.of(new Trip("V1", 7L, 1, 0, 1, T0, T0)));
+        occupancy.rebuild();
+        occupancy.record("V2", 7, T0, 1, 0);
+
+        assertThat(occupancy.fleet()).isEmpty();
+    }
+
+    private OccupancyTracker tracker(OccupancyRepository repository) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (repository != null) beans.addBean("occupancyRepository", repository);
+        return new OccupancyTracker(props, beans.getBeanProvider(OccupancyRepository.class), new SimpleMeterRegistry());
+    }
+
+    private static CountRow row(String idVehicle, Long programId, Instant date, int in, int out) {
+        PassengerEvent ev = PassengerEvent.builder().idVehicle(idVehicle).checkinTime(date).build();
+        Accumulators net = Accumulators.builder().totalIn(in).totalOut(out).build();
+        return new CountRow(ev, programId, null, net, net);
+    }
+}
@@ -0,0 +1,81 @@
+package com.extreme.passenger.infrastructure.persistence;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.extreme.passenger.domain.model.Accumulators;
+
+@TestPropertySource(properties = "app.repository=embedded")
+class EmbeddedPassengerEventRepositoryConformanceTest extends PassengerEventRepositoryConformanceTest {
+
+    private static final String SELECT_ROWS = """
+        SELECT fecha, idprogramacion, idpunto, latitud, longitud,
+               acumulada_subida, acumulada_bajada, acumulada_bloqueo,
+               acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+               acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2,
+               cantidad_subida, cantidad_bajada, cantidad_bloqueo,
+               cantidad_subida_puerta1, cantidad_bajada_puerta1, cantidad_bloqueo_puerta1,
+               cantidad_subida_puerta2, cantidad_bajada_puerta2, cantidad_bloqueo_puerta2
+        FROM %s WHERE idvehiculo = ? ORDER BY id
+        """;
+
+    @Autowired JdbcTemplate jdbc;
+
+    @Override void addVehicle(String idVehicle, Instant lastCount) {
+        jdbc.update("INSERT INTO vehiculos (idvehiculo, fecha_ultimo_conteo) VALUES (?, ?)",
+                idVehicle, lastCount == null ? null : Timestamp.from(lastCount));
+    }
+
+    @Override void addProgram(long programId, String idVehicle, boolean active, LocalDateTime departure) {
+        jdbc.update("INSERT INTO progvehiculos (idprogramacion, idvehiculo, activa, fechasalida) VALUES (?, ?, ?, ?)",
+                programId, idVehicle, active ? "S" : "N", Timestamp.valueOf(departure));
+    }
+
+    @Override void addControlPoint(long programId, long pointId, int order, boolean blank) {
+        Integer count = blank ? null : 0;
+        jdbc.update("""
+                INSERT INTO rutascontrol (idprogramacion, idpunto, orden, cantidad_subida, cantidad_bajada, cantidad_bloqueo)
+                VALUES (?, ?, ?, ?, ?, ?)""", programId, pointId, order, count, count, count);
+    }
+
+    @Override List<Row> passengerCounts(String idVehicle) {
+        return jdbc.query(SELECT_ROWS.formatted("conteo_pasajeros"), (rs, i) -> row(rs, true), idVehicle);
+    }
+
+    @Override List<Row> discardedCounts(String idVehicle) {
+        return jdbc.query(SELECT_ROWS.formatted("conteo_pasajeros_descartados"), (rs, i) -> row(rs, false), idVehicle);
+    }
+
+    @Override List<Integer> programCounters(long programId) {
+        return jdbc.queryForObject(
+                "SELECT numeropasajeros, numerobajadas, numerobloqueos FROM progvehiculos WHERE idprogramacion = ?",
+                (rs, i) -> Arrays.asList(rs.getObject(1, Integer.class), rs.getObject(2, Integer.class), rs.getObject(3, Integer.class)),
+                programId);
+    }
+
+    private static Row row(ResultSet rs, boolean withDate) throws SQLException {
+        return new Row(withDate ? rs.getTimestamp("fecha").toInstant() : null,
+                rs.getObject("idprogramacion", Long.class), rs.getObject("idpunto", Long.class),
+                acc(rs, "acumulada"), acc(rs, "cantidad"),
+                rs.getDouble("latitud"), rs.getDouble("longitud"));
+    }
+
+    private static Accumulators acc(ResultSet rs, String prefix) throws SQLException {
+        return Accumulators.builder()
+                .totalIn(rs.getInt(prefix + "_subida")).totalOut(rs.getInt(prefix + "_bajada")).totalBlock(rs.getInt(prefix + "_bloqueo"))
+                .door1In(rs.getInt(prefix + "_subida_puerta1")).door1Out(rs.getInt(prefix + "_bajada_puerta1"))
+                .door1Block(rs.getInt(prefix + "_bloqueo_puerta1"))
+                .door2In(rs.getInt(prefix + "_subida_puerta2")).door2Out(rs.getInt(prefix + "_bajada_puerta2"))
+                .door2Block(rs.getInt(prefix + "_bloqueo_puerta2"))
+                .build();
+    }
+}
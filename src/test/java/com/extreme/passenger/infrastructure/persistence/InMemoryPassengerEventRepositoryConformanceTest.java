@@ -0,0 +1,54 @@
+package com.extreme.passenger.infrastructure.persistence;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import com.extreme.passenger.infrastructure.persistence.memory.InMemoryPassengerEventRepository;
+import com.extreme.passenger.infrastructure.persistence.memory.InMemoryPassengerEventRepository.CountRecord;
+
+@TestPropertySource(properties = "app.repository=memory")
+class InMemoryPassengerEventRepositoryConformanceTest extends PassengerEventRepositoryConformanceTest {
+
+    @Autowired InMemoryPassengerEventRepository memory;
+
+    @Override void addVehicle(String idVehicle, Instant lastCount) {
+        memory.addVehicle(idVehicle, lastCount);
+    }
+
+    @Override void addProgram(long programId, String idVehicle, boolean active, LocalDateTime departure) {
+        memory.addProgram(programId, idVehicle, active, departure);
+    }
+
+    @Override void addControlPoint(long programId, long pointId, int order, boolean blank) {
+        memory.addControlPoint(programId, pointId, order, blank);
+    }
+
+    @Override List<Row> passengerCounts(String idVehicle) {
+        return memory.passengerCounts().stream()
+                .filter(r -> r.idVehicle().equals(idVehicle))
+                .map(r -> row(r, r.fecha()))
+                .toList();
+    }
+
+    @Override List<Row> discardedCounts(String idVehicle) {
+        return memory.discardedCounts().stream()
+                .filter(r -> r.idVehicle().equals(idVehicle))
+                .map(r -> row(r, null))
+                .toList();
+    }
+
+    @Override List<Integer> programCounters(long programId) {
+        return memory.program(programId)
+                .map(p -> Arrays.asList(p.passengers(), p.alightings(), p.blocks()))
+                .orElseThrow();
+    }
+
+    private static Row row(CountRecord r, Instant fecha) {
+        return new Row(fecha, r.programId(), r.pointId(), r.raw(), r.net(), r.latitude(), r.longitude());
+    }
+}
@@ -0,0 +1,434 @@
+package com.extreme.passenger.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.extreme.passenger.application.service.ProcessPassengerEventBatchService;
+import com.extreme.passenger.application.service.ProcessPassengerEventService;
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.domain.port.PassengerEventRepository;
+import com.extreme.passenger.domain.port.PassengerEventRepository.RepoAcc;
+import com.extreme.passenger.infrastructure.config.AppProperties;
+import com.extreme.passenger.infrastructure.config.ProcessingMode;
+import com.extreme.passenger.presentation.dto.PassengerEventOut;
+import com.extreme.passenger.presentation.dto.Status;
+
+/**
+ * Conformidad de los adaptadores de PassengerEventRepository: las mismas secuencias de eventos, procesadas
+ * por los servicios reales, deben dar los mismos status y las mismas filas en cada adaptador. Cada
+ * subclase levanta el contexto con su app.repository y aporta cómo sembrar y leer las tablas. El datasource
+ * se fuerza al embebido para que ninguna prueba dependa del DB_URL del entorno.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=", "spring.datasource.username=", "spring.datasource.password=",
+        "app.kafka.consumer-enabled=false",
+        "app.excluded-ids=" + PassengerEventRepositoryConformanceTest.EXCLUDED,
+        "app.passenger-count-tolerance=200",
+        "app.time-threshold-minutes=45"})
+abstract class PassengerEventRepositoryConformanceTest {
+
+    static final String EXCLUDED = "CONF-EXCLUDED";
+
+    private static final AtomicInteger VEHICLES = new AtomicInteger();
+    private static final AtomicLong IDS = new AtomicLong(1_000);
+
+    @Autowired PassengerEventRepository repository;
+    @Autowired ProcessPassengerEventService service;
+    @Autowired ProcessPassengerEventBatchService batchService;
+    @Autowired TransactionTemplate tx;
+    @Autowired AppProperties props;
+
+    /** Fila de conteo_pasajeros o conteo_pasajeros_descartados (fecha null en descartes: la pone NOW()). */
+    record Row(Instant fecha, Long programId, Long pointId, Accumulators raw, Accumulators net,
+               double latitude, double longitude) {}
+
+    // ---- siembra y lectura, propias de cada adaptador ----
+
+    abstract void addVehicle(String idVehicle, Instant lastCount);
+
+    abstract void addProgram(long programId, String idVehicle, boolean active, LocalDateTime departure);
+
+    abstract void addControlPoint(long programId, long pointId, int order, boolean blank);
+
+    abstract List<Row> passengerCounts(String idVehicle);
+
+    abstract List<Row> discardedCounts(String idVehicle);
+
+    /** numeropasajeros, numerobajadas, numerobloqueos (null si nunca se actualizaron). */
+    abstract List<Integer> programCounters(long programId);
+
+    // ---- procesamiento ----
+
+    @Test
+    void firstEventWithoutHistoryStoresRawAsNetAndActiveProgram() {
+        String id = vehicle(null);
+        long programId = IDS.incrementAndGet();
+        addProgram(programId, id, true, today().plusMinutes(1));
+        Instant checkin = recent(5);
+
+        assertThat(process(event(id, checkin, 10, 4, 3, 1)).getStatus()).isEqualTo(Status.OK);
+
+        assertThat(passengerCounts(id)).containsExactly(
+                new Row(checkin, programId, null, acc(10, 4, 3, 1), acc(10, 4, 3, 1), 4.6, -74.1));
+        assertThat(repository.getLastDate(id)).contains(checkin);
+        assertThat(discardedCounts(id)).isEmpty();
+    }
+
+    @Test
+    void spikeWithinWindowIsDiscardedAndVehicleKeepsLastDate() {
+        String id = vehicle(null);
+        Instant first = recent(10);
+
+        assertThat(process(event(id, first, 100, 50, 10, 5)).getStatus()).isEqualTo(Status.OK);
+        assertThat(process(event(id, recent(5), 320, 60, 10, 5)).getStatus()).isEqualTo(Status.DISCARDED);
+
+        assertThat(passengerCounts(id)).hasSize(1);
+        assertThat(discardedCounts(id)).containsExactly(
+                new Row(null, null, null, acc(320, 60, 10, 5), acc(220, 10, 0, 0), 4.6, -74.1));
+        assertThat(repository.getLastDate(id)).contains(first);
+    }
+
+    @Test
+    void spikeOutsideWindowAndExcludedVehiclesAreAccepted() {
+        String id = vehicle(null);
+        assertThat(process(event(id, recent(60), 100, 50, 10, 5)).getStatus()).isEqualTo(Status.OK);
+        assertThat(process(event(id, recent(1), 400, 50, 10, 5)).getStatus()).isEqualTo(Status.OK);
+
+        addVehicle(EXCLUDED, null);
+        assertThat(process(event(EXCLUDED, recent(10), 100, 50, 10, 5)).getStatus()).isEqualTo(Status.OK);
+        assertThat(process(event(EXCLUDED, recent(5), 400, 50, 10, 5)).getStatus()).isEqualTo(Status.OK);
+
+        assertThat(passengerCounts(id)).extracting(Row::net)
+                .containsExactly(acc(100, 50, 10, 5), acc(300, 0, 0, 0));
+        assertThat(passengerCounts(EXCLUDED)).extracting(Row::net)
+                .containsExactly(acc(100, 50, 10, 5), acc(300, 0, 0, 0));
+    }
+
+    @Test
+    void counterResetGivesZeroNetInsteadOfNegative() {
+        String id = vehicle(null);
+        assertThat(process(event(id, recent(10), 100, 50, 10, 5)).getStatus()).isEqualTo(Status.OK);
+        assertThat(process(event(id, recent(5), 3, 2, 1, 0)).getStatus()).isEqualTo(Status.OK);
+
+        assertThat(passengerCounts(id)).extracting(Row::net)
+                .containsExactly(acc(100, 50, 10, 5), acc(0, 0, 0, 0));
+    }
+
+    @Test
+    void unknownVehicleIsNotFoundAndWritesNothing() {
+        String id = "CONF-UNKNOWN-" + VEHICLES.incrementAndGet();
+
+        assertThat(process(event(id, recent(1), 1, 1, 1, 1)).getStatus()).isEqualTo(Status.NOT_FOUND);
+
+        assertThat(passengerCounts(id)).isEmpty();
+        assertThat(discardedCounts(id)).isEmpty();
+    }
+
+    @Test
+    void withoutActiveProgramRowGoesToBlankLastPointOfPreviousProgram() {
+        String id = vehicle(null);
+        long programId = IDS.incrementAndGet();
+        long pointId = IDS.incrementAndGet();
+        addProgram(programId, id, true, today().minusDays(2));
+        addControlPoint(programId, IDS.incrementAndGet(), 1, false);
+        addControlPoint(programId, pointId, 2, true);
+        Instant previous = recent(20);
+        history(id, previous, programId, acc(100, 50, 10, 5));
+
+        Instant checkin = recent(5);
+        assertThat(process(event(id, checkin, 110, 52, 13, 5)).getStatus()).isEqualTo(Status.OK);
+
+        assertThat(passengerCounts(id)).last()
+                .isEqualTo(new Row(checkin, programId, pointId, acc(110, 52, 13, 5), acc(10, 2, 3, 0), 4.6, -74.1));
+        assertThat(programCounters(programId)).containsExactly(13, 2, 0);
+    }
+
+    @Test
+    void withoutActiveProgramAndFilledLastPointRowHasNoProgram() {
+        String id = vehicle(null);
+        long programId = IDS.incrementAndGet();
+        addProgram(programId, id, true, today().minusDays(2));
+        addControlPoint(programId, IDS.incrementAndGet(), 1, false);
+        history(id, recent(20), programId, acc(100, 50, 10, 5));
+
+        assertThat(process(event(id, recent(5), 110, 52, 13, 5)).getStatus()).isEqualTo(Status.OK);
+
+        assertThat(passengerCounts(id)).last().extracting(Row::programId, Row::pointId).containsExactly(null, null);
+        assertThat(programCounters(programId)).containsExactly(null, null, null);
+    }
+
+    @Test
+    void checkinMoreThanADayOffUpdatesVehicleWithProcessingTime() {
+        String id = vehicle(null);
+        Instant checkin = Instant.now().minus(3, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+        Instant before = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+        assertThat(process(event(id, checkin, 1, 1, 1, 1)).getStatus()).isEqualTo(Status.OK);
+
+        assertThat(passengerCounts(id)).extracting(Row::fecha).containsExactly(checkin);
+        assertThat(repository.getLastDate(id)).hasValueSatisfying(d -> assertThat(d).isBetween(before, Instant.now()));
+    }
+
+    @Test
+    void batchProducesSameStatusesAndRowsAsSingleEvents() {
+        String single = vehicle(null);
+        String batch = vehicle(null);
+        long[] programs = { IDS.incrementAndGet(), IDS.incrementAndGet() };
+        addProgram(programs[0], single, true, today().plusMinutes(1));
+        addProgram(programs[1], batch, true, today().plusMinutes(1));
+        int[][] readings = { { 100, 50, 10, 5 }, { 120, 55, 10, 6 }, { 500, 55, 10, 6 }, { 130, 60, 12, 6 }, { 2, 1, 0, 0 } };
+
+        List<Status> singleStatuses = new ArrayList<>();
+        List<PassengerEvent> batchEvents = new ArrayList<>();
+        for (int i = 0; i < readings.length; i++) {
+            Instant checkin = recent(30 - i);
+            int[] r = readings[i];
+            singleStatuses.add(process(event(single, checkin, r[0], r[1], r[2], r[3])).getStatus());
+            batchEvents.add(event(batch, checkin, r[0], r[1], r[2], r[3]));
+        }
+        List<Status> batchStatuses = batchService.processBatch(batchEvents).stream().map(PassengerEventOut::getStatus).toList();
+
+        assertThat(singleStatuses).containsExactly(Status.OK, Status.OK, Status.DISCARDED, Status.OK, Status.OK);
+        assertThat(batchStatuses).isEqualTo(singleStatuses);
+        assertThat(withoutProgram(passengerCounts(batch))).isEqualTo(withoutProgram(passengerCounts(single)));
+        assertThat(passengerCounts(batch)).extracting(Row::programId).containsOnly(programs[1]);
+        assertThat(discardedCounts(batch)).isEqualTo(discardedCounts(single));
+        assertThat(repository.getLastDate(batch)).isEqualTo(repository.getLastDate(single));
+    }
+
+    // ---- puerto ----
+
+    @Test
+    void lastAccumulatorsUseHighestIdUpToDateAndDropDoor3() {
+        String id = vehicle(null);
+        Instant t1 = recent(30), t2 = recent(20), t3 = recent(10);
+        Accumulators withDoor3 = acc(5, 5, 5, 5);
+        withDoor3.setDoor3In(7);
+        withDoor3.setTotalIn(withDoor3.getTotalIn() + 7);
+        insert(id, t1, 1L, acc(1, 1, 1, 1));
+        insert(id, t3, 3L, acc(3, 3, 3, 3));
+        insert(id, t2, 2L, withDoor3);
+
+        Accumulators stored = acc(5, 5, 5, 5);
+        stored.setTotalIn(stored.getTotalIn() + 7);
+        assertThat(repository.getLastAccumulators(id, t2)).contains(new RepoAcc(2L, stored));
+        assertThat(repository.getLastAccumulators(id, t3)).contains(new RepoAcc(2L, stored));
+        assertThat(repository.getLastAccumulators(id, t1)).contains(new RepoAcc(1L, acc(1, 1, 1, 1)));
+        assertThat(repository.getLastAccumulators(id, t1.minusSeconds(1))).isEmpty();
+        assertThat(repository.hasHistory(id)).isTrue();
+    }
+
+    @Test
+    void vehicleStatesMatchLastRowUpToLastDate() {
+        String withRow = vehicle(null);
+        String withoutDate = vehicle(null);
+        Instant t1 = recent(30), t2 = recent(20);
+        insert(withRow, t1, 7L, acc(1, 1, 1, 1));
+        insert(withRow, t2, 8L, acc(2, 2, 2, 2));
+        repository.updateVehicleLastCount(withRow, t1);
+
+        assertThat(repository.loadVehicleStates(List.of(withRow, withoutDate, "CONF-MISSING")))
+                .containsExactlyInAnyOrder(
+                        new VehicleState(withRow, t1, true, t1, 7L, acc(1, 1, 1, 1)),
+                        new VehicleState(withoutDate, null, false, null, null, null));
+        assertThat(repository.findExistingVehicleIds(List.of(withRow, "CONF-MISSING"))).containsExactly(withRow);
+    }
+
+    @Test
+    void compareAndSetOnlyAppliesOverExpectedVersion() {
+        String id = vehicle(null);
+        Instant t1 = recent(10), t2 = recent(5);
+        long v0 = repository.getVehicleVersion(id);
+
+        assertThat(repository.compareAndSetLastCount(id, v0, t1)).isTrue();
+        assertThat(repository.compareAndSetLastCount(id, v0, t2)).isFalse();
+        assertThat(repository.validateVehicleVersion(id, v0)).isFalse();
+        assertThat(repository.validateVehicleVersion(id, v0 + 1)).isTrue();
+        // cualquier escritura de fecha_ultimo_conteo cuenta, también sin CAS
+        repository.updateVehicleLastCount(id, t1);
+        assertThat(repository.compareAndSetLastCount(id, v0 + 1, t2)).isFalse();
+        assertThat(repository.compareAndSetLastCount(id, v0 + 2, t2)).isTrue();
+        assertThat(repository.getLastDate(id)).contains(t2);
+    }
+
+    @Test
+    void compareAndSetWithTheSameDateFailsOnceAConcurrentWriteCommits() throws Exception {
+        Instant last = recent(10);
+        String id = vehicle(last);
+        long read = repository.getVehicleVersion(id);
+        CountDownLatch written = new CountDownLatch(1);
+
+        // otra transacción acepta un evento con la misma fecha efectiva y confirma mientras esta intenta el CAS
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() -> tx.executeWithoutResult(s -> {
+            assertThat(repository.compareAndSetLastCount(id, read, last)).isTrue();
+            written.countDown();
+            sleep(200);
+        }));
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+        boolean applied = tx.execute(s -> repository.compareAndSetLastCount(id, read, last));
+        other.get(5, TimeUnit.SECONDS);
+
+        assertThat(applied).isFalse();
+        assertThat(repository.validateVehicleVersion(id, read)).isFalse();
+        assertThat(repository.getLastDate(id)).contains(last);
+    }
+
+    @Test
+    void duplicateReadingsProcessedConcurrentlyInOptimisticModeAreCountedOnce() throws Exception {
+        String id = vehicle(null);
+        assertThat(process(event(id, recent(10), 10, 5, 0, 0)).getStatus()).isEqualTo(Status.OK);
+        PassengerEvent duplicate = event(id, recent(5), 20, 8, 0, 0);
+
+        ProcessingMode mode = props.getProcessingMode();
+        props.setProcessingMode(ProcessingMode.OPTIMISTIC);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<PassengerEventOut>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return process(duplicate);
+                }, pool));
+            }
+            start.countDown();
+            for (CompletableFuture<PassengerEventOut> r : results) {
+                assertThat(r.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(Status.OK);
+            }
+        } finally {
+            props.setProcessingMode(mode);
+            pool.shutdown();
+        }
+
+        // una sola lectura suma lo nuevo; las repetidas, con la misma fecha, dan neto 0 como en modo lock
+        List<Row> rows = passengerCounts(id);
+        assertThat(rows).hasSize(5);
+        assertThat(rows.stream().mapToInt(r -> r.net().getTotalIn()).sum()).isEqualTo(20);
+        assertThat(rows.stream().mapToInt(r -> r.net().getTotalOut()).sum()).isEqualTo(8);
+    }
+
+    @Test
+    void rollbackUndoesWrites() {
+        String id = vehicle(recent(60));
+        long programId = IDS.incrementAndGet();
+        addProgram(programId, id, true, today());
+
+        tx.executeWithoutResult(status -> {
+            insert(id, recent(5), programId, acc(1, 1, 1, 1));
+            repository.insertDiscarded(event(id, recent(5), 1, 1, 1, 1), acc(1, 1, 1, 1), acc(1, 1, 1, 1), null, null);
+            repository.updateVehicleLastCount(id, recent(5));
+            repository.updateProgvehiculosCounters(programId, 1, 1, 1);
+            status.setRollbackOnly();
+        });
+
+        assertThat(passengerCounts(id)).isEmpty();
+        assertThat(discardedCounts(id)).isEmpty();
+        assertThat(repository.getLastDate(id)).contains(recent(60));
+        assertThat(programCounters(programId)).containsExactly(null, null, null);
+    }
+
+    @Test
+    void vehicleLockIsHeldUntilTransactionEnds() throws Exception {
+        String id = vehicle(null);
+        CountDownLatch locked = new CountDownLatch(1);
+        AtomicLong releasedAt = new AtomicLong();
+
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> tx.executeWithoutResult(s -> {
+            repository.lockVehicleRow(id);
+            locked.countDown();
+            sleep(200);
+            releasedAt.set(System.nanoTime());
+        }));
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+        long acquiredAt = tx.execute(s -> {
+            repository.lockVehicleRow(id);
+            return System.nanoTime();
+        });
+        holder.get(5, TimeUnit.SECONDS);
+
+        assertThat(acquiredAt).isGreaterThan(releasedAt.get());
+    }
+
+    // ---- helpers ----
+
+    private String vehicle(Instant lastCount) {
+        String id = "CONF-" + getClass().getSimpleName().charAt(0) + "-" + VEHICLES.incrementAndGet();
+        addVehicle(id, lastCount);
+        return id;
+    }
+
+    private PassengerEventOut process(PassengerEvent event) {
+        return service.processSync(event);
+    }
+
+    /** Fila previa escrita por el puerto (como la dejaría un procesamiento anterior). */
+    private void history(String idVehicle, Instant fecha, Long programId, Accumulators raw) {
+        insert(idVehicle, fecha, programId, raw);
+        repository.updateVehicleLastCount(idVehicle, fecha);
+    }
+
+    private void insert(String idVehicle, Instant fecha, Long programId, Accumulators raw) {
+        repository.insertPassengerEvent(event(idVehicle, fecha, 0, 0, 0, 0), programId, null, raw, raw);
+    }
+
+    private LocalDateTime today() {
+        return LocalDateTime.now(ZoneId.of(props.getTimezone())).truncatedTo(ChronoUnit.DAYS).plusHours(12);
+    }
+
+    private static Instant recent(int minutesAgo) {
+        return Instant.now().truncatedTo(ChronoUnit.MINUTES).minus(minutesAgo, ChronoUnit.MINUTES);
+    }
+
+    static PassengerEvent event(String idVehicle, Instant checkin, int d1In, int d1Out, int d2In, int d2Out) {
+        return PassengerEvent.builder()
+                .idVehicle(idVehicle)
+                .door1In(d1In).door1Out(d1Out).door2In(d2In).door2Out(d2Out)
+                .checkinTime(checkin)
+                .latitude(4.6).longitude(-74.1)
+                .build();
+    }
+
+    /** Acumulados tal como quedan en conteo_pasajeros (puertas 1 y 2; totales = suma). */
+    static Accumulators acc(int d1In, int d1Out, int d2In, int d2Out) {
+        return Accumulators.builder()
+                .door1In(d1In).door1Out(d1Out).door2In(d2In).door2Out(d2Out)
+                .totalIn(d1In + d2In).totalOut(d1Out + d2Out)
+                .build();
+    }
+
+    private static List<Row> withoutProgram(List<Row> rows) {
+        return rows.stream().map(r -> new Row(r.fecha(), null, r.pointId(), r.raw(), r.net(), r.latitude(), r.longitude())).toList();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.extreme.passenger.infrastructure.persistence.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.extreme.passenger.domain.model.Accumulators;
+import com.extreme.passenger.domain.model.VehicleState;
+import com.extreme.passenger.infrastructure.persistence.jdbc.PassengerEventJdbcRepository.StateRow;
+import com.extreme.passenger.infrastructure.persistence.jdbc.VehicleStateProjection.Report;
+
+/** Backfill y chequeo de vehicle_state contra conteo_pasajeros en H2, sin contexto de Spring. */
+class VehicleStateProjectionTest {
+
+    private static final Instant T0 = Instant.now().minus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS);
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbc;
+    private EmbeddedPassengerEventRepository repository;
+    private VehicleStateProjection projection;
+
+    @BeforeEach
+    void setUp() {
+        db = new EmbeddedDatabaseBuilder().generateUniqueName(true).setType(EmbeddedDatabaseType.H2).build();
+        jdbc = new JdbcTemplate(db);
+        VehicleStateProps stateProps = new VehicleStateProps();
+        stateProps.setMode(VehicleStateProps.Mode.READ);
+        // chunks de 2 con 3 vehículos: el recorrido cruza un borde de chunk en paralelo
+        stateProps.setParallelism(2);
+        stateProps.setChunkSize(2);
+        repository = new EmbeddedPassengerEventRepository(jdbc, new BulkWriteProps(), new PgCopyWriter(jdbc), stateProps,
+                List.of("V1", "V2", "V3"));
+        repository.install();
+        projection = new VehicleStateProjection(repository, db, stateProps, new DataSourceTransactionManager(db));
+        projection.install();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.shutdown();
+    }
+
+    @Test
+    void backfillWritesTheLastRowOfEachVehicle() {
+        count("V1", T0, 7L, 3);
+        count("V1", T0.plusSeconds(60), 7L, 5);
+        count("V2", T0.plusSeconds(30), null, 2);
+
+        Report before = projection.check(false);
+        assertThat(before.vehicles()).isEqualTo(3);
+        assertThat(before.missing()).isEqualTo(2);
+        assertThat(before.stale() + before.orphan()).isZero();
+        assertThat(before.sample()).containsExactlyInAnyOrder("V1", "V2");
+
+        assertThat(projection.backfill().written()).isEqualTo(2);
+        assertThat(repository.stateRows(List.of("V1", "V2", "V3")))
+                .containsExactlyInAnyOrderElementsOf(repository.lastRows(List.of("V1", "V2", "V3")));
+        assertThat(repository.stateRows(List.of("V1")))
+                .extracting(StateRow::date, StateRow::programId, r -> r.acc().getTotalIn())
+                .containsExactly(tuple(T0.plusSeconds(60), 7L, 5));
+        assertThat(differences(projection.check(false))).isZero();
+    }
+
+    @Test
+    void checkClassifiesMismatchesAndRepairConverges() {
+        count("V1", T0, 7L, 3);
+        count("V2", T0, null, 2);
+        projection.backfill();
+
+        // stale: acumulados distintos; missing: sin fila; orphan: fila de un vehículo sin conteos
+        jdbc.update("UPDATE vehicle_state SET acumulada_subida = acumulada_subida + 1 WHERE idvehiculo = 'V1'");
+        jdbc.update("DELETE FROM vehicle_state WHERE idvehiculo = 'V2'");
+        repository.upsertStates(List.of(new StateRow("V3", T0, null, acc(9))));
+
+        Report drift = projection.check(false);
+        assertThat(drift.stale()).isEqualTo(1);
+        assertThat(drift.missing()).isEqualTo(1);
+        assertThat(drift.orphan()).isEqualTo(1);
+        assertThat(drift.written()).isZero();
+        assertThat(drift.sample()).containsExactlyInAnyOrder("V1", "V2", "V3");
+
+        Report repaired = projection.check(true);
+        assertThat(repaired.written()).isEqualTo(3);
+        assertThat(differences(projection.check(false))).isZero();
+        assertThat(repository.stateRows(List.of("V3"))).isEmpty();
+        assertThat(repository.stateRows(List.of("V1"))).extracting(r -> r.acc().getTotalIn()).containsExactly(3);
+    }
+
+    @Test
+    void rowInsertedBehindTheProjectionIsStale() {
+        count("V1", T0, 7L, 3);
+        projection.backfill();
+
+        // una fila escrita sin pasar por el repositorio (p. ej. otra instancia con la proyección apagada)
+        count("V1", T0.plusSeconds(60), 8L, 4);
+
+        Report drift = projection.check(false);
+        assertThat(drift.stale()).isEqualTo(1);
+        assertThat(drift.sample()).containsExactly("V1");
+        assertThat(projection.check(true).written()).isEqualTo(1);
+        assertThat(repository.stateRows(List.of("V1"))).extracting(StateRow::programId).containsExactly(8L);
+    }
+
+    @Test
+    void readModeFallsBackToCountsWhenTheProjectionRowIsMissing() {
+        count("V1", T0, 7L, 3);
+        jdbc.update("UPDATE vehiculos SET fecha_ultimo_conteo = ? WHERE idvehiculo = 'V1'", Timestamp.from(T0));
+
+        assertThat(repository.stateRows(List.of("V1"))).isEmpty();
+        assertThat(repository.hasHistory("V1")).isTrue();
+        assertThat(repository.getLastAccumulators("V1", T0.plusSeconds(1)))
+                .hasValueSatisfying(r -> {
+                    assertThat(r.programId()).isEqualTo(7L);
+                    assertThat(r.acc().getTotalIn()).isEqualTo(3);
+                });
+        assertThat(repository.loadVehicleStates(List.of("V1", "V2")))
+                .filteredOn(s -> s.idVehicle().equals("V1"))
+                .singleElement()
+                .satisfies(s -> {
+                    assertThat(s.hasHistory()).isTrue();
+                    assertThat(s.coversLastDate()).isTrue();
+                    assertThat(s.lastAcc().getTotalIn()).isEqualTo(3);
+                });
+
+        assertThat(repository.hasHistory("V2")).isFalse();
+        assertThat(repository.getLastAccumulators("V2", T0.plusSeconds(1))).isEmpty();
+        assertThat(repository.loadVehicleStates(List.of("V2"))).extracting(VehicleState::hasHistory).containsOnly(false);
+    }
+
+    private void count(String idVehicle, Instant date, Long programId, int in) {
+        jdbc.update("""
+                INSERT INTO conteo_pasajeros (fecha, idvehiculo, idprogramacion,
+                    acumulada_subida, acumulada_bajada, acumulada_bloqueo,
+                    acumulada_subida_puerta1, acumulada_bajada_puerta1, acumulada_bloqueo_puerta1,
+                    acumulada_subida_puerta2, acumulada_bajada_puerta2, acumulada_bloqueo_puerta2)
+                VALUES (?, ?, ?, ?, 0, 0, ?, 0, 0, 0, 0, 0)""",
+                Timestamp.from(date), idVehicle, programId, in, in);
+    }
+
+    private static Accumulators acc(int in) {
+        return Accumulators.builder().totalIn(in).door1In(in).build();
+    }
+
+    private static long differences(Report report) {
+        return report.missing() + report.stale() + report.orphan();
+    }
+}
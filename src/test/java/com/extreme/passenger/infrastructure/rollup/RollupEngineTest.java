@@ -0,0 +1,225 @@
+package com.extreme.passenger.infrastructure.rollup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.extreme.passenger.domain.port.RollupRepository;
+import com.extreme.passenger.domain.port.RollupRepository.Bucket;
+import com.extreme.passenger.domain.port.RollupRepository.Granularity;
+import com.extreme.passenger.infrastructure.rollup.RollupEngine.Series;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** Bordes de bucket y rangos de la API de lectura, en memoria y contra tablas de rollup simuladas. */
+class RollupEngineTest {
+
+    /** Inicio de la hora anterior: dentro de la retención de minutos y previo al arranque del engine. */
+    private static final Instant H = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(1, ChronoUnit.HOURS);
+
+    private RollupProps props;
+
+    @BeforeEach
+    void setUp() {
+        props = new RollupProps();
+        props.setEnabled(true);
+        props.setStripes(4);
+    }
+
+    @Test
+    void eventsOnEachSideOfABoundaryFallInDifferentBuckets() {
+        RollupEngine rollups = engine(null);
+        rollups.record("V1", 1, H.minusSeconds(1), 1, 0, 0);
+        rollups.record("V1", 1, H, 2, 0, 0);
+        rollups.record("V1", 1, H.plusSeconds(30), 4, 1, 0);
+        rollups.record("V1", 1, H.plus(Duration.ofMinutes(60)).minusMillis(1), 8, 0, 1);
+        rollups.record("V1", 1, H.plus(Duration.ofHours(1)), 16, 0, 0);
+
+        Series minutes = rollups.vehicle("V1", Granularity.MINUTE, H, H.plus(Duration.ofHours(1)));
+        assertThat(minutes.source()).isEqualTo("memory");
+        assertThat(minutes.buckets()).containsExactly(
+                new Bucket(H, 2, 6, 1, 0),
+                new Bucket(H.plus(Duration.ofMinutes(59)), 1, 8, 0, 1));
+
+        assertThat(rollups.vehicle("V1", Granularity.HOUR, H.minus(Duration.ofHours(1)), H.plus(Duration.ofHours(2))).buckets())
+                .containsExactly(
+                        new Bucket(H.minus(Duration.ofHours(1)), 1, 1, 0, 0),
+                        new Bucket(H, 3, 14, 1, 1),
+                        new Bucket(H.plus(Duration.ofHours(1)), 1, 16, 0, 0));
+    }
+
+    @Test
+    void rangeReturnsBucketsStartingInFromTo() {
+        RollupEngine rollups = engine(null);
+        rollups.record("V1", 1, H.plusSeconds(30), 1, 0, 0);
+        rollups.record("V1", 1, H.plus(Duration.ofMinutes(1)), 2, 0, 0);
+        rollups.record("V1", 1, H.plus(Duration.ofMinutes(2)), 4, 0, 0);
+
+        // from a mitad de minuto no incluye ese minuto; to a mitad de minuto incluye el bucket que empieza antes
+        assertThat(rollups.vehicle("V1", Granularity.MINUTE, H.plusSeconds(10), H.plusSeconds(70)).buckets())
+                .extracting(Bucket::in).containsExactly(2L);
+        // to exacto en el borde lo excluye
+        assertThat(rollups.vehicle("V1", Granularity.MINUTE, H, H.plus(Duration.ofMinutes(2))).buckets())
+                .extracting(Bucket::in).containsExactly(1L, 2L);
+        // una hora con from a mitad de hora arranca en la siguiente
+        assertThat(rollups.vehicle("V1", Granularity.HOUR, H.plusSeconds(1), H.plus(Duration.ofHours(2))).buckets()).isEmpty();
+    }
+
+    @Test
+    void programSeriesSumsVehiclesAndSkipsRowsWithoutProgram() {
+        RollupEngine rollups = engine(null);
+        rollups.record("V1", 7, H.plusSeconds(5), 3, 1, 0);
+        rollups.record("V2", 7, H.plusSeconds(50), 2, 2, 1);
+        rollups.record("V3", -1, H.plusSeconds(20), 9, 9, 9);
+
+        assertThat(rollups.program(7, Granularity.MINUTE, H, H.plus(Duration.ofMinutes(1))).buckets())
+                .containsExactly(new Bucket(H, 2, 5, 3, 1));
+        assertThat(rollups.vehicle("V3", Granularity.MINUTE, H, H.plus(Duration.ofMinutes(1))).buckets())
+                .containsExactly(new Bucket(H, 1, 9, 9, 9));
+    }
+
+    @Test
+    void memoryOnlyFlushEvictsMinutesBeyondRetention() {
+        RollupEngine rollups = engine(null);
+        Instant old = Instant.now().minus(props.getMinuteRetention()).minus(Duration.ofHours(1)).truncatedTo(ChronoUnit.HOURS);
+        rollups.record("V1", 1, old, 1, 0, 0);
+        rollups.record("V1", 1, H, 2, 0, 0);
+
+        rollups.flush();
+
+        assertThat(rollups.vehicle("V1", Granularity.MINUTE, old, Instant.now()).buckets())
+                .extracting(Bucket::start).containsExactly(H);
+        assertThat(rollups.vehicle("V1", Granularity.HOUR, old, Instant.now()).buckets())
+                .extracting(Bucket::start).containsExactly(old, H);
+    }
+
+    @Test
+    void storedAndPendingDeltasAreCountedOnce() {
+        FakeRollupRepository tables = new FakeRollupRepository();
+        RollupEngine rollups = engine(tables);
+        Instant to = H.plus(Duration.ofHours(1));
+        rollups.record("V1", 7, H.plusSeconds(10), 3, 1, 0);
+        rollups.record("V1", 7, H.plusSeconds(20), 2, 0, 0);
+
+        // anterior al arranque: tablas (vacías) más lo pendiente
+        Series pending = rollups.vehicle("V1", Granularity.MINUTE, H, to);
+        assertThat(pending.source()).isEqualTo("rollup");
+        assertThat(pending.buckets()).containsExactly(new Bucket(H, 2, 5, 1, 0));
+
+        rollups.flush();
+        assertThat(rollups.vehicle("V1", Granularity.MINUTE, H, to).buckets()).containsExactly(new Bucket(H, 2, 5, 1, 0));
+
+        rollups.record("V1", 7, H.plusSeconds(30), 1, 0, 0);
+        assertThat(rollups.vehicle("V1", Granularity.MINUTE, H, to).buckets()).containsExactly(new Bucket(H, 3, 6, 1, 0));
+        assertThat(rollups.program(7, Granularity.HOUR, H, to).buckets()).containsExactly(new Bucket(H, 3, 6, 1, 0));
+
+        // un flush fallido devuelve los deltas a pendiente: ni se pierden ni se duplican
+        tables.failNext = true;
+        rollups.flush();
+        assertThat(rollups.vehicle("V1", Granularity.MINUTE, H, to).buckets()).containsExactly(new Bucket(H, 3, 6, 1, 0));
+        rollups.flush();
+        assertThat(tables.vehicleBuckets("V1", Granularity.MINUTE, H, to)).containsExactly(new Bucket(H, 3, 6, 1, 0));
+    }
+
+    @Test
+    void rangeAfterStartupIsAnsweredFromMemory() {
+        RollupEngine rollups = engine(new FakeRollupRepository());
+        Instant next = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(Duration.ofHours(1));
+        rollups.record("V1", 7, next.plusSeconds(90), 1, 0, 0);
+
+        Series series = rollups.vehicle("V1", Granularity.MINUTE, next, next.plus(Duration.ofHours(1)));
+        assertThat(series.source()).isEqualTo("memory");
+        assertThat(series.buckets()).containsExactly(new Bucket(next.plus(Duration.ofMinutes(1)), 1, 1, 0, 0));
+
+        props.setMemoryReads(false);
+        assertThat(engine(new FakeRollupRepository()).vehicle("V1", Granularity.MINUTE, next, next.plus(Duration.ofHours(1))).source())
+                .isEqualTo("rollup");
+    }
+
+    @Test
+    void rejectsInvalidRangesAndReadsWhileDisabled() {
+        props.setMaxBuckets(60);
+        RollupEngine rollups = engine(null);
+        assertThatThrownBy(() -> rollups.vehicle("V1", Granularity.MINUTE, H, H))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rollups.vehicle("V1", Granularity.MINUTE, H, H.plus(Duration.ofMinutes(61))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(rollups.vehicle("V1", Granularity.MINUTE, H, H.plus(Duration.ofMinutes(60))).buckets()).isEmpty();
+
+        props.setEnabled(false);
+        RollupEngine disabled = engine(null);
+        disabled.record("V1", 1, H, 1, 0, 0);
+        assertThatThrownBy(() -> disabled.vehicle("V1", Granularity.MINUTE, H, H.plus(Duration.ofMinutes(1))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private RollupEngine engine(RollupRepository repository) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (repository != null) beans.addBean("rollupRepository", repository);
+        return new RollupEngine(props, beans.getBeanProvider(RollupRepository.class),
+                new TransactionTemplate(new NoOpTransactionManager()), new SimpleMeterRegistry());
+    }
+
+    /** Tablas de rollup en memoria; failNext hace fallar la próxima escritura. */
+    private static final class FakeRollupRepository implements RollupRepository {
+
+        private final Map<String, TreeMap<Instant, Bucket>> buckets = new HashMap<>();
+        boolean failNext;
+
+        @Override
+        public void addVehicleDeltas(List<VehicleDelta> deltas) {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("fallo simulado");
+            }
+            deltas.forEach(d -> add("v:" + d.idVehicle() + ":" + d.granularity(), d.delta()));
+        }
+
+        @Override
+        public void addProgramDeltas(List<ProgramDelta> deltas) {
+            deltas.forEach(d -> add("p:" + d.programId() + ":" + d.granularity(), d.delta()));
+        }
+
+        @Override
+        public List<Bucket> vehicleBuckets(String idVehicle, Granularity granularity, Instant from, Instant to) {
+            return range("v:" + idVehicle + ":" + granularity, from, to);
+        }
+
+        @Override
+        public List<Bucket> programBuckets(long programId, Granularity granularity, Instant from, Instant to) {
+            return range("p:" + programId + ":" + granularity, from, to);
+        }
+
+        private void add(String key, Bucket d) {
+            buckets.computeIfAbsent(key, k -> new TreeMap<>()).merge(d.start(), d, (a, b) ->
+                    new Bucket(a.start(), a.events() + b.events(), a.in() + b.in(), a.out() + b.out(), a.block() + b.block()));
+        }
+
+        private List<Bucket> range(String key, Instant from, Instant to) {
+            return new ArrayList<>(buckets.getOrDefault(key, new TreeMap<>()).subMap(from, to).values());
+        }
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override public TransactionStatus getTransaction(TransactionDefinition definition) { return new SimpleTransactionStatus(); }
+        @Override public void commit(TransactionStatus status) {}
+        @Override public void rollback(TransactionStatus status) {}
+    }
+}
@@ -0,0 +1,150 @@
+package com.extreme.passenger.presentation.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.extreme.passenger.domain.model.PassengerEvent;
+import com.extreme.passenger.infrastructure.config.JacksonConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * El decoder streaming contra el de data binding sobre los mismos bytes: mismo evento para los payloads
+ * válidos y el mismo tipo de excepción para los inválidos. Se prueba con una zona sin cambios de hora
+ * (offset fijo) y con una que los tiene (reglas de la zona).
+ */
+class StreamingPassengerEventDecoderTest {
+
+    private static final List<String> ZONES = List.of("America/Bogota", "America/New_York");
+
+    private static final List<String> VALID = List.of(
+            """
+            {"vehicleID":"V1","door1_in":3,"door1_out":1,"door1_block":0,"door2_in":2,"door2_out":4,"door2_block":1,
+             "door3_in":0,"door3_out":0,"door3_block":0,"checkin_time":"2024-05-10 08:15:30","latitude":4.6097,"longitude":-74.0817}""",
+            // aliases
+            """
+            {"vehicle_id":"V1","doorIn1":3,"door_1_out":1,"door2In":2,"doorOut2":4,"door_3_block":5,
+             "date":"2024-05-10 08:15:30","lat":4.6,"lon":-74.1}""",
+            """
+            {"idvehicle":"V1","checkinTime":"2024-05-10 08:15:30","Latitude":1,"lng":2}""",
+            // coerciones: string→número, float→int, null→0, id numérico y con espacios
+            """
+            {"vehicleID":"  V1 ","door1_in":" 7 ","door1_out":"-2","door2_in":3.9,"door2_out":null,"latitude":"4.5","longitude":" "}""",
+            """
+            {"vehicleID":123,"door1_in":"","door1_block":"+4","checkin_time":null}""",
+            """
+            {"vehicleID":"   ","door1_in":1}""",
+            // campos desconocidos, anidados o repetidos
+            """
+            {"extra":{"a":[1,2,{"b":null}]},"vehicleID":"V1","tags":["x"],"door1_in":1,"door1_in":2,"n":1.5e3}""",
+            // checkin_time: epoch, día fuera de mes (SMART), bisiesto, 24:00:00, cambios de hora en New York
+            """
+            {"vehicleID":"V1","checkin_time":1715328930}""",
+            """
+            {"vehicleID":"V1","checkin_time":1715328930.25}""",
+            """
+            {"vehicleID":"V1","checkin_time":"2023-04-31 10:00:00"}""",
+            """
+            {"vehicleID":"V1","checkin_time":"2024-02-29 23:59:59"}""",
+            """
+            {"vehicleID":"V1","checkin_time":"2024-12-31 24:00:00"}""",
+            """
+            {"vehicleID":"V1","checkin_time":"2024-03-10 02:30:00"}""",
+            """
+            {"vehicleID":"V1","checkin_time":"2024-11-03 01:30:00"}""",
+            """
+            {"vehicleID":"V1","checkin_time":" 2024-05-10 08:15:30 "}""",
+            "{}",
+            "null",
+            """
+            {"vehicleID":"V1"} {"trailing":true}""");
+
+    private static final List<String> INVALID = List.of(
+            "",
+            "{",
+            """
+            {"vehicleID":"V1",""",
+            """
+            {"vehicleID":"V1","door1_in":""",
+            """
+            {"vehicleID" "V1"}""",
+            "[1,2]",
+            "\"V1\"",
+            "42",
+            """
+            {"door1_in":"abc"}""",
+            """
+            {"door1_in":"1.5"}""",
+            """
+            {"door1_in":"99999999999"}""",
+            """
+            {"door1_in":99999999999}""",
+            """
+            {"door1_in":1e20}""",
+            """
+            {"door1_in":{"a":1}}""",
+            """
+            {"door1_in":true}""",
+            """
+            {"vehicleID":{"a":1}}""",
+            """
+            {"latitude":"north"}""",
+            """
+            {"longitude":[1]}""",
+            """
+            {"checkin_time":"2024-13-01 00:00:00"}""",
+            """
+            {"checkin_time":"2024-05-10T08:15:30"}""",
+            """
+            {"checkin_time":"2024-05-10 24:30:00"}""",
+            """
+            {"checkin_time":"yesterday"}""",
+            """
+            {"checkin_time":{}}""");
+
+    static Stream<Arguments> valid() {
+        return ZONES.stream().flatMap(zone -> VALID.stream().map(payload -> Arguments.of(zone, payload)));
+    }
+
+    static Stream<Arguments> invalid() {
+        return ZONES.stream().flatMap(zone -> INVALID.stream().map(payload -> Arguments.of(zone, payload)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("valid")
+    void decodesLikeDataBinding(String zone, String payload) throws Exception {
+        ObjectMapper json = objectMapper(zone);
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+
+        PassengerEvent expected = new JacksonPassengerEventDecoder(json, new PassengerEventMapper()).decode(bytes);
+        assertThat(new StreamingPassengerEventDecoder(json).decode(bytes)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalid")
+    void rejectsLikeDataBinding(String zone, String payload) {
+        ObjectMapper json = objectMapper(zone);
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+
+        Throwable expected = catchThrowable(() -> new JacksonPassengerEventDecoder(json, new PassengerEventMapper()).decode(bytes));
+        Throwable actual = catchThrowable(() -> new StreamingPassengerEventDecoder(json).decode(bytes));
+        assertThat(expected).as("data binding").isNotNull();
+        assertThat(actual).isExactlyInstanceOf(expected.getClass());
+    }
+
+    /** Mismo ObjectMapper que arma Spring Boot con spring.jackson.time-zone y JacksonConfig. */
+    private static ObjectMapper objectMapper(String zone) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json().timeZone(TimeZone.getTimeZone(zone));
+        new JacksonConfig().instantTimeZone().customize(builder);
+        return builder.build();
+    }
+}